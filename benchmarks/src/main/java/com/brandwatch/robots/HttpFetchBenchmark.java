@@ -0,0 +1,143 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (benchmarks)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.net.CharSourceSupplier;
+import com.brandwatch.robots.net.Validators;
+import com.google.common.base.Charsets;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches of a robots.txt from a server on the loopback interface, through the client built by
+ * {@link RobotsFactory}. Each fetch either succeeds with the bild.de rules, or fails with a
+ * {@code 404 Not Found} and an HTML error page.
+ *
+ * With {@code keepAlive} disabled the server closes every connection, so each fetch pays for a new
+ * one, as it did when responses were not closed and their connections could never be reused.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpFetchBenchmark {
+
+    private static final byte[] NOT_FOUND_PAGE = ("<html><head><title>404 Not Found</title></head>"
+            + "<body><h1>Not Found</h1><p>The requested URL was not found on this server.</p></body></html>")
+            .getBytes(Charsets.UTF_8);
+
+    @Param({"200", "404"})
+    private int status;
+
+    @Param({"true", "false"})
+    private boolean keepAlive;
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private CharSourceSupplier supplier;
+    private URI resource;
+
+    @Setup
+    public void setup() throws IOException {
+        final byte[] content = Fixtures.read(Fixtures.BILD_DE).getBytes(Charsets.UTF_8);
+        // Otherwise Nagle's algorithm holds back the end of each response for the client's delayed ACK
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 0);
+        server.createContext("/robots.txt", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                final byte[] body = status == 200 ? content : NOT_FOUND_PAGE;
+                exchange.getResponseHeaders().set("Content-Type", status == 200 ? "text/plain" : "text/html");
+                if (!keepAlive) {
+                    exchange.getResponseHeaders().set("Connection", "close");
+                }
+                exchange.sendResponseHeaders(status, body.length);
+                final OutputStream out = exchange.getResponseBody();
+                try {
+                    out.write(body);
+                } finally {
+                    out.close();
+                }
+            }
+        });
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+
+        resource = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/robots.txt");
+        final RobotsConfig config = new RobotsConfig();
+        config.setMaxFileSizeBytes(content.length);
+        supplier = new RobotsFactory(config).createCharSourceSupplier();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        supplier.close();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public String fetch() throws Exception {
+        try {
+            return supplier.getAsync(resource, Validators.NONE).get().read();
+        } catch (TemporaryAllow e) {
+            return e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (benchmarks)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.net.Origin;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PolitenessScheduler} slot acquisition from many threads at once. With a single origin every
+ * thread contends for the same counter; with more origins than the scheduler tracks, origins are
+ * continually evicted and reloaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(16)
+@Fork(1)
+public class PolitenessSchedulerBenchmark {
+
+    private static final int MAX_ORIGINS = 100000;
+
+    @Param({"1", "1000", "1000000"})
+    private int origins;
+
+    private PolitenessScheduler scheduler;
+    private Origin[] keys;
+
+    @Setup
+    public void setup() {
+        scheduler = new PolitenessScheduler(MAX_ORIGINS, TimeUnit.MINUTES.toMillis(1));
+        keys = new Origin[origins];
+        for (int i = 0; i < origins; i++) {
+            keys[i] = Origin.of(URI.create("http://host" + i + ".example.com/"));
+        }
+    }
+
+    @Benchmark
+    public long acquire(Cursor cursor) {
+        return scheduler.acquire(cursor.next(keys), 1);
+    }
+
+    @Benchmark
+    public boolean tryAcquire(Cursor cursor) {
+        return scheduler.tryAcquire(cursor.next(keys), 1);
+    }
+
+    @Benchmark
+    public long getNextFetchTimeMillis(Cursor cursor) {
+        return scheduler.getNextFetchTimeMillis(cursor.next(keys));
+    }
+
+    /**
+     * Each thread's own pseudo-random walk over the origins.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int seed;
+
+        @Setup
+        public void setup() {
+            seed = System.identityHashCode(this) | 1;
+        }
+
+        Origin next(Origin[] keys) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 17;
+            seed ^= seed << 5;
+            return keys[(seed & Integer.MAX_VALUE) % keys.length];
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (benchmarks)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.domain.Robots;
+import com.brandwatch.robots.parser.ParseException;
+import com.brandwatch.robots.parser.RobotsParseHandler;
+import com.brandwatch.robots.parser.RobotsTxtParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing throughput of real-world robots.txt files: a large one (bild.de) and a small one from the
+ * bw.jar corpus. {@code parse} measures the parser alone; {@code parseAndBuild} also compiles every
+ * expression and builds the {@link Robots} instance from the decoded content buffer, as the loader
+ * does. Each is run with both the JavaCC generated parser and the hand-written streaming parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RobotsParserBenchmark {
+
+    @Param({Fixtures.BILD_DE, Fixtures.BW_JAR_MANUTD})
+    public String fixture;
+
+    @Param({"JAVACC", "STREAMING"})
+    public RobotsConfig.ParserType parserType;
+
+    private String content;
+    private CharBuffer buffer;
+    private RobotsFactory factory;
+    private RobotsTxtParser parser;
+
+    @Setup
+    public void setup() throws IOException {
+        content = Fixtures.read(fixture);
+        buffer = CharBuffer.wrap(content.toCharArray());
+        final RobotsConfig config = new RobotsConfig();
+        config.setParserType(parserType);
+        factory = new RobotsFactory(config);
+        parser = factory.createRobotsTxtParser();
+    }
+
+    @Benchmark
+    public void parse(final Blackhole blackhole) throws IOException, ParseException {
+        parser.parse(new StringReader(content), new RobotsParseHandler() {
+            @Override
+            public void startEntry() {
+            }
+
+            @Override
+            public void userAgent(String pattern) {
+                blackhole.consume(pattern);
+            }
+
+            @Override
+            public void allow(String pattern) {
+                blackhole.consume(pattern);
+            }
+
+            @Override
+            public void disallow(String pattern) {
+                blackhole.consume(pattern);
+            }
+
+            @Override
+            public void endEntry() {
+            }
+
+            @Override
+            public void siteMap(String url) {
+                blackhole.consume(url);
+            }
+
+            @Override
+            public void otherDirective(String field, String value) {
+                blackhole.consume(value);
+            }
+        });
+    }
+
+    @Benchmark
+    public Robots parseAndBuild() throws IOException, ParseException {
+        final RobotsBuildingParseHandler handler = factory.createRobotsBuildingHandler();
+        parser.parse(buffer, handler);
+        return handler.get();
+    }
+}
@@ -0,0 +1,137 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (benchmarks)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.net.CharSourceSupplier;
+import com.brandwatch.robots.net.ValidatedCharSource;
+import com.brandwatch.robots.net.Validators;
+import com.google.common.io.CharSource;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link RobotsService#isAllowed(String, URI)} against a warm cache, so that each call
+ * covers robots URI derivation, the cache lookup, agent group selection and path matching. The
+ * rules are those of bild.de, served without touching the network.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RobotsServiceBenchmark {
+
+    private static final String AGENT = "magpie-crawler/1.1 (U; Linux x86_64; en-GB; +http://www.brandwatch.net)";
+
+    private static final URI[] RESOURCES = {
+            URI.create("http://www.bild.de/"),
+            URI.create("http://www.bild.de/politik/inland/index.html"),
+            URI.create("http://www.bild.de/suche.bild.html?query=robots"),
+            URI.create("http://www.bild.de/video/clip/news/some-video-38329946.bild.html"),
+            URI.create("http://www.bild.de/ipad/index.html"),
+            URI.create("http://www.bild.de/static/images/logo.png"),
+            URI.create("http://www.bild.de/regional/berlin/berlin/aktuell-12345.bild.html?wt_mc=rss"),
+            URI.create("http://www.bild.de/xml/live.xml"),
+    };
+
+    private RobotsService service;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        final CharSource content = CharSource.wrap(Fixtures.read(Fixtures.BILD_DE));
+        service = new RobotsFactory(new RobotsConfig()) {
+            @Nonnull
+            @Override
+            public CharSourceSupplier createCharSourceSupplier() {
+                return new CharSourceSupplier() {
+                    @Nonnull
+                    @Override
+                    public CharSource get(@Nonnull URI resource) {
+                        return content;
+                    }
+
+                    @Nonnull
+                    @Override
+                    public ListenableFuture<CharSource> getAsync(@Nonnull URI resource) {
+                        return Futures.immediateFuture(content);
+                    }
+
+                    @Nonnull
+                    @Override
+                    public ListenableFuture<ValidatedCharSource> getAsync(@Nonnull URI resource,
+                                                                          @Nonnull Validators validators) {
+                        return Futures.immediateFuture(new ValidatedCharSource(content, Validators.NONE));
+                    }
+
+                    @Override
+                    public void close() {
+                    }
+                };
+            }
+        }.createService();
+
+        for (URI resource : RESOURCES) {
+            service.isAllowed(AGENT, resource);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        service.close();
+    }
+
+    @Benchmark
+    public boolean isAllowed() {
+        next = (next + 1) % RESOURCES.length;
+        return service.isAllowed(AGENT, RESOURCES[next]);
+    }
+}
@@ -0,0 +1,122 @@
+package com.brandwatch.robots.matching;
+
+/*
+ * #%L
+ * Robots (benchmarks)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.domain.PathDirective;
+import com.google.common.base.Optional;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selection of the most specific path directive for a request path, as the number of directives in
+ * a group grows. {@code linearScan} is {@link MatcherUtilsImpl#getMostSpecificMatch(Iterable, Object)};
+ * {@code trie} is the {@link ExpressionTrie} used by groups. Roughly one directive in five contains a
+ * wildcard, and targets are a mix of matching and non-matching paths.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MostSpecificMatchBenchmark {
+
+    private static final int TARGET_COUNT = 64;
+
+    @Param({"1", "10", "100", "1000"})
+    public int directiveCount;
+
+    private List<PathDirective> directives;
+    private ExpressionTrie<PathDirective> trie;
+    private MatcherUtils matcherUtils;
+    private String[] targets;
+    private int next;
+
+    @Setup
+    public void setup() {
+        final ExpressionCompiler compiler = new ExpressionCompilerBuilder()
+                .withLeftBoundaryMatching(true)
+                .build();
+        final Random random = new Random(42);
+
+        directives = new ArrayList<PathDirective>(directiveCount);
+        for (int i = 0; i < directiveCount; i++) {
+            final String value = (i % 5 == 4)
+                    ? "/section" + random.nextInt(directiveCount) + "/*.php$"
+                    : "/section" + random.nextInt(directiveCount) + "/page" + i;
+            directives.add(new PathDirective(
+                    random.nextBoolean() ? PathDirective.Field.allow : PathDirective.Field.disallow,
+                    value, compiler.compile(value)));
+        }
+        trie = new ExpressionTrie<PathDirective>(directives);
+        matcherUtils = new MatcherUtilsImpl();
+
+        targets = new String[TARGET_COUNT];
+        for (int i = 0; i < TARGET_COUNT; i++) {
+            final int section = random.nextInt(directiveCount * 2);
+            targets[i] = (i % 2 == 0)
+                    ? "/section" + section + "/page" + random.nextInt(directiveCount) + "/index.html"
+                    : "/section" + section + "/archive/item" + i + ".php";
+        }
+    }
+
+    @Benchmark
+    public Optional<PathDirective> linearScan() {
+        return matcherUtils.getMostSpecificMatch(directives, nextTarget());
+    }
+
+    @Benchmark
+    public Optional<PathDirective> trie() {
+        return trie.getMostSpecificMatch(nextTarget());
+    }
+
+    private String nextTarget() {
+        next = (next + 1) % TARGET_COUNT;
+        return targets[next];
+    }
+}
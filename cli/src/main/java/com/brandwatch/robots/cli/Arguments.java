@@ -34,6 +34,7 @@ package com.brandwatch.robots.cli;
  */
 
 import com.beust.jcommander.Parameter;
+import com.beust.jcommander.ParameterException;
 import com.beust.jcommander.validators.PositiveInteger;
 import com.brandwatch.robots.cli.converters.CharsetConverter;
 import com.brandwatch.robots.cli.converters.URIConverter;
@@ -43,6 +44,7 @@ import com.google.common.base.Charsets;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.net.URI;
 import java.nio.charset.Charset;
 import java.util.List;
@@ -92,7 +94,6 @@ public class Arguments {
 
     @Nonnull
     @Parameter(
-            required = true,
             description = "RESOURCES",
             converter = URIConverter.class,
             validateWith = AbsoluteURIValidator.class
@@ -107,6 +108,55 @@ public class Arguments {
     )
     private int readTimeoutMillis = 30000;
 
+    @Nullable
+    @Parameter(
+            names = {"--input", "-i"},
+            description = "Read resources from this file, one per line, or from standard input if \"-\". Results are streamed as they are checked."
+    )
+    private String input = null;
+
+    @Nonnull
+    @Parameter(
+            names = {"--format", "-f"},
+            description = "Output format: TEXT, TSV or JSONL."
+    )
+    private OutputFormat format = OutputFormat.TEXT;
+
+    @Nonnegative
+    @Parameter(
+            names = {"--threads", "-j"},
+            description = "Number of worker threads checking resources read from --input.",
+            validateWith = PositiveInteger.class
+    )
+    private int threads = 16;
+
+    @Parameter(
+            names = {"--mirror", "-m"},
+            description = "Evaluate against the robots.txt files in this local mirror, a directory or archive, instead of fetching them.",
+            validateWith = NonEmptyStringValidator.class
+    )
+    private String mirror = null;
+
+    /**
+     * Check the combination of arguments given, which the parser cannot do one at a time.
+     *
+     * @throws ParameterException if no resources were given, either as arguments or as an input
+     */
+    public void validate() {
+        if (helpRequested) {
+            return;
+        }
+        if (input == null && resources.isEmpty()) {
+            throw new ParameterException("Main parameters are required (\"RESOURCES\"), or an --input");
+        }
+        if (input != null && !resources.isEmpty()) {
+            throw new ParameterException("RESOURCES cannot be given together with --input");
+        }
+        if (threads == 0) {
+            throw new ParameterException("Parameter --threads should be greater than zero");
+        }
+    }
+
     @Nonnegative
     public int getMaxFileSizeBytes() {
         return maxFileSizeBytes;
@@ -140,4 +190,24 @@ public class Arguments {
     public int getReadTimeoutMillis() {
         return readTimeoutMillis;
     }
+
+    @Nullable
+    public String getInput() {
+        return input;
+    }
+
+    @Nonnull
+    public OutputFormat getFormat() {
+        return format;
+    }
+
+    @Nonnegative
+    public int getThreads() {
+        return threads;
+    }
+
+    @Nullable
+    public String getMirror() {
+        return mirror;
+    }
 }
@@ -0,0 +1,108 @@
+package com.brandwatch.robots.cli;
+
+/*
+ * #%L
+ * Robots (command-line interface)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.cache.CacheStats;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Totals of a streamed batch: how many resources were checked and skipped, how long it took, and how
+ * well the robots.txt cache served it.
+ */
+public class BatchSummary {
+
+    @Nonnegative
+    private final long checkedCount;
+    @Nonnegative
+    private final long skippedCount;
+    @Nonnegative
+    private final long elapsedNanos;
+    @Nonnull
+    private final CacheStats cacheStats;
+
+    public BatchSummary(@Nonnegative long checkedCount, @Nonnegative long skippedCount,
+                        @Nonnegative long elapsedNanos, @Nonnull CacheStats cacheStats) {
+        checkArgument(checkedCount >= 0, "checkedCount is negative");
+        checkArgument(skippedCount >= 0, "skippedCount is negative");
+        checkArgument(elapsedNanos >= 0, "elapsedNanos is negative");
+        this.checkedCount = checkedCount;
+        this.skippedCount = skippedCount;
+        this.elapsedNanos = elapsedNanos;
+        this.cacheStats = checkNotNull(cacheStats, "cacheStats is null");
+    }
+
+    @Nonnegative
+    public long getCheckedCount() {
+        return checkedCount;
+    }
+
+    /**
+     * Number of input lines that were not absolute URIs with a host.
+     */
+    @Nonnegative
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+
+    @Nonnegative
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Nonnull
+    public CacheStats getCacheStats() {
+        return cacheStats;
+    }
+
+    public double getResourcesPerSecond() {
+        return elapsedNanos == 0 ? 0 : checkedCount * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "Checked %d resources (%d skipped) in %.1f s, %.0f per second; "
+                        + "robots.txt cache hit rate %.1f%% (%d hits, %d misses)",
+                checkedCount, skippedCount, elapsedNanos / 1e9, getResourcesPerSecond(),
+                cacheStats.hitRate() * 100, cacheStats.hitCount(), cacheStats.missCount());
+    }
+}
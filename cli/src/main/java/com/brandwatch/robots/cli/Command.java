@@ -33,20 +33,46 @@ package com.brandwatch.robots.cli;
  * #L%
  */
 
+import com.beust.jcommander.ParameterException;
 import com.brandwatch.robots.RobotsConfig;
 import com.brandwatch.robots.RobotsFactory;
 import com.brandwatch.robots.RobotsService;
+import com.brandwatch.robots.cli.converters.URIConverter;
+import com.brandwatch.robots.cli.validators.AbsoluteURIValidator;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import javax.annotation.Nonnull;
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public class Command {
 
+    /**
+     * Number of resources read from the input that are checked together by one worker. Within a batch
+     * each robots.txt is resolved once; across batches, the service's cache does the same.
+     */
+    private static final int BATCH_SIZE = 512;
+
+    private static final URIConverter CONVERTER = new URIConverter();
+    private static final AbsoluteURIValidator VALIDATOR = new AbsoluteURIValidator();
+
     @Nonnull
     private final Arguments arguments;
 
@@ -55,28 +81,137 @@ public class Command {
     }
 
     public List<Result> getResults() {
+        final RobotsService service = createService();
+        try {
+            final Map<URI, Boolean> allowed = service.isAllowed(arguments.getAgent(), arguments.getResources());
+            ImmutableList.Builder<Result> results = ImmutableList.builder();
+            for (URI resource : arguments.getResources()) {
+                results.add(new Result(resource, allowed.get(resource)));
+            }
+            return results.build();
+        } finally {
+            close(service);
+        }
+    }
+
+    /**
+     * Check every resource read from the input, one per line, writing the results in the same order
+     * as they are checked. Batches of resources are checked in parallel by the configured number of
+     * worker threads, but only a few batches are held at a time, so memory use does not depend on the
+     * size of the input. Blank lines, and lines starting with '#', are ignored; lines that are not
+     * absolute URIs are skipped.
+     */
+    @Nonnull
+    public BatchSummary streamResults(@Nonnull BufferedReader input, @Nonnull Appendable output)
+            throws IOException, InterruptedException {
+        checkNotNull(input, "input is null");
+        checkNotNull(output, "output is null");
+
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        final RobotsService service = createService();
+        final ExecutorService workers = Executors.newFixedThreadPool(arguments.getThreads(),
+                new ThreadFactoryBuilder().setNameFormat("robots-worker-%d").setDaemon(true).build());
+        try {
+            final Queue<Future<List<Result>>> pending = new ArrayDeque<Future<List<Result>>>();
+            final int maxPending = arguments.getThreads() * 2;
+            long checked = 0;
+            long skipped = 0;
+
+            List<URI> batch = new ArrayList<URI>(BATCH_SIZE);
+            String line;
+            while ((line = input.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                final URI resource = parse(line);
+                if (resource == null) {
+                    skipped++;
+                    continue;
+                }
+                batch.add(resource);
+                if (batch.size() == BATCH_SIZE) {
+                    pending.add(workers.submit(check(service, batch)));
+                    batch = new ArrayList<URI>(BATCH_SIZE);
+                    if (pending.size() >= maxPending) {
+                        checked += write(pending.remove(), output);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                pending.add(workers.submit(check(service, batch)));
+            }
+            while (!pending.isEmpty()) {
+                checked += write(pending.remove(), output);
+            }
+
+            return new BatchSummary(checked, skipped, stopwatch.elapsed(TimeUnit.NANOSECONDS),
+                    service.getCacheStats());
+        } finally {
+            workers.shutdownNow();
+            close(service);
+        }
+    }
 
+    @Nonnull
+    private RobotsService createService() {
         final RobotsConfig config = new RobotsConfig();
         config.setMaxFileSizeBytes(arguments.getMaxFileSizeBytes());
         config.setMaxRedirectHops(arguments.getMaxRedirectHops());
         config.setDefaultCharset(arguments.getDefaultCharset());
         config.setReadTimeoutMillis(arguments.getReadTimeoutMillis());
+        if (arguments.getMirror() != null) {
+            config.setMirror(new File(arguments.getMirror()));
+        }
 
         final RobotsFactory factory = new RobotsFactory(config);
+        return factory.createService();
+    }
 
-        final RobotsService service = factory.createService();
-        try {
-            ImmutableList.Builder<Result> results = ImmutableList.builder();
-            for (URI resource : arguments.getResources()) {
-                results.add(new Result(resource, service.isAllowed(arguments.getAgent(), resource)));
-            }
-            return results.build();
-        } finally {
-            try {
-                service.close();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+    @Nonnull
+    private Callable<List<Result>> check(@Nonnull final RobotsService service, @Nonnull final List<URI> batch) {
+        return new Callable<List<Result>>() {
+            @Override
+            public List<Result> call() {
+                final Map<URI, Boolean> allowed = service.isAllowed(arguments.getAgent(), batch);
+                final List<Result> results = new ArrayList<Result>(batch.size());
+                for (URI resource : batch) {
+                    results.add(new Result(resource, allowed.get(resource)));
+                }
+                return results;
             }
+        };
+    }
+
+    private int write(@Nonnull Future<List<Result>> batch, @Nonnull Appendable output)
+            throws IOException, InterruptedException {
+        final List<Result> results;
+        try {
+            results = batch.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        for (Result result : results) {
+            arguments.getFormat().write(output, result);
+        }
+        return results.size();
+    }
+
+    private static URI parse(@Nonnull String line) {
+        try {
+            final URI resource = CONVERTER.convert(line);
+            VALIDATOR.validate("input", resource);
+            return resource;
+        } catch (ParameterException e) {
+            return null;
+        }
+    }
+
+    private static void close(@Nonnull RobotsService service) {
+        try {
+            service.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
     }
 
@@ -35,16 +35,33 @@ package com.brandwatch.robots.cli;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.ParameterException;
+import com.google.common.base.Charsets;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.Writer;
 
 public class Main {
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
     private final PrintStream out;
     private final PrintStream err;
     private String[] args;
 
     public Main(PrintStream out, PrintStream err) {
+        this(System.in, out, err);
+    }
+
+    public Main(InputStream in, PrintStream out, PrintStream err) {
+        this.in = in;
         this.out = out;
         this.err = err;
     }
@@ -67,6 +84,7 @@ public class Main {
 
         try {
             commander.parse(args);
+            arguments.validate();
         } catch (ParameterException e) {
             err.println(e.getMessage());
             err.println("Try `--help` for more information.");
@@ -82,10 +100,37 @@ public class Main {
 
         Command command = new Command(arguments);
 
+        if (arguments.getInput() != null) {
+            stream(command, arguments.getInput());
+            return;
+        }
+
         for (Result result : command.getResults()) {
-            out.printf("%s: %s%n", result.getResource().toString(),
-                    result.isAllowed() ? "allowed" : "disallowed");
+            try {
+                arguments.getFormat().write(out, result);
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
         }
 
     }
+
+    private void stream(Command command, String input) {
+        try {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    "-".equals(input) ? in : new FileInputStream(input), Charsets.UTF_8), BUFFER_SIZE);
+            try {
+                final Writer writer = new BufferedWriter(new OutputStreamWriter(out, Charsets.UTF_8), BUFFER_SIZE);
+                final BatchSummary summary = command.streamResults(reader, writer);
+                writer.flush();
+                err.println(summary);
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            err.println("Unable to read resources: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
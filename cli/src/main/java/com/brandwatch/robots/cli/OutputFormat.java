@@ -0,0 +1,90 @@
+package com.brandwatch.robots.cli;
+
+/*
+ * #%L
+ * Robots (command-line interface)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+
+/**
+ * How each result is written: as a line of text for people, or as tab separated values or JSON lines
+ * for other programs.
+ */
+public enum OutputFormat {
+
+    TEXT {
+        @Override
+        public void write(@Nonnull Appendable out, @Nonnull Result result) throws IOException {
+            out.append(result.getResource().toString())
+                    .append(": ")
+                    .append(result.isAllowed() ? "allowed" : "disallowed")
+                    .append('\n');
+        }
+    },
+
+    TSV {
+        @Override
+        public void write(@Nonnull Appendable out, @Nonnull Result result) throws IOException {
+            out.append(result.getResource().toString())
+                    .append('\t')
+                    .append(result.isAllowed() ? "allowed" : "disallowed")
+                    .append('\n');
+        }
+    },
+
+    JSONL {
+        @Override
+        public void write(@Nonnull Appendable out, @Nonnull Result result) throws IOException {
+            out.append("{\"resource\":\"");
+            appendEscaped(out, result.getResource().toString());
+            out.append("\",\"allowed\":")
+                    .append(result.isAllowed() ? "true" : "false")
+                    .append("}\n");
+        }
+    };
+
+    public abstract void write(@Nonnull Appendable out, @Nonnull Result result) throws IOException;
+
+    private static void appendEscaped(@Nonnull Appendable out, @Nonnull String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+    }
+}
@@ -68,6 +68,61 @@ public class ArgumentsTest {
     @Test(expected = ParameterException.class)
     public void givenNoArguments_whenInit_throwsParameterException() {
         jCommander.parse();
+        arguments.validate();
+    }
+
+    @Test
+    public void givenInputArgument_whenInit_thenInputIsExpected() {
+        jCommander.parse(array("--input", "-"));
+        arguments.validate();
+        assertThat(arguments.getInput(), equalTo("-"));
+    }
+
+    @Test(expected = ParameterException.class)
+    public void givenInputAndResources_whenInit_thenThrowsParameterException() {
+        jCommander.parse(array("-i", "urls.txt", FIRST_RESOURCE));
+        arguments.validate();
+    }
+
+    @Test
+    public void givenMirrorUnset_whenInit_thenMirrorIsNull() {
+        jCommander.parse(array(FIRST_RESOURCE));
+        assertThat(arguments.getMirror(), nullValue());
+    }
+
+    @Test
+    public void givenMirrorArgument_whenInit_thenMirrorIsExpected() {
+        jCommander.parse(array("--mirror", "robots.archive", FIRST_RESOURCE));
+        assertThat(arguments.getMirror(), equalTo("robots.archive"));
+    }
+
+    @Test
+    public void givenFormatUnset_whenInit_thenFormatIsText() {
+        jCommander.parse(array(FIRST_RESOURCE));
+        assertThat(arguments.getFormat(), equalTo(OutputFormat.TEXT));
+    }
+
+    @Test
+    public void givenFormatArgument_whenInit_thenFormatIsExpected() {
+        jCommander.parse(array("--format", "JSONL", FIRST_RESOURCE));
+        assertThat(arguments.getFormat(), equalTo(OutputFormat.JSONL));
+    }
+
+    @Test(expected = ParameterException.class)
+    public void givenInvalidFormat_whenInit_thenThrowsParameterException() {
+        jCommander.parse(array("--format", "XML", FIRST_RESOURCE));
+    }
+
+    @Test
+    public void givenThreadsArgument_whenInit_thenThreadsIsExpected() {
+        jCommander.parse(array("-j", "4", "-i", "-"));
+        assertThat(arguments.getThreads(), equalTo(4));
+    }
+
+    @Test(expected = ParameterException.class)
+    public void givenZeroThreads_whenInit_thenThrowsParameterException() {
+        jCommander.parse(array("--threads", "0", "-i", "-"));
+        arguments.validate();
     }
 
     @Test
@@ -311,6 +366,7 @@ public class ArgumentsTest {
     @Test(expected = ParameterException.class)
     public void givenEmptyResource_whenInit_thenThrowsParameterException() {
         jCommander.parse(array(""));
+        arguments.validate();
     }
 
     @Test(expected = ParameterException.class)
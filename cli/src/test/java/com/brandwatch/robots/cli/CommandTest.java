@@ -0,0 +1,108 @@
+package com.brandwatch.robots.cli;
+
+/*
+ * #%L
+ * Robots (command-line interface)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.beust.jcommander.JCommander;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static com.brandwatch.robots.cli.TestUtils.array;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class CommandTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void givenOnlyCommentsAndMalformedLines_whenStreamResults_thenSkippedAndNothingWritten() throws Exception {
+        Arguments arguments = new Arguments();
+        new JCommander(arguments).parse(array("--input", "-"));
+        StringBuilder output = new StringBuilder();
+
+        BatchSummary summary = new Command(arguments).streamResults(new BufferedReader(new StringReader(
+                "# comment\n\n/relative/path\nhttp://\n")), output);
+
+        assertThat(summary.getCheckedCount(), equalTo(0L));
+        assertThat(summary.getSkippedCount(), equalTo(2L));
+        assertThat(output.toString(), equalTo(""));
+    }
+
+    @Test
+    public void givenMirroredResources_whenStreamResults_thenResultsWrittenInInputOrder() throws Exception {
+        File mirror = folder.newFolder();
+        mirror(mirror, "example.com", "User-agent: *\nDisallow: /private\n");
+        mirror(mirror, "example.org", "User-agent: *\nDisallow: /\n");
+        Arguments arguments = new Arguments();
+        new JCommander(arguments).parse(array("--input", "-", "--mirror", mirror.getPath(), "--threads", "4"));
+
+        StringBuilder input = new StringBuilder("not a uri\n");
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            input.append("http://example.com/private/").append(i).append('\n')
+                    .append("http://example.com/public/").append(i).append('\n')
+                    .append("http://example.org/").append(i).append('\n')
+                    .append("http://example.net/").append(i).append('\n');
+            expected.append("http://example.com/private/").append(i).append(": disallowed\n")
+                    .append("http://example.com/public/").append(i).append(": allowed\n")
+                    .append("http://example.org/").append(i).append(": disallowed\n")
+                    .append("http://example.net/").append(i).append(": allowed\n");
+        }
+        StringBuilder output = new StringBuilder();
+
+        BatchSummary summary = new Command(arguments).streamResults(
+                new BufferedReader(new StringReader(input.toString())), output);
+
+        assertThat(output.toString(), equalTo(expected.toString()));
+        assertThat(summary.getCheckedCount(), equalTo(4000L));
+        assertThat(summary.getSkippedCount(), equalTo(1L));
+    }
+
+    private static void mirror(File mirror, String host, String robotsTxt) throws IOException {
+        File directory = new File(mirror, host);
+        if (!directory.mkdir()) {
+            throw new IOException("Unable to create " + directory);
+        }
+        Files.write(robotsTxt, new File(directory, "robots.txt"), Charsets.UTF_8);
+    }
+}
@@ -0,0 +1,70 @@
+package com.brandwatch.robots.cli;
+
+/*
+ * #%L
+ * Robots (command-line interface)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class OutputFormatTest {
+
+    private static final Result ALLOWED = new Result(URI.create("http://example.com/index.html"), true);
+    private static final Result DISALLOWED = new Result(URI.create("http://example.com/a%22b"), false);
+
+    @Test
+    public void givenText_whenWrite_thenResourceAndVerdict() throws IOException {
+        assertThat(write(OutputFormat.TEXT, ALLOWED), equalTo("http://example.com/index.html: allowed\n"));
+    }
+
+    @Test
+    public void givenTsv_whenWrite_thenTabSeparated() throws IOException {
+        assertThat(write(OutputFormat.TSV, DISALLOWED), equalTo("http://example.com/a%22b\tdisallowed\n"));
+    }
+
+    @Test
+    public void givenJsonl_whenWrite_thenJsonObjectPerLine() throws IOException {
+        assertThat(write(OutputFormat.JSONL, ALLOWED),
+                equalTo("{\"resource\":\"http://example.com/index.html\",\"allowed\":true}\n"));
+    }
+
+    private static String write(OutputFormat format, Result result) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        format.write(builder, result);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,96 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.base.Objects;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Snapshot of the robots.txt cache: how many entries it holds, and an estimate of the heap they
+ * retain, which is what {@link RobotsConfig#getCacheMaxSizeBytes()} bounds.
+ */
+@Immutable
+public final class CacheUsage {
+
+    @Nonnegative
+    private final long entryCount;
+    @Nonnegative
+    private final long estimatedSizeBytes;
+
+    public CacheUsage(@Nonnegative long entryCount, @Nonnegative long estimatedSizeBytes) {
+        checkArgument(entryCount >= 0, "entryCount is negative");
+        checkArgument(estimatedSizeBytes >= 0, "estimatedSizeBytes is negative");
+        this.entryCount = entryCount;
+        this.estimatedSizeBytes = estimatedSizeBytes;
+    }
+
+    @Nonnegative
+    public long getEntryCount() {
+        return entryCount;
+    }
+
+    @Nonnegative
+    public long getEstimatedSizeBytes() {
+        return estimatedSizeBytes;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CacheUsage that = (CacheUsage) o;
+        return entryCount == that.entryCount
+                && estimatedSizeBytes == that.estimatedSizeBytes;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(entryCount, estimatedSizeBytes);
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("entryCount", entryCount)
+                .add("estimatedSizeBytes", estimatedSizeBytes)
+                .toString();
+    }
+}
@@ -0,0 +1,86 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Expiry policy configured by {@link RobotsConfig}. Each outcome has its own time to live, so that
+ * transient failures are retried sooner than real responses. For successful responses and client
+ * errors, a freshness lifetime given by the server takes precedence, clamped to the configured
+ * bounds.
+ */
+@ThreadSafe
+final class ExpiryPolicyImpl implements ExpiryPolicy {
+
+    @Nonnull
+    private final RobotsConfig config;
+
+    public ExpiryPolicyImpl(@Nonnull RobotsConfig config) {
+        this.config = checkNotNull(config, "config is null");
+    }
+
+    @Nonnegative
+    @Override
+    public long getExpiresAfterMillis(@Nonnull RobotsEntry.Outcome outcome, long maxAgeMillis) {
+        checkNotNull(outcome, "outcome is null");
+        switch (outcome) {
+            case SUCCESS:
+                return bounded(maxAgeMillis, TimeUnit.HOURS.toMillis(config.getCacheExpiresHours()));
+            case CLIENT_ERROR:
+                return bounded(maxAgeMillis, TimeUnit.HOURS.toMillis(config.getCacheClientErrorExpiresHours()));
+            case SERVER_ERROR:
+                return TimeUnit.MINUTES.toMillis(config.getCacheServerErrorExpiresMinutes());
+            case UNREACHABLE:
+                return TimeUnit.MINUTES.toMillis(config.getCacheUnreachableExpiresMinutes());
+            case PARSE_FAILURE:
+                return TimeUnit.HOURS.toMillis(config.getCacheParseFailureExpiresHours());
+        }
+        throw new AssertionError("Unknown outcome: " + outcome);
+    }
+
+    private long bounded(long maxAgeMillis, long defaultMillis) {
+        if (maxAgeMillis < 0) {
+            return defaultMillis;
+        }
+        final long lower = TimeUnit.MINUTES.toMillis(config.getCacheMinMaxAgeMinutes());
+        final long upper = TimeUnit.HOURS.toMillis(config.getCacheMaxMaxAgeHours());
+        return Math.max(lower, Math.min(upper, maxAgeMillis));
+    }
+}
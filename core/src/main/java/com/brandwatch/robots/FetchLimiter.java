@@ -0,0 +1,127 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Bounds the number of concurrently running fetches. Tasks submitted beyond the limit are queued,
+ * and started in submission order as running tasks {@link #release()} their slot. A limit of zero
+ * means no limit.
+ */
+@ThreadSafe
+final class FetchLimiter {
+
+    @Nonnegative
+    private final int maxConcurrent;
+
+    @GuardedBy("this")
+    private final Queue<Runnable> queue = new ArrayDeque<Runnable>();
+
+    @GuardedBy("this")
+    private int running = 0;
+
+    private final ThreadLocal<Boolean> draining = new ThreadLocal<Boolean>() {
+        @Override
+        protected Boolean initialValue() {
+            return false;
+        }
+    };
+
+    FetchLimiter(@Nonnegative int maxConcurrent) {
+        checkArgument(maxConcurrent >= 0, "maxConcurrent is negative");
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * Run the task now if a slot is free, otherwise queue it. The task must eventually call
+     * {@link #release()}, and must not throw.
+     */
+    void submit(@Nonnull Runnable task) {
+        checkNotNull(task, "task is null");
+        synchronized (this) {
+            queue.add(task);
+        }
+        drain();
+    }
+
+    void release() {
+        synchronized (this) {
+            checkState(running > 0, "release without a running task");
+            running--;
+        }
+        drain();
+    }
+
+    synchronized int getRunningCount() {
+        return running;
+    }
+
+    synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    // Tasks often complete (and so release) on the thread that started them; rather than recursing,
+    // the outermost drain on each thread keeps starting queued tasks.
+    private void drain() {
+        if (draining.get()) {
+            return;
+        }
+        draining.set(true);
+        try {
+            while (true) {
+                final Runnable next;
+                synchronized (this) {
+                    if (queue.isEmpty() || (maxConcurrent > 0 && running >= maxConcurrent)) {
+                        return;
+                    }
+                    next = queue.poll();
+                    running++;
+                }
+                next.run();
+            }
+        } finally {
+            draining.set(false);
+        }
+    }
+}
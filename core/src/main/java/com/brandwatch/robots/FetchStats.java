@@ -0,0 +1,96 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.base.Objects;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Snapshot of robots.txt fetch activity: how many fetches are currently running, and how many are
+ * waiting for one of the configured {@link RobotsConfig#getMaxConcurrentFetches()} slots.
+ */
+@Immutable
+public final class FetchStats {
+
+    @Nonnegative
+    private final int inFlightCount;
+    @Nonnegative
+    private final int queuedCount;
+
+    public FetchStats(@Nonnegative int inFlightCount, @Nonnegative int queuedCount) {
+        checkArgument(inFlightCount >= 0, "inFlightCount is negative");
+        checkArgument(queuedCount >= 0, "queuedCount is negative");
+        this.inFlightCount = inFlightCount;
+        this.queuedCount = queuedCount;
+    }
+
+    @Nonnegative
+    public int getInFlightCount() {
+        return inFlightCount;
+    }
+
+    @Nonnegative
+    public int getQueuedCount() {
+        return queuedCount;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FetchStats that = (FetchStats) o;
+        return inFlightCount == that.inFlightCount
+                && queuedCount == that.queuedCount;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(inFlightCount, queuedCount);
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("inFlightCount", inFlightCount)
+                .add("queuedCount", queuedCount)
+                .toString();
+    }
+}
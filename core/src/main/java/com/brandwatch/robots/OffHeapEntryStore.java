@@ -0,0 +1,487 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.net.Origin;
+import com.brandwatch.robots.net.Validators;
+import com.google.common.base.Charsets;
+import com.google.common.primitives.Ints;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Store of robots.txt entries in direct memory, outside the heap, so that the number of entries it
+ * holds has no bearing on garbage collection. Entries are kept in their {@link RobotsCodec}
+ * encoding, and decoded again when they are read; their matchers are compiled when first used.
+ *
+ * The store is split into segments, each guarded by its own lock, and chosen by the hash of the
+ * origin. Each segment is a circular log of records, with an open addressing hash index from origin
+ * to record, both held in direct buffers. New records are written at the head of the log, and when
+ * there is no room, the oldest are evicted from its tail, so entries are evicted in the order they
+ * were stored. Replaced and removed records are dropped from the index at once, but their space is
+ * only reclaimed when the tail passes them.
+ */
+@ThreadSafe
+final class OffHeapEntryStore {
+
+    private static final int DEFAULT_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 1 << 16;
+    private static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+    @Nonnull
+    private final RobotsCodec codec;
+    @Nonnull
+    private final Segment[] segments;
+
+    OffHeapEntryStore(@Nonnull RobotsCodec codec, @Nonnegative long capacityBytes) {
+        this(codec, capacityBytes, segmentCount(capacityBytes));
+    }
+
+    OffHeapEntryStore(@Nonnull RobotsCodec codec, @Nonnegative long capacityBytes, @Nonnegative int segmentCount) {
+        this.codec = checkNotNull(codec, "codec is null");
+        checkArgument(segmentCount > 0 && Integer.bitCount(segmentCount) == 1,
+                "segmentCount is not a power of two");
+        checkArgument(capacityBytes / segmentCount >= Segment.MIN_SIZE, "capacityBytes is too small");
+        checkArgument(capacityBytes / segmentCount <= MAX_SEGMENT_SIZE, "capacityBytes is too large");
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment((int) (capacityBytes / segmentCount));
+        }
+    }
+
+    private static int segmentCount(long capacityBytes) {
+        int count = DEFAULT_SEGMENTS;
+        while (capacityBytes / count > MAX_SEGMENT_SIZE) {
+            count *= 2;
+        }
+        while (count > 1 && capacityBytes / count < MIN_SEGMENT_SIZE) {
+            count /= 2;
+        }
+        return count;
+    }
+
+    /**
+     * Get the entry stored for the origin, or null if there is none.
+     */
+    @Nullable
+    public RobotsEntry get(@Nonnull Origin origin) {
+        checkNotNull(origin, "origin is null");
+        final int hash = hash(origin);
+        return decode(segmentFor(hash).get(hash, key(origin), false));
+    }
+
+    /**
+     * Remove the entry stored for the origin, returning it, or null if there was none.
+     */
+    @Nullable
+    public RobotsEntry remove(@Nonnull Origin origin) {
+        checkNotNull(origin, "origin is null");
+        final int hash = hash(origin);
+        return decode(segmentFor(hash).get(hash, key(origin), true));
+    }
+
+    /**
+     * Discard the entry stored for the origin, if any, without decoding it.
+     */
+    public void invalidate(@Nonnull Origin origin) {
+        checkNotNull(origin, "origin is null");
+        final int hash = hash(origin);
+        segmentFor(hash).get(hash, key(origin), true);
+    }
+
+    /**
+     * Store the entry for the origin, replacing any already stored, and evicting the oldest entries
+     * to make room. Entries too large for a segment are not stored.
+     *
+     * @return true if the entry was stored
+     */
+    public boolean put(@Nonnull Origin origin, @Nonnull RobotsEntry entry) {
+        checkNotNull(origin, "origin is null");
+        checkNotNull(entry, "entry is null");
+        final int hash = hash(origin);
+        final byte[] key = key(origin);
+        final byte[] record;
+        try {
+            record = encode(entry);
+        } catch (IOException e) {
+            segmentFor(hash).get(hash, key, true);
+            return false;
+        }
+        return segmentFor(hash).put(hash, key, record);
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Number of entries stored.
+     */
+    @Nonnegative
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @Nonnull
+    private Segment segmentFor(int hash) {
+        return segments[Integer.reverse(hash) & (segments.length - 1)];
+    }
+
+    @Nonnull
+    private byte[] encode(@Nonnull RobotsEntry entry) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(entry.getOutcome().ordinal());
+        out.writeLong(entry.getFetchedMillis());
+        out.writeLong(entry.getExpiresMillis());
+        writeNullableString(out, entry.getValidators().getEntityTag());
+        writeNullableString(out, entry.getValidators().getLastModified());
+        out.flush();
+        codec.writeTo(entry.getRobots(), bytes);
+        return bytes.toByteArray();
+    }
+
+    @Nullable
+    private RobotsEntry decode(@Nullable byte[] record) {
+        if (record == null) {
+            return null;
+        }
+        try {
+            final ByteArrayInputStream bytes = new ByteArrayInputStream(record);
+            final DataInputStream in = new DataInputStream(bytes);
+            final RobotsEntry.Outcome outcome = RobotsEntry.Outcome.values()[in.readUnsignedByte()];
+            final long fetchedMillis = in.readLong();
+            final long expiresMillis = in.readLong();
+            final Validators validators = new Validators(readNullableString(in), readNullableString(in));
+            final ByteBuffer robots = ByteBuffer.wrap(record, record.length - bytes.available(), bytes.available());
+            return new RobotsEntry(codec.readFrom(robots), outcome, validators, fetchedMillis, expiresMillis);
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt off-heap robots entry", e);
+        }
+    }
+
+    private static void writeNullableString(@Nonnull DataOutputStream out, @Nullable String value)
+            throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    @Nullable
+    private static String readNullableString(@Nonnull DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    @Nonnull
+    private static byte[] key(@Nonnull Origin origin) {
+        return origin.toString().getBytes(Charsets.UTF_8);
+    }
+
+    /**
+     * Spread the hash of the origin, reserving zero to mark empty index slots.
+     */
+    private static int hash(@Nonnull Origin origin) {
+        int hash = origin.hashCode() * 0x9E3779B9;
+        hash ^= hash >>> 16;
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * A circular log of records, and an index of them. Each record is its length, the hash of its key,
+     * the length of its key, the key, and the encoded entry. Each index slot is the hash of a key,
+     * zero if the slot is empty, and the position of its record.
+     */
+    @ThreadSafe
+    private static final class Segment {
+
+        static final int MIN_SIZE = 1 << 10;
+
+        /**
+         * Bytes of records per index slot, at least, so the index adds at most an eighth to the size
+         * of the segment. When the index fills up, the oldest records are evicted, as when the log does.
+         */
+        private static final int BYTES_PER_SLOT = 64;
+        private static final int SLOT_SIZE = 8;
+        private static final int HEADER_SIZE = 10;
+
+        @GuardedBy("this")
+        private final ByteBuffer data;
+        @GuardedBy("this")
+        private final ByteBuffer index;
+        private final int capacity;
+        private final int slotMask;
+        private final int maxEntries;
+
+        /** Position at which the next record is written. */
+        @GuardedBy("this")
+        private int head;
+        /** Position of the oldest record. */
+        @GuardedBy("this")
+        private int tail;
+        /** End of the records written before the log last wrapped around. */
+        @GuardedBy("this")
+        private int limit;
+        /** Whether the records run from the tail to the limit, and then from the start to the head. */
+        @GuardedBy("this")
+        private boolean wrapped;
+        /** Records in the log, including those replaced or removed. */
+        @GuardedBy("this")
+        private int records;
+        /** Records in the index. */
+        @GuardedBy("this")
+        private int entries;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            final int slots = Math.max(16, Integer.highestOneBit(capacity / BYTES_PER_SLOT));
+            this.slotMask = slots - 1;
+            this.maxEntries = slots / 4 * 3;
+            this.data = ByteBuffer.allocateDirect(capacity);
+            this.index = ByteBuffer.allocateDirect(slots * SLOT_SIZE);
+            this.limit = capacity;
+        }
+
+        @Nullable
+        synchronized byte[] get(int hash, @Nonnull byte[] key, boolean remove) {
+            final int slot = find(hash, key);
+            if (slot < 0) {
+                return null;
+            }
+            final int position = positionAt(slot);
+            final int offset = position + HEADER_SIZE + key.length;
+            final byte[] record = new byte[data.getInt(position) - HEADER_SIZE - key.length];
+            final ByteBuffer source = data.duplicate();
+            source.position(offset);
+            source.get(record);
+            if (remove) {
+                removeSlot(slot);
+                entries--;
+            }
+            return record;
+        }
+
+        synchronized boolean put(int hash, @Nonnull byte[] key, @Nonnull byte[] record) {
+            final int existing = find(hash, key);
+            if (existing >= 0) {
+                removeSlot(existing);
+                entries--;
+            }
+            final long length = (long) HEADER_SIZE + key.length + record.length;
+            if (length > capacity / 2 || key.length > Short.MAX_VALUE) {
+                return false;
+            }
+            while (entries >= maxEntries) {
+                evictOldest();
+            }
+            makeRoom(Ints.checkedCast(length));
+
+            data.putInt(head, (int) length);
+            data.putInt(head + 4, hash);
+            data.putShort(head + 8, (short) key.length);
+            final ByteBuffer target = data.duplicate();
+            target.position(head + HEADER_SIZE);
+            target.put(key);
+            target.put(record);
+
+            int slot = hash & slotMask;
+            while (hashAt(slot) != 0) {
+                slot = (slot + 1) & slotMask;
+            }
+            setSlot(slot, hash, head);
+            entries++;
+            records++;
+            head += (int) length;
+            return true;
+        }
+
+        synchronized void clear() {
+            for (int slot = 0; slot <= slotMask; slot++) {
+                setSlot(slot, 0, 0);
+            }
+            records = 0;
+            entries = 0;
+            reset();
+        }
+
+        synchronized int size() {
+            return entries;
+        }
+
+        /**
+         * Evict the oldest records until there is contiguous room for a record of the given length at
+         * the head, wrapping around to the start of the log if there is not enough room at the end.
+         */
+        @GuardedBy("this")
+        private void makeRoom(int length) {
+            while (true) {
+                if (records == 0) {
+                    reset();
+                }
+                if (!wrapped) {
+                    if (capacity - head >= length) {
+                        return;
+                    }
+                    limit = head;
+                    head = 0;
+                    wrapped = true;
+                }
+                if (tail - head >= length) {
+                    return;
+                }
+                evictOldest();
+            }
+        }
+
+        @GuardedBy("this")
+        private void evictOldest() {
+            final int length = data.getInt(tail);
+            final int hash = data.getInt(tail + 4);
+            int slot = hash & slotMask;
+            int slotHash;
+            while ((slotHash = hashAt(slot)) != 0) {
+                if (slotHash == hash && positionAt(slot) == tail) {
+                    removeSlot(slot);
+                    entries--;
+                    break;
+                }
+                slot = (slot + 1) & slotMask;
+            }
+            records--;
+            tail += length;
+            if (records == 0) {
+                reset();
+            } else if (wrapped && tail == limit) {
+                tail = 0;
+                limit = capacity;
+                wrapped = false;
+            }
+        }
+
+        @GuardedBy("this")
+        private void reset() {
+            head = 0;
+            tail = 0;
+            limit = capacity;
+            wrapped = false;
+        }
+
+        @GuardedBy("this")
+        private int find(int hash, @Nonnull byte[] key) {
+            int slot = hash & slotMask;
+            int slotHash;
+            while ((slotHash = hashAt(slot)) != 0) {
+                if (slotHash == hash && keyEquals(positionAt(slot), key)) {
+                    return slot;
+                }
+                slot = (slot + 1) & slotMask;
+            }
+            return -1;
+        }
+
+        @GuardedBy("this")
+        private boolean keyEquals(int position, @Nonnull byte[] key) {
+            if (data.getShort(position + 8) != key.length) {
+                return false;
+            }
+            for (int i = 0; i < key.length; i++) {
+                if (data.get(position + HEADER_SIZE + i) != key[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Empty the slot, shifting back any later slots in the same run that would otherwise no longer
+         * be found, so that no tombstones are needed.
+         */
+        @GuardedBy("this")
+        private void removeSlot(int slot) {
+            int free = slot;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & slotMask;
+                final int hash = hashAt(next);
+                if (hash == 0) {
+                    setSlot(free, 0, 0);
+                    return;
+                }
+                final int home = hash & slotMask;
+                final boolean reachable = free <= next
+                        ? free < home && home <= next
+                        : free < home || home <= next;
+                if (!reachable) {
+                    setSlot(free, hash, positionAt(next));
+                    free = next;
+                }
+            }
+        }
+
+        @GuardedBy("this")
+        private int hashAt(int slot) {
+            return index.getInt(slot * SLOT_SIZE);
+        }
+
+        @GuardedBy("this")
+        private int positionAt(int slot) {
+            return index.getInt(slot * SLOT_SIZE + 4);
+        }
+
+        @GuardedBy("this")
+        private void setSlot(int slot, int hash, int position) {
+            index.putInt(slot * SLOT_SIZE, hash);
+            index.putInt(slot * SLOT_SIZE + 4, position);
+        }
+    }
+}
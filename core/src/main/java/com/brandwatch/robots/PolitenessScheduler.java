@@ -0,0 +1,158 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.net.Origin;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Spaces out fetches from each origin by its crawl delay, typically that of the agent's group as
+ * given by {@link RobotsService#getCrawlDelayMillis(String, java.net.URI)}. Each origin has the time
+ * before which its next fetch may not start; a fetch either reserves the next free slot, and waits
+ * for it, or takes the slot only if it is free now.
+ *
+ * Slots are claimed by compare-and-set on a per-origin counter, so callers never block one another,
+ * and the counters are held in a segmented cache bounded to {@code maxOrigins}. Once that many
+ * origins are tracked, the least recently used are forgotten, and could then be fetched from early;
+ * so the bound should comfortably exceed the number of origins being crawled at once.
+ */
+@ThreadSafe
+public final class PolitenessScheduler {
+
+    private static final int CONCURRENCY_LEVEL = 64;
+
+    @Nonnull
+    private final LoadingCache<Origin, AtomicLong> nextFetchMillis;
+    @Nonnegative
+    private final long maxDelayMillis;
+
+    /**
+     * @param maxOrigins     number of origins to track at most
+     * @param maxDelayMillis longest delay to honour, whatever the origin asks for
+     */
+    public PolitenessScheduler(@Nonnegative long maxOrigins, @Nonnegative long maxDelayMillis) {
+        checkArgument(maxOrigins > 0, "maxOrigins is not positive");
+        checkArgument(maxDelayMillis >= 0, "maxDelayMillis is negative");
+        this.maxDelayMillis = maxDelayMillis;
+        this.nextFetchMillis = CacheBuilder.newBuilder()
+                .concurrencyLevel(CONCURRENCY_LEVEL)
+                .maximumSize(maxOrigins)
+                .build(new CacheLoader<Origin, AtomicLong>() {
+                    @Override
+                    public AtomicLong load(@Nonnull Origin origin) {
+                        return new AtomicLong(Long.MIN_VALUE);
+                    }
+                });
+    }
+
+    /**
+     * Earliest time, in milliseconds since the epoch, at which a fetch from the origin may start;
+     * now, if one may start straight away.
+     */
+    public long getNextFetchTimeMillis(@Nonnull Origin origin) {
+        return getNextFetchTimeMillis(origin, System.currentTimeMillis());
+    }
+
+    /**
+     * Reserve the next free slot for a fetch from the origin, holding back the one after it by the
+     * given delay. Returns the time at which the reserved slot starts, until which the caller should
+     * wait before fetching.
+     */
+    public long acquire(@Nonnull Origin origin, @Nonnegative long delayMillis) {
+        return acquire(origin, delayMillis, System.currentTimeMillis());
+    }
+
+    /**
+     * Take the slot for a fetch from the origin now, holding back the next one by the given delay,
+     * if no earlier fetch is holding it back.
+     *
+     * @return true if the fetch may go ahead now, or false if nothing was reserved
+     */
+    public boolean tryAcquire(@Nonnull Origin origin, @Nonnegative long delayMillis) {
+        return tryAcquire(origin, delayMillis, System.currentTimeMillis());
+    }
+
+    /**
+     * Number of origins currently tracked.
+     */
+    public long size() {
+        return nextFetchMillis.size();
+    }
+
+    long getNextFetchTimeMillis(@Nonnull Origin origin, long nowMillis) {
+        checkNotNull(origin, "origin is null");
+        final AtomicLong next = nextFetchMillis.getIfPresent(origin);
+        return next == null ? nowMillis : Math.max(next.get(), nowMillis);
+    }
+
+    long acquire(@Nonnull Origin origin, @Nonnegative long delayMillis, long nowMillis) {
+        checkNotNull(origin, "origin is null");
+        checkArgument(delayMillis >= 0, "delayMillis is negative");
+        final AtomicLong next = nextFetchMillis.getUnchecked(origin);
+        final long delay = Math.min(delayMillis, maxDelayMillis);
+        while (true) {
+            final long current = next.get();
+            final long start = Math.max(current, nowMillis);
+            if (next.compareAndSet(current, start + delay)) {
+                return start;
+            }
+        }
+    }
+
+    boolean tryAcquire(@Nonnull Origin origin, @Nonnegative long delayMillis, long nowMillis) {
+        checkNotNull(origin, "origin is null");
+        checkArgument(delayMillis >= 0, "delayMillis is negative");
+        final AtomicLong next = nextFetchMillis.getUnchecked(origin);
+        final long delay = Math.min(delayMillis, maxDelayMillis);
+        while (true) {
+            final long current = next.get();
+            if (current > nowMillis) {
+                return false;
+            }
+            if (next.compareAndSet(current, nowMillis + delay)) {
+                return true;
+            }
+        }
+    }
+}
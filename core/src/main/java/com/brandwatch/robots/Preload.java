@@ -0,0 +1,201 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.net.Origin;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.net.URI;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
+
+/**
+ * A bulk load of the robots.txt for many resources, started by {@link RobotsService#preload(Iterable)}
+ * so that the cache is warm before they are checked. The resources are taken from the input lazily,
+ * and at most a fixed number are loaded at once, so that the input may be far larger than the fetch
+ * queue should be, and other checks can still be served while it runs.
+ */
+@ThreadSafe
+public final class Preload {
+
+    private static final Logger log = LoggerFactory.getLogger(Preload.class);
+
+    @Nonnull
+    private final RobotsLoader loader;
+    @Nonnull
+    private final RobotsUtilities utilities;
+    @Nonnegative
+    private final int maxConcurrent;
+    @Nonnull
+    private final SettableFuture<PreloadStats> future = SettableFuture.create();
+
+    @GuardedBy("this")
+    private final Iterator<URI> resources;
+    @GuardedBy("this")
+    private final Map<RobotsEntry.Outcome, Long> outcomeCounts
+            = new EnumMap<RobotsEntry.Outcome, Long>(RobotsEntry.Outcome.class);
+    @GuardedBy("this")
+    private long startedCount = 0;
+    @GuardedBy("this")
+    private long failedCount = 0;
+    @GuardedBy("this")
+    private int running = 0;
+
+    private final ThreadLocal<Boolean> draining = new ThreadLocal<Boolean>() {
+        @Override
+        protected Boolean initialValue() {
+            return false;
+        }
+    };
+
+    Preload(@Nonnull RobotsLoader loader, @Nonnull RobotsUtilities utilities,
+            @Nonnull Iterable<URI> resources, @Nonnegative int maxConcurrent) {
+        checkNotNull(resources, "resources is null");
+        checkArgument(maxConcurrent >= 0, "maxConcurrent is negative");
+        this.loader = checkNotNull(loader, "loader is null");
+        this.utilities = checkNotNull(utilities, "utilities is null");
+        this.resources = resources.iterator();
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * Current progress. May be polled while the preload runs.
+     */
+    @Nonnull
+    public synchronized PreloadStats getStats() {
+        return new PreloadStats(startedCount, failedCount, outcomeCounts, isDone());
+    }
+
+    /**
+     * Future that completes, with the final stats, once every resource has been loaded or has failed.
+     * It never fails; cancelling it does not stop the preload.
+     */
+    @Nonnull
+    public ListenableFuture<PreloadStats> getFuture() {
+        return future;
+    }
+
+    void start() {
+        drain();
+    }
+
+    @GuardedBy("this")
+    private boolean isDone() {
+        return running == 0 && !resources.hasNext();
+    }
+
+    // As with FetchLimiter, cached entries complete on the thread that started them; rather than
+    // recursing, the outermost drain on each thread keeps starting resources.
+    private void drain() {
+        if (draining.get()) {
+            return;
+        }
+        draining.set(true);
+        try {
+            while (true) {
+                final URI resource;
+                synchronized (this) {
+                    if (isDone()) {
+                        break;
+                    }
+                    if (!resources.hasNext() || (maxConcurrent > 0 && running >= maxConcurrent)) {
+                        return;
+                    }
+                    resource = resources.next();
+                    startedCount++;
+                    running++;
+                }
+                load(resource);
+            }
+        } finally {
+            draining.set(false);
+        }
+        final PreloadStats stats = getStats();
+        if (future.set(stats)) {
+            log.debug("Preload complete: {}", stats);
+        }
+    }
+
+    private void load(@Nonnull final URI resource) {
+        final ListenableFuture<RobotsEntry> entry;
+        try {
+            final Origin origin = utilities.getOrigin(checkNotNull(resource, "resource is null"));
+            entry = loader.preloadAsync(origin);
+        } catch (RuntimeException e) {
+            log.debug("Unable to preload robots.txt for {}", resource, e);
+            completed(null);
+            return;
+        }
+        Futures.addCallback(entry, new FutureCallback<RobotsEntry>() {
+            @Override
+            public void onSuccess(RobotsEntry result) {
+                completed(result.getOutcome());
+            }
+
+            @Override
+            public void onFailure(@Nonnull Throwable t) {
+                log.debug("Unable to preload robots.txt for {}", resource, t);
+                completed(null);
+            }
+        }, directExecutor());
+    }
+
+    private void completed(@Nullable RobotsEntry.Outcome outcome) {
+        synchronized (this) {
+            running--;
+            if (outcome == null) {
+                failedCount++;
+            } else {
+                final Long count = outcomeCounts.get(outcome);
+                outcomeCounts.put(outcome, count == null ? 1 : count + 1);
+            }
+        }
+        drain();
+    }
+}
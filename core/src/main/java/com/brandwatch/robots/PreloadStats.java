@@ -0,0 +1,141 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Snapshot of the progress of a {@link Preload}: how many resources have been started and completed,
+ * and how the completed ones were loaded. Resources that could not be loaded at all, such as those
+ * with malformed URIs, are counted as failed rather than by outcome.
+ */
+@Immutable
+public final class PreloadStats {
+
+    @Nonnegative
+    private final long startedCount;
+    @Nonnegative
+    private final long failedCount;
+    @Nonnull
+    private final ImmutableMap<RobotsEntry.Outcome, Long> outcomeCounts;
+    private final boolean done;
+
+    public PreloadStats(@Nonnegative long startedCount, @Nonnegative long failedCount,
+                        @Nonnull Map<RobotsEntry.Outcome, Long> outcomeCounts, boolean done) {
+        checkArgument(startedCount >= 0, "startedCount is negative");
+        checkArgument(failedCount >= 0, "failedCount is negative");
+        checkNotNull(outcomeCounts, "outcomeCounts is null");
+        this.startedCount = startedCount;
+        this.failedCount = failedCount;
+        this.outcomeCounts = Maps.immutableEnumMap(outcomeCounts);
+        this.done = done;
+    }
+
+    /**
+     * Number of resources taken from the input so far.
+     */
+    @Nonnegative
+    public long getStartedCount() {
+        return startedCount;
+    }
+
+    /**
+     * Number of resources whose robots.txt has been loaded, or has failed to load.
+     */
+    @Nonnegative
+    public long getCompletedCount() {
+        long completed = failedCount;
+        for (Long count : outcomeCounts.values()) {
+            completed += count;
+        }
+        return completed;
+    }
+
+    @Nonnegative
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    @Nonnegative
+    public long getOutcomeCount(@Nonnull RobotsEntry.Outcome outcome) {
+        checkNotNull(outcome, "outcome is null");
+        final Long count = outcomeCounts.get(outcome);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * True once every resource in the input has completed.
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PreloadStats that = (PreloadStats) o;
+        return startedCount == that.startedCount
+                && failedCount == that.failedCount
+                && done == that.done
+                && outcomeCounts.equals(that.outcomeCounts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(startedCount, failedCount, outcomeCounts, done);
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("startedCount", startedCount)
+                .add("failedCount", failedCount)
+                .add("outcomeCounts", outcomeCounts)
+                .add("done", done)
+                .toString();
+    }
+}
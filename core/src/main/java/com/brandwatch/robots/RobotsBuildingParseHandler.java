@@ -37,6 +37,7 @@ import com.brandwatch.robots.domain.AgentDirective;
 import com.brandwatch.robots.domain.Group;
 import com.brandwatch.robots.domain.OtherDirective;
 import com.brandwatch.robots.domain.PathDirective;
+import com.brandwatch.robots.domain.RateDirective;
 import com.brandwatch.robots.domain.Robots;
 import com.brandwatch.robots.domain.SiteMapDirective;
 import com.brandwatch.robots.matching.ExpressionCompiler;
@@ -106,6 +107,13 @@ class RobotsBuildingParseHandler implements RobotsParseHandler, Supplier<Robots>
 
     @Override
     public void otherDirective(@Nonnull String field, @Nonnull String value) {
+        if (group.isPresent()) {
+            final Optional<RateDirective> rate = RateDirective.parse(field, value);
+            if (rate.isPresent()) {
+                group.get().withDirective(rate.get());
+                return;
+            }
+        }
         robots.withNonGroupDirective(new OtherDirective(field, value));
     }
 
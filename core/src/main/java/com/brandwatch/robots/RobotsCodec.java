@@ -0,0 +1,338 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.domain.AgentDirective;
+import com.brandwatch.robots.domain.Directive;
+import com.brandwatch.robots.domain.Group;
+import com.brandwatch.robots.domain.OtherDirective;
+import com.brandwatch.robots.domain.PathDirective;
+import com.brandwatch.robots.domain.RateDirective;
+import com.brandwatch.robots.domain.Robots;
+import com.brandwatch.robots.domain.SiteMapDirective;
+import com.brandwatch.robots.matching.ExpressionCompiler;
+import com.brandwatch.robots.matching.Matcher;
+import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Maps.newLinkedHashMap;
+import static java.text.MessageFormat.format;
+
+/**
+ * Compact binary encoding of parsed {@link Robots}, so they can be stored or replicated without
+ * parsing the original robots.txt again.
+ *
+ * An encoding starts with the format version and a table of every distinct string used by the
+ * directives, followed by the groups and then the non-group directives. Each directive is a kind
+ * byte followed by indices into the string table; all counts, lengths and indices are unsigned
+ * varints. Matchers are not encoded: they are compiled from the directive values when first used.
+ */
+@Immutable
+public final class RobotsCodec {
+
+    private static final int VERSION = 1;
+
+    private static final byte AGENT = 0;
+    private static final byte ALLOW = 1;
+    private static final byte DISALLOW = 2;
+    private static final byte SITE_MAP = 3;
+    private static final byte OTHER = 4;
+    private static final byte CRAWL_DELAY = 5;
+    private static final byte REQUEST_RATE = 6;
+
+    @Nonnull
+    private final ExpressionCompiler pathExpressionCompiler;
+    @Nonnull
+    private final ExpressionCompiler agentExpressionCompiler;
+
+    RobotsCodec(@Nonnull ExpressionCompiler pathExpressionCompiler,
+                @Nonnull ExpressionCompiler agentExpressionCompiler) {
+        this.pathExpressionCompiler = checkNotNull(pathExpressionCompiler, "pathExpressionCompiler");
+        this.agentExpressionCompiler = checkNotNull(agentExpressionCompiler, "agentExpressionCompiler");
+    }
+
+    public void writeTo(@Nonnull Robots robots, @Nonnull OutputStream out) throws IOException {
+        checkNotNull(robots, "robots is null");
+        checkNotNull(out, "out is null");
+
+        final Map<String, Integer> strings = newLinkedHashMap();
+        for (Group group : robots.getGroups()) {
+            intern(strings, group.getDirectives());
+        }
+        intern(strings, robots.getNonGroupDirectives());
+
+        final Encoder encoder = new Encoder();
+        encoder.writeVarint(VERSION);
+        encoder.writeVarint(strings.size());
+        for (String string : strings.keySet()) {
+            encoder.writeString(string);
+        }
+        encoder.writeVarint(robots.getGroups().size());
+        for (Group group : robots.getGroups()) {
+            writeDirectives(encoder, strings, group.getDirectives());
+        }
+        writeDirectives(encoder, strings, robots.getNonGroupDirectives());
+
+        out.write(encoder.bytes, 0, encoder.size);
+    }
+
+    /**
+     * Decode a {@code Robots} from the given buffer, starting at its current position. On return the
+     * position has been advanced past the encoding.
+     *
+     * @throws IOException if the buffer does not hold a complete, well-formed encoding
+     */
+    @Nonnull
+    public Robots readFrom(@Nonnull ByteBuffer in) throws IOException {
+        checkNotNull(in, "in is null");
+        try {
+            final int version = readVarint(in);
+            if (version != VERSION) {
+                throw new IOException(format("Unsupported robots encoding version: {0}", version));
+            }
+
+            final String[] strings = new String[readCount(in)];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(in);
+            }
+
+            final Robots.Builder robots = new Robots.Builder();
+            final int groupCount = readCount(in);
+            for (int i = 0; i < groupCount; i++) {
+                final Group.Builder group = new Group.Builder();
+                final int directiveCount = readCount(in);
+                for (int j = 0; j < directiveCount; j++) {
+                    group.withDirective(readDirective(in, strings));
+                }
+                robots.withGroup(group.build());
+            }
+            final int directiveCount = readCount(in);
+            for (int i = 0; i < directiveCount; i++) {
+                robots.withNonGroupDirective(readDirective(in, strings));
+            }
+            return robots.build();
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated robots encoding", e);
+        }
+    }
+
+    private static void intern(@Nonnull Map<String, Integer> strings, @Nonnull List<Directive> directives) {
+        for (Directive directive : directives) {
+            if (kindOf(directive) == OTHER) {
+                intern(strings, directive.getField());
+            }
+            intern(strings, directive.getValue());
+        }
+    }
+
+    private static void intern(@Nonnull Map<String, Integer> strings, @Nonnull String string) {
+        if (!strings.containsKey(string)) {
+            strings.put(string, strings.size());
+        }
+    }
+
+    private static void writeDirectives(@Nonnull Encoder encoder, @Nonnull Map<String, Integer> strings,
+                                        @Nonnull List<Directive> directives) {
+        encoder.writeVarint(directives.size());
+        for (Directive directive : directives) {
+            final byte kind = kindOf(directive);
+            encoder.writeByte(kind);
+            if (kind == OTHER) {
+                encoder.writeVarint(strings.get(directive.getField()));
+            }
+            encoder.writeVarint(strings.get(directive.getValue()));
+        }
+    }
+
+    private static byte kindOf(@Nonnull Directive directive) {
+        if (directive instanceof AgentDirective) {
+            return AGENT;
+        } else if (directive instanceof PathDirective) {
+            return ((PathDirective) directive).isAllowed() ? ALLOW : DISALLOW;
+        } else if (directive instanceof SiteMapDirective) {
+            return SITE_MAP;
+        } else if (directive instanceof OtherDirective) {
+            return OTHER;
+        } else if (directive instanceof RateDirective) {
+            return ((RateDirective) directive).getRateField() == RateDirective.Field.crawl_delay
+                    ? CRAWL_DELAY : REQUEST_RATE;
+        }
+        throw new IllegalArgumentException("Unsupported directive type: " + directive.getClass().getName());
+    }
+
+    @Nonnull
+    private Directive readDirective(@Nonnull ByteBuffer in, @Nonnull String[] strings) throws IOException {
+        final byte kind = in.get();
+        switch (kind) {
+            case AGENT: {
+                final String value = readRef(in, strings);
+                return new AgentDirective(value, compiling(agentExpressionCompiler, value));
+            }
+            case ALLOW:
+            case DISALLOW: {
+                final String value = readRef(in, strings);
+                return new PathDirective(
+                        kind == ALLOW ? PathDirective.Field.allow : PathDirective.Field.disallow,
+                        value, compiling(pathExpressionCompiler, value));
+            }
+            case SITE_MAP:
+                return new SiteMapDirective(readRef(in, strings));
+            case OTHER: {
+                final String field = readRef(in, strings);
+                return new OtherDirective(field, readRef(in, strings));
+            }
+            case CRAWL_DELAY:
+            case REQUEST_RATE: {
+                final RateDirective.Field field = kind == CRAWL_DELAY
+                        ? RateDirective.Field.crawl_delay : RateDirective.Field.request_rate;
+                final String value = readRef(in, strings);
+                final Optional<Long> intervalMillis = field.parseIntervalMillis(value);
+                if (!intervalMillis.isPresent()) {
+                    throw new IOException(format("Malformed {0} value: {1}", field, value));
+                }
+                return new RateDirective(field, value, intervalMillis.get());
+            }
+        }
+        throw new IOException(format("Unknown directive kind: {0}", kind));
+    }
+
+    @Nonnull
+    private static Supplier<Matcher<String>> compiling(@Nonnull final ExpressionCompiler compiler,
+                                                       @Nonnull final String expression) {
+        return Suppliers.memoize(new Supplier<Matcher<String>>() {
+            @Override
+            public Matcher<String> get() {
+                return compiler.compile(expression);
+            }
+        });
+    }
+
+    @Nonnull
+    private static String readRef(@Nonnull ByteBuffer in, @Nonnull String[] strings) throws IOException {
+        final int index = readVarint(in);
+        if (index >= strings.length) {
+            throw new IOException(format("String index {0} out of range", index));
+        }
+        return strings[index];
+    }
+
+    @Nonnull
+    private static String readString(@Nonnull ByteBuffer in) throws IOException {
+        final int length = readCount(in);
+        final String string;
+        if (in.hasArray()) {
+            string = new String(in.array(), in.arrayOffset() + in.position(), length, Charsets.UTF_8);
+            in.position(in.position() + length);
+        } else {
+            final byte[] bytes = new byte[length];
+            in.get(bytes);
+            string = new String(bytes, Charsets.UTF_8);
+        }
+        return string;
+    }
+
+    /**
+     * Read a count of items that each occupy at least one byte, rejecting any that could not fit in
+     * the remainder of the buffer before anything is allocated for them.
+     */
+    private static int readCount(@Nonnull ByteBuffer in) throws IOException {
+        final int count = readVarint(in);
+        if (count > in.remaining()) {
+            throw new IOException(format("Count {0} exceeds remaining {1} bytes", count, in.remaining()));
+        }
+        return count;
+    }
+
+    private static int readVarint(@Nonnull ByteBuffer in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final byte b = in.get();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static final class Encoder {
+
+        private byte[] bytes = new byte[256];
+        private int size = 0;
+
+        void writeByte(int value) {
+            ensureCapacity(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeVarint(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7f) != 0) {
+                bytes[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeString(@Nonnull String value) {
+            final byte[] encoded = value.getBytes(Charsets.UTF_8);
+            writeVarint(encoded.length);
+            ensureCapacity(encoded.length);
+            System.arraycopy(encoded, 0, bytes, size, encoded.length);
+            size += encoded.length;
+        }
+
+        private void ensureCapacity(int additional) {
+            if (size + additional > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additional));
+            }
+        }
+    }
+}
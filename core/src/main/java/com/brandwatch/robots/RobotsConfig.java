@@ -41,6 +41,8 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
 import java.nio.charset.Charset;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -51,9 +53,75 @@ public class RobotsConfig {
     @Nonnegative
     private long cacheExpiresHours = 24;
 
+    /**
+     * Hours for which a robots.txt that could not be retrieved because of a client error (such as
+     * 404 Not Found, or 403 Forbidden) is cached.
+     */
+    @Nonnegative
+    private long cacheClientErrorExpiresHours = 24;
+
+    /**
+     * Minutes for which the disallow-all result of a server error (5xx) is cached. Kept short, since
+     * a transient failure would otherwise block the whole site.
+     */
+    @Nonnegative
+    private long cacheServerErrorExpiresMinutes = 10;
+
+    /**
+     * Minutes for which the allow-all result of a timeout, or other failure to reach the host, is
+     * cached.
+     */
+    @Nonnegative
+    private long cacheUnreachableExpiresMinutes = 10;
+
+    /**
+     * Hours for which the allow-all result of a robots.txt that could not be parsed is cached.
+     */
+    @Nonnegative
+    private long cacheParseFailureExpiresHours = 24;
+
+    /**
+     * Lower bound, in minutes, on a freshness lifetime given by a server's {@code Cache-Control} or
+     * {@code Expires} headers. Lifetimes given by the server replace {@link #cacheExpiresHours} and
+     * {@link #cacheClientErrorExpiresHours}.
+     */
+    @Nonnegative
+    private long cacheMinMaxAgeMinutes = 60;
+
+    /**
+     * Upper bound, in hours, on a freshness lifetime given by a server's {@code Cache-Control} or
+     * {@code Expires} headers.
+     */
+    @Nonnegative
+    private long cacheMaxMaxAgeHours = 24;
+
+    /**
+     * Age in hours after which a cached robots.txt is refreshed in the background, while the cached
+     * copy continues to be served until it expires after {@link #cacheExpiresHours}. Zero disables
+     * background refresh, so that expired entries are only reloaded when next requested.
+     */
+    @Nonnegative
+    private long cacheRefreshAfterHours = 0;
+
     @Nonnegative
     private long cacheMaxSizeRecords = 10000;
 
+    /**
+     * Bound on the estimated heap retained by the cache, in bytes. When non-zero this replaces
+     * {@link #cacheMaxSizeRecords}, so that a few very large robots.txt files cannot exhaust the heap
+     * while many small ones still fit.
+     */
+    @Nonnegative
+    private long cacheMaxSizeBytes = 0;
+
+    /**
+     * Size in bytes of an off-heap tier behind the cache, which holds entries evicted from it in a
+     * compact encoding, outside the heap, until they are requested again. Zero disables the tier, so
+     * that evicted entries are discarded.
+     */
+    @Nonnegative
+    private long cacheOffHeapSizeBytes = 0;
+
     @Nonnegative
     private int maxFileSizeBytes = 192 * 1024;
 
@@ -72,6 +140,61 @@ public class RobotsConfig {
     @Nonnegative
     private int readTimeoutMillis = 30000;
 
+    /**
+     * Time allowed to establish a connection to a host. Idle connections are kept alive and reused
+     * for later fetches from the same host, so this is only paid once per host for a while.
+     */
+    @Nonnegative
+    private int connectTimeoutMillis = 10000;
+
+    /**
+     * Maximum number of robots.txt fetches allowed to run at once; further fetches queue until a
+     * running one completes. Zero means unlimited.
+     */
+    @Nonnegative
+    private int maxConcurrentFetches = 256;
+
+    /**
+     * Maximum number of robots.txt loads a {@link RobotsService#preload(Iterable) preload} keeps in
+     * progress at once, leaving the remaining fetch slots for checks made while it runs. Zero means
+     * unlimited.
+     */
+    @Nonnegative
+    private int preloadConcurrency = 64;
+
+    /**
+     * Maximum number of origins a {@link PolitenessScheduler} tracks the next fetch time of. Beyond
+     * this the least recently used are forgotten. Must be positive.
+     */
+    private int politenessMaxOrigins = 1000000;
+
+    /**
+     * Longest crawl delay a {@link PolitenessScheduler} honours, however long a robots.txt asks for.
+     */
+    @Nonnegative
+    private int politenessMaxDelaySeconds = 60;
+
+    /**
+     * Directory in which retrieved robots.txt files are persisted, so they can be reused across
+     * restarts until they expire. Null keeps the cache in memory only.
+     */
+    @Nullable
+    private File cacheDirectory = null;
+
+    /**
+     * Local mirror of robots.txt files, either a directory or an archive, to evaluate against instead
+     * of fetching from the network. Hosts missing from the mirror allow all. Null fetches as usual.
+     */
+    @Nullable
+    private File mirror = null;
+
+    /**
+     * Which robots.txt parser to use. The JavaCC generated parser is the reference implementation;
+     * the streaming parser accepts exactly the same inputs, but is considerably faster.
+     */
+    @Nonnull
+    private ParserType parserType = ParserType.JAVACC;
+
     public long getRequestTimeoutMillis() {
         return requestTimeoutMillis;
     }
@@ -88,6 +211,14 @@ public class RobotsConfig {
         this.readTimeoutMillis = readTimeoutMillis;
     }
 
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public void setConnectTimeoutMillis(int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
     @Nonnull
     public String getUserAgent() {
         return userAgent;
@@ -128,6 +259,76 @@ public class RobotsConfig {
         this.cacheExpiresHours = cacheExpiresHours;
     }
 
+    @Nonnegative
+    public long getCacheClientErrorExpiresHours() {
+        return cacheClientErrorExpiresHours;
+    }
+
+    public void setCacheClientErrorExpiresHours(@Nonnegative long cacheClientErrorExpiresHours) {
+        checkArgument(cacheClientErrorExpiresHours >= 0, "cacheClientErrorExpiresHours is negative");
+        this.cacheClientErrorExpiresHours = cacheClientErrorExpiresHours;
+    }
+
+    @Nonnegative
+    public long getCacheServerErrorExpiresMinutes() {
+        return cacheServerErrorExpiresMinutes;
+    }
+
+    public void setCacheServerErrorExpiresMinutes(@Nonnegative long cacheServerErrorExpiresMinutes) {
+        checkArgument(cacheServerErrorExpiresMinutes >= 0, "cacheServerErrorExpiresMinutes is negative");
+        this.cacheServerErrorExpiresMinutes = cacheServerErrorExpiresMinutes;
+    }
+
+    @Nonnegative
+    public long getCacheUnreachableExpiresMinutes() {
+        return cacheUnreachableExpiresMinutes;
+    }
+
+    public void setCacheUnreachableExpiresMinutes(@Nonnegative long cacheUnreachableExpiresMinutes) {
+        checkArgument(cacheUnreachableExpiresMinutes >= 0, "cacheUnreachableExpiresMinutes is negative");
+        this.cacheUnreachableExpiresMinutes = cacheUnreachableExpiresMinutes;
+    }
+
+    @Nonnegative
+    public long getCacheParseFailureExpiresHours() {
+        return cacheParseFailureExpiresHours;
+    }
+
+    public void setCacheParseFailureExpiresHours(@Nonnegative long cacheParseFailureExpiresHours) {
+        checkArgument(cacheParseFailureExpiresHours >= 0, "cacheParseFailureExpiresHours is negative");
+        this.cacheParseFailureExpiresHours = cacheParseFailureExpiresHours;
+    }
+
+    @Nonnegative
+    public long getCacheMinMaxAgeMinutes() {
+        return cacheMinMaxAgeMinutes;
+    }
+
+    public void setCacheMinMaxAgeMinutes(@Nonnegative long cacheMinMaxAgeMinutes) {
+        checkArgument(cacheMinMaxAgeMinutes >= 0, "cacheMinMaxAgeMinutes is negative");
+        this.cacheMinMaxAgeMinutes = cacheMinMaxAgeMinutes;
+    }
+
+    @Nonnegative
+    public long getCacheMaxMaxAgeHours() {
+        return cacheMaxMaxAgeHours;
+    }
+
+    public void setCacheMaxMaxAgeHours(@Nonnegative long cacheMaxMaxAgeHours) {
+        checkArgument(cacheMaxMaxAgeHours >= 0, "cacheMaxMaxAgeHours is negative");
+        this.cacheMaxMaxAgeHours = cacheMaxMaxAgeHours;
+    }
+
+    @Nonnegative
+    public long getCacheRefreshAfterHours() {
+        return cacheRefreshAfterHours;
+    }
+
+    public void setCacheRefreshAfterHours(@Nonnegative long cacheRefreshAfterHours) {
+        checkArgument(cacheRefreshAfterHours >= 0, "cacheRefreshAfterHours is negative");
+        this.cacheRefreshAfterHours = cacheRefreshAfterHours;
+    }
+
     @Nonnegative
     public long getCacheMaxSizeRecords() {
         return cacheMaxSizeRecords;
@@ -138,6 +339,26 @@ public class RobotsConfig {
         this.cacheMaxSizeRecords = cacheMaxSizeRecords;
     }
 
+    @Nonnegative
+    public long getCacheMaxSizeBytes() {
+        return cacheMaxSizeBytes;
+    }
+
+    public void setCacheMaxSizeBytes(@Nonnegative long cacheMaxSizeBytes) {
+        checkArgument(cacheMaxSizeBytes >= 0, "cacheMaxSizeBytes is negative");
+        this.cacheMaxSizeBytes = cacheMaxSizeBytes;
+    }
+
+    @Nonnegative
+    public long getCacheOffHeapSizeBytes() {
+        return cacheOffHeapSizeBytes;
+    }
+
+    public void setCacheOffHeapSizeBytes(@Nonnegative long cacheOffHeapSizeBytes) {
+        checkArgument(cacheOffHeapSizeBytes >= 0, "cacheOffHeapSizeBytes is negative");
+        this.cacheOffHeapSizeBytes = cacheOffHeapSizeBytes;
+    }
+
     @Nonnegative
     public int getMaxFileSizeBytes() {
         return maxFileSizeBytes;
@@ -148,17 +369,105 @@ public class RobotsConfig {
         this.maxFileSizeBytes = maxFileSizeBytes;
     }
 
+    @Nonnegative
+    public int getMaxConcurrentFetches() {
+        return maxConcurrentFetches;
+    }
+
+    public void setMaxConcurrentFetches(@Nonnegative int maxConcurrentFetches) {
+        checkArgument(maxConcurrentFetches >= 0, "maxConcurrentFetches is negative");
+        this.maxConcurrentFetches = maxConcurrentFetches;
+    }
+
+    @Nonnegative
+    public int getPreloadConcurrency() {
+        return preloadConcurrency;
+    }
+
+    public void setPreloadConcurrency(@Nonnegative int preloadConcurrency) {
+        checkArgument(preloadConcurrency >= 0, "preloadConcurrency is negative");
+        this.preloadConcurrency = preloadConcurrency;
+    }
+
+    public int getPolitenessMaxOrigins() {
+        return politenessMaxOrigins;
+    }
+
+    public void setPolitenessMaxOrigins(int politenessMaxOrigins) {
+        checkArgument(politenessMaxOrigins > 0, "politenessMaxOrigins is not positive");
+        this.politenessMaxOrigins = politenessMaxOrigins;
+    }
+
+    @Nonnegative
+    public int getPolitenessMaxDelaySeconds() {
+        return politenessMaxDelaySeconds;
+    }
+
+    public void setPolitenessMaxDelaySeconds(@Nonnegative int politenessMaxDelaySeconds) {
+        checkArgument(politenessMaxDelaySeconds >= 0, "politenessMaxDelaySeconds is negative");
+        this.politenessMaxDelaySeconds = politenessMaxDelaySeconds;
+    }
+
+    @Nullable
+    public File getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    public void setCacheDirectory(@Nullable File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    @Nullable
+    public File getMirror() {
+        return mirror;
+    }
+
+    public void setMirror(@Nullable File mirror) {
+        this.mirror = mirror;
+    }
+
+    @Nonnull
+    public ParserType getParserType() {
+        return parserType;
+    }
+
+    public void setParserType(@Nonnull ParserType parserType) {
+        checkNotNull(parserType, "parserType is null");
+        this.parserType = parserType;
+    }
 
     @Override
     public String toString() {
         return Objects.toStringHelper(this)
                 .add("cacheExpiresHours", cacheExpiresHours)
+                .add("cacheClientErrorExpiresHours", cacheClientErrorExpiresHours)
+                .add("cacheServerErrorExpiresMinutes", cacheServerErrorExpiresMinutes)
+                .add("cacheUnreachableExpiresMinutes", cacheUnreachableExpiresMinutes)
+                .add("cacheParseFailureExpiresHours", cacheParseFailureExpiresHours)
+                .add("cacheMinMaxAgeMinutes", cacheMinMaxAgeMinutes)
+                .add("cacheMaxMaxAgeHours", cacheMaxMaxAgeHours)
+                .add("cacheRefreshAfterHours", cacheRefreshAfterHours)
                 .add("cacheMaxSizeRecords", cacheMaxSizeRecords)
+                .add("cacheMaxSizeBytes", cacheMaxSizeBytes)
+                .add("cacheOffHeapSizeBytes", cacheOffHeapSizeBytes)
                 .add("maxFileSizeBytes", maxFileSizeBytes)
                 .add("maxRedirectHops", maxRedirectHops)
                 .add("defaultCharset", defaultCharset)
                 .add("userAgent", userAgent)
                 .add("requestTimeoutMillis", requestTimeoutMillis)
+                .add("connectTimeoutMillis", connectTimeoutMillis)
+                .add("maxConcurrentFetches", maxConcurrentFetches)
+                .add("preloadConcurrency", preloadConcurrency)
+                .add("politenessMaxOrigins", politenessMaxOrigins)
+                .add("politenessMaxDelaySeconds", politenessMaxDelaySeconds)
+                .add("cacheDirectory", cacheDirectory)
+                .add("mirror", mirror)
+                .add("parserType", parserType)
                 .toString();
     }
+
+    public enum ParserType {
+        JAVACC,
+        STREAMING
+    }
 }
@@ -0,0 +1,198 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.domain.Robots;
+import com.brandwatch.robots.net.Validators;
+import com.google.common.base.Function;
+import com.google.common.base.Objects;
+import com.google.common.cache.Weigher;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A loaded robots.txt, with how it was loaded, the time it was last known to be current, the time
+ * it expires, and the validators with which it can be revalidated once it has.
+ */
+@Immutable
+public final class RobotsEntry {
+
+    static final Function<RobotsEntry, Robots> GET_ROBOTS = new Function<RobotsEntry, Robots>() {
+        @Override
+        public Robots apply(RobotsEntry entry) {
+            return entry.getRobots();
+        }
+    };
+
+    /**
+     * Weighs cached entries by their estimated size in bytes.
+     */
+    static final Weigher<Object, RobotsEntry> WEIGHER = new Weigher<Object, RobotsEntry>() {
+        @Override
+        public int weigh(@Nonnull Object key, @Nonnull RobotsEntry entry) {
+            return (int) Math.min(Integer.MAX_VALUE, entry.getEstimatedSizeBytes());
+        }
+    };
+
+    @Nonnull
+    private final Robots robots;
+    @Nonnull
+    private final Outcome outcome;
+    @Nonnull
+    private final Validators validators;
+    private final long fetchedMillis;
+    private final long expiresMillis;
+    /**
+     * Lazily computed, as it is only needed when the cache is bounded by size; racing threads compute
+     * the same value.
+     */
+    private long estimatedSizeBytes = -1;
+
+    public RobotsEntry(@Nonnull Robots robots, @Nonnull Outcome outcome, @Nonnull Validators validators,
+                       long fetchedMillis, long expiresMillis) {
+        this.robots = checkNotNull(robots, "robots is null");
+        this.outcome = checkNotNull(outcome, "outcome is null");
+        this.validators = checkNotNull(validators, "validators is null");
+        this.fetchedMillis = fetchedMillis;
+        this.expiresMillis = expiresMillis;
+    }
+
+    @Nonnull
+    public Robots getRobots() {
+        return robots;
+    }
+
+    @Nonnull
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    @Nonnull
+    public Validators getValidators() {
+        return validators;
+    }
+
+    /**
+     * When the robots.txt was fetched, or last confirmed to be unchanged, in milliseconds since the
+     * epoch.
+     */
+    public long getFetchedMillis() {
+        return fetchedMillis;
+    }
+
+    /**
+     * When the entry expires, and must be revalidated before it is used again, in milliseconds since
+     * the epoch.
+     */
+    public long getExpiresMillis() {
+        return expiresMillis;
+    }
+
+    /**
+     * Estimate of the heap retained by the parsed robots.txt, in bytes.
+     */
+    @Nonnegative
+    public long getEstimatedSizeBytes() {
+        long size = estimatedSizeBytes;
+        if (size < 0) {
+            size = RobotsFootprint.estimate(robots);
+            estimatedSizeBytes = size;
+        }
+        return size;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresMillis;
+    }
+
+    /**
+     * Get a copy of this entry, confirmed to be unchanged at the given time, and expiring at another.
+     */
+    @Nonnull
+    public RobotsEntry renew(long fetchedMillis, long expiresMillis) {
+        final RobotsEntry renewed = new RobotsEntry(robots, outcome, validators, fetchedMillis, expiresMillis);
+        renewed.estimatedSizeBytes = estimatedSizeBytes;
+        return renewed;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RobotsEntry that = (RobotsEntry) o;
+        return fetchedMillis == that.fetchedMillis
+                && expiresMillis == that.expiresMillis
+                && robots.equals(that.robots)
+                && outcome == that.outcome
+                && validators.equals(that.validators);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(robots, outcome, validators, fetchedMillis, expiresMillis);
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("robots", robots)
+                .add("outcome", outcome)
+                .add("validators", validators)
+                .add("fetchedMillis", fetchedMillis)
+                .add("expiresMillis", expiresMillis)
+                .toString();
+    }
+
+    /**
+     * How the robots.txt was loaded.
+     */
+    public enum Outcome {
+        /** Retrieved and parsed. */
+        SUCCESS,
+        /** Rejected by the host with a client error, or another status that allows or disallows all. */
+        CLIENT_ERROR,
+        /** Rejected by the host with a server error, so disallowing all for now. */
+        SERVER_ERROR,
+        /** Timed out, or could not otherwise be retrieved, so allowing all for now. */
+        UNREACHABLE,
+        /** Retrieved, but could not be parsed, so allowing all. */
+        PARSE_FAILURE
+    }
+}
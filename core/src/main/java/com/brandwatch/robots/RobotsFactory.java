@@ -42,20 +42,33 @@ import com.brandwatch.robots.matching.ExpressionCompiler;
 import com.brandwatch.robots.matching.ExpressionCompilerBuilder;
 import com.brandwatch.robots.matching.MatcherUtils;
 import com.brandwatch.robots.matching.MatcherUtilsImpl;
+import com.brandwatch.robots.metrics.MetricsRegistry;
+import com.brandwatch.robots.metrics.MetricsRegistryNoopImpl;
 import com.brandwatch.robots.net.CharSourceSupplier;
 import com.brandwatch.robots.net.CharSourceSupplierHttpClientImpl;
+import com.brandwatch.robots.net.CharSourceSupplierMirrorImpl;
+import com.brandwatch.robots.net.CharSourceSupplierPersistentImpl;
 import com.brandwatch.robots.net.LoggingClientFilter;
+import com.brandwatch.robots.net.Origin;
+import com.brandwatch.robots.net.ResourceStore;
+import com.brandwatch.robots.net.RobotsMirror;
+import com.brandwatch.robots.parser.RobotsTxtParser;
+import com.brandwatch.robots.parser.RobotsTxtParserJavaccImpl;
+import com.brandwatch.robots.parser.RobotsTxtParserStreamingImpl;
 import com.brandwatch.robots.util.LogLevel;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import org.glassfish.jersey.client.ClientConfig;
 import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.HttpUrlConnectorProvider;
+import org.glassfish.jersey.client.spi.ConnectorProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
-import java.net.URI;
+import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -64,6 +77,12 @@ public class RobotsFactory {
 
     private static final Logger log = LoggerFactory.getLogger(RobotsFactory.class);
 
+    /**
+     * Hosts that cannot be reached, or that answer with an error, all share these.
+     */
+    private static final Robots ALLOW_ALL = createConstantRobots(PathDirective.Field.allow);
+    private static final Robots DISALLOW_ALL = createConstantRobots(PathDirective.Field.disallow);
+
     private final RobotsUtilities utilities = new RobotsUtilities();
     private final MatcherUtils matcherUtils = new MatcherUtilsImpl();
 
@@ -77,16 +96,16 @@ public class RobotsFactory {
 
     @Nonnull
     public Robots createAllowAllRobots() {
-        return createConstantRobots(PathDirective.Field.allow);
+        return ALLOW_ALL;
     }
 
     @Nonnull
     public Robots createDisallowAllRobots() {
-        return createConstantRobots(PathDirective.Field.disallow);
+        return DISALLOW_ALL;
     }
 
     @Nonnull
-    private Robots createConstantRobots(@Nonnull PathDirective.Field permission) {
+    private static Robots createConstantRobots(@Nonnull PathDirective.Field permission) {
         checkNotNull(permission, "permission");
         return new Robots.Builder()
                 .withGroup(new Group.Builder()
@@ -101,22 +120,61 @@ public class RobotsFactory {
         return utilities;
     }
 
+    /**
+     * Get the registry that metrics are reported to; by default, one that discards them. Override
+     * this to report them elsewhere, returning the same registry on every call.
+     */
+    @Nonnull
+    public MetricsRegistry getMetricsRegistry() {
+        return MetricsRegistryNoopImpl.INSTANCE;
+    }
+
     @Nonnull
     public RobotsLoader createLoader() {
         return new RobotsLoaderCachedImpl(
-                new RobotsLoaderImpl(this),
-                createCache());
+                new RobotsLoaderCoalescingImpl(
+                        new RobotsLoaderImpl(this),
+                        new FetchLimiter(config.getMaxConcurrentFetches())),
+                createCache(),
+                config.getCacheRefreshAfterHours() > 0
+                        ? TimeUnit.HOURS.toMillis(config.getCacheRefreshAfterHours())
+                        : Long.MAX_VALUE,
+                getMetricsRegistry());
     }
 
     @Nonnull
     public CharSourceSupplier createCharSourceSupplier() {
-        return new CharSourceSupplierHttpClientImpl(config, createClient());
+        if (config.getMirror() != null) {
+            log.debug("Opening robots.txt mirror (location: {})", config.getMirror());
+            try {
+                return new CharSourceSupplierMirrorImpl(config, RobotsMirror.open(config.getMirror()));
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to open robots.txt mirror " + config.getMirror(), e);
+            }
+        }
+
+        final CharSourceSupplier supplier = new CharSourceSupplierHttpClientImpl(
+                config, createClient(), getMetricsRegistry());
+        if (config.getCacheDirectory() == null) {
+            return supplier;
+        }
+
+        log.debug("Initializing persistent store (directory: {})", config.getCacheDirectory());
+        try {
+            return new CharSourceSupplierPersistentImpl(
+                    createExpiryPolicy(), supplier, ResourceStore.open(config.getCacheDirectory()));
+        } catch (IOException e) {
+            log.warn("Unable to open persistent store in {}; continuing without it",
+                    config.getCacheDirectory(), e);
+            return supplier;
+        }
     }
 
     @Nonnull
     public ExpressionCompiler createPathExpressionCompiler() {
         return new ExpressionCompilerBuilder()
                 .withLeftBoundaryMatching(true)
+                .withPercentEncodingNormalization(true)
                 .withExpressionPreprocessor(new MissingPrefixFixingFunction())
                 .build();
     }
@@ -128,26 +186,87 @@ public class RobotsFactory {
                 .build();
     }
 
+    /**
+     * Create the cache of loaded robots.txt files. Each entry carries its own expiry time, decided by
+     * the {@link #createExpiryPolicy() expiry policy}. Entries are not evicted when they expire, only
+     * when the cache is full, so that expired entries remain available for revalidation. The cache
+     * is bounded by the estimated size of its entries if {@link RobotsConfig#getCacheMaxSizeBytes()}
+     * is set, and by their number otherwise.
+     *
+     * If {@link RobotsConfig#getCacheOffHeapSizeBytes()} is set, entries evicted from the cache are
+     * moved to an off-heap tier of that size, and moved back when next requested.
+     */
     @Nonnull
-    public Cache<URI, Robots> createCache() {
+    public Cache<Origin, RobotsEntry> createCache() {
+        if (config.getCacheOffHeapSizeBytes() > 0) {
+            return createTieredCache();
+        }
+
+        if (config.getCacheMaxSizeBytes() > 0) {
+            log.debug("Initializing cache (maxSizeBytes: {})", config.getCacheMaxSizeBytes());
 
-        log.debug("Initializing cache (maxSize: {}, expires after: {} hours)",
-                config.getCacheMaxSizeRecords(), config.getCacheExpiresHours());
+            return CacheBuilder.newBuilder()
+                    .maximumWeight(config.getCacheMaxSizeBytes())
+                    .weigher(RobotsEntry.WEIGHER)
+                    .recordStats()
+                    .build();
+        }
+
+        log.debug("Initializing cache (maxSize: {})", config.getCacheMaxSizeRecords());
 
         return CacheBuilder.newBuilder()
                 .maximumSize(config.getCacheMaxSizeRecords())
-                .expireAfterWrite(config.getCacheExpiresHours(), TimeUnit.HOURS)
                 .recordStats()
                 .build();
     }
 
+    @Nonnull
+    private Cache<Origin, RobotsEntry> createTieredCache() {
+        log.debug("Initializing off-heap cache tier (sizeBytes: {})", config.getCacheOffHeapSizeBytes());
+        final OffHeapEntryStore cold = new OffHeapEntryStore(
+                createRobotsCodec(), config.getCacheOffHeapSizeBytes());
+
+        if (config.getCacheMaxSizeBytes() > 0) {
+            return new TieredEntryCache(CacheBuilder.newBuilder()
+                    .maximumWeight(config.getCacheMaxSizeBytes())
+                    .weigher(RobotsEntry.WEIGHER)
+                    .removalListener(TieredEntryCache.demotingTo(cold))
+                    .recordStats()
+                    .build(), cold);
+        }
+
+        return new TieredEntryCache(CacheBuilder.newBuilder()
+                .maximumSize(config.getCacheMaxSizeRecords())
+                .removalListener(TieredEntryCache.demotingTo(cold))
+                .recordStats()
+                .build(), cold);
+    }
+
     @Nonnull
     public RobotsService createService() {
         RobotsServiceImpl service = new RobotsServiceImpl(
-                createLoader(), getUtilities(), getMatcherUtils());
+                createLoader(), getUtilities(), getMatcherUtils(), getMetricsRegistry(),
+                config.getPreloadConcurrency());
         return service;
     }
 
+    @Nonnull
+    public AsyncRobotsService createAsyncService() {
+        return new RobotsServiceImpl(
+                createLoader(), getUtilities(), getMatcherUtils(), getMetricsRegistry(),
+                config.getPreloadConcurrency());
+    }
+
+    /**
+     * Create a scheduler to space out fetches from each origin by its crawl delay. Each call creates
+     * a new scheduler, so it should be shared by everything fetching on behalf of the same agent.
+     */
+    @Nonnull
+    public PolitenessScheduler createPolitenessScheduler() {
+        return new PolitenessScheduler(config.getPolitenessMaxOrigins(),
+                TimeUnit.SECONDS.toMillis(config.getPolitenessMaxDelaySeconds()));
+    }
+
     @Nonnull
     public RobotsBuildingParseHandler createRobotsBuildingHandler() {
         return new RobotsBuildingParseHandler(
@@ -155,12 +274,56 @@ public class RobotsFactory {
                 createAgentExpressionCompiler());
     }
 
+    @Nonnull
+    public ExpiryPolicy createExpiryPolicy() {
+        return new ExpiryPolicyImpl(config);
+    }
+
+    @Nonnull
+    public RobotsTxtParser createRobotsTxtParser() {
+        switch (config.getParserType()) {
+            case STREAMING:
+                return new RobotsTxtParserStreamingImpl();
+            case JAVACC:
+                return new RobotsTxtParserJavaccImpl();
+            default:
+                throw new AssertionError(config.getParserType());
+        }
+    }
+
+    @Nonnull
+    public RobotsCodec createRobotsCodec() {
+        return new RobotsCodec(
+                createPathExpressionCompiler(),
+                createAgentExpressionCompiler());
+    }
+
     @Nonnull
     public Client createClient() {
-        Client client = ClientBuilder.newClient()
+        final ClientConfig clientConfig = new ClientConfig()
+                .connectorProvider(createConnectorProvider())
+                .property(ClientProperties.CONNECT_TIMEOUT, config.getConnectTimeoutMillis())
+                .property(ClientProperties.READ_TIMEOUT, config.getReadTimeoutMillis());
+        if (config.getMaxConcurrentFetches() > 0) {
+            clientConfig.property(ClientProperties.ASYNC_THREADPOOL_SIZE, config.getMaxConcurrentFetches());
+        }
+        return ClientBuilder.newClient(clientConfig)
                 .register(new LoggingClientFilter(this.getClass(), LogLevel.TRACE));
-        client.property(ClientProperties.READ_TIMEOUT, config.getReadTimeoutMillis());
-        return client;
+    }
+
+    /**
+     * Create the transport used by the HTTP client. The default connector is built on
+     * {@link java.net.HttpURLConnection}, which keeps idle connections alive for reuse by later requests
+     * to the same host (up to the {@code http.maxConnections} system property per host), and resumes TLS
+     * sessions through the default SSL context. Every response is closed once handled, so connections
+     * are returned to the pool.
+     *
+     * Override to plug in another Jersey connector, such as one with its own connection pool or
+     * HTTP/2 support.
+     */
+    @Nonnull
+    public ConnectorProvider createConnectorProvider() {
+        return new HttpUrlConnectorProvider();
     }
 
     @Nonnull
@@ -0,0 +1,193 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.domain.AgentDirective;
+import com.brandwatch.robots.domain.Directive;
+import com.brandwatch.robots.domain.Group;
+import com.brandwatch.robots.domain.OtherDirective;
+import com.brandwatch.robots.domain.PathDirective;
+import com.brandwatch.robots.domain.RateDirective;
+import com.brandwatch.robots.domain.Robots;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Estimates the heap retained by a {@link Robots}: its strings, directive objects, compiled matchers,
+ * and the index built over each group's path directives. Sizes assume a 64-bit JVM with compressed
+ * references (12 byte object headers, 4 byte references, 8 byte alignment).
+ *
+ * The estimate depends only on the directives, not on whether matchers have been compiled yet, so a
+ * given robots.txt always weighs the same.
+ */
+final class RobotsFootprint {
+
+    private static final int HEADER = 12;
+    private static final int REFERENCE = 4;
+    private static final int ARRAY_HEADER = 16;
+
+    /** Robots: two lists, and the array of agents resolved so far. */
+    private static final long ROBOTS = align(HEADER + 3 * REFERENCE) + array(0, REFERENCE);
+    /** Group: three lists, the memoizing supplier of its index, and its crawl delay. */
+    private static final long GROUP = align(HEADER + 4 * REFERENCE + 8) + align(HEADER + 2 * REFERENCE + 1);
+    /** Agent or path directive: the directive, and the memoizing supplier of its matcher. */
+    private static final long MATCHABLE_DIRECTIVE = align(HEADER + 3 * REFERENCE) + align(HEADER + 2 * REFERENCE + 1);
+    /** Expression matcher: the literals array, flags and specificity; the literals are counted apart. */
+    private static final long MATCHER = align(HEADER + REFERENCE + 3 + 8);
+    /** Entry in the path index, for each path directive. */
+    private static final long INDEX_ENTRY = align(HEADER + REFERENCE + 4 + 8) + REFERENCE;
+    /** Node in the path index, for each distinct prefix: the node, and its keys and children arrays. */
+    private static final long INDEX_NODE = align(HEADER + 5 * REFERENCE) + array(1, 2) + array(1, REFERENCE);
+
+    private RobotsFootprint() {
+    }
+
+    @Nonnegative
+    static long estimate(@Nonnull Robots robots) {
+        checkNotNull(robots, "robots is null");
+        long size = ROBOTS + list(robots.getGroups().size()) + list(robots.getNonGroupDirectives().size());
+        for (Group group : robots.getGroups()) {
+            size += estimate(group);
+        }
+        for (Directive directive : robots.getNonGroupDirectives()) {
+            size += estimate(directive);
+        }
+        return size;
+    }
+
+    private static long estimate(@Nonnull Group group) {
+        final List<PathDirective> pathDirectives = group.getPathDirectives();
+        long size = GROUP
+                + list(group.getDirectives().size())
+                + list(group.getAgentDirectives().size())
+                + list(pathDirectives.size());
+        final List<String> leadingLiterals = new ArrayList<String>(pathDirectives.size());
+        for (Directive directive : group.getDirectives()) {
+            size += estimate(directive);
+            if (directive instanceof PathDirective) {
+                leadingLiterals.add(leadingLiteral(directive.getValue()));
+            }
+        }
+        return size + index(leadingLiterals);
+    }
+
+    private static long estimate(@Nonnull Directive directive) {
+        if (directive instanceof AgentDirective || directive instanceof PathDirective) {
+            final String value = directive.getValue();
+            return MATCHABLE_DIRECTIVE + string(value.length()) + matcher(value);
+        } else if (directive instanceof RateDirective) {
+            return align(HEADER + 2 * REFERENCE + 8) + string(directive.getValue().length());
+        } else if (directive instanceof OtherDirective) {
+            return align(HEADER + 2 * REFERENCE)
+                    + string(directive.getField().length())
+                    + string(directive.getValue().length());
+        } else {
+            return align(HEADER + REFERENCE) + string(directive.getValue().length());
+        }
+    }
+
+    /**
+     * The matcher compiled from an expression holds one literal for each run of characters between
+     * wildcards.
+     */
+    private static long matcher(@Nonnull String expression) {
+        int literals = 1;
+        int chars = 0;
+        for (int i = 0; i < expression.length(); i++) {
+            final char c = expression.charAt(i);
+            if (c == '*') {
+                literals++;
+            } else if (c != '^' && c != '$') {
+                chars++;
+            }
+        }
+        return MATCHER + array(literals, REFERENCE) + literals * string(0) + (chars * 2L);
+    }
+
+    /**
+     * The path index has a node for every distinct prefix of the directives' leading literals, which
+     * is counted by sorting them, and adding the part of each literal not shared with the one before.
+     */
+    private static long index(@Nonnull List<String> leadingLiterals) {
+        Collections.sort(leadingLiterals);
+        long nodes = 1;
+        String previous = "";
+        for (String literal : leadingLiterals) {
+            nodes += literal.length() - commonPrefixLength(previous, literal);
+            previous = literal;
+        }
+        return nodes * INDEX_NODE + leadingLiterals.size() * INDEX_ENTRY;
+    }
+
+    @Nonnull
+    private static String leadingLiteral(@Nonnull String expression) {
+        final int start = expression.startsWith("^") ? 1 : 0;
+        int end = expression.indexOf('*', start);
+        if (end == -1) {
+            end = expression.endsWith("$") ? expression.length() - 1 : expression.length();
+        }
+        return expression.substring(start, Math.max(start, end));
+    }
+
+    private static int commonPrefixLength(@Nonnull String a, @Nonnull String b) {
+        final int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static long string(int length) {
+        return align(HEADER + REFERENCE + 4) + array(length, 2);
+    }
+
+    private static long list(int size) {
+        return size == 0 ? 0 : align(HEADER + REFERENCE + 8) + array(size, REFERENCE);
+    }
+
+    private static long array(int length, int elementSize) {
+        return align(ARRAY_HEADER + (long) length * elementSize);
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
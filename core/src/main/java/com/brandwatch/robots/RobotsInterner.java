@@ -0,0 +1,90 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.domain.Robots;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Shares a single parsed {@link Robots} between all hosts that serve identical robots.txt content,
+ * as the many sites built on the same platform do. Content is identified by its SHA-256 hash, so
+ * that one host cannot arrange to be given the rules of another.
+ *
+ * Shared instances are only weakly referenced, so they are kept for as long as something else (such
+ * as the cache) refers to them.
+ */
+@ThreadSafe
+final class RobotsInterner {
+
+    private static final HashFunction CONTENT_HASH = Hashing.sha256();
+
+    @Nonnull
+    private final ConcurrentMap<HashCode, Robots> shared =
+            CacheBuilder.newBuilder().weakValues().<HashCode, Robots>build().asMap();
+
+    @Nonnull
+    static HashCode hash(@Nonnull CharSequence content) {
+        return CONTENT_HASH.hashUnencodedChars(checkNotNull(content, "content is null"));
+    }
+
+    /**
+     * Get the robots already parsed from content with the given hash, or null if there are none.
+     */
+    @Nullable
+    Robots get(@Nonnull HashCode contentHash) {
+        return shared.get(checkNotNull(contentHash, "contentHash is null"));
+    }
+
+    /**
+     * Share the robots parsed from content with the given hash, unless robots parsed from the same
+     * content are already shared; in which case return those instead.
+     */
+    @Nonnull
+    Robots intern(@Nonnull HashCode contentHash, @Nonnull Robots robots) {
+        checkNotNull(contentHash, "contentHash is null");
+        checkNotNull(robots, "robots is null");
+        final Robots existing = shared.putIfAbsent(contentHash, robots);
+        return existing != null ? existing : robots;
+    }
+}
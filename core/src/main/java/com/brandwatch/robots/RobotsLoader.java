@@ -34,8 +34,12 @@ package com.brandwatch.robots;
  */
 
 import com.brandwatch.robots.domain.Robots;
+import com.brandwatch.robots.net.Origin;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.net.URI;
 
@@ -44,4 +48,41 @@ public interface RobotsLoader extends Closeable {
     @Nonnull
     Robots load(@Nonnull URI robotsResource) throws Exception;
 
+    @Nonnull
+    ListenableFuture<Robots> loadAsync(@Nonnull URI robotsResource);
+
+    /**
+     * Load the robots.txt for the given origin. Loaders that cache keep their entries by origin, so
+     * that its robots.txt location need only be built when it is not cached.
+     */
+    @Nonnull
+    Robots load(@Nonnull Origin origin) throws Exception;
+
+    @Nonnull
+    ListenableFuture<Robots> loadAsync(@Nonnull Origin origin);
+
+    /**
+     * Load the robots.txt, along with what is needed to revalidate it later. If a previously loaded
+     * entry is given, the robots.txt is only fetched and parsed again if it has changed since;
+     * otherwise the result is that entry, renewed.
+     */
+    @Nonnull
+    ListenableFuture<RobotsEntry> loadEntryAsync(@Nonnull URI robotsResource, @Nullable RobotsEntry previous);
+
+    /**
+     * Make sure the robots.txt for the given origin is loaded, ahead of it being needed. Loaders that
+     * cache complete immediately with an entry that has not yet expired, and otherwise load it.
+     */
+    @Nonnull
+    ListenableFuture<RobotsEntry> preloadAsync(@Nonnull Origin origin);
+
+    @Nonnull
+    FetchStats getFetchStats();
+
+    @Nonnull
+    CacheUsage getCacheUsage();
+
+    @Nonnull
+    CacheStats getCacheStats();
+
 }
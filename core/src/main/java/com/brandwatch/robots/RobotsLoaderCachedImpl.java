@@ -34,43 +34,257 @@ package com.brandwatch.robots;
  */
 
 import com.brandwatch.robots.domain.Robots;
+import com.brandwatch.robots.metrics.Counter;
+import com.brandwatch.robots.metrics.Gauge;
+import com.brandwatch.robots.metrics.MetricNames;
+import com.brandwatch.robots.metrics.MetricsRegistry;
+import com.brandwatch.robots.metrics.MetricsRegistryNoopImpl;
+import com.brandwatch.robots.net.Origin;
 import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.URI;
-import java.util.concurrent.Callable;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 
+/**
+ * Loader that answers from a cache of previously loaded entries until they expire, at the time each
+ * entry was given when it was loaded. Expired entries are kept (subject to the cache's size limit)
+ * so that they can be revalidated, rather than fetched and parsed again, when next requested.
+ * Entries are kept by {@link Origin}, so a cached robots.txt is found without building its location.
+ *
+ * Entries older than the refresh age, but not yet expired, continue to be served while a single
+ * background revalidation replaces them, so that callers for popular hosts never wait on a fetch. A
+ * revalidation that finds the host unreachable, or gets a server error, leaves the entry in place until
+ * it expires.
+ */
 final class RobotsLoaderCachedImpl implements RobotsLoader {
 
     @Nonnull
     private final RobotsLoader delegate;
     @Nonnull
-    private final Cache<URI, Robots> cache;
+    private final Cache<Origin, RobotsEntry> cache;
+    @Nonnegative
+    private final long refreshAfterMillis;
+    @Nonnull
+    private final Set<Origin> refreshing = Sets.newConcurrentHashSet();
+    @Nonnull
+    private final Counter refreshes;
 
     public RobotsLoaderCachedImpl(
             @Nonnull final RobotsLoader delegate,
-            @Nonnull final Cache<URI, Robots> cache) {
+            @Nonnull final Cache<Origin, RobotsEntry> cache,
+            @Nonnegative final long refreshAfterMillis) {
+        this(delegate, cache, refreshAfterMillis, MetricsRegistryNoopImpl.INSTANCE);
+    }
+
+    public RobotsLoaderCachedImpl(
+            @Nonnull final RobotsLoader delegate,
+            @Nonnull final Cache<Origin, RobotsEntry> cache,
+            @Nonnegative final long refreshAfterMillis,
+            @Nonnull final MetricsRegistry metrics) {
+        checkArgument(refreshAfterMillis >= 0, "refreshAfterMillis is negative");
         this.delegate = checkNotNull(delegate, "delegate");
         this.cache = checkNotNull(cache, "cache");
+        this.refreshAfterMillis = refreshAfterMillis;
+        checkNotNull(metrics, "metrics");
+        this.refreshes = metrics.counter(MetricNames.CACHE_REFRESHES);
+        registerGauges(metrics);
     }
 
     @Nonnull
     @Override
     public Robots load(@Nonnull final URI robotsResource) throws Exception {
         checkNotNull(robotsResource, "robotsResource");
-        return cache.get(robotsResource, new Callable<Robots>() {
+        return load(Origin.of(robotsResource));
+    }
+
+    @Nonnull
+    @Override
+    public ListenableFuture<Robots> loadAsync(@Nonnull final URI robotsResource) {
+        checkNotNull(robotsResource, "robotsResource");
+        return loadAsync(Origin.of(robotsResource));
+    }
+
+    @Nonnull
+    @Override
+    public Robots load(@Nonnull final Origin origin) throws Exception {
+        checkNotNull(origin, "origin");
+        final RobotsEntry cached = cache.getIfPresent(origin);
+        final Robots robots = serve(origin, cached);
+        if (robots != null) {
+            return robots;
+        }
+        try {
+            return loadEntryAsync(origin, cached).get().getRobots();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Nonnull
+    @Override
+    public ListenableFuture<Robots> loadAsync(@Nonnull final Origin origin) {
+        checkNotNull(origin, "origin");
+
+        final RobotsEntry cached = cache.getIfPresent(origin);
+        final Robots robots = serve(origin, cached);
+        if (robots != null) {
+            return Futures.immediateFuture(robots);
+        }
+        return Futures.transform(loadEntryAsync(origin, cached), RobotsEntry.GET_ROBOTS);
+    }
+
+    @Nonnull
+    @Override
+    public ListenableFuture<RobotsEntry> loadEntryAsync(@Nonnull final URI robotsResource,
+                                                        @Nullable final RobotsEntry previous) {
+        checkNotNull(robotsResource, "robotsResource");
+        return loadEntryAsync(Origin.of(robotsResource), previous);
+    }
+
+    @Nonnull
+    private ListenableFuture<RobotsEntry> loadEntryAsync(@Nonnull final Origin origin,
+                                                         @Nullable final RobotsEntry previous) {
+        final ListenableFuture<RobotsEntry> entry = delegate.loadEntryAsync(origin.getRobotsUri(), previous);
+        Futures.addCallback(entry, new FutureCallback<RobotsEntry>() {
+            @Override
+            public void onSuccess(RobotsEntry result) {
+                if (!isTransientFailure(result) || previous == null
+                        || previous.isExpired(System.currentTimeMillis())) {
+                    cache.put(origin, result);
+                }
+            }
+
             @Override
-            public Robots call() throws Exception {
-                return delegate.load(robotsResource);
+            public void onFailure(@Nonnull Throwable t) {
             }
         });
+        return entry;
+    }
+
+    @Nonnull
+    @Override
+    public ListenableFuture<RobotsEntry> preloadAsync(@Nonnull final Origin origin) {
+        checkNotNull(origin, "origin");
+        final RobotsEntry cached = cache.getIfPresent(origin);
+        if (cached != null && !cached.isExpired(System.currentTimeMillis())) {
+            return Futures.immediateFuture(cached);
+        }
+        return loadEntryAsync(origin, cached);
+    }
+
+    @Nonnull
+    @Override
+    public FetchStats getFetchStats() {
+        return delegate.getFetchStats();
+    }
+
+    /**
+     * Sum the estimated sizes of the cached entries. Each entry's size is computed once, so this is
+     * cheap enough to call for periodic reporting.
+     */
+    @Nonnull
+    @Override
+    public CacheUsage getCacheUsage() {
+        long entryCount = 0;
+        long estimatedSizeBytes = 0;
+        for (RobotsEntry entry : cache.asMap().values()) {
+            entryCount++;
+            estimatedSizeBytes += entry.getEstimatedSizeBytes();
+        }
+        return new CacheUsage(entryCount, estimatedSizeBytes);
+    }
+
+    @Nonnull
+    @Override
+    public CacheStats getCacheStats() {
+        return cache.stats();
     }
 
     @Override
     public void close() throws IOException {
         delegate.close();
     }
+
+    private void registerGauges(@Nonnull MetricsRegistry metrics) {
+        metrics.gauge(MetricNames.CACHE_SIZE, new Gauge() {
+            @Override
+            public long getValue() {
+                return cache.size();
+            }
+        });
+        metrics.gauge(MetricNames.CACHE_ESTIMATED_BYTES, new Gauge() {
+            @Override
+            public long getValue() {
+                return getCacheUsage().getEstimatedSizeBytes();
+            }
+        });
+        metrics.gauge(MetricNames.CACHE_HITS, new Gauge() {
+            @Override
+            public long getValue() {
+                return cache.stats().hitCount();
+            }
+        });
+        metrics.gauge(MetricNames.CACHE_MISSES, new Gauge() {
+            @Override
+            public long getValue() {
+                return cache.stats().missCount();
+            }
+        });
+        metrics.gauge(MetricNames.CACHE_EVICTIONS, new Gauge() {
+            @Override
+            public long getValue() {
+                return cache.stats().evictionCount();
+            }
+        });
+    }
+
+    private static boolean isTransientFailure(@Nonnull RobotsEntry entry) {
+        return entry.getOutcome() == RobotsEntry.Outcome.UNREACHABLE
+                || entry.getOutcome() == RobotsEntry.Outcome.SERVER_ERROR;
+    }
+
+    /**
+     * Get the robots from the cached entry, unless there is no entry or it has expired; in which case
+     * return null. If the entry is due a refresh, and none is running, one is started in the
+     * background.
+     */
+    @Nullable
+    private Robots serve(@Nonnull final Origin origin, @Nullable RobotsEntry cached) {
+        if (cached == null) {
+            return null;
+        }
+        final long now = System.currentTimeMillis();
+        if (cached.isExpired(now)) {
+            return null;
+        }
+        if (now - cached.getFetchedMillis() >= refreshAfterMillis && refreshing.add(origin)) {
+            refreshes.increment();
+            loadEntryAsync(origin, cached).addListener(new Runnable() {
+                @Override
+                public void run() {
+                    refreshing.remove(origin);
+                }
+            }, directExecutor());
+        }
+        return cached.getRobots();
+    }
 }
@@ -0,0 +1,187 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.domain.Robots;
+import com.brandwatch.robots.net.Origin;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Loader that shares a single fetch between all concurrent callers for the same robots.txt, whether
+ * that fetch succeeds or fails, and bounds the number of fetches running at once.
+ */
+final class RobotsLoaderCoalescingImpl implements RobotsLoader {
+
+    @Nonnull
+    private final RobotsLoader delegate;
+    @Nonnull
+    private final FetchLimiter limiter;
+    @Nonnull
+    private final ConcurrentMap<URI, ListenableFuture<RobotsEntry>> inFlight
+            = new ConcurrentHashMap<URI, ListenableFuture<RobotsEntry>>();
+
+    public RobotsLoaderCoalescingImpl(@Nonnull RobotsLoader delegate, @Nonnull FetchLimiter limiter) {
+        this.delegate = checkNotNull(delegate, "delegate");
+        this.limiter = checkNotNull(limiter, "limiter");
+    }
+
+    @Nonnull
+    @Override
+    public Robots load(@Nonnull URI robotsResource) throws Exception {
+        try {
+            return loadAsync(robotsResource).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @Nonnull
+    @Override
+    public ListenableFuture<Robots> loadAsync(@Nonnull final URI robotsResource) {
+        return Futures.transform(loadEntryAsync(robotsResource, null), RobotsEntry.GET_ROBOTS);
+    }
+
+    @Nonnull
+    @Override
+    public Robots load(@Nonnull Origin origin) throws Exception {
+        checkNotNull(origin, "origin");
+        return load(origin.getRobotsUri());
+    }
+
+    @Nonnull
+    @Override
+    public ListenableFuture<Robots> loadAsync(@Nonnull Origin origin) {
+        checkNotNull(origin, "origin");
+        return loadAsync(origin.getRobotsUri());
+    }
+
+    @Nonnull
+    @Override
+    public ListenableFuture<RobotsEntry> loadEntryAsync(@Nonnull final URI robotsResource,
+                                                        @Nullable final RobotsEntry previous) {
+        checkNotNull(robotsResource, "robotsResource");
+
+        final ListenableFuture<RobotsEntry> existing = inFlight.get(robotsResource);
+        if (existing != null) {
+            return existing;
+        }
+
+        final SettableFuture<RobotsEntry> result = SettableFuture.create();
+        final ListenableFuture<RobotsEntry> raced = inFlight.putIfAbsent(robotsResource, result);
+        if (raced != null) {
+            return raced;
+        }
+
+        limiter.submit(new Runnable() {
+            @Override
+            public void run() {
+                ListenableFuture<RobotsEntry> fetch;
+                try {
+                    fetch = delegate.loadEntryAsync(robotsResource, previous);
+                } catch (Throwable t) {
+                    fetch = Futures.immediateFailedFuture(t);
+                }
+                Futures.addCallback(fetch, new FutureCallback<RobotsEntry>() {
+                    @Override
+                    public void onSuccess(RobotsEntry entry) {
+                        result.set(entry);
+                        complete();
+                    }
+
+                    @Override
+                    public void onFailure(@Nonnull Throwable t) {
+                        result.setException(t);
+                        complete();
+                    }
+
+                    private void complete() {
+                        inFlight.remove(robotsResource, result);
+                        limiter.release();
+                    }
+                });
+            }
+        });
+
+        return result;
+    }
+
+    @Nonnull
+    @Override
+    public ListenableFuture<RobotsEntry> preloadAsync(@Nonnull Origin origin) {
+        checkNotNull(origin, "origin");
+        return loadEntryAsync(origin.getRobotsUri(), null);
+    }
+
+    @Nonnull
+    @Override
+    public FetchStats getFetchStats() {
+        return new FetchStats(limiter.getRunningCount(), limiter.getQueuedCount());
+    }
+
+    @Nonnull
+    @Override
+    public CacheUsage getCacheUsage() {
+        return delegate.getCacheUsage();
+    }
+
+    @Nonnull
+    @Override
+    public CacheStats getCacheStats() {
+        return delegate.getCacheStats();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -33,22 +33,39 @@ package com.brandwatch.robots;
  * #L%
  */
 
+import com.brandwatch.robots.RobotsEntry.Outcome;
+import com.brandwatch.robots.domain.Group;
 import com.brandwatch.robots.domain.Robots;
+import com.brandwatch.robots.metrics.Counter;
+import com.brandwatch.robots.metrics.Histogram;
+import com.brandwatch.robots.metrics.MetricNames;
+import com.brandwatch.robots.metrics.MetricsRegistry;
 import com.brandwatch.robots.net.CharSourceSupplier;
-import com.brandwatch.robots.net.LoggingReader;
+import com.brandwatch.robots.net.Origin;
+import com.brandwatch.robots.net.ValidatedCharSource;
+import com.brandwatch.robots.net.Validators;
 import com.brandwatch.robots.parser.ParseException;
-import com.brandwatch.robots.parser.RobotsParser;
-import com.brandwatch.robots.util.LogLevel;
-import com.google.common.io.CharSource;
-import com.google.common.io.Closer;
+import com.brandwatch.robots.parser.RobotsTxtParser;
+import com.google.common.base.Function;
+import com.google.common.cache.CacheStats;
+import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.FutureFallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.ws.rs.ProcessingException;
 import java.io.IOException;
-import java.io.Reader;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.CharBuffer;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -61,10 +78,34 @@ final class RobotsLoaderImpl implements RobotsLoader {
     private final RobotsFactory factory;
     @Nonnull
     private final CharSourceSupplier charSourceSupplier;
+    @Nonnull
+    private final RobotsTxtParser parser;
+    @Nonnull
+    private final ExpiryPolicy expiryPolicy;
+    @Nonnull
+    private final RobotsInterner interner = new RobotsInterner();
+
+    private final Map<Outcome, Counter> outcomes = new EnumMap<Outcome, Counter>(Outcome.class);
+    private final Counter notModified;
+    private final Counter parseShared;
+    private final Histogram parseMicros;
+    private final Histogram parseDirectives;
 
     public RobotsLoaderImpl(@Nonnull RobotsFactory factory) {
         this.factory = checkNotNull(factory, "factory is null");
         this.charSourceSupplier = checkNotNull(factory.createCharSourceSupplier());
+        this.parser = checkNotNull(factory.createRobotsTxtParser());
+        this.expiryPolicy = checkNotNull(factory.createExpiryPolicy());
+
+        final MetricsRegistry metrics = checkNotNull(factory.getMetricsRegistry());
+        for (Outcome outcome : Outcome.values()) {
+            outcomes.put(outcome, metrics.counter(
+                    MetricNames.LOAD_OUTCOME_PREFIX + outcome.name().toLowerCase(Locale.ENGLISH)));
+        }
+        this.notModified = metrics.counter(MetricNames.LOAD_NOT_MODIFIED);
+        this.parseShared = metrics.counter(MetricNames.PARSE_SHARED);
+        this.parseMicros = metrics.histogram(MetricNames.PARSE_TIME_MICROS);
+        this.parseDirectives = metrics.histogram(MetricNames.PARSE_DIRECTIVES);
     }
 
     @Nonnull
@@ -72,58 +113,191 @@ final class RobotsLoaderImpl implements RobotsLoader {
     public Robots load(@Nonnull URI robotsResource) {
         checkNotNull(robotsResource, "robotsResource");
         log.debug("Loading: {}", robotsResource);
-        return load(robotsResource, charSourceSupplier.get(robotsResource));
+        final ValidatedCharSource robotsData =
+                new ValidatedCharSource(charSourceSupplier.get(robotsResource), Validators.NONE);
+        return load(robotsResource, robotsData, null).getRobots();
+    }
+
+    @Nonnull
+    @Override
+    public ListenableFuture<Robots> loadAsync(@Nonnull final URI robotsResource) {
+        return Futures.transform(loadEntryAsync(robotsResource, null), RobotsEntry.GET_ROBOTS);
+    }
+
+    @Nonnull
+    @Override
+    public Robots load(@Nonnull Origin origin) {
+        checkNotNull(origin, "origin");
+        return load(origin.getRobotsUri());
+    }
+
+    @Nonnull
+    @Override
+    public ListenableFuture<Robots> loadAsync(@Nonnull Origin origin) {
+        checkNotNull(origin, "origin");
+        return loadAsync(origin.getRobotsUri());
+    }
+
+    @Nonnull
+    @Override
+    public ListenableFuture<RobotsEntry> loadEntryAsync(@Nonnull final URI robotsResource,
+                                                        @Nullable final RobotsEntry previous) {
+        checkNotNull(robotsResource, "robotsResource");
+        log.debug("Loading asynchronously: {}", robotsResource);
+
+        final Validators validators = previous != null ? previous.getValidators() : Validators.NONE;
+        final ListenableFuture<RobotsEntry> entry = Futures.transform(
+                charSourceSupplier.getAsync(robotsResource, validators),
+                new Function<ValidatedCharSource, RobotsEntry>() {
+                    @Override
+                    public RobotsEntry apply(ValidatedCharSource robotsData) {
+                        return load(robotsResource, robotsData, previous);
+                    }
+                });
+
+        return Futures.withFallback(entry, new FutureFallback<RobotsEntry>() {
+            @Override
+            public ListenableFuture<RobotsEntry> create(@Nonnull Throwable t) {
+                if (t instanceof IOException) {
+                    return Futures.immediateFuture(unreachable(robotsResource, (IOException) t));
+                }
+                if (t instanceof ProcessingException) {
+                    return Futures.immediateFuture(unreachable(robotsResource, new IOException(t)));
+                }
+                return Futures.immediateFailedFuture(t);
+            }
+        });
+    }
+
+    @Nonnull
+    @Override
+    public ListenableFuture<RobotsEntry> preloadAsync(@Nonnull Origin origin) {
+        checkNotNull(origin, "origin");
+        return loadEntryAsync(origin.getRobotsUri(), null);
+    }
+
+    @Nonnull
+    @Override
+    public FetchStats getFetchStats() {
+        return new FetchStats(0, 0);
+    }
+
+    @Nonnull
+    @Override
+    public CacheUsage getCacheUsage() {
+        return new CacheUsage(0, 0);
+    }
+
+    @Nonnull
+    @Override
+    public CacheStats getCacheStats() {
+        return new CacheStats(0, 0, 0, 0, 0, 0);
     }
 
     public void close() throws IOException {
         charSourceSupplier.close();
     }
 
+    /**
+     * Load from the given source, which may report that the resource is unchanged since the previous
+     * entry was loaded, in which case that entry is renewed. Validators are only retained for
+     * robots.txt files that are parsed, since those are the only ones worth revalidating. Each entry
+     * expires according to how it was loaded, and the freshness lifetime the server gave it.
+     */
     @Nonnull
-    private Robots load(@Nonnull URI robotsResource, @Nonnull CharSource robotsData) {
+    private RobotsEntry load(@Nonnull URI robotsResource, @Nonnull ValidatedCharSource robotsData,
+                             @Nullable RobotsEntry previous) {
+        final long maxAgeMillis = robotsData.getMaxAgeMillis();
         try {
-            final Closer closer = Closer.create();
+            final CharBuffer content;
             try {
-
-                final Reader reader;
-                try {
-                    reader = closer.register(robotsData.openBufferedStream());
-                } catch (TemporaryAllow e) {
-                    return fullAllow(robotsResource, e.getMessage());
-                } catch (TemporaryDisallow e) {
-                    return fullDisallow(robotsResource, e.getMessage());
+                content = robotsData.readBuffer();
+            } catch (TemporaryAllow e) {
+                return entry(fullAllow(robotsResource, e.getMessage()),
+                        Outcome.CLIENT_ERROR, Validators.NONE, maxAgeMillis);
+            } catch (TemporaryDisallow e) {
+                final Outcome outcome = robotsData.getStatusCode() >= 500
+                        ? Outcome.SERVER_ERROR
+                        : Outcome.CLIENT_ERROR;
+                return entry(fullDisallow(robotsResource, e.getMessage()),
+                        outcome, Validators.NONE, maxAgeMillis);
+            } catch (NotModified e) {
+                if (previous == null) {
+                    throw e;
                 }
-                return conditionalAllow(robotsResource, reader);
-            } catch (Throwable t) {
-                throw closer.rethrow(t);
-            } finally {
-                closer.close();
+                log.debug("Not modified since last loaded: {}", robotsResource);
+                notModified.increment();
+                final long now = System.currentTimeMillis();
+                return previous.renew(now, expiresMillis(now, previous.getOutcome(), maxAgeMillis));
             }
-        } catch (IOException e) {
-            if(e.getCause() instanceof TimeoutException) {
-                return fullAllow(robotsResource, format("Timeout waiting for response."));
-            } else {
-                log.debug("Caught IO exception", e);
-                return fullAllow(robotsResource, format("IO exception: \"{0}\"", e.getMessage()));
+
+            try {
+                return entry(conditionalAllow(robotsResource, content),
+                        Outcome.SUCCESS, robotsData.getValidators(), maxAgeMillis);
+            } catch (ParseException e) {
+                return entry(fullAllow(robotsResource, format("Caught parsing exception: \"{0}\"", e)),
+                        Outcome.PARSE_FAILURE, Validators.NONE, ValidatedCharSource.NO_MAX_AGE);
             }
+        } catch (IOException e) {
+            return unreachable(robotsResource, e);
         }
     }
 
     @Nonnull
-    private Robots conditionalAllow(@Nonnull URI robotsResource, @Nonnull Reader robotsData)
-            throws IOException {
+    private RobotsEntry entry(@Nonnull Robots robots, @Nonnull Outcome outcome,
+                              @Nonnull Validators validators, long maxAgeMillis) {
+        outcomes.get(outcome).increment();
+        final long now = System.currentTimeMillis();
+        return new RobotsEntry(robots, outcome, validators, now, expiresMillis(now, outcome, maxAgeMillis));
+    }
+
+    private long expiresMillis(long now, @Nonnull Outcome outcome, long maxAgeMillis) {
+        final long expiresAfterMillis = expiryPolicy.getExpiresAfterMillis(outcome, maxAgeMillis);
+        return expiresAfterMillis > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + expiresAfterMillis;
+    }
+
+    @Nonnull
+    private RobotsEntry unreachable(@Nonnull URI robotsResource, @Nonnull IOException e) {
+        final Robots robots;
+        if(e.getCause() instanceof TimeoutException) {
+            robots = fullAllow(robotsResource, format("Timeout waiting for response."));
+        } else {
+            log.debug("Caught IO exception", e);
+            robots = fullAllow(robotsResource, format("IO exception: \"{0}\"", e.getMessage()));
+        }
+        return entry(robots, Outcome.UNREACHABLE, Validators.NONE, ValidatedCharSource.NO_MAX_AGE);
+    }
+
+    @Nonnull
+    private Robots conditionalAllow(@Nonnull URI robotsResource, @Nonnull CharBuffer content)
+            throws ParseException {
+        final HashCode contentHash = RobotsInterner.hash(content);
+        final Robots shared = interner.get(contentHash);
+        if (shared != null) {
+            log.debug("Conditional allow; sharing robots parsed from identical contents of {}", robotsResource);
+            parseShared.increment();
+            return shared;
+        }
+
         log.debug("Conditional allow; parsing contents of {}", robotsResource);
+        log.trace("Contents of {}: \"{}\"", robotsResource, content);
 
-        final Reader reader = new LoggingReader(robotsData, this.getClass(), LogLevel.TRACE);
-        final RobotsParser parser = new RobotsParser(reader);
         final RobotsBuildingParseHandler handler = factory.createRobotsBuildingHandler();
 
-        try {
-            parser.parse(handler);
-            return handler.get();
-        } catch (ParseException e) {
-            return fullAllow(robotsResource, format("Caught parsing exception: \"{0}\"", e));
+        final long startNanos = System.nanoTime();
+        parser.parse(content, handler);
+        final Robots robots = handler.get();
+        parseMicros.update(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+        parseDirectives.update(countDirectives(robots));
+        return interner.intern(contentHash, robots);
+    }
+
+    private static int countDirectives(@Nonnull Robots robots) {
+        int count = robots.getNonGroupDirectives().size();
+        for (Group group : robots.getGroups()) {
+            count += group.getDirectives().size();
         }
+        return count;
     }
 
     @Nonnull
@@ -33,11 +33,46 @@ package com.brandwatch.robots;
  * #L%
  */
 
+import com.google.common.cache.CacheStats;
+
 import java.io.Closeable;
 import java.net.URI;
+import java.util.Map;
 
 public interface RobotsService extends Closeable {
 
     boolean isAllowed(String crawlerAgentString, URI url);
 
+    /**
+     * Check many resources at once. Each distinct robots.txt is loaded, and its agent group resolved,
+     * only once per call. The resulting map iterates in the order the resources were given.
+     */
+    Map<URI, Boolean> isAllowed(String crawlerAgentString, Iterable<URI> urls);
+
+    /**
+     * Minimum time the agent should leave between fetches from the origin of the resource, as given
+     * by the {@code Crawl-delay} and {@code Request-rate} directives of its group; zero if there are
+     * none, or the robots.txt could not be loaded.
+     *
+     * @see PolitenessScheduler
+     */
+    long getCrawlDelayMillis(String crawlerAgentString, URI url);
+
+    /**
+     * Load the robots.txt for every given resource into the cache, in the background, so that they
+     * are ready by the time the resources are checked. The resources are read lazily, and loaded in
+     * parallel up to {@link RobotsConfig#getPreloadConcurrency()} at a time. The returned preload
+     * reports progress, and has a future that completes once every robots.txt has been loaded.
+     */
+    Preload preload(Iterable<URI> urls);
+
+    FetchStats getFetchStats();
+
+    CacheUsage getCacheUsage();
+
+    /**
+     * Hit, miss, load and eviction counts of the robots.txt cache, since it was created.
+     */
+    CacheStats getCacheStats();
+
 }
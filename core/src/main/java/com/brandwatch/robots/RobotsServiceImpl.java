@@ -37,28 +37,74 @@ import com.brandwatch.robots.domain.Group;
 import com.brandwatch.robots.domain.PathDirective;
 import com.brandwatch.robots.domain.Robots;
 import com.brandwatch.robots.matching.MatcherUtils;
-import com.google.common.base.Optional;
+import com.brandwatch.robots.metrics.Counter;
+import com.brandwatch.robots.metrics.Histogram;
+import com.brandwatch.robots.metrics.MetricNames;
+import com.brandwatch.robots.metrics.MetricsRegistry;
+import com.brandwatch.robots.metrics.MetricsRegistryNoopImpl;
+import com.brandwatch.robots.net.Origin;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.URI;
+import java.util.Map;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Maps.newHashMap;
+import static com.google.common.collect.Maps.newLinkedHashMap;
 
-class RobotsServiceImpl implements RobotsService {
+class RobotsServiceImpl implements AsyncRobotsService {
 
     private static final Logger log = LoggerFactory.getLogger(RobotsServiceImpl.class);
 
     private final RobotsLoader loader;
     private final RobotsUtilities utilities;
     private final MatcherUtils matcherUtils;
+    @Nonnegative
+    private final int preloadConcurrency;
+
+    private final Counter allowed;
+    private final Counter disallowed;
+    /**
+     * Null unless a real registry is in use, so that the default costs no calls to the clock.
+     */
+    @Nullable
+    private final Histogram latencyNanos;
 
     public RobotsServiceImpl(@Nonnull RobotsLoader loader, @Nonnull RobotsUtilities utilities, MatcherUtils matcherUtils) {
+        this(loader, utilities, matcherUtils, MetricsRegistryNoopImpl.INSTANCE);
+    }
+
+    public RobotsServiceImpl(@Nonnull RobotsLoader loader, @Nonnull RobotsUtilities utilities,
+                             MatcherUtils matcherUtils, @Nonnull MetricsRegistry metrics) {
+        this(loader, utilities, matcherUtils, metrics, new RobotsConfig().getPreloadConcurrency());
+    }
+
+    public RobotsServiceImpl(@Nonnull RobotsLoader loader, @Nonnull RobotsUtilities utilities,
+                             MatcherUtils matcherUtils, @Nonnull MetricsRegistry metrics,
+                             @Nonnegative int preloadConcurrency) {
+        checkArgument(preloadConcurrency >= 0, "preloadConcurrency is negative");
         this.matcherUtils = matcherUtils;
+        this.preloadConcurrency = preloadConcurrency;
         this.loader = checkNotNull(loader, "loader");
         this.utilities = checkNotNull(utilities, "utilities");
+        checkNotNull(metrics, "metrics");
+        this.allowed = metrics.counter(MetricNames.CHECK_ALLOWED);
+        this.disallowed = metrics.counter(MetricNames.CHECK_DISALLOWED);
+        this.latencyNanos = metrics == MetricsRegistryNoopImpl.INSTANCE
+                ? null
+                : metrics.histogram(MetricNames.CHECK_LATENCY_NANOS);
     }
 
     @Override
@@ -66,44 +112,134 @@ class RobotsServiceImpl implements RobotsService {
         checkNotNull(crawlerAgentString, "crawlerAgentString is null");
         checkNotNull(resourceUri, "resourceUri is null");
 
-        log.debug("Resolving robots URL for: {}", resourceUri);
-        final URI robotsUri = utilities.getRobotsURIForResource(resourceUri);
-        log.debug("Resolved robots URI to: {}", robotsUri);
+        if (latencyNanos == null) {
+            return isAllowed(getGroup(crawlerAgentString, getOrigin(resourceUri)), resourceUri);
+        }
+        final long startNanos = System.nanoTime();
+        final boolean result = isAllowed(getGroup(crawlerAgentString, getOrigin(resourceUri)), resourceUri);
+        latencyNanos.update(System.nanoTime() - startNanos);
+        return result;
+    }
+
+    @Override
+    public Map<URI, Boolean> isAllowed(@Nonnull String crawlerAgentString, @Nonnull Iterable<URI> resourceUris) {
+        checkNotNull(crawlerAgentString, "crawlerAgentString is null");
+        checkNotNull(resourceUris, "resourceUris is null");
+
+        final Map<Origin, Group> groups = newHashMap();
+        final Map<URI, Boolean> results = newLinkedHashMap();
+        for (URI resourceUri : resourceUris) {
+            checkNotNull(resourceUri, "resourceUri is null");
+            if (results.containsKey(resourceUri)) {
+                continue;
+            }
+            final Origin origin = getOrigin(resourceUri);
+            final Group group;
+            if (groups.containsKey(origin)) {
+                group = groups.get(origin);
+            } else {
+                group = getGroup(crawlerAgentString, origin);
+                groups.put(origin, group);
+            }
+            results.put(resourceUri, isAllowed(group, resourceUri));
+        }
+        return ImmutableMap.copyOf(results);
+    }
+
+    @Override
+    public long getCrawlDelayMillis(@Nonnull String crawlerAgentString, @Nonnull URI resourceUri) {
+        checkNotNull(crawlerAgentString, "crawlerAgentString is null");
+        checkNotNull(resourceUri, "resourceUri is null");
+        final Group group = getGroup(crawlerAgentString, getOrigin(resourceUri));
+        return group == null ? 0 : group.getCrawlDelayMillis();
+    }
+
+    @Override
+    public ListenableFuture<Boolean> isAllowedAsync(@Nonnull final String crawlerAgentString,
+                                                    @Nonnull final URI resourceUri) {
+        checkNotNull(crawlerAgentString, "crawlerAgentString is null");
+        checkNotNull(resourceUri, "resourceUri is null");
+
+        final Origin origin = getOrigin(resourceUri);
+        final SettableFuture<Boolean> result = SettableFuture.create();
+
+        Futures.addCallback(loader.loadAsync(origin), new FutureCallback<Robots>() {
+            @Override
+            public void onSuccess(Robots robots) {
+                try {
+                    result.set(isAllowed(getGroup(crawlerAgentString, robots), resourceUri));
+                } catch (RuntimeException e) {
+                    result.setException(e);
+                }
+            }
+
+            @Override
+            public void onFailure(@Nonnull Throwable t) {
+                log.debug("Download failure {}", t.getMessage());
+                result.set(allow(resourceUri));
+            }
+        });
+
+        return result;
+    }
 
+    @Nonnull
+    private Origin getOrigin(@Nonnull URI resourceUri) {
+        log.debug("Resolving robots origin for: {}", resourceUri);
+        final Origin origin = utilities.getOrigin(resourceUri);
+        log.debug("Resolved robots origin to: {}", origin);
+        return origin;
+    }
+
+    /**
+     * Load the robots.txt for the given origin and find the group that applies to the agent. Null
+     * if there is no such group, or the robots.txt could not be loaded; in which case everything is
+     * allowed.
+     */
+    @Nullable
+    private Group getGroup(@Nonnull String crawlerAgentString, Origin origin) {
         final Robots robots;
         try {
-            robots = loader.load(robotsUri);
+            robots = loader.load(origin);
         } catch (Exception e) {
             log.debug("Download failure {}", e.getMessage());
-            return allow(resourceUri);
+            return null;
         }
+        return getGroup(crawlerAgentString, robots);
+    }
 
+    @Nullable
+    private Group getGroup(@Nonnull String crawlerAgentString, @Nonnull Robots robots) {
         if (robots.getGroups().isEmpty()) {
-            log.debug("No agent groups found", resourceUri);
-            return allow(resourceUri);
+            log.debug("No agent groups found");
+            return null;
         }
 
-        final Optional<Group> group = matcherUtils.getMostSpecificMatchingGroup(robots.getGroups(), crawlerAgentString);
-
-        if (group.isPresent()) {
-            if(log.isDebugEnabled()) {
-                log.debug("Matched user-agent group: {}",
-                        matcherUtils.getMostSpecificMatch(group.get(), crawlerAgentString).get().getValue());
-            }
-        } else {
+        final Group group = robots.getMostSpecificMatchingGroup(crawlerAgentString, matcherUtils);
+        if (group == null) {
             log.debug("No user-agent group matched");
+            return null;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Matched user-agent group: {}",
+                    matcherUtils.getMostSpecificMatch(group, crawlerAgentString).get().getValue());
+        }
+        return group;
+    }
+
+    private boolean isAllowed(@Nullable Group group, @Nonnull URI resourceUri) {
+        if (group == null) {
             return allow(resourceUri);
         }
 
-        final Optional<PathDirective> bestMatch = matcherUtils.getMostSpecificMatch(
-                group.get().getDirectives(PathDirective.class),
-                utilities.getResourceLocalComponents(resourceUri));
+        final PathDirective directive = group.getPathDirectiveTrie()
+                .findMostSpecificMatch(utilities.getRawPathAndQuery(resourceUri));
 
-        if (!bestMatch.isPresent()) {
+        if (directive == null) {
             log.debug("No matching path directive");
             return allow(resourceUri);
         } else {
-            final PathDirective directive = bestMatch.get();
             log.debug("Matched path directive {}:{}",  directive.getField(),  directive.getValue());
             return directive.isAllowed() ? allow(resourceUri) : disallow(resourceUri);
         }
@@ -111,14 +247,40 @@ class RobotsServiceImpl implements RobotsService {
 
     private boolean allow(URI resourceUri) {
         log.debug("Allowing: {}", resourceUri);
+        allowed.increment();
         return true;
     }
 
     private boolean disallow(URI resourceUri) {
         log.debug("Disallowing: {}", resourceUri);
+        disallowed.increment();
         return false;
     }
 
+    @Nonnull
+    @Override
+    public Preload preload(@Nonnull Iterable<URI> resourceUris) {
+        checkNotNull(resourceUris, "resourceUris is null");
+        final Preload preload = new Preload(loader, utilities, resourceUris, preloadConcurrency);
+        preload.start();
+        return preload;
+    }
+
+    @Override
+    public FetchStats getFetchStats() {
+        return loader.getFetchStats();
+    }
+
+    @Override
+    public CacheUsage getCacheUsage() {
+        return loader.getCacheUsage();
+    }
+
+    @Override
+    public CacheStats getCacheStats() {
+        return loader.getCacheStats();
+    }
+
     @Override
     public void close() throws IOException {
         loader.close();
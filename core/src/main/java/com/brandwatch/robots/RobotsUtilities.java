@@ -33,10 +33,12 @@ package com.brandwatch.robots;
  * #L%
  */
 
-import com.brandwatch.robots.net.RobotsURIBuilder;
+import com.brandwatch.robots.matching.PercentEncoding;
+import com.brandwatch.robots.net.Origin;
 
 import javax.annotation.Nonnull;
 import java.net.URI;
+import java.nio.CharBuffer;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -44,16 +46,53 @@ public class RobotsUtilities {
 
     @Nonnull
     public URI getRobotsURIForResource(@Nonnull final URI resourceUri) {
+        return getOrigin(resourceUri).getRobotsUri();
+    }
+
+    @Nonnull
+    public Origin getOrigin(@Nonnull final URI resourceUri) {
         checkNotNull(resourceUri, "resourceUri");
         try {
-            return new RobotsURIBuilder()
-                    .fromUri(resourceUri)
-                    .build();
+            return Origin.of(resourceUri);
         } catch (RuntimeException e) {
             throw new IllegalArgumentException("Failed to derive robots.txt location from malformed URI: " + resourceUri, e);
         }
     }
 
+    /**
+     * Get the path and query of the resource, as they appear in its ASCII form, with percent-encoding
+     * normalized by {@link PercentEncoding}. This is what path directives are matched against: the
+     * result is usually a view over the resource's own string, so nothing is decoded or copied.
+     */
+    @Nonnull
+    public CharSequence getRawPathAndQuery(@Nonnull URI resourceUri) {
+        checkNotNull(resourceUri, "resourceUri");
+        if (resourceUri.isOpaque()) {
+            return "";
+        }
+
+        final String string = resourceUri.toASCIIString();
+        int start = resourceUri.getScheme() == null ? 0 : resourceUri.getScheme().length() + 1;
+        if (resourceUri.getRawAuthority() != null) {
+            start += 2;
+            while (start < string.length() && !isPathStart(string.charAt(start))) {
+                start++;
+            }
+        }
+        int end = string.indexOf('#', start);
+        if (end == -1) {
+            end = string.length();
+        }
+
+        final CharSequence pathAndQuery = start == 0 && end == string.length()
+                ? string
+                : CharBuffer.wrap(string, start, end);
+        return PercentEncoding.normalize(pathAndQuery);
+    }
+
+    private static boolean isPathStart(char c) {
+        return c == '/' || c == '?' || c == '#';
+    }
 
     @Nonnull
     public String getResourceLocalComponents(@Nonnull URI resourceUri) {
@@ -0,0 +1,138 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.net.Origin;
+import com.google.common.cache.Cache;
+import com.google.common.cache.ForwardingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Cache of robots.txt entries in two tiers: a small heap cache of parsed entries, ready to match
+ * against, in front of a large {@link OffHeapEntryStore} of encoded ones. Entries evicted from the
+ * heap cache are demoted to the store, by the listener from {@link #demotingTo(OffHeapEntryStore)};
+ * entries missing from the heap cache are looked for in the store, and if found, decoded and
+ * promoted back to the heap cache. An entry is held by one tier or the other, never both.
+ *
+ * Cache statistics, and {@link #asMap()}, cover the heap cache only; {@link #size()} covers both.
+ */
+@ThreadSafe
+final class TieredEntryCache extends ForwardingCache<Origin, RobotsEntry> {
+
+    @Nonnull
+    private final Cache<Origin, RobotsEntry> hot;
+    @Nonnull
+    private final OffHeapEntryStore cold;
+
+    /**
+     * @param hot  heap cache, which must demote evicted entries to the store with the listener from
+     *             {@link #demotingTo(OffHeapEntryStore)}
+     * @param cold store of entries evicted from the heap cache
+     */
+    TieredEntryCache(@Nonnull Cache<Origin, RobotsEntry> hot, @Nonnull OffHeapEntryStore cold) {
+        this.hot = checkNotNull(hot, "hot is null");
+        this.cold = checkNotNull(cold, "cold is null");
+    }
+
+    /**
+     * Get a listener for the heap cache, which writes the entries it evicts to the store.
+     */
+    @Nonnull
+    static RemovalListener<Origin, RobotsEntry> demotingTo(@Nonnull final OffHeapEntryStore cold) {
+        checkNotNull(cold, "cold is null");
+        return new RemovalListener<Origin, RobotsEntry>() {
+            @Override
+            public void onRemoval(@Nonnull RemovalNotification<Origin, RobotsEntry> notification) {
+                if (notification.wasEvicted()
+                        && notification.getKey() != null && notification.getValue() != null) {
+                    cold.put(notification.getKey(), notification.getValue());
+                }
+            }
+        };
+    }
+
+    @Override
+    protected Cache<Origin, RobotsEntry> delegate() {
+        return hot;
+    }
+
+    @Nullable
+    @Override
+    public RobotsEntry getIfPresent(@Nonnull Object key) {
+        final RobotsEntry entry = hot.getIfPresent(key);
+        if (entry != null || !(key instanceof Origin)) {
+            return entry;
+        }
+        final Origin origin = (Origin) key;
+        final RobotsEntry demoted = cold.remove(origin);
+        if (demoted == null) {
+            return null;
+        }
+        // An entry put since the demoted copy was removed is newer, so it wins over the promotion
+        final RobotsEntry current = hot.asMap().putIfAbsent(origin, demoted);
+        return current != null ? current : demoted;
+    }
+
+    @Override
+    public void put(@Nonnull Origin key, @Nonnull RobotsEntry value) {
+        cold.invalidate(key);
+        hot.put(key, value);
+    }
+
+    @Override
+    public void invalidate(@Nonnull Object key) {
+        hot.invalidate(key);
+        if (key instanceof Origin) {
+            cold.invalidate((Origin) key);
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        hot.invalidateAll();
+        cold.clear();
+    }
+
+    @Override
+    public long size() {
+        return hot.size() + cold.size();
+    }
+}
@@ -36,6 +36,8 @@ package com.brandwatch.robots.domain;
 import com.brandwatch.robots.matching.Matchable;
 import com.brandwatch.robots.matching.Matcher;
 import com.google.common.base.Objects;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -50,9 +52,18 @@ public final class AgentDirective implements Directive, Matchable<String> {
     private final String agentPattern;
 
     @Nonnull
-    private final Matcher<String> agentMatcher;
+    private final Supplier<? extends Matcher<String>> agentMatcher;
 
     public AgentDirective(@Nonnull String agentPattern, @Nonnull Matcher<String> agentMatcher) {
+        this(agentPattern, Suppliers.ofInstance(checkNotNull(agentMatcher, "agentMatcher is null")));
+    }
+
+    /**
+     * Create a directive whose matcher is obtained from the given supplier when first required.
+     *
+     * @see PathDirective#PathDirective(PathDirective.Field, String, Supplier)
+     */
+    public AgentDirective(@Nonnull String agentPattern, @Nonnull Supplier<? extends Matcher<String>> agentMatcher) {
         this.agentMatcher = checkNotNull(agentMatcher, "agentMatcher is null");
         this.agentPattern = checkNotNull(agentPattern, "agentPattern is null");
     }
@@ -71,7 +82,7 @@ public final class AgentDirective implements Directive, Matchable<String> {
 
     @Override
     public Matcher<String> getMatcher() {
-        return agentMatcher;
+        return agentMatcher.get();
     }
 
     @Override
@@ -33,9 +33,13 @@ package com.brandwatch.robots.domain;
  * #L%
  */
 
+import com.brandwatch.robots.matching.ExpressionTrie;
 import com.google.common.base.Objects;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
@@ -48,10 +52,35 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public final class Group implements Iterable<AgentDirective> {
 
     @Nonnull
-    private final List<Directive> directives;
+    private final ImmutableList<Directive> directives;
+
+    @Nonnull
+    private final ImmutableList<AgentDirective> agentDirectives;
+
+    @Nonnull
+    private final ImmutableList<PathDirective> pathDirectives;
+
+    @Nonnull
+    private final Supplier<ExpressionTrie<PathDirective>> pathDirectiveTrie;
+
+    @Nonnegative
+    private final long crawlDelayMillis;
 
     public Group(@Nonnull Builder builder) {
         this.directives = builder.directives.build();
+        this.agentDirectives = filter(directives, AgentDirective.class);
+        this.pathDirectives = filter(directives, PathDirective.class);
+        long crawlDelayMillis = 0;
+        for (RateDirective directive : filter(directives, RateDirective.class)) {
+            crawlDelayMillis = Math.max(crawlDelayMillis, directive.getIntervalMillis());
+        }
+        this.crawlDelayMillis = crawlDelayMillis;
+        this.pathDirectiveTrie = Suppliers.memoize(new Supplier<ExpressionTrie<PathDirective>>() {
+            @Override
+            public ExpressionTrie<PathDirective> get() {
+                return new ExpressionTrie<PathDirective>(pathDirectives);
+            }
+        });
     }
 
     @Nonnull
@@ -60,14 +89,39 @@ public final class Group implements Iterable<AgentDirective> {
     }
 
     @Nonnull
+    @SuppressWarnings("unchecked")
     public <T extends Directive> List<T> getDirectives(@Nonnull Class<T> directiveType) {
-        ImmutableList.Builder<T> result = ImmutableList.builder();
-        for (Directive directive : directives) {
-            if (directiveType.isAssignableFrom(directive.getClass())) {
-                result.add(directiveType.cast(directive));
-            }
+        if (directiveType == AgentDirective.class) {
+            return (List<T>) agentDirectives;
+        } else if (directiveType == PathDirective.class) {
+            return (List<T>) pathDirectives;
         }
-        return result.build();
+        return filter(directives, directiveType);
+    }
+
+    @Nonnull
+    public List<AgentDirective> getAgentDirectives() {
+        return agentDirectives;
+    }
+
+    @Nonnull
+    public List<PathDirective> getPathDirectives() {
+        return pathDirectives;
+    }
+
+    @Nonnull
+    public ExpressionTrie<PathDirective> getPathDirectiveTrie() {
+        return pathDirectiveTrie.get();
+    }
+
+    /**
+     * Minimum time the agents of this group should leave between fetches from the host: the longest
+     * interval given by its {@code Crawl-delay} and {@code Request-rate} directives, or zero if it
+     * has neither.
+     */
+    @Nonnegative
+    public long getCrawlDelayMillis() {
+        return crawlDelayMillis;
     }
 
     @Override
@@ -93,10 +147,21 @@ public final class Group implements Iterable<AgentDirective> {
 
     @Override
     public Iterator<AgentDirective> iterator() {
-        List<AgentDirective> agentDirectives = getDirectives(AgentDirective.class);
         return agentDirectives.iterator();
     }
 
+    @Nonnull
+    private static <T extends Directive> ImmutableList<T> filter(
+            @Nonnull List<Directive> directives, @Nonnull Class<T> directiveType) {
+        ImmutableList.Builder<T> result = ImmutableList.builder();
+        for (Directive directive : directives) {
+            if (directiveType.isAssignableFrom(directive.getClass())) {
+                result.add(directiveType.cast(directive));
+            }
+        }
+        return result.build();
+    }
+
     public static class Builder {
 
         @Nonnull
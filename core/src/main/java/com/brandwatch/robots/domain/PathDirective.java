@@ -36,6 +36,8 @@ package com.brandwatch.robots.domain;
 import com.brandwatch.robots.matching.Matchable;
 import com.brandwatch.robots.matching.Matcher;
 import com.google.common.base.Objects;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -53,9 +55,19 @@ public final class PathDirective implements Directive, Matchable<String> {
     private final String value;
 
     @Nonnull
-    private final Matcher<String> pathMatcher;
+    private final Supplier<? extends Matcher<String>> pathMatcher;
 
     public PathDirective(@Nonnull Field field, @Nonnull String value, @Nonnull Matcher<String> pathMatcher) {
+        this(field, value, Suppliers.ofInstance(checkNotNull(pathMatcher, "pathMatcher is null")));
+    }
+
+    /**
+     * Create a directive whose matcher is obtained from the given supplier when first required,
+     * allowing compilation to be deferred. The supplier must be thread-safe and return the same
+     * matcher on every call, as {@link Suppliers#memoize(Supplier)} does.
+     */
+    public PathDirective(@Nonnull Field field, @Nonnull String value,
+                         @Nonnull Supplier<? extends Matcher<String>> pathMatcher) {
         this.pathMatcher = checkNotNull(pathMatcher, "pathMatcher is null");
         this.field = checkNotNull(field, "field is null");
         this.value = checkNotNull(value, "value is null");
@@ -76,7 +88,7 @@ public final class PathDirective implements Directive, Matchable<String> {
 
     @Override
     public Matcher<String> getMatcher() {
-        return pathMatcher;
+        return pathMatcher.get();
     }
 
     public boolean isAllowed() {
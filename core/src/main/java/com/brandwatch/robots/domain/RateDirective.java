@@ -0,0 +1,227 @@
+package com.brandwatch.robots.domain;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Directive limiting how often the agents of a group may fetch from the host: either a
+ * {@code Crawl-delay}, the number of seconds to wait between fetches, or a {@code Request-rate}, a
+ * number of fetches per period such as {@code 1/10s}. Either way, it is resolved to the interval
+ * between fetches.
+ */
+@Immutable
+public final class RateDirective implements Directive {
+
+    @Nonnull
+    private final Field field;
+
+    @Nonnull
+    private final String value;
+
+    @Nonnegative
+    private final long intervalMillis;
+
+    public RateDirective(@Nonnull Field field, @Nonnull String value, @Nonnegative long intervalMillis) {
+        this.field = checkNotNull(field, "field is null");
+        this.value = checkNotNull(value, "value is null");
+        checkArgument(intervalMillis >= 0, "intervalMillis is negative");
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Create a directive from the field and value of a robots.txt line, if the field is one of the
+     * rate fields and the value is well formed.
+     */
+    @Nonnull
+    public static Optional<RateDirective> parse(@Nonnull String field, @Nonnull String value) {
+        checkNotNull(field, "field is null");
+        checkNotNull(value, "value is null");
+        final Optional<Field> rateField = Field.forName(field);
+        if (!rateField.isPresent()) {
+            return Optional.absent();
+        }
+        final Optional<Long> intervalMillis = rateField.get().parseIntervalMillis(value);
+        if (!intervalMillis.isPresent()) {
+            return Optional.absent();
+        }
+        return Optional.of(new RateDirective(rateField.get(), value, intervalMillis.get()));
+    }
+
+    @Nonnull
+    @Override
+    public String getField() {
+        return field.toString();
+    }
+
+    @Nonnull
+    @Override
+    public String getValue() {
+        return value;
+    }
+
+    @Nonnull
+    public Field getRateField() {
+        return field;
+    }
+
+    /**
+     * Minimum time between the start of one fetch and the next.
+     */
+    @Nonnegative
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RateDirective that = (RateDirective) o;
+        return Objects.equal(field, that.field)
+                && Objects.equal(value, that.value)
+                && intervalMillis == that.intervalMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(field, value, intervalMillis);
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("field", field)
+                .add("value", value)
+                .add("intervalMillis", intervalMillis)
+                .toString();
+    }
+
+    public enum Field {
+        /**
+         * Seconds between fetches, possibly fractional.
+         */
+        crawl_delay("crawl-delay") {
+            private final Pattern pattern = Pattern.compile("\\d+(\\.\\d*)?|\\.\\d+");
+
+            @Nonnull
+            @Override
+            public Optional<Long> parseIntervalMillis(@Nonnull String value) {
+                if (!pattern.matcher(value).matches()) {
+                    return Optional.absent();
+                }
+                return Optional.of((long) Math.ceil(Double.parseDouble(value) * 1000));
+            }
+        },
+        /**
+         * Fetches per period, in seconds unless suffixed by {@code s}, {@code m}, {@code h} or
+         * {@code d}. A trailing time of day range is accepted, but ignored.
+         */
+        request_rate("request-rate") {
+            private final Pattern pattern = Pattern.compile(
+                    "(\\d{1,9})\\s*/\\s*(\\d{1,9})\\s*([smhd]?)(\\s+\\d{4}\\s*-\\s*\\d{4})?",
+                    Pattern.CASE_INSENSITIVE);
+
+            @Nonnull
+            @Override
+            public Optional<Long> parseIntervalMillis(@Nonnull String value) {
+                final Matcher matcher = pattern.matcher(value);
+                if (!matcher.matches()) {
+                    return Optional.absent();
+                }
+                final long requests = Long.parseLong(matcher.group(1));
+                if (requests == 0) {
+                    return Optional.absent();
+                }
+                final long periodMillis = unit(matcher.group(3)).toMillis(Long.parseLong(matcher.group(2)));
+                return Optional.of((periodMillis + requests - 1) / requests);
+            }
+
+            @Nonnull
+            private TimeUnit unit(@Nonnull String suffix) {
+                switch (suffix.isEmpty() ? 's' : Character.toLowerCase(suffix.charAt(0))) {
+                    case 'm':
+                        return TimeUnit.MINUTES;
+                    case 'h':
+                        return TimeUnit.HOURS;
+                    case 'd':
+                        return TimeUnit.DAYS;
+                    default:
+                        return TimeUnit.SECONDS;
+                }
+            }
+        };
+
+        @Nonnull
+        private final String name;
+
+        Field(@Nonnull String name) {
+            this.name = name;
+        }
+
+        /**
+         * The interval between fetches given by a value of this field, or absent if it is malformed.
+         */
+        @Nonnull
+        public abstract Optional<Long> parseIntervalMillis(@Nonnull String value);
+
+        @Nonnull
+        public static Optional<Field> forName(@Nonnull String name) {
+            for (Field field : values()) {
+                if (field.name.equalsIgnoreCase(name.trim())) {
+                    return Optional.of(field);
+                }
+            }
+            return Optional.absent();
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -33,12 +33,15 @@ package com.brandwatch.robots.domain;
  * #L%
  */
 
+import com.brandwatch.robots.matching.MatcherUtils;
+import com.brandwatch.robots.matching.MatcherUtilsImpl;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
+import java.util.Arrays;
 import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -51,6 +54,16 @@ public final class Robots {
     @Nonnull
     private final ImmutableList<Directive> nonGroupDirectives;
 
+    /**
+     * Groups already resolved for particular agents. Crawlers use a handful of fixed agent strings,
+     * so this is a small copy-on-write array, searched linearly and capped at
+     * {@link #MAX_RESOLVED_AGENTS} entries.
+     */
+    private volatile ResolvedAgent[] resolvedAgents = NO_RESOLVED_AGENTS;
+
+    private static final int MAX_RESOLVED_AGENTS = 16;
+    private static final ResolvedAgent[] NO_RESOLVED_AGENTS = new ResolvedAgent[0];
+
     private Robots(@Nonnull Builder builder) {
         groups = builder.groups.build();
         nonGroupDirectives = builder.nonGroupDirectives.build();
@@ -66,6 +79,40 @@ public final class Robots {
         return nonGroupDirectives;
     }
 
+    /**
+     * Find the group that applies to the given agent, or null if there is none. The result is
+     * memoized per agent string, so agent expressions are evaluated once per agent rather than on
+     * every call. With {@link MatcherUtilsImpl} the group is found without allocating.
+     */
+    @Nullable
+    public Group getMostSpecificMatchingGroup(@Nonnull String agent, @Nonnull MatcherUtils matcherUtils) {
+        checkNotNull(agent, "agent is null");
+        checkNotNull(matcherUtils, "matcherUtils is null");
+
+        for (ResolvedAgent resolved : resolvedAgents) {
+            if (resolved.agent.equals(agent)) {
+                return resolved.group;
+            }
+        }
+
+        final Group group;
+        if (matcherUtils instanceof MatcherUtilsImpl) {
+            final int index = ((MatcherUtilsImpl) matcherUtils).getMostSpecificMatchingGroupIndex(groups, agent);
+            group = index == MatcherUtilsImpl.NO_MATCH_INDEX ? null : groups.get(index);
+        } else {
+            group = matcherUtils.getMostSpecificMatchingGroup(groups, agent).orNull();
+        }
+        synchronized (this) {
+            final ResolvedAgent[] current = resolvedAgents;
+            if (current.length < MAX_RESOLVED_AGENTS) {
+                final ResolvedAgent[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = new ResolvedAgent(agent, group);
+                resolvedAgents = updated;
+            }
+        }
+        return group;
+    }
+
     @Override
     public boolean equals(@Nullable Object o) {
         if (this == o) return true;
@@ -89,6 +136,20 @@ public final class Robots {
                 .toString();
     }
 
+    @Immutable
+    private static final class ResolvedAgent {
+
+        @Nonnull
+        private final String agent;
+        @Nullable
+        private final Group group;
+
+        ResolvedAgent(@Nonnull String agent, @Nullable Group group) {
+            this.agent = agent;
+            this.group = group;
+        }
+    }
+
     public static class Builder {
 
         @Nonnull
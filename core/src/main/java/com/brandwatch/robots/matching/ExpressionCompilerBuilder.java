@@ -42,6 +42,7 @@ public class ExpressionCompilerBuilder {
 
     private boolean caseSensitivity = true;
     private boolean leftBoundaryMatching = false;
+    private boolean percentEncodingNormalization = false;
     private Optional<Function<String, String>> expressionPreprocessor = Optional.absent();
 
     boolean isCaseSensitivity() {
@@ -52,6 +53,10 @@ public class ExpressionCompilerBuilder {
         return leftBoundaryMatching;
     }
 
+    boolean isPercentEncodingNormalization() {
+        return percentEncodingNormalization;
+    }
+
     Optional<Function<String, String>> getExpressionPreprocessor() {
         return expressionPreprocessor;
     }
@@ -66,6 +71,15 @@ public class ExpressionCompilerBuilder {
         return this;
     }
 
+    /**
+     * Normalize the percent-encoding of expressions when they are compiled, so that they can be
+     * matched against targets normalized by {@link PercentEncoding}.
+     */
+    public ExpressionCompilerBuilder withPercentEncodingNormalization(boolean percentEncodingNormalization) {
+        this.percentEncodingNormalization = percentEncodingNormalization;
+        return this;
+    }
+
     public ExpressionCompilerBuilder withExpressionPreprocessor(@Nonnull Function<String, String> preprocessor) {
         this.expressionPreprocessor = Optional.of(preprocessor);
         return this;
@@ -38,30 +38,26 @@ import com.google.common.base.Optional;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static java.util.regex.Pattern.quote;
 
 class ExpressionCompilerImpl implements ExpressionCompiler {
 
-    private static final String RE_LITERAL_PREFIX = "(?>";
-    private static final String RE_LITERAL_SUFFIX = ")";
-    private static final String RE_MATCH_ONE_OR_MORE = ".*?";
-    private static final String RE_MATCH_START = "^";
-    private static final String RE_MATCH_END = "$";
-
     private static final char EXP_MATCH_START = '^';
     private static final char EXP_MATCH_END = '$';
     private static final char EXP_MATCH_ONE_OR_MORE = '*';
 
     private final boolean caseSensitivity;
     private final boolean leftBoundaryMatching;
+    private final boolean percentEncodingNormalization;
     private final Optional<Function<String, String>> expressionPreprocessor;
 
     ExpressionCompilerImpl(@Nonnull ExpressionCompilerBuilder builder) {
         this.caseSensitivity = builder.isCaseSensitivity();
         this.leftBoundaryMatching = builder.isLeftBoundaryMatching();
+        this.percentEncodingNormalization = builder.isPercentEncodingNormalization();
         this.expressionPreprocessor = builder.getExpressionPreprocessor();
     }
 
@@ -74,10 +70,14 @@ class ExpressionCompilerImpl implements ExpressionCompiler {
             expression = expressionPreprocessor.get().apply(expression);
         }
 
+        if (percentEncodingNormalization) {
+            expression = PercentEncoding.normalize(expression);
+        }
+
         if (expression.isEmpty()) {
             return new EverythingMatcher<String>();
         } else {
-            return new ExpressionMatcher(compileWildcardExpressionToRegex(expression), getSpecificity(expression));
+            return compileWildcardExpression(expression);
         }
     }
 
@@ -93,50 +93,33 @@ class ExpressionCompilerImpl implements ExpressionCompiler {
     }
 
     @Nonnull
-    private Pattern compileWildcardExpressionToRegex(@Nonnull String expression) {
-        final StringBuilder regex = new StringBuilder();
-
-        final int len = expression.length();
+    private ExpressionMatcher compileWildcardExpression(@Nonnull String expression) {
         int start = 0;
-        int end;
+        int len = expression.length();
 
+        final boolean startAnchored;
         if (len > 0 && expression.charAt(0) == EXP_MATCH_START) {
-            regex.append(RE_MATCH_START);
+            startAnchored = true;
             start++;
-        } else if (leftBoundaryMatching) {
-            regex.append(RE_MATCH_START);
         } else {
-            regex.append(RE_MATCH_ONE_OR_MORE);
+            startAnchored = leftBoundaryMatching;
         }
 
-        while ((end = expression.indexOf(EXP_MATCH_ONE_OR_MORE, start)) != -1) {
-            regex.append(RE_LITERAL_PREFIX)
-                    .append(quote(expression.substring(start, end)))
-                    .append(RE_LITERAL_SUFFIX)
-                    .append(RE_MATCH_ONE_OR_MORE);
-            start = end + 1;
+        final boolean endAnchored = len > start && expression.charAt(len - 1) == EXP_MATCH_END;
+        if (endAnchored) {
+            len--;
         }
 
-        if (len > 0 && expression.charAt(len - 1) == EXP_MATCH_END) {
-            regex.append(RE_LITERAL_PREFIX)
-                    .append(quote(expression.substring(start, len - 1)))
-                    .append(RE_LITERAL_SUFFIX)
-                    .append(RE_MATCH_END);
-        } else {
-            regex.append(RE_LITERAL_PREFIX)
-                    .append(quote(expression.substring(start, len)))
-                    .append(RE_LITERAL_SUFFIX)
-                    .append(RE_MATCH_ONE_OR_MORE);
-        }
-
-        int flags = 0;
-        if (!caseSensitivity) {
-            flags |= Pattern.CASE_INSENSITIVE;
+        final List<String> literals = new ArrayList<String>();
+        int end;
+        while ((end = expression.indexOf(EXP_MATCH_ONE_OR_MORE, start)) != -1 && end < len) {
+            literals.add(expression.substring(start, end));
+            start = end + 1;
         }
+        literals.add(expression.substring(start, len));
 
-        return Pattern.compile(regex.toString(), flags);
+        return new ExpressionMatcher(literals.toArray(new String[literals.size()]),
+                startAnchored, endAnchored, caseSensitivity, getSpecificity(expression));
     }
 
-
-
 }
@@ -33,30 +33,48 @@ package com.brandwatch.robots.matching;
  * #L%
  */
 
+import com.google.common.base.Objects;
+
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
-import java.util.regex.Pattern;
+import java.util.Arrays;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+/**
+ * Matcher for a compiled wildcard expression. The expression is held as the sequence of literal
+ * segments separated by wildcards, optionally anchored to the start and/or end of the target.
+ */
 final class ExpressionMatcher implements Matcher<String> {
 
     @Nonnull
-    private final Pattern pattern;
+    private final String[] literals;
+
+    private final boolean startAnchored;
+
+    private final boolean endAnchored;
+
+    private final boolean caseSensitive;
 
     @Nonnegative
     private final double specificity;
 
-    public ExpressionMatcher(@Nonnull Pattern pattern, @Nonnegative double specificity) {
-        this.pattern = checkNotNull(pattern, "pattern");
+    ExpressionMatcher(@Nonnull String[] literals, boolean startAnchored, boolean endAnchored,
+                      boolean caseSensitive, @Nonnegative double specificity) {
+        checkNotNull(literals, "literals");
+        checkArgument(literals.length > 0, "literals is empty");
         checkArgument(specificity >= 0, "specificity is negative");
+        this.literals = literals.clone();
+        this.startAnchored = startAnchored;
+        this.endAnchored = endAnchored;
+        this.caseSensitive = caseSensitive;
         this.specificity = specificity;
     }
 
     @Override
     public boolean matches(@Nonnull String value) {
-        return pattern.matcher(value).matches();
+        return matches(value, 0, 0);
     }
 
     @Override
@@ -64,4 +82,103 @@ final class ExpressionMatcher implements Matcher<String> {
     public double getSpecificity() {
         return specificity;
     }
+
+    boolean isStartAnchored() {
+        return startAnchored;
+    }
+
+    boolean isEndAnchored() {
+        return endAnchored;
+    }
+
+    boolean isCaseSensitive() {
+        return caseSensitive;
+    }
+
+    int getLiteralCount() {
+        return literals.length;
+    }
+
+    @Nonnull
+    String getLiteral(int index) {
+        return literals[index];
+    }
+
+    /**
+     * Match the remainder of the expression, starting at the given literal, against the target
+     * from the given offset. When {@code firstLiteral} is zero the start anchor is honoured,
+     * otherwise the literal is assumed to follow a wildcard.
+     */
+    boolean matches(@Nonnull CharSequence value, int firstLiteral, int offset) {
+        final int last = literals.length - 1;
+        int position = offset;
+        int i = firstLiteral;
+
+        if (i == 0 && startAnchored) {
+            if (!regionMatches(value, position, literals[0])) {
+                return false;
+            }
+            position += literals[0].length();
+            if (last == 0) {
+                return !endAnchored || position == value.length();
+            }
+            i = 1;
+        }
+
+        for (; i < last; i++) {
+            final int found = indexOf(value, literals[i], position);
+            if (found < 0) {
+                return false;
+            }
+            position = found + literals[i].length();
+        }
+
+        final String tail = literals[last];
+        if (endAnchored) {
+            final int start = value.length() - tail.length();
+            return start >= position && regionMatches(value, start, tail);
+        } else {
+            return indexOf(value, tail, position) >= 0;
+        }
+    }
+
+    private int indexOf(@Nonnull CharSequence value, @Nonnull String literal, int from) {
+        final int limit = value.length() - literal.length();
+        for (int i = from; i <= limit; i++) {
+            if (regionMatches(value, i, literal)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean regionMatches(@Nonnull CharSequence value, int offset, @Nonnull String literal) {
+        final int length = literal.length();
+        if (offset + length > value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            final char a = value.charAt(offset + i);
+            final char b = literal.charAt(i);
+            if (a != b && (caseSensitive || toLowerAscii(a) != toLowerAscii(b))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char toLowerAscii(char c) {
+        return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("literals", Arrays.toString(literals))
+                .add("startAnchored", startAnchored)
+                .add("endAnchored", endAnchored)
+                .add("caseSensitive", caseSensitive)
+                .toString();
+    }
 }
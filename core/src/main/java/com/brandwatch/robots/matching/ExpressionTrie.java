@@ -0,0 +1,304 @@
+package com.brandwatch.robots.matching;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.base.Optional;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable index over a list of matchables, answering the most specific match for a target in a
+ * single pass over its characters.
+ *
+ * Start-anchored, case-sensitive expressions are stored in a character trie keyed by their leading
+ * literal. Walking the target down the trie visits every candidate whose leading literal is a prefix
+ * of the target; plain prefix and exact expressions are decided on the spot, while expressions
+ * containing wildcards have their remaining literals scanned from the current position. Anything
+ * else (unanchored, case-insensitive, or unknown matcher implementations) is evaluated linearly.
+ *
+ * Ties are resolved the same way as {@link MatcherUtils#getMostSpecificMatch(Iterable, Object)}:
+ * the earliest matchable in iteration order wins.
+ */
+@Immutable
+public final class ExpressionTrie<M extends Matchable<String>> {
+
+    private static final Comparator<Entry> PRIORITY = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry a, Entry b) {
+            return a.beats(b) ? -1 : (b.beats(a) ? 1 : 0);
+        }
+    };
+
+    private static final ExpressionTrie<?> EMPTY = new ExpressionTrie<Matchable<String>>(
+            Collections.<Matchable<String>>emptyList());
+
+    @Nonnull
+    private final Node root;
+
+    @Nonnull
+    private final Entry[] unindexed;
+
+    public ExpressionTrie(@Nonnull Iterable<? extends M> matchables) {
+        checkNotNull(matchables, "matchables is null");
+
+        final NodeBuilder rootBuilder = new NodeBuilder();
+        final List<Entry> unindexedEntries = new ArrayList<Entry>();
+
+        int index = 0;
+        for (M matchable : matchables) {
+            final Matcher<String> matcher = matchable.getMatcher();
+            final Entry entry = new Entry(matchable, index++, matcher.getSpecificity());
+
+            if (matcher instanceof EverythingMatcher) {
+                rootBuilder.offerPrefix(entry);
+            } else if (matcher instanceof ExpressionMatcher
+                    && ((ExpressionMatcher) matcher).isStartAnchored()
+                    && ((ExpressionMatcher) matcher).isCaseSensitive()) {
+                final ExpressionMatcher expression = (ExpressionMatcher) matcher;
+                final NodeBuilder node = rootBuilder.descend(expression.getLiteral(0));
+                if (expression.getLiteralCount() > 1) {
+                    node.wildcards.add(entry);
+                } else if (expression.isEndAnchored()) {
+                    node.offerExact(entry);
+                } else {
+                    node.offerPrefix(entry);
+                }
+            } else {
+                unindexedEntries.add(entry);
+            }
+        }
+
+        this.root = rootBuilder.build();
+        this.unindexed = unindexedEntries.toArray(new Entry[unindexedEntries.size()]);
+        Arrays.sort(this.unindexed, PRIORITY);
+    }
+
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    public static <M extends Matchable<String>> ExpressionTrie<M> empty() {
+        return (ExpressionTrie<M>) EMPTY;
+    }
+
+    @Nonnull
+    public Optional<M> getMostSpecificMatch(@Nonnull String target) {
+        return Optional.fromNullable(findMostSpecificMatch(target));
+    }
+
+    /**
+     * Like {@link #getMostSpecificMatch(String)}, but returns null if nothing matches, and accepts any
+     * character sequence. Allocates nothing, unless a matcher of an unknown implementation has to be
+     * evaluated.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public M findMostSpecificMatch(@Nonnull CharSequence target) {
+        checkNotNull(target, "target is null");
+
+        final int length = target.length();
+        Entry best = null;
+        Node node = root;
+        int depth = 0;
+
+        while (true) {
+            best = node.visit(target, depth, best);
+            if (depth == length) {
+                break;
+            }
+            node = node.child(target.charAt(depth));
+            if (node == null) {
+                break;
+            }
+            depth++;
+        }
+
+        for (Entry entry : unindexed) {
+            if (!entry.beats(best)) {
+                break;
+            }
+            if (entry.matches(target)) {
+                best = entry;
+                break;
+            }
+        }
+
+        return best == null ? null : (M) best.matchable;
+    }
+
+    @Immutable
+    private static final class Entry {
+
+        @Nonnull
+        private final Matchable<String> matchable;
+        private final int index;
+        private final double specificity;
+
+        Entry(@Nonnull Matchable<String> matchable, int index, double specificity) {
+            this.matchable = matchable;
+            this.index = index;
+            this.specificity = specificity;
+        }
+
+        boolean matches(@Nonnull CharSequence target) {
+            final Matcher<String> matcher = matchable.getMatcher();
+            if (matcher instanceof ExpressionMatcher) {
+                return ((ExpressionMatcher) matcher).matches(target, 0, 0);
+            }
+            return matcher.matches(target.toString());
+        }
+
+        boolean beats(@Nullable Entry other) {
+            return other == null
+                    || specificity > other.specificity
+                    || (specificity == other.specificity && index < other.index);
+        }
+    }
+
+    @Immutable
+    private static final class Node {
+
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Entry[] NO_ENTRIES = new Entry[0];
+
+        @Nonnull
+        private final char[] keys;
+        @Nonnull
+        private final Node[] children;
+        @Nullable
+        private final Entry prefix;
+        @Nullable
+        private final Entry exact;
+        @Nonnull
+        private final Entry[] wildcards;
+
+        Node(@Nonnull char[] keys, @Nonnull Node[] children, @Nullable Entry prefix,
+             @Nullable Entry exact, @Nonnull Entry[] wildcards) {
+            this.keys = keys;
+            this.children = children;
+            this.prefix = prefix;
+            this.exact = exact;
+            this.wildcards = wildcards;
+        }
+
+        @Nullable
+        Node child(char key) {
+            final int i = Arrays.binarySearch(keys, key);
+            return i >= 0 ? children[i] : null;
+        }
+
+        @Nullable
+        Entry visit(@Nonnull CharSequence target, int depth, @Nullable Entry best) {
+            if (prefix != null && prefix.beats(best)) {
+                best = prefix;
+            }
+            if (exact != null && depth == target.length() && exact.beats(best)) {
+                best = exact;
+            }
+            for (Entry entry : wildcards) {
+                if (!entry.beats(best)) {
+                    break;
+                }
+                if (((ExpressionMatcher) entry.matchable.getMatcher()).matches(target, 1, depth)) {
+                    best = entry;
+                    break;
+                }
+            }
+            return best;
+        }
+    }
+
+    private static final class NodeBuilder {
+
+        private final Map<Character, NodeBuilder> children = new TreeMap<Character, NodeBuilder>();
+        private final List<Entry> wildcards = new ArrayList<Entry>();
+        @Nullable
+        private Entry prefix;
+        @Nullable
+        private Entry exact;
+
+        @Nonnull
+        NodeBuilder descend(@Nonnull String literal) {
+            NodeBuilder node = this;
+            for (int i = 0; i < literal.length(); i++) {
+                final Character key = literal.charAt(i);
+                NodeBuilder child = node.children.get(key);
+                if (child == null) {
+                    child = new NodeBuilder();
+                    node.children.put(key, child);
+                }
+                node = child;
+            }
+            return node;
+        }
+
+        void offerPrefix(@Nonnull Entry entry) {
+            if (entry.beats(prefix)) {
+                prefix = entry;
+            }
+        }
+
+        void offerExact(@Nonnull Entry entry) {
+            if (entry.beats(exact)) {
+                exact = entry;
+            }
+        }
+
+        @Nonnull
+        Node build() {
+            final char[] keys = new char[children.size()];
+            final Node[] nodes = children.isEmpty() ? Node.NO_CHILDREN : new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, NodeBuilder> child : children.entrySet()) {
+                keys[i] = child.getKey();
+                nodes[i] = child.getValue().build();
+                i++;
+            }
+            final Entry[] sortedWildcards = wildcards.isEmpty()
+                    ? Node.NO_ENTRIES
+                    : wildcards.toArray(new Entry[wildcards.size()]);
+            Arrays.sort(sortedWildcards, PRIORITY);
+            return new Node(keys, nodes, prefix, exact, sortedWildcards);
+        }
+    }
+}
@@ -36,13 +36,30 @@ package com.brandwatch.robots.matching;
 import com.google.common.base.Optional;
 
 import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.RandomAccess;
 
-import static com.google.common.base.Optional.absent;
+import static com.google.common.base.Optional.fromNullable;
 import static com.google.common.base.Optional.of;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+/**
+ * Implements {@link MatcherUtils}, and adds primitive variants of its methods that return a specificity
+ * or an index in place of an {@link Optional}, so that matching on the hot path allocates nothing.
+ */
 public class MatcherUtilsImpl implements MatcherUtils {
 
+    /**
+     * Specificity returned by the primitive methods when nothing matches. Lower than any real
+     * specificity, which is never negative.
+     */
+    public static final double NO_MATCH = -1;
+
+    /**
+     * Index returned by the primitive methods when nothing matches.
+     */
+    public static final int NO_MATCH_INDEX = -1;
+
     @Override
     @Nonnull
     public <T, M extends Matchable<T>, Group extends Iterable<M>>
@@ -50,14 +67,34 @@ public class MatcherUtilsImpl implements MatcherUtils {
         checkNotNull(groups, "groups is null");
         checkNotNull(target, "target is null");
 
-        Optional<Group> argMax = absent();
-        Optional<Double> maxSpecificity = absent();
-
+        Group argMax = null;
+        double maxSpecificity = NO_MATCH;
         for (Group group : groups) {
-            Optional<Double> specificity = getMostSpecificMatchSpecificity(group, target);
-            if (specificity.isPresent() && (!maxSpecificity.isPresent() || specificity.get() > maxSpecificity.get())) {
+            final double specificity = mostSpecificMatchSpecificity(group, target);
+            if (specificity > maxSpecificity) {
+                maxSpecificity = specificity;
+                argMax = group;
+            }
+        }
+        return fromNullable(argMax);
+    }
+
+    /**
+     * Primitive variant of {@link #getMostSpecificMatchingGroup(Iterable, Object)}, returning the index
+     * of the matching group, or {@link #NO_MATCH_INDEX}. Allocates nothing when given a random access list.
+     */
+    public <T, M extends Matchable<T>, Group extends Iterable<M>>
+    int getMostSpecificMatchingGroupIndex(@Nonnull List<Group> groups, @Nonnull T target) {
+        checkNotNull(groups, "groups is null");
+        checkNotNull(target, "target is null");
+
+        int argMax = NO_MATCH_INDEX;
+        double maxSpecificity = NO_MATCH;
+        for (int i = 0; i < groups.size(); i++) {
+            final double specificity = mostSpecificMatchSpecificity(groups.get(i), target);
+            if (specificity > maxSpecificity) {
                 maxSpecificity = specificity;
-                argMax = of(group);
+                argMax = i;
             }
         }
         return argMax;
@@ -66,32 +103,55 @@ public class MatcherUtilsImpl implements MatcherUtils {
     @Override
     public <T, M extends Matchable<T>>
     Optional<Double> getMostSpecificMatchSpecificity(@Nonnull Iterable<M> matchables, @Nonnull T target) {
+        final double specificity = getMostSpecificMatchSpecificityValue(matchables, target);
+        return specificity == NO_MATCH ? Optional.<Double>absent() : of(specificity);
+    }
+
+    /**
+     * Primitive variant of {@link #getMostSpecificMatchSpecificity(Iterable, Object)}, returning
+     * {@link #NO_MATCH} if nothing matches.
+     */
+    public <T, M extends Matchable<T>>
+    double getMostSpecificMatchSpecificityValue(@Nonnull Iterable<M> matchables, @Nonnull T target) {
+        checkNotNull(matchables, "matchables is null");
+        checkNotNull(target, "target is null");
+        return mostSpecificMatchSpecificity(matchables, target);
+    }
+
+    @Override
+    public <T, M extends Matchable<T>>
+    Optional<M> getMostSpecificMatch(@Nonnull Iterable<M> matchables, @Nonnull T target) {
         checkNotNull(matchables, "matchables is null");
         checkNotNull(target, "target is null");
 
-        Optional<Double> maxSpecificity = absent();
+        M argMax = null;
+        double maxSpecificity = NO_MATCH;
         for (M matchable : matchables) {
-            Optional<Double> specificity = getMatchSpecificity(matchable.getMatcher(), target);
-            if (specificity.isPresent() && (!maxSpecificity.isPresent() || specificity.get() > maxSpecificity.get())) {
+            final double specificity = matchSpecificity(matchable.getMatcher(), target);
+            if (specificity > maxSpecificity) {
                 maxSpecificity = specificity;
+                argMax = matchable;
             }
         }
-        return maxSpecificity;
+        return fromNullable(argMax);
     }
 
-    @Override
+    /**
+     * Primitive variant of {@link #getMostSpecificMatch(Iterable, Object)}, returning the index of
+     * the match, or {@link #NO_MATCH_INDEX}.
+     */
     public <T, M extends Matchable<T>>
-    Optional<M> getMostSpecificMatch(@Nonnull Iterable<M> matchables, @Nonnull T target) {
+    int getMostSpecificMatchIndex(@Nonnull List<M> matchables, @Nonnull T target) {
         checkNotNull(matchables, "matchables is null");
         checkNotNull(target, "target is null");
 
-        double maxSpecificity = -1;
-        Optional<M> argMax = absent();
-        for (M matchable : matchables) {
-            Optional<Double> specificity = getMatchSpecificity(matchable.getMatcher(), target);
-            if (specificity.isPresent() && specificity.get() > maxSpecificity) {
-                maxSpecificity = specificity.get();
-                argMax = of(matchable);
+        int argMax = NO_MATCH_INDEX;
+        double maxSpecificity = NO_MATCH;
+        for (int i = 0; i < matchables.size(); i++) {
+            final double specificity = matchSpecificity(matchables.get(i).getMatcher(), target);
+            if (specificity > maxSpecificity) {
+                maxSpecificity = specificity;
+                argMax = i;
             }
         }
         return argMax;
@@ -99,14 +159,38 @@ public class MatcherUtilsImpl implements MatcherUtils {
 
     @Override
     public <T> Optional<Double> getMatchSpecificity(@Nonnull Matcher<T> matcher, @Nonnull T target) {
+        final double specificity = getMatchSpecificityValue(matcher, target);
+        return specificity == NO_MATCH ? Optional.<Double>absent() : of(specificity);
+    }
+
+    /**
+     * Primitive variant of {@link #getMatchSpecificity(Matcher, Object)}, returning {@link #NO_MATCH}
+     * if the matcher does not match.
+     */
+    public <T> double getMatchSpecificityValue(@Nonnull Matcher<T> matcher, @Nonnull T target) {
         checkNotNull(matcher, "matcher is null");
         checkNotNull(target, "target is null");
+        return matchSpecificity(matcher, target);
+    }
 
-        if (matcher.matches(target)) {
-            return of(matcher.getSpecificity());
+    private static <T, M extends Matchable<T>>
+    double mostSpecificMatchSpecificity(@Nonnull Iterable<M> matchables, @Nonnull T target) {
+        double maxSpecificity = NO_MATCH;
+        if (matchables instanceof List && matchables instanceof RandomAccess) {
+            final List<M> list = (List<M>) matchables;
+            for (int i = 0; i < list.size(); i++) {
+                maxSpecificity = Math.max(maxSpecificity, matchSpecificity(list.get(i).getMatcher(), target));
+            }
         } else {
-            return absent();
+            for (M matchable : matchables) {
+                maxSpecificity = Math.max(maxSpecificity, matchSpecificity(matchable.getMatcher(), target));
+            }
         }
+        return maxSpecificity;
+    }
+
+    private static <T> double matchSpecificity(@Nonnull Matcher<T> matcher, @Nonnull T target) {
+        return matcher.matches(target) ? matcher.getSpecificity() : NO_MATCH;
     }
 
 }
@@ -0,0 +1,162 @@
+package com.brandwatch.robots.matching;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.base.Charsets;
+
+import javax.annotation.Nonnull;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Normalizes the percent-encoding of URI paths, and of the path expressions matched against them, so
+ * that both can be compared character by character without decoding (RFC 3986, section 6.2.2):
+ * escaped unreserved characters are decoded, the hex digits of other escapes are upper case, and
+ * characters that may not appear in a URI (non-ASCII, controls, space, and stray '%') are encoded
+ * as UTF-8.
+ */
+public final class PercentEncoding {
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private PercentEncoding() {
+    }
+
+    /**
+     * Normalize the given value, returning the same instance if it is already normal, as is usually
+     * the case.
+     */
+    @Nonnull
+    public static CharSequence normalize(@Nonnull CharSequence value) {
+        checkNotNull(value, "value is null");
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c == '%' ? !isNormalEscape(value, i) : mustEncode(c)) {
+                return normalize(value, i);
+            }
+        }
+        return value;
+    }
+
+    @Nonnull
+    public static String normalize(@Nonnull String value) {
+        return normalize((CharSequence) value).toString();
+    }
+
+    @Nonnull
+    private static String normalize(@Nonnull CharSequence value, int from) {
+        final int length = value.length();
+        final StringBuilder builder = new StringBuilder(length + 8);
+        builder.append(value, 0, from);
+        int i = from;
+        while (i < length) {
+            final char c = value.charAt(i);
+            if (c == '%') {
+                final int high = i + 2 < length ? hexValue(value.charAt(i + 1)) : -1;
+                final int low = high >= 0 ? hexValue(value.charAt(i + 2)) : -1;
+                if (low < 0) {
+                    appendEscape(builder, '%');
+                    i++;
+                    continue;
+                }
+                final char decoded = (char) (high << 4 | low);
+                if (isUnreserved(decoded)) {
+                    builder.append(decoded);
+                } else {
+                    appendEscape(builder, decoded);
+                }
+                i += 3;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                appendEncoded(builder, value.subSequence(i, i + 2));
+                i += 2;
+            } else if (mustEncode(c)) {
+                appendEncoded(builder, String.valueOf(c));
+                i++;
+            } else {
+                builder.append(c);
+                i++;
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean isNormalEscape(@Nonnull CharSequence value, int offset) {
+        if (offset + 2 >= value.length()) {
+            return false;
+        }
+        final char high = value.charAt(offset + 1);
+        final char low = value.charAt(offset + 2);
+        if (!isUpperHexDigit(high) || !isUpperHexDigit(low)) {
+            return false;
+        }
+        return !isUnreserved((char) (hexValue(high) << 4 | hexValue(low)));
+    }
+
+    private static boolean mustEncode(char c) {
+        return c <= 0x20 || c >= 0x7F;
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    private static boolean isUpperHexDigit(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'F');
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else {
+            return -1;
+        }
+    }
+
+    private static void appendEncoded(@Nonnull StringBuilder builder, @Nonnull CharSequence chars) {
+        for (byte b : chars.toString().getBytes(Charsets.UTF_8)) {
+            appendEscape(builder, (char) (b & 0xFF));
+        }
+    }
+
+    private static void appendEscape(@Nonnull StringBuilder builder, char octet) {
+        builder.append('%').append(HEX_DIGITS[octet >> 4]).append(HEX_DIGITS[octet & 0xF]);
+    }
+}
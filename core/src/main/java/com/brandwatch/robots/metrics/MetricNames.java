@@ -0,0 +1,98 @@
+package com.brandwatch.robots.metrics;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+/**
+ * Names of the metrics reported to a {@link MetricsRegistry}.
+ */
+public final class MetricNames {
+
+    /** Counter: HTTP requests sent, including those following redirects. */
+    public static final String FETCH_REQUESTS = "robots.fetch.requests";
+    /** Counter: redirects followed. */
+    public static final String FETCH_REDIRECTS = "robots.fetch.redirects";
+    /** Counter: requests that timed out. */
+    public static final String FETCH_TIMEOUTS = "robots.fetch.timeouts";
+    /** Counter: requests that failed without a response, other than by timing out. */
+    public static final String FETCH_FAILURES = "robots.fetch.failures";
+    /** Histogram: milliseconds from sending a request to receiving the final response, after redirects. */
+    public static final String FETCH_LATENCY_MILLIS = "robots.fetch.latency.millis";
+    /** Histogram: bytes of robots.txt content read from each successful response. */
+    public static final String FETCH_BYTES = "robots.fetch.bytes";
+    /**
+     * Counters: final responses by status class, with one of the suffixes {@code 1xx}, {@code 2xx},
+     * {@code 3xx}, {@code 4xx}, {@code 5xx} or {@code other}.
+     */
+    public static final String FETCH_STATUS_PREFIX = "robots.fetch.status.";
+
+    /**
+     * Counters: robots.txt loaded, by outcome, with the lower case name of a
+     * {@link com.brandwatch.robots.RobotsEntry.Outcome} as suffix.
+     */
+    public static final String LOAD_OUTCOME_PREFIX = "robots.load.outcome.";
+    /** Counter: cached robots.txt revalidated, and found to be unchanged. */
+    public static final String LOAD_NOT_MODIFIED = "robots.load.notModified";
+    /** Histogram: microseconds spent parsing each robots.txt. */
+    public static final String PARSE_TIME_MICROS = "robots.parse.time.micros";
+    /** Histogram: directives in each parsed robots.txt. */
+    public static final String PARSE_DIRECTIVES = "robots.parse.directives";
+    /** Counter: robots.txt not parsed, because identical content had already been parsed. */
+    public static final String PARSE_SHARED = "robots.parse.shared";
+
+    /** Gauge: entries in the cache. */
+    public static final String CACHE_SIZE = "robots.cache.size";
+    /** Gauge: estimated heap retained by the cache, in bytes. Walks the cache, so sample it sparingly. */
+    public static final String CACHE_ESTIMATED_BYTES = "robots.cache.estimatedBytes";
+    /** Gauge: lookups answered from the cache, since it was created. */
+    public static final String CACHE_HITS = "robots.cache.hits";
+    /** Gauge: lookups not answered from the cache, since it was created. */
+    public static final String CACHE_MISSES = "robots.cache.misses";
+    /** Gauge: entries evicted from the cache, since it was created. */
+    public static final String CACHE_EVICTIONS = "robots.cache.evictions";
+    /** Counter: background refreshes started for entries due a refresh. */
+    public static final String CACHE_REFRESHES = "robots.cache.refreshes";
+
+    /** Counter: resources checked and allowed. */
+    public static final String CHECK_ALLOWED = "robots.check.allowed";
+    /** Counter: resources checked and disallowed. */
+    public static final String CHECK_DISALLOWED = "robots.check.disallowed";
+    /**
+     * Histogram: nanoseconds taken by each synchronous check, including loading the robots.txt if it
+     * was not cached. Only recorded when a registry other than the no-op default is in use.
+     */
+    public static final String CHECK_LATENCY_NANOS = "robots.check.latency.nanos";
+
+    private MetricNames() {
+    }
+}
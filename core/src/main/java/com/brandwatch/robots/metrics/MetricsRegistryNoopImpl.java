@@ -0,0 +1,88 @@
+package com.brandwatch.robots.metrics;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Registry that discards everything reported to it. This is the default, so that metrics cost
+ * nothing unless they are wanted.
+ */
+@Immutable
+public final class MetricsRegistryNoopImpl implements MetricsRegistry {
+
+    public static final MetricsRegistryNoopImpl INSTANCE = new MetricsRegistryNoopImpl();
+
+    private static final Counter NOOP_COUNTER = new Counter() {
+        @Override
+        public void increment() {
+        }
+
+        @Override
+        public void increment(long count) {
+        }
+    };
+
+    private static final Histogram NOOP_HISTOGRAM = new Histogram() {
+        @Override
+        public void update(long value) {
+        }
+    };
+
+    private MetricsRegistryNoopImpl() {
+    }
+
+    @Nonnull
+    @Override
+    public Counter counter(@Nonnull String name) {
+        checkNotNull(name, "name is null");
+        return NOOP_COUNTER;
+    }
+
+    @Nonnull
+    @Override
+    public Histogram histogram(@Nonnull String name) {
+        checkNotNull(name, "name is null");
+        return NOOP_HISTOGRAM;
+    }
+
+    @Override
+    public void gauge(@Nonnull String name, @Nonnull Gauge gauge) {
+        checkNotNull(name, "name is null");
+        checkNotNull(gauge, "gauge is null");
+    }
+}
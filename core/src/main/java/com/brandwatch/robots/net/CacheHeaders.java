@@ -0,0 +1,119 @@
+package com.brandwatch.robots.net;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.base.Splitter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import static com.brandwatch.robots.net.ValidatedCharSource.NO_MAX_AGE;
+
+/**
+ * Works out the freshness lifetime of a response from its caching headers, following RFC 7234: the
+ * {@code max-age} directive of {@code Cache-Control} takes precedence over {@code Expires}, and
+ * {@code no-cache} or {@code no-store} make the response stale immediately.
+ */
+final class CacheHeaders {
+
+    private static final Splitter DIRECTIVE_SPLITTER = Splitter.on(',').trimResults().omitEmptyStrings();
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    private CacheHeaders() {
+    }
+
+    /**
+     * Get the freshness lifetime in milliseconds, or {@link ValidatedCharSource#NO_MAX_AGE} if the
+     * headers do not specify one.
+     *
+     * @param cacheControl the {@code Cache-Control} header, if present
+     * @param expires      the {@code Expires} header, if present
+     * @param date         the {@code Date} header, if present; the current time is used otherwise
+     * @param nowMillis    the current time
+     */
+    static long getMaxAgeMillis(@Nullable String cacheControl, @Nullable String expires,
+                                @Nullable String date, long nowMillis) {
+        if (cacheControl != null) {
+            for (String directive : DIRECTIVE_SPLITTER.split(cacheControl)) {
+                final String name = directive.toLowerCase(Locale.ENGLISH);
+                if (name.equals("no-cache") || name.equals("no-store")) {
+                    return 0;
+                }
+                if (name.startsWith("max-age=")) {
+                    final long seconds = parseSeconds(directive.substring("max-age=".length()));
+                    if (seconds >= 0) {
+                        return TimeUnit.SECONDS.toMillis(seconds);
+                    }
+                }
+            }
+        }
+        if (expires != null) {
+            final Date expiresDate = parseDate(expires);
+            if (expiresDate == null) {
+                // An invalid date, such as "0", means already expired
+                return 0;
+            }
+            final Date dateDate = date != null ? parseDate(date) : null;
+            final long from = dateDate != null ? dateDate.getTime() : nowMillis;
+            return Math.max(0, expiresDate.getTime() - from);
+        }
+        return NO_MAX_AGE;
+    }
+
+    private static long parseSeconds(@Nonnull String value) {
+        final String unquoted = value.trim().replace("\"", "");
+        try {
+            return Long.parseLong(unquoted);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Nullable
+    private static Date parseDate(@Nonnull String value) {
+        final SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return format.parse(value.trim());
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+}
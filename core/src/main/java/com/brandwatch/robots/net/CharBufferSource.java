@@ -0,0 +1,78 @@
+package com.brandwatch.robots.net;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.io.CharSource;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A {@link CharSource} whose content is decoded all at once into a {@link CharBuffer}, which can then
+ * be handed on as it is, rather than copied again through a {@link Reader}.
+ */
+public abstract class CharBufferSource extends CharSource {
+
+    /**
+     * Read the whole content into a buffer, positioned at its start.
+     */
+    @Nonnull
+    public abstract CharBuffer readBuffer() throws IOException;
+
+    @Override
+    public Reader openStream() throws IOException {
+        return CharSource.wrap(readBuffer()).openStream();
+    }
+
+    @Override
+    public String read() throws IOException {
+        return readBuffer().toString();
+    }
+
+    /**
+     * Read the whole content of the given source into a buffer; directly, if it is a
+     * {@code CharBufferSource}.
+     */
+    @Nonnull
+    public static CharBuffer readBuffer(@Nonnull CharSource source) throws IOException {
+        checkNotNull(source, "source is null");
+        return source instanceof CharBufferSource
+                ? ((CharBufferSource) source).readBuffer()
+                : CharBuffer.wrap(source.read());
+    }
+}
@@ -34,6 +34,7 @@ package com.brandwatch.robots.net;
  */
 
 import com.google.common.io.CharSource;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import javax.annotation.Nonnull;
 import java.io.Closeable;
@@ -45,6 +46,23 @@ public interface CharSourceSupplier extends Closeable {
     @Nonnull
     CharSource get(@Nonnull URI resource);
 
+    /**
+     * Asynchronous variant of {@link #get(URI)}. The returned future completes once the resource is
+     * ready to be read without further waiting on the remote host, or fails with an
+     * {@link IOException} if it could not be retrieved.
+     */
+    @Nonnull
+    ListenableFuture<CharSource> getAsync(@Nonnull URI resource);
+
+    /**
+     * Conditional variant of {@link #getAsync(URI)}. If the resource has not changed since it was
+     * retrieved with the given validators, the returned source throws
+     * {@link com.brandwatch.robots.NotModified} when opened, rather than supplying the content again.
+     * Suppliers that cannot make conditional requests may ignore the validators.
+     */
+    @Nonnull
+    ListenableFuture<ValidatedCharSource> getAsync(@Nonnull URI resource, @Nonnull Validators validators);
+
     @Override
     void close() throws IOException;
 
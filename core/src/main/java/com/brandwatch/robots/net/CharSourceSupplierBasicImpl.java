@@ -35,6 +35,8 @@ package com.brandwatch.robots.net;
 
 import com.brandwatch.robots.RobotsConfig;
 import com.google.common.io.CharSource;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
@@ -72,6 +74,19 @@ public final class CharSourceSupplierBasicImpl implements CharSourceSupplier {
         };
     }
 
+    @Nonnull
+    @Override
+    public ListenableFuture<CharSource> getAsync(@Nonnull URI resource) {
+        return Futures.immediateFuture(get(resource));
+    }
+
+    @Nonnull
+    @Override
+    public ListenableFuture<ValidatedCharSource> getAsync(@Nonnull URI resource, @Nonnull Validators validators) {
+        checkNotNull(validators, "validators is null");
+        return Futures.immediateFuture(new ValidatedCharSource(get(resource), Validators.NONE));
+    }
+
     @Override
     public void close() throws IOException {
     }
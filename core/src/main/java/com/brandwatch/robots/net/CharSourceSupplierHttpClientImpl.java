@@ -33,76 +33,201 @@ package com.brandwatch.robots.net;
  * #L%
  */
 
+import com.brandwatch.robots.NotModified;
 import com.brandwatch.robots.RobotsConfig;
 import com.brandwatch.robots.TemporaryAllow;
 import com.brandwatch.robots.TemporaryDisallow;
+import com.brandwatch.robots.metrics.Counter;
+import com.brandwatch.robots.metrics.Histogram;
+import com.brandwatch.robots.metrics.MetricNames;
+import com.brandwatch.robots.metrics.MetricsRegistry;
+import com.brandwatch.robots.metrics.MetricsRegistryNoopImpl;
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
 import com.google.common.base.Optional;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.CharSource;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.Response.Status.Family;
 import javax.ws.rs.core.Response.StatusType;
-import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import static com.google.common.base.Optional.absent;
 import static com.google.common.base.Optional.fromNullable;
-import static com.google.common.base.Optional.of;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.Lists.newArrayListWithCapacity;
+import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static java.text.MessageFormat.format;
 
 public class CharSourceSupplierHttpClientImpl implements CharSourceSupplier {
 
     private static final Logger log = LoggerFactory.getLogger(CharSourceSupplierHttpClientImpl.class);
 
+    /**
+     * Most bytes read from an unwanted response body so its connection can be reused.
+     */
+    private static final long DRAIN_LIMIT_BYTES = 64 * 1024;
+
+    /**
+     * Most buffers kept for reading response bodies, each up to the maximum file size.
+     */
+    private static final int MAX_POOLED_BUFFERS = 16;
+
     private final Client client;
     private final RobotsConfig config;
 
+    private final Counter requests;
+    private final Counter redirects;
+    private final Counter timeouts;
+    private final Counter failures;
+    private final Histogram latencyMillis;
+    private final Histogram bytes;
+    private final Map<Family, Counter> statuses = new EnumMap<Family, Counter>(Family.class);
+    private final ByteBufferPool buffers = new ByteBufferPool(MAX_POOLED_BUFFERS);
+
+    @GuardedBy("this")
+    private ScheduledExecutorService timeoutScheduler;
+
     public CharSourceSupplierHttpClientImpl(@Nonnull RobotsConfig config, Client client) {
+        this(config, client, MetricsRegistryNoopImpl.INSTANCE);
+    }
+
+    public CharSourceSupplierHttpClientImpl(@Nonnull RobotsConfig config, Client client,
+                                            @Nonnull MetricsRegistry metrics) {
         this.config = checkNotNull(config, "config is null");
         this.client = checkNotNull(client, "client is null");
+        checkNotNull(metrics, "metrics is null");
+        this.requests = metrics.counter(MetricNames.FETCH_REQUESTS);
+        this.redirects = metrics.counter(MetricNames.FETCH_REDIRECTS);
+        this.timeouts = metrics.counter(MetricNames.FETCH_TIMEOUTS);
+        this.failures = metrics.counter(MetricNames.FETCH_FAILURES);
+        this.latencyMillis = metrics.histogram(MetricNames.FETCH_LATENCY_MILLIS);
+        this.bytes = metrics.histogram(MetricNames.FETCH_BYTES);
+        final String[] statusClasses = {"1xx", "2xx", "3xx", "4xx", "5xx", "other"};
+        for (Family family : Family.values()) {
+            statuses.put(family, metrics.counter(MetricNames.FETCH_STATUS_PREFIX + statusClasses[family.ordinal()]));
+        }
     }
 
     @Override
     public CharSource get(final URI resource) {
         checkNotNull(resource, "resource is null");
-        return new CharSource() {
+        return new CharBufferSource() {
+            @Nonnull
             @Override
-            public Reader openStream() throws IOException {
+            public CharBuffer readBuffer() throws IOException {
+                final long startNanos = System.nanoTime();
                 final Response response;
                 try {
                     response = getResponseFollowingRedirects(resource);
                 } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 } catch (TimeoutException e) {
+                    timeouts.increment();
+                    throw new IOException(e);
+                } catch (ProcessingException e) {
+                    failures.increment();
                     throw new IOException(e);
+                } catch (RuntimeException e) {
+                    failures.increment();
+                    throw e;
                 }
 
-                return handleResponse(response);
+                recordResponse(startNanos, response);
+                return handleResponse(response, Validators.NONE);
             }
         };
     }
 
+    @Nonnull
+    @Override
+    public ListenableFuture<CharSource> getAsync(@Nonnull final URI resource) {
+        return Futures.<ValidatedCharSource, CharSource>transform(
+                getAsync(resource, Validators.NONE), Functions.<CharSource>identity());
+    }
+
+    @Nonnull
+    @Override
+    public ListenableFuture<ValidatedCharSource> getAsync(@Nonnull final URI resource,
+                                                          @Nonnull final Validators validators) {
+        checkNotNull(resource, "resource is null");
+        checkNotNull(validators, "validators is null");
+        final List<URI> visited = newArrayListWithCapacity(config.getMaxRedirectHops() + 1);
+        final long startNanos = System.nanoTime();
+        final ListenableFuture<Response> response =
+                getResponseFollowingRedirectsAsync(resource, validators, visited);
+        Futures.addCallback(response, new FutureCallback<Response>() {
+            @Override
+            public void onSuccess(Response result) {
+                recordResponse(startNanos, result);
+            }
+
+            @Override
+            public void onFailure(@Nonnull Throwable t) {
+                if (t instanceof IOException && t.getCause() instanceof TimeoutException) {
+                    timeouts.increment();
+                } else {
+                    failures.increment();
+                }
+            }
+        });
+        return Futures.transform(response,
+                new Function<Response, ValidatedCharSource>() {
+                    @Override
+                    public ValidatedCharSource apply(final Response response) {
+                        final CharSource source = new CharBufferSource() {
+                            @Nonnull
+                            @Override
+                            public CharBuffer readBuffer() throws IOException {
+                                return handleResponse(response, validators);
+                            }
+                        };
+                        return new ValidatedCharSource(source, getValidators(response),
+                                response.getStatusInfo().getStatusCode(), getMaxAgeMillis(response));
+                    }
+                });
+    }
+
     @Override
     public void close() throws IOException {
+        synchronized (this) {
+            if (timeoutScheduler != null) {
+                timeoutScheduler.shutdownNow();
+            }
+        }
         client.close();
     }
 
@@ -111,43 +236,85 @@ public class CharSourceSupplierHttpClientImpl implements CharSourceSupplier {
         final List<URI> visited = newArrayListWithCapacity(config.getMaxRedirectHops() + 1);
         URI location = resource;
 
-        Optional<Response> response = absent();
-
-        while (!response.isPresent()) {
+        while (true) {
+            final Response response = getResponse(location, Validators.NONE);
+            visited.add(location);
 
-            response = of(getResponse(location));
-            visited.add(resource);
+            final Optional<URI> redirect = getRedirect(location, response, visited);
+            if (!redirect.isPresent()) {
+                return response;
+            }
+            release(response);
+            location = redirect.get();
+        }
+    }
 
-            if (response.get().getStatusInfo().getFamily() == Family.REDIRECTION) {
-                final Optional<URI> redirect = of(response.get().getLocation());
+    @Nonnull
+    private ListenableFuture<Response> getResponseFollowingRedirectsAsync(@Nonnull final URI location,
+                                                                          @Nonnull final Validators validators,
+                                                                          @Nonnull final List<URI> visited) {
+        return Futures.transform(getResponseAsync(location, validators), new AsyncFunction<Response, Response>() {
+            @Override
+            public ListenableFuture<Response> apply(Response response) {
+                visited.add(location);
 
+                final Optional<URI> redirect = getRedirect(location, response, visited);
                 if (!redirect.isPresent()) {
-                    log.warn("Missing redirect location in response for: {}", location);
-                } else if (visited.contains(redirect.get())) {
-                    log.warn("Detected redirect cycle: {}", visited);
-                } else if (visited.size() > config.getMaxRedirectHops()) {
-                    log.warn("Reached max hops following redirects: {}", visited);
-                } else {
-                    log.debug("Following redirect: {} => {}", location, redirect);
-                    location = redirect.get();
-                    response.get().close();
-                    response = absent();
+                    return Futures.immediateFuture(response);
                 }
+                release(response);
+                return getResponseFollowingRedirectsAsync(redirect.get(), validators, visited);
             }
+        });
+    }
+
+    /**
+     * Get the location to follow if the response is a redirect, or absent if the response should be
+     * handled as it is.
+     */
+    @Nonnull
+    private Optional<URI> getRedirect(@Nonnull URI location, @Nonnull Response response, @Nonnull List<URI> visited) {
+        if (response.getStatusInfo().getFamily() != Family.REDIRECTION) {
+            return absent();
         }
 
-        return response.get();
+        final Optional<URI> redirect = fromNullable(response.getLocation());
+
+        if (!redirect.isPresent()) {
+            log.warn("Missing redirect location in response for: {}", location);
+        } else if (visited.contains(redirect.get())) {
+            log.warn("Detected redirect cycle: {}", visited);
+        } else if (visited.size() > config.getMaxRedirectHops()) {
+            log.warn("Reached max hops following redirects: {}", visited);
+        } else {
+            log.debug("Following redirect: {} => {}", location, redirect.get());
+            redirects.increment();
+            return redirect;
+        }
+        return absent();
     }
 
     @Nonnull
-    private Response getResponse(@Nonnull final URI resource) throws InterruptedException, TimeoutException {
+    private Invocation buildRequest(@Nonnull final URI resource, @Nonnull final Validators validators) {
         checkNotNull(resource, "resource");
-        Future<Response> future = client.target(resource)
+        Invocation.Builder request = client.target(resource)
                 .request()
                 .accept(MediaType.TEXT_PLAIN_TYPE.withCharset(config.getDefaultCharset().displayName()))
-                .header(HttpHeaders.USER_AGENT, config.getUserAgent())
-                .buildGet()
-                .submit();
+                .header(HttpHeaders.USER_AGENT, config.getUserAgent());
+        if (validators.getEntityTag() != null) {
+            request = request.header(HttpHeaders.IF_NONE_MATCH, validators.getEntityTag());
+        }
+        if (validators.getLastModified() != null) {
+            request = request.header(HttpHeaders.IF_MODIFIED_SINCE, validators.getLastModified());
+        }
+        return request.buildGet();
+    }
+
+    @Nonnull
+    private Response getResponse(@Nonnull final URI resource, @Nonnull final Validators validators)
+            throws InterruptedException, TimeoutException {
+        requests.increment();
+        Future<Response> future = buildRequest(resource, validators).submit();
         try {
             return future.get(config.getRequestTimeoutMillis(), TimeUnit.MILLISECONDS);
         } catch (ExecutionException e) {
@@ -158,9 +325,73 @@ public class CharSourceSupplierHttpClientImpl implements CharSourceSupplier {
     }
 
     @Nonnull
-    private Reader handleResponse(@Nonnull Response response) throws TemporaryAllow, TemporaryDisallow {
+    private ListenableFuture<Response> getResponseAsync(@Nonnull final URI resource,
+                                                        @Nonnull final Validators validators) {
+        final SettableFuture<Response> result = SettableFuture.create();
+        requests.increment();
+
+        final Future<Response> request = buildRequest(resource, validators).submit(new InvocationCallback<Response>() {
+            @Override
+            public void completed(Response response) {
+                if (!result.set(response)) {
+                    response.close();
+                }
+            }
+
+            @Override
+            public void failed(Throwable throwable) {
+                // Connection failures, such as unknown hosts and refused or reset connections, arrive as a
+                // ProcessingException; report them as IOException, like timeouts, so the host is unreachable
+                result.setException(throwable instanceof IOException ? throwable : new IOException(throwable));
+            }
+        });
+
+        final ScheduledFuture<?> timeout = getTimeoutScheduler().schedule(new Runnable() {
+            @Override
+            public void run() {
+                final TimeoutException cause = new TimeoutException(format(
+                        "No response from {0} after {1}ms", resource, config.getRequestTimeoutMillis()));
+                if (result.setException(new IOException(cause))) {
+                    request.cancel(true);
+                }
+            }
+        }, config.getRequestTimeoutMillis(), TimeUnit.MILLISECONDS);
+
+        result.addListener(new Runnable() {
+            @Override
+            public void run() {
+                timeout.cancel(false);
+            }
+        }, directExecutor());
+
+        return result;
+    }
+
+    @Nonnull
+    private synchronized ScheduledExecutorService getTimeoutScheduler() {
+        if (timeoutScheduler == null) {
+            timeoutScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("robots-request-timeout-%d")
+                    .build());
+        }
+        return timeoutScheduler;
+    }
+
+    @Nonnull
+    private CharBuffer handleResponse(@Nonnull Response response, @Nonnull Validators validators)
+            throws IOException {
         final StatusType info = response.getStatusInfo();
 
+        if (info.getFamily() == Family.SUCCESSFUL) {
+            return conditionalAllow(response);
+        }
+        release(response);
+
+        if (info.getStatusCode() == Status.NOT_MODIFIED.getStatusCode() && !validators.isEmpty()) {
+            throw new NotModified(statusMessage(info));
+        }
+
         final Optional<Status> status = fromNullable(Status.fromStatusCode(info.getStatusCode()));
         if (status.isPresent()) {
             switch (status.get()) {
@@ -172,8 +403,6 @@ public class CharSourceSupplierHttpClientImpl implements CharSourceSupplier {
         }
 
         switch (info.getFamily()) {
-            case SUCCESSFUL:
-                return conditionalAllow(response);
             case INFORMATIONAL:
             case REDIRECTION:
             case CLIENT_ERROR:
@@ -186,25 +415,92 @@ public class CharSourceSupplierHttpClientImpl implements CharSourceSupplier {
         throw new AssertionError("Unknown status family: " + info.getFamily());
     }
 
+    /**
+     * Read the content of a successful response, up to the maximum file size, into a pooled buffer,
+     * and decode it from there in one pass. The response is released as soon as it has been read.
+     */
     @Nonnull
-    private Reader conditionalAllow(@Nonnull final Response response) {
-        return new InputStreamReader(
-                ByteStreams.limit(
-                        new BufferedInputStream((InputStream) response.getEntity()),
-                        config.getMaxFileSizeBytes()),
-                config.getDefaultCharset());
+    private CharBuffer conditionalAllow(@Nonnull Response response) throws IOException {
+        final ByteBuffer buffer = buffers.acquire(config.getMaxFileSizeBytes());
+        try {
+            try {
+                final int count = ByteStreams.read((InputStream) response.getEntity(),
+                        buffer.array(), buffer.arrayOffset(), buffer.limit());
+                buffer.limit(count);
+            } finally {
+                release(response);
+            }
+            bytes.update(buffer.remaining());
+            return ContentDecoder.decode(buffer, getCharset(response), config.getDefaultCharset());
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    /**
+     * Finish with a response whose content is not needed. A short body is read and discarded first, so
+     * the connection is left at the end of the response and can be reused; a longer one is not worth
+     * reading, and its connection is simply closed.
+     */
+    private static void release(@Nonnull Response response) {
+        try {
+            final Object entity = response.getEntity();
+            if (entity instanceof InputStream) {
+                ByteStreams.copy(ByteStreams.limit((InputStream) entity, DRAIN_LIMIT_BYTES),
+                        ByteStreams.nullOutputStream());
+            }
+        } catch (IOException e) {
+            log.debug("Unable to drain response: {}", e.toString());
+        } finally {
+            response.close();
+        }
+    }
+
+    private void recordResponse(long startNanos, @Nonnull Response response) {
+        latencyMillis.update(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        statuses.get(response.getStatusInfo().getFamily()).increment();
     }
 
     @Nonnull
-    private Reader fullAllow(@Nonnull String reason, @Nonnull Object... args) throws TemporaryAllow {
+    private CharBuffer fullAllow(@Nonnull String reason, @Nonnull Object... args) throws TemporaryAllow {
         throw new TemporaryAllow(format(reason, args));
     }
 
     @Nonnull
-    private Reader fullDisallow(@Nonnull String reason, @Nonnull Object... args) throws TemporaryDisallow {
+    private CharBuffer fullDisallow(@Nonnull String reason, @Nonnull Object... args) throws TemporaryDisallow {
         throw new TemporaryDisallow(format(reason, args));
     }
 
+    @Nonnull
+    private static Validators getValidators(@Nonnull Response response) {
+        return new Validators(
+                response.getHeaderString(HttpHeaders.ETAG),
+                response.getHeaderString(HttpHeaders.LAST_MODIFIED));
+    }
+
+    /**
+     * The charset declared by the response's {@code Content-Type}, if any.
+     */
+    @Nullable
+    private static String getCharset(@Nonnull Response response) {
+        final MediaType type;
+        try {
+            type = response.getMediaType();
+        } catch (RuntimeException e) {
+            log.debug("Ignoring invalid content type: {}", e.toString());
+            return null;
+        }
+        return type == null ? null : type.getParameters().get(MediaType.CHARSET_PARAMETER);
+    }
+
+    private static long getMaxAgeMillis(@Nonnull Response response) {
+        return CacheHeaders.getMaxAgeMillis(
+                response.getHeaderString(HttpHeaders.CACHE_CONTROL),
+                response.getHeaderString(HttpHeaders.EXPIRES),
+                response.getHeaderString(HttpHeaders.DATE),
+                System.currentTimeMillis());
+    }
+
     private static String statusMessage(StatusType info) {
         return (info.getReasonPhrase() != null)
                 ? format("response status: {0} \"{1}\"", info.getStatusCode(), info.getReasonPhrase())
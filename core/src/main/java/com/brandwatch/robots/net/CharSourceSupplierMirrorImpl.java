@@ -0,0 +1,150 @@
+package com.brandwatch.robots.net;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.RobotsConfig;
+import com.brandwatch.robots.TemporaryAllow;
+import com.google.common.io.CharSource;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Supplies robots.txt files from a local {@link RobotsMirror} rather than the network, so that
+ * resources can be evaluated against previously archived files at the speed of the disk. Hosts
+ * missing from the mirror are treated as though their robots.txt was not found, and so allow all.
+ * Since nothing is retrieved, validators are ignored.
+ */
+public final class CharSourceSupplierMirrorImpl implements CharSourceSupplier {
+
+    private static final int NOT_FOUND = 404;
+
+    @Nonnull
+    private final RobotsConfig config;
+    @Nonnull
+    private final RobotsMirror mirror;
+
+    public CharSourceSupplierMirrorImpl(@Nonnull RobotsConfig config, @Nonnull RobotsMirror mirror) {
+        this.config = checkNotNull(config, "config is null");
+        this.mirror = checkNotNull(mirror, "mirror is null");
+    }
+
+    @Nonnull
+    @Override
+    public CharSource get(@Nonnull URI resource) {
+        return source(resource);
+    }
+
+    @Nonnull
+    @Override
+    public ListenableFuture<CharSource> getAsync(@Nonnull URI resource) {
+        return Futures.<CharSource>immediateFuture(source(resource));
+    }
+
+    @Nonnull
+    @Override
+    public ListenableFuture<ValidatedCharSource> getAsync(@Nonnull URI resource, @Nonnull Validators validators) {
+        checkNotNull(validators, "validators is null");
+        final MirroredSource source = source(resource);
+        return Futures.immediateFuture(new ValidatedCharSource(
+                source, Validators.NONE, source.found ? ValidatedCharSource.UNKNOWN_STATUS : NOT_FOUND,
+                ValidatedCharSource.NO_MAX_AGE));
+    }
+
+    @Override
+    public void close() throws IOException {
+        mirror.close();
+    }
+
+    @Nonnull
+    private MirroredSource source(@Nonnull URI resource) {
+        checkNotNull(resource, "resource is null");
+        final Origin origin = Origin.of(resource);
+        try {
+            return new MirroredSource(origin, mirror.get(origin));
+        } catch (IOException e) {
+            return new MirroredSource(origin, e);
+        }
+    }
+
+    /**
+     * The body mirrored for an origin, decoded when read. Reading fails with {@link TemporaryAllow}
+     * if there is none, or with the exception the mirror failed with.
+     */
+    private final class MirroredSource extends CharBufferSource {
+
+        @Nonnull
+        private final Origin origin;
+        private final ByteBuffer body;
+        private final IOException failure;
+        private final boolean found;
+
+        MirroredSource(@Nonnull Origin origin, ByteBuffer body) {
+            this.origin = origin;
+            this.body = body;
+            this.failure = null;
+            this.found = body != null;
+        }
+
+        MirroredSource(@Nonnull Origin origin, @Nonnull IOException failure) {
+            this.origin = origin;
+            this.body = null;
+            this.failure = failure;
+            this.found = true;
+        }
+
+        @Nonnull
+        @Override
+        public CharBuffer readBuffer() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+            if (body == null) {
+                throw new TemporaryAllow("No robots.txt mirrored for " + origin);
+            }
+            final ByteBuffer bytes = body.duplicate();
+            if (bytes.remaining() > config.getMaxFileSizeBytes()) {
+                bytes.limit(bytes.position() + config.getMaxFileSizeBytes());
+            }
+            return ContentDecoder.decode(bytes, null, config.getDefaultCharset());
+        }
+    }
+}
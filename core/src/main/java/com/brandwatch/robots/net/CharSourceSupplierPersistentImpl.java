@@ -0,0 +1,239 @@
+package com.brandwatch.robots.net;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.ExpiryPolicy;
+import com.brandwatch.robots.RobotsEntry;
+import com.brandwatch.robots.TemporaryAllow;
+import com.brandwatch.robots.TemporaryDisallow;
+import com.google.common.base.Function;
+import com.google.common.io.CharSource;
+import com.google.common.io.Closer;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.CharBuffer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Strings.nullToEmpty;
+
+/**
+ * Decorates another {@link CharSourceSupplier}, recording each retrieval in a {@link ResourceStore}
+ * and answering later requests for the same resource from the store until the record expires. Each
+ * record expires when the {@link ExpiryPolicy} says an entry loaded from it would, and is replayed
+ * with its status code and the freshness lifetime it has left.
+ * Failures to reach the host and server errors are not recorded, so they are retried on the next
+ * request. Nor are responses to conditional requests saying the resource is unchanged, as they carry
+ * no content. Conditional requests always go to the delegate, since the caller already holds a copy
+ * and is asking whether it is still current.
+ */
+public final class CharSourceSupplierPersistentImpl implements CharSourceSupplier {
+
+    private static final Logger log = LoggerFactory.getLogger(CharSourceSupplierPersistentImpl.class);
+
+    @Nonnull
+    private final ExpiryPolicy expiryPolicy;
+    @Nonnull
+    private final CharSourceSupplier delegate;
+    @Nonnull
+    private final ResourceStore store;
+
+    public CharSourceSupplierPersistentImpl(
+            @Nonnull ExpiryPolicy expiryPolicy,
+            @Nonnull CharSourceSupplier delegate,
+            @Nonnull ResourceStore store) {
+        this.expiryPolicy = checkNotNull(expiryPolicy, "expiryPolicy is null");
+        this.delegate = checkNotNull(delegate, "delegate is null");
+        this.store = checkNotNull(store, "store is null");
+    }
+
+    @Nonnull
+    @Override
+    public CharSource get(@Nonnull URI resource) {
+        checkNotNull(resource, "resource is null");
+        final StoredResource stored = lookup(resource);
+        if (stored != null) {
+            return replay(stored);
+        }
+        return record(resource, delegate.get(resource), Validators.NONE,
+                ValidatedCharSource.UNKNOWN_STATUS, ValidatedCharSource.NO_MAX_AGE);
+    }
+
+    @Nonnull
+    @Override
+    public ListenableFuture<CharSource> getAsync(@Nonnull final URI resource) {
+        checkNotNull(resource, "resource is null");
+        final StoredResource stored = lookup(resource);
+        if (stored != null) {
+            return Futures.immediateFuture(replay(stored));
+        }
+        return Futures.transform(delegate.getAsync(resource), new Function<CharSource, CharSource>() {
+            @Override
+            public CharSource apply(CharSource source) {
+                return record(resource, source, Validators.NONE,
+                        ValidatedCharSource.UNKNOWN_STATUS, ValidatedCharSource.NO_MAX_AGE);
+            }
+        });
+    }
+
+    @Nonnull
+    @Override
+    public ListenableFuture<ValidatedCharSource> getAsync(@Nonnull final URI resource,
+                                                          @Nonnull Validators validators) {
+        checkNotNull(resource, "resource is null");
+        checkNotNull(validators, "validators is null");
+        final StoredResource stored = validators.isEmpty() ? lookup(resource) : null;
+        if (stored != null) {
+            return Futures.immediateFuture(new ValidatedCharSource(replay(stored), stored.getValidators(),
+                    stored.getStatusCode(), Math.max(0, stored.getExpiresMillis() - System.currentTimeMillis())));
+        }
+        return Futures.transform(delegate.getAsync(resource, validators),
+                new Function<ValidatedCharSource, ValidatedCharSource>() {
+                    @Override
+                    public ValidatedCharSource apply(ValidatedCharSource source) {
+                        return new ValidatedCharSource(
+                                record(resource, source, source.getValidators(), source.getStatusCode(),
+                                        source.getMaxAgeMillis()),
+                                source.getValidators(), source.getStatusCode(), source.getMaxAgeMillis());
+                    }
+                });
+    }
+
+    @Override
+    public void close() throws IOException {
+        final Closer closer = Closer.create();
+        closer.register(delegate);
+        closer.register(store);
+        closer.close();
+    }
+
+    @Nullable
+    private StoredResource lookup(@Nonnull URI resource) {
+        final StoredResource stored;
+        try {
+            stored = store.get(resource.toString());
+        } catch (IOException e) {
+            log.warn("Unable to read {} from persistent store", resource, e);
+            return null;
+        }
+        if (stored == null || stored.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        log.debug("Serving {} from persistent store", resource);
+        return stored;
+    }
+
+    @Nonnull
+    private static CharSource replay(@Nonnull final StoredResource stored) {
+        return new CharBufferSource() {
+            @Nonnull
+            @Override
+            public CharBuffer readBuffer() throws IOException {
+                switch (stored.getOutcome()) {
+                    case CONTENT:
+                        return CharBuffer.wrap(stored.getContent());
+                    case ALLOW:
+                        throw new TemporaryAllow(stored.getContent());
+                    case DISALLOW:
+                        throw new TemporaryDisallow(stored.getContent());
+                }
+                throw new AssertionError("Unknown outcome: " + stored.getOutcome());
+            }
+        };
+    }
+
+    /**
+     * Record the content or outcome of the given source when it is read; except for server errors,
+     * which are expected to be transient. A disallow whose status is unknown may have been a server
+     * error, so it is not recorded either.
+     */
+    @Nonnull
+    private CharSource record(@Nonnull final URI resource, @Nonnull final CharSource source,
+                              @Nonnull final Validators validators, final int statusCode,
+                              final long maxAgeMillis) {
+        return new CharBufferSource() {
+            @Nonnull
+            @Override
+            public CharBuffer readBuffer() throws IOException {
+                final CharBuffer content;
+                try {
+                    content = CharBufferSource.readBuffer(source);
+                } catch (TemporaryAllow e) {
+                    save(StoredResource.Outcome.ALLOW, nullToEmpty(e.getMessage()));
+                    throw e;
+                } catch (TemporaryDisallow e) {
+                    if (statusCode != ValidatedCharSource.UNKNOWN_STATUS && statusCode < 500) {
+                        save(StoredResource.Outcome.DISALLOW, nullToEmpty(e.getMessage()));
+                    }
+                    throw e;
+                }
+                save(StoredResource.Outcome.CONTENT, content.toString());
+                return content;
+            }
+
+            private void save(@Nonnull StoredResource.Outcome outcome, @Nonnull String content) {
+                final long now = System.currentTimeMillis();
+                put(resource, new StoredResource(outcome, content, validators, statusCode, maxAgeMillis,
+                        now, expiresMillis(now, outcome, maxAgeMillis)));
+            }
+        };
+    }
+
+    /**
+     * Get the time at which an entry loaded from a record with the given outcome would expire. Only
+     * successful responses and client errors are recorded, so those are the outcomes the policy is
+     * asked about.
+     */
+    private long expiresMillis(long now, @Nonnull StoredResource.Outcome outcome, long maxAgeMillis) {
+        final RobotsEntry.Outcome entryOutcome = outcome == StoredResource.Outcome.CONTENT
+                ? RobotsEntry.Outcome.SUCCESS
+                : RobotsEntry.Outcome.CLIENT_ERROR;
+        final long expiresAfterMillis = expiryPolicy.getExpiresAfterMillis(entryOutcome, maxAgeMillis);
+        return expiresAfterMillis > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + expiresAfterMillis;
+    }
+
+    private void put(@Nonnull URI resource, @Nonnull StoredResource stored) {
+        try {
+            store.put(resource.toString(), stored);
+        } catch (IOException e) {
+            log.warn("Unable to write {} to persistent store", resource, e);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.brandwatch.robots.net;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.base.Charsets;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Decodes the bytes of a robots.txt in a single pass. The character encoding is taken from a byte
+ * order mark if there is one (which is then skipped), otherwise from the charset declared by the
+ * server, otherwise the default. As with {@link java.io.InputStreamReader}, malformed input is
+ * replaced rather than rejected.
+ */
+final class ContentDecoder {
+
+    private static final byte[] UTF_8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final byte[] UTF_16BE_BOM = {(byte) 0xFE, (byte) 0xFF};
+    private static final byte[] UTF_16LE_BOM = {(byte) 0xFF, (byte) 0xFE};
+
+    private ContentDecoder() {
+    }
+
+    /**
+     * Decode the remaining bytes of the given buffer, which is consumed.
+     */
+    @Nonnull
+    static CharBuffer decode(@Nonnull ByteBuffer bytes, @Nullable String declaredCharset,
+                             @Nonnull Charset defaultCharset) {
+        checkNotNull(bytes, "bytes is null");
+        checkNotNull(defaultCharset, "defaultCharset is null");
+        final Charset charset;
+        if (skip(bytes, UTF_8_BOM)) {
+            charset = Charsets.UTF_8;
+        } else if (skip(bytes, UTF_16BE_BOM)) {
+            charset = Charsets.UTF_16BE;
+        } else if (skip(bytes, UTF_16LE_BOM)) {
+            charset = Charsets.UTF_16LE;
+        } else {
+            charset = forName(declaredCharset, defaultCharset);
+        }
+        try {
+            return charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(bytes);
+        } catch (CharacterCodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * The charset with the given name, or the fallback if it is missing or not supported.
+     */
+    @Nonnull
+    static Charset forName(@Nullable String name, @Nonnull Charset fallback) {
+        if (name == null) {
+            return fallback;
+        }
+        try {
+            final String trimmed = name.trim();
+            final String unquoted = trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")
+                    ? trimmed.substring(1, trimmed.length() - 1)
+                    : trimmed;
+            return Charset.isSupported(unquoted) ? Charset.forName(unquoted) : fallback;
+        } catch (IllegalCharsetNameException e) {
+            return fallback;
+        }
+    }
+
+    private static boolean skip(@Nonnull ByteBuffer bytes, @Nonnull byte[] mark) {
+        if (bytes.remaining() < mark.length) {
+            return false;
+        }
+        for (int i = 0; i < mark.length; i++) {
+            if (bytes.get(bytes.position() + i) != mark[i]) {
+                return false;
+            }
+        }
+        bytes.position(bytes.position() + mark.length);
+        return true;
+    }
+}
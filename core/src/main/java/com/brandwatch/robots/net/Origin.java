@@ -0,0 +1,184 @@
+package com.brandwatch.robots.net;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.base.Objects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.net.IDN;
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The scheme, host and port that a robots.txt applies to, in canonical form: the scheme and host
+ * are lower case, the host is ASCII, and the port is always given. Resources that differ only in
+ * the case of their host, an explicit default port, or user info, therefore have the same origin.
+ *
+ * Deriving the origin of a resource costs little more than the origin itself, so it serves as the key
+ * for cached robots.txt; the location of the robots.txt is only built when it is first needed.
+ */
+@Immutable
+public final class Origin {
+
+    private static final String PATH = "/robots.txt";
+
+    @Nonnull
+    private final String scheme;
+    @Nonnull
+    private final String host;
+    private final int port;
+    private final int hashCode;
+
+    @Nullable
+    private volatile URI robotsUri;
+
+    private Origin(@Nonnull String scheme, @Nonnull String host, int port) {
+        this.scheme = scheme;
+        this.host = host;
+        this.port = port;
+        this.hashCode = Objects.hashCode(scheme, host, port);
+    }
+
+    /**
+     * Get the origin of the given resource.
+     *
+     * @throws IllegalArgumentException if the resource has no scheme, or no server-based host
+     */
+    @Nonnull
+    public static Origin of(@Nonnull URI resource) {
+        checkNotNull(resource, "resource is null");
+        checkArgument(resource.getScheme() != null, "resource has no scheme: %s", resource);
+        checkArgument(resource.getHost() != null, "resource has no host: %s", resource);
+
+        final String scheme = toLowerCase(resource.getScheme());
+        String host = resource.getHost();
+        if (!isAscii(host)) {
+            host = IDN.toASCII(host);
+        }
+        host = toLowerCase(host);
+        final int port = resource.getPort() >= 0 ? resource.getPort() : RobotsURIBuilder.defaultPort(scheme);
+        return new Origin(scheme, host, port);
+    }
+
+    @Nonnull
+    public String getScheme() {
+        return scheme;
+    }
+
+    @Nonnull
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * The location of the robots.txt for this origin.
+     */
+    @Nonnull
+    public URI getRobotsUri() {
+        URI result = robotsUri;
+        if (result == null) {
+            try {
+                result = new URI(scheme, null, host, port, PATH, null, null);
+            } catch (URISyntaxException e) {
+                throw new IllegalArgumentException("Failed to build robots.txt location for " + this, e);
+            }
+            robotsUri = result;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final Origin that = (Origin) o;
+        return hashCode == that.hashCode
+                && port == that.port
+                && host.equals(that.host)
+                && scheme.equals(that.scheme);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return scheme + "://" + host + ":" + port;
+    }
+
+    private static boolean isAscii(@Nonnull String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lower case the ASCII letters of the given value; returning the same instance if there are none,
+     * as is usually the case.
+     */
+    @Nonnull
+    private static String toLowerCase(@Nonnull String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                final char[] chars = value.toCharArray();
+                for (int j = i; j < chars.length; j++) {
+                    if (chars[j] >= 'A' && chars[j] <= 'Z') {
+                        chars[j] = (char) (chars[j] + ('a' - 'A'));
+                    }
+                }
+                return new String(chars);
+            }
+        }
+        return value;
+    }
+}
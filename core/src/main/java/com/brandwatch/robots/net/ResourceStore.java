@@ -0,0 +1,397 @@
+package com.brandwatch.robots.net;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.base.Charsets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Maps.newHashMap;
+import static java.text.MessageFormat.format;
+
+/**
+ * File-backed store of robots.txt retrieval outcomes, keyed by resource, that survives restarts.
+ *
+ * Records are appended to a single log file and a later record for a key supersedes any earlier
+ * one. The index from key to log offset is kept in memory and rebuilt by scanning the log when the
+ * store is opened. A torn record at the end of the log, left by a crash part way through a write, is
+ * discarded. Once superseded records outnumber live ones the log is rewritten, dropping superseded
+ * and expired records.
+ */
+@ThreadSafe
+public final class ResourceStore implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ResourceStore.class);
+
+    static final String LOG_FILE_NAME = "robots.log";
+
+    private static final int MAGIC = 0x524f4254;
+    private static final int VERSION = 3;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int MIN_COMPACTION_RECORDS = 1024;
+
+    @Nonnull
+    private final File file;
+    @GuardedBy("this")
+    private RandomAccessFile raf;
+    @GuardedBy("this")
+    private FileChannel channel;
+    @GuardedBy("this")
+    private Map<String, Long> index = newHashMap();
+    @GuardedBy("this")
+    private int deadRecords = 0;
+
+    private ResourceStore(@Nonnull File file) throws IOException {
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "rw");
+        this.channel = raf.getChannel();
+    }
+
+    /**
+     * Open the store held in the given directory, creating the directory and an empty store if
+     * they do not already exist.
+     */
+    @Nonnull
+    public static ResourceStore open(@Nonnull File directory) throws IOException {
+        checkNotNull(directory, "directory is null");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException(format("Unable to create directory: {0}", directory));
+        }
+        final ResourceStore store = new ResourceStore(new File(directory, LOG_FILE_NAME));
+        try {
+            store.recover(System.currentTimeMillis());
+        } catch (IOException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    @Nullable
+    public synchronized StoredResource get(@Nonnull String key) throws IOException {
+        checkNotNull(key, "key is null");
+        final Long position = index.get(key);
+        if (position == null) {
+            return null;
+        }
+        final Record record = readRecord(channel, position, channel.size());
+        if (record == null || !record.key.equals(key)) {
+            throw new IOException(format("Corrupt record for {0} at offset {1}", key, position));
+        }
+        return record.resource;
+    }
+
+    public synchronized void put(@Nonnull String key, @Nonnull StoredResource resource) throws IOException {
+        checkNotNull(key, "key is null");
+        checkNotNull(resource, "resource is null");
+        final long position = channel.size();
+        writeFully(channel, encode(key, resource), position);
+        if (index.put(key, position) != null) {
+            deadRecords++;
+        }
+        if (isCompactionDue()) {
+            compact(System.currentTimeMillis());
+        }
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        raf.close();
+    }
+
+    private void recover(long nowMillis) throws IOException {
+        final long size = channel.size();
+        if (size < FILE_HEADER_SIZE || !hasValidHeader()) {
+            if (size > 0) {
+                log.warn("Discarding unrecognised robots store: {}", file);
+            }
+            channel.truncate(0);
+            writeFully(channel, fileHeader(), 0);
+            return;
+        }
+
+        long position = FILE_HEADER_SIZE;
+        while (position < size) {
+            final Record record = readRecord(channel, position, size);
+            if (record == null) {
+                log.warn("Discarding torn record at offset {} of {}", position, file);
+                channel.truncate(position);
+                break;
+            }
+            if (index.put(record.key, position) != null) {
+                deadRecords++;
+            }
+            position += record.length;
+        }
+        log.debug("Recovered {} robots store records from {}", index.size(), file);
+
+        if (isCompactionDue()) {
+            compact(nowMillis);
+        }
+    }
+
+    private boolean isCompactionDue() {
+        return deadRecords >= MIN_COMPACTION_RECORDS && deadRecords > index.size();
+    }
+
+    private void compact(long nowMillis) throws IOException {
+        final File compacted = new File(file.getPath() + ".tmp");
+        final Map<String, Long> compactedIndex = newHashMap();
+        final long size = channel.size();
+
+        final RandomAccessFile target = new RandomAccessFile(compacted, "rw");
+        try {
+            final FileChannel targetChannel = target.getChannel();
+            targetChannel.truncate(0);
+            long position = writeFully(targetChannel, fileHeader(), 0);
+            for (Map.Entry<String, Long> entry : index.entrySet()) {
+                final Record record = readRecord(channel, entry.getValue(), size);
+                if (record == null || record.resource.isExpired(nowMillis)) {
+                    continue;
+                }
+                compactedIndex.put(entry.getKey(), position);
+                position = writeFully(targetChannel, encode(record.key, record.resource), position);
+            }
+            targetChannel.force(true);
+        } finally {
+            target.close();
+        }
+
+        // The log is renamed over, never deleted first, and is reopened whatever the outcome, so that
+        // a failed rename leaves the store open on its uncompacted log.
+        raf.close();
+        final boolean replaced = compacted.renameTo(file);
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        if (!replaced) {
+            if (!compacted.delete()) {
+                log.warn("Unable to delete {}", compacted);
+            }
+            throw new IOException(format("Unable to replace {0} with {1}", file, compacted));
+        }
+
+        log.debug("Compacted {}; {} of {} records retained", file, compactedIndex.size(), index.size() + deadRecords);
+        index = compactedIndex;
+        deadRecords = 0;
+    }
+
+    private boolean hasValidHeader() throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+        return header.getInt() == MAGIC && header.getInt() == VERSION;
+    }
+
+    @Nonnull
+    private static ByteBuffer fileHeader() {
+        final ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        return header;
+    }
+
+    @Nonnull
+    private static ByteBuffer encode(@Nonnull String key, @Nonnull StoredResource resource) {
+        final byte[] keyBytes = key.getBytes(Charsets.UTF_8);
+        final byte[] contentBytes = resource.getContent().getBytes(Charsets.UTF_8);
+        final byte[] entityTagBytes = getBytes(resource.getValidators().getEntityTag());
+        final byte[] lastModifiedBytes = getBytes(resource.getValidators().getLastModified());
+        final int payloadLength = 4 + keyBytes.length + 1 + 8 + 8 + 4 + contentBytes.length
+                + 4 + lengthOf(entityTagBytes) + 4 + lengthOf(lastModifiedBytes) + 4 + 8;
+
+        final ByteBuffer buffer = ByteBuffer.allocate(RECORD_HEADER_SIZE + payloadLength);
+        buffer.putInt(payloadLength);
+        buffer.putInt(0);
+        buffer.putInt(keyBytes.length).put(keyBytes);
+        buffer.put((byte) resource.getOutcome().ordinal());
+        buffer.putLong(resource.getFetchedMillis());
+        buffer.putLong(resource.getExpiresMillis());
+        buffer.putInt(contentBytes.length).put(contentBytes);
+        putNullableBytes(buffer, entityTagBytes);
+        putNullableBytes(buffer, lastModifiedBytes);
+        buffer.putInt(resource.getStatusCode());
+        buffer.putLong(resource.getMaxAgeMillis());
+        buffer.putInt(4, checksum(buffer.array(), RECORD_HEADER_SIZE, payloadLength));
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Read the record starting at the given position, or return null if it is incomplete or fails
+     * its checksum.
+     */
+    @Nullable
+    private static Record readRecord(@Nonnull FileChannel channel, long position, long limit) throws IOException {
+        if (position + RECORD_HEADER_SIZE > limit) {
+            return null;
+        }
+        final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        readFully(channel, header, position);
+        header.flip();
+        final int payloadLength = header.getInt();
+        final int checksum = header.getInt();
+        if (payloadLength < 0 || position + RECORD_HEADER_SIZE + payloadLength > limit) {
+            return null;
+        }
+
+        final ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+        readFully(channel, payload, position + RECORD_HEADER_SIZE);
+        if (checksum(payload.array(), 0, payloadLength) != checksum) {
+            return null;
+        }
+        payload.flip();
+
+        try {
+            final String key = getString(payload);
+            final int outcome = payload.get();
+            if (outcome < 0 || outcome >= StoredResource.Outcome.values().length) {
+                return null;
+            }
+            final long fetchedMillis = payload.getLong();
+            final long expiresMillis = payload.getLong();
+            final String content = getString(payload);
+            final Validators validators = new Validators(getNullableString(payload), getNullableString(payload));
+            final int statusCode = payload.getInt();
+            final long maxAgeMillis = payload.getLong();
+            return new Record(key,
+                    new StoredResource(StoredResource.Outcome.values()[outcome], content, validators,
+                            statusCode, maxAgeMillis, fetchedMillis, expiresMillis),
+                    RECORD_HEADER_SIZE + payloadLength);
+        } catch (BufferUnderflowException e) {
+            return null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Nonnull
+    private static String getString(@Nonnull ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        final String value = new String(buffer.array(), buffer.position(), length, Charsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * Read a string written by {@link #putNullableBytes}, for which a length of -1 stands for null.
+     */
+    @Nullable
+    private static String getNullableString(@Nonnull ByteBuffer buffer) {
+        final int length = buffer.getInt(buffer.position());
+        if (length == -1) {
+            buffer.getInt();
+            return null;
+        }
+        return getString(buffer);
+    }
+
+    @Nullable
+    private static byte[] getBytes(@Nullable String value) {
+        return value == null ? null : value.getBytes(Charsets.UTF_8);
+    }
+
+    private static int lengthOf(@Nullable byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+
+    private static void putNullableBytes(@Nonnull ByteBuffer buffer, @Nullable byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static int checksum(@Nonnull byte[] bytes, int offset, int length) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    private static void readFully(@Nonnull FileChannel channel, @Nonnull ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += read;
+        }
+    }
+
+    private static long writeFully(@Nonnull FileChannel channel, @Nonnull ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        return position;
+    }
+
+    private static final class Record {
+
+        @Nonnull
+        private final String key;
+        @Nonnull
+        private final StoredResource resource;
+        private final int length;
+
+        Record(@Nonnull String key, @Nonnull StoredResource resource, int length) {
+            this.key = key;
+            this.resource = resource;
+            this.length = length;
+        }
+    }
+}
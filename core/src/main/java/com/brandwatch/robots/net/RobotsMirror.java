@@ -0,0 +1,99 @@
+package com.brandwatch.robots.net;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A local copy of the robots.txt files of many hosts, which can be evaluated against without any
+ * network access. A mirror is either a directory, with a sub-directory for each host holding its
+ * robots.txt, or a single {@link RobotsMirrorArchive archive} built from such a directory.
+ *
+ * Hosts are keyed by their {@link #key(Origin) ASCII host name}, suffixed with the port when it is
+ * not the default for the scheme; the scheme is otherwise ignored. Bodies are read through memory
+ * mapped I/O.
+ */
+@ThreadSafe
+public abstract class RobotsMirror implements Closeable {
+
+    static final String ROBOTS_FILE_NAME = "robots.txt";
+
+    /**
+     * Open the mirror at the given location: a directory, or an archive file.
+     */
+    @Nonnull
+    public static RobotsMirror open(@Nonnull File location) throws IOException {
+        checkNotNull(location, "location is null");
+        if (location.isDirectory()) {
+            return new RobotsMirrorDirectory(location);
+        } else if (location.isFile()) {
+            return RobotsMirrorArchive.open(location);
+        } else {
+            throw new FileNotFoundException("No robots.txt mirror at " + location);
+        }
+    }
+
+    /**
+     * The key under which the robots.txt of the given origin is mirrored: its host, for the default
+     * port of its scheme, and otherwise its host and port joined by an underscore.
+     */
+    @Nonnull
+    public static String key(@Nonnull Origin origin) {
+        checkNotNull(origin, "origin is null");
+        return origin.getPort() == RobotsURIBuilder.defaultPort(origin.getScheme())
+                ? origin.getHost()
+                : origin.getHost() + '_' + origin.getPort();
+    }
+
+    /**
+     * Get the body of the robots.txt mirrored for the given origin, or null if there is none. The
+     * result is read only, and positioned at the start of the body.
+     */
+    @Nullable
+    public abstract ByteBuffer get(@Nonnull Origin origin) throws IOException;
+
+    /**
+     * Number of robots.txt files in the mirror, if known, or -1.
+     */
+    public abstract int size();
+}
@@ -0,0 +1,266 @@
+package com.brandwatch.robots.net;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Maps.newLinkedHashMap;
+import static java.text.MessageFormat.format;
+
+/**
+ * Mirror kept in a single indexed file, built from a mirror directory by {@link #write(File, File)}.
+ *
+ * The file starts with a header and an index from key to the offset and length of each body, which
+ * is read into memory when the archive is opened; the bodies follow. The file is mapped in segments,
+ * and no body spans two segments, so each body is read as a slice of a single mapping.
+ */
+@ThreadSafe
+public final class RobotsMirrorArchive extends RobotsMirror {
+
+    private static final int MAGIC = 0x524f424d;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+    @Nonnull
+    private final File file;
+    @Nonnull
+    private final ImmutableMap<String, Entry> index;
+    @Nonnegative
+    private final int segmentSize;
+    @Nonnull
+    private final MappedByteBuffer[] segments;
+
+    private RobotsMirrorArchive(@Nonnull File file, @Nonnull ImmutableMap<String, Entry> index,
+                                @Nonnegative int segmentSize, @Nonnull MappedByteBuffer[] segments) {
+        this.file = file;
+        this.index = index;
+        this.segmentSize = segmentSize;
+        this.segments = segments;
+    }
+
+    @Nonnull
+    public static RobotsMirrorArchive open(@Nonnull File file) throws IOException {
+        checkNotNull(file, "file is null");
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final FileChannel channel = raf.getChannel();
+            final long size = channel.size();
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(format("Not a robots.txt mirror archive: {0}", file));
+            }
+            final int segmentSize = header.getInt();
+            final int count = header.getInt();
+            if (segmentSize <= 0 || count < 0) {
+                throw new IOException(format("Corrupt robots.txt mirror archive: {0}", file));
+            }
+
+            final MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + segmentSize - 1) / segmentSize)];
+            for (int i = 0; i < segments.length; i++) {
+                final long position = (long) i * segmentSize;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(segmentSize, size - position));
+            }
+
+            return new RobotsMirrorArchive(file, readIndex(file, segments, count, size), segmentSize, segments);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Build an archive from the given mirror directory, containing the robots.txt of each of its
+     * sub-directories that has one.
+     */
+    public static void write(@Nonnull File directory, @Nonnull File archive) throws IOException {
+        write(directory, archive, DEFAULT_SEGMENT_SIZE);
+    }
+
+    static void write(@Nonnull File directory, @Nonnull File archive, @Nonnegative int segmentSize)
+            throws IOException {
+        checkNotNull(directory, "directory is null");
+        checkNotNull(archive, "archive is null");
+        checkArgument(segmentSize > HEADER_SIZE, "segmentSize is too small");
+        final File[] hosts = directory.listFiles();
+        if (hosts == null) {
+            throw new IOException(format("Unable to list robots.txt mirror directory: {0}", directory));
+        }
+        Arrays.sort(hosts);
+
+        final Map<String, File> bodies = newLinkedHashMap();
+        int indexSize = 0;
+        for (File host : hosts) {
+            final File robots = new File(host, ROBOTS_FILE_NAME);
+            if (robots.isFile()) {
+                if (robots.length() > segmentSize) {
+                    throw new IOException(format("Too large for a robots.txt mirror archive: {0}", robots));
+                }
+                bodies.put(host.getName(), robots);
+                indexSize += 2 + host.getName().getBytes(Charsets.UTF_8).length + 8 + 4;
+            }
+        }
+
+        final RandomAccessFile raf = new RandomAccessFile(archive, "rw");
+        try {
+            raf.setLength(0);
+            final FileChannel channel = raf.getChannel();
+            final ByteBuffer index = ByteBuffer.allocate(HEADER_SIZE + indexSize);
+            index.putInt(MAGIC).putInt(VERSION).putInt(segmentSize).putInt(bodies.size());
+            if (index.capacity() > segmentSize) {
+                throw new IOException(format("Index too large for segments of {0} bytes", segmentSize));
+            }
+
+            long position = index.capacity();
+            for (Map.Entry<String, File> body : bodies.entrySet()) {
+                final byte[] content = Files.toByteArray(body.getValue());
+                if (position % segmentSize + content.length > segmentSize) {
+                    position += segmentSize - position % segmentSize;
+                }
+                writeFully(channel, ByteBuffer.wrap(content), position);
+
+                final byte[] key = body.getKey().getBytes(Charsets.UTF_8);
+                index.putShort((short) key.length).put(key).putLong(position).putInt(content.length);
+                position += content.length;
+            }
+            index.flip();
+            writeFully(channel, index, 0);
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Nullable
+    @Override
+    public ByteBuffer get(@Nonnull Origin origin) {
+        final Entry entry = index.get(key(origin));
+        if (entry == null) {
+            return null;
+        }
+        final ByteBuffer body = segments[(int) (entry.offset / segmentSize)].duplicate();
+        final int start = (int) (entry.offset % segmentSize);
+        body.limit(start + entry.length).position(start);
+        return body.slice().asReadOnlyBuffer();
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Mappings are released when they are garbage collected, so there is nothing to close.
+     */
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String toString() {
+        return file.toString();
+    }
+
+    @Nonnull
+    private static ImmutableMap<String, Entry> readIndex(@Nonnull File file, @Nonnull MappedByteBuffer[] segments,
+                                                         int count, long size) throws IOException {
+        final ByteBuffer buffer = segments[0].duplicate();
+        buffer.position(HEADER_SIZE);
+        final ImmutableMap.Builder<String, Entry> index = ImmutableMap.builder();
+        try {
+            for (int i = 0; i < count; i++) {
+                final byte[] key = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(key);
+                final Entry entry = new Entry(buffer.getLong(), buffer.getInt());
+                if (entry.offset < 0 || entry.length < 0 || entry.offset + entry.length > size) {
+                    throw new IOException(format("Corrupt robots.txt mirror archive: {0}", file));
+                }
+                index.put(new String(key, Charsets.UTF_8), entry);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException(format("Truncated robots.txt mirror archive: {0}", file), e);
+        }
+        return index.build();
+    }
+
+    private static void readFully(@Nonnull FileChannel channel, @Nonnull ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(@Nonnull FileChannel channel, @Nonnull ByteBuffer buffer, long position)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    @Immutable
+    private static final class Entry {
+        private final long offset;
+        private final int length;
+
+        Entry(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
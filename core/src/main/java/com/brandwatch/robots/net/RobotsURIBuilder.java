@@ -156,11 +156,15 @@ public final class RobotsURIBuilder {
     }
 
     private void setDefaultPort() {
-        if (scheme.isPresent() && Defaults.PORT_FOR_SCHEMA.containsKey(scheme.get().toLowerCase())) {
-            port = Optional.of(Defaults.PORT_FOR_SCHEMA.get(scheme.get().toLowerCase()));
-        } else {
-            port = Optional.of(Defaults.PORT);
-        }
+        port = Optional.of(defaultPort(scheme.get().toLowerCase()));
+    }
+
+    /**
+     * The port implied by the given lower case scheme, when a URI does not give one.
+     */
+    static int defaultPort(@Nonnull String scheme) {
+        final Integer port = Defaults.PORT_FOR_SCHEMA.get(scheme);
+        return port != null ? port : Defaults.PORT;
     }
 
     @Immutable
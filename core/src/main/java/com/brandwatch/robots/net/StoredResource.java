@@ -0,0 +1,163 @@
+package com.brandwatch.robots.net;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.base.Objects;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Outcome of a single robots.txt retrieval as recorded by {@link ResourceStore}: either the body
+ * that was downloaded, or the reason the whole site was allowed or disallowed without one, along with
+ * the {@link Validators}, status code and freshness lifetime it was served with.
+ */
+@Immutable
+public final class StoredResource {
+
+    public enum Outcome {
+        CONTENT, ALLOW, DISALLOW
+    }
+
+    @Nonnull
+    private final Outcome outcome;
+    @Nonnull
+    private final String content;
+    @Nonnull
+    private final Validators validators;
+    @Nonnegative
+    private final int statusCode;
+    private final long maxAgeMillis;
+    private final long fetchedMillis;
+    private final long expiresMillis;
+
+    public StoredResource(@Nonnull Outcome outcome, @Nonnull String content,
+                          long fetchedMillis, long expiresMillis) {
+        this(outcome, content, Validators.NONE, ValidatedCharSource.UNKNOWN_STATUS, ValidatedCharSource.NO_MAX_AGE,
+                fetchedMillis, expiresMillis);
+    }
+
+    public StoredResource(@Nonnull Outcome outcome, @Nonnull String content, @Nonnull Validators validators,
+                          @Nonnegative int statusCode, long maxAgeMillis, long fetchedMillis, long expiresMillis) {
+        checkArgument(statusCode >= 0, "statusCode is negative");
+        checkArgument(maxAgeMillis >= ValidatedCharSource.NO_MAX_AGE, "maxAgeMillis is invalid");
+        this.outcome = checkNotNull(outcome, "outcome is null");
+        this.content = checkNotNull(content, "content is null");
+        this.validators = checkNotNull(validators, "validators is null");
+        this.statusCode = statusCode;
+        this.maxAgeMillis = maxAgeMillis;
+        this.fetchedMillis = fetchedMillis;
+        this.expiresMillis = expiresMillis;
+    }
+
+    @Nonnull
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * The downloaded body for {@link Outcome#CONTENT}, otherwise the reason given for the outcome.
+     */
+    @Nonnull
+    public String getContent() {
+        return content;
+    }
+
+    @Nonnull
+    public Validators getValidators() {
+        return validators;
+    }
+
+    @Nonnegative
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * The freshness lifetime the server gave the resource when it was retrieved, or
+     * {@link ValidatedCharSource#NO_MAX_AGE} if it gave none.
+     */
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    public long getFetchedMillis() {
+        return fetchedMillis;
+    }
+
+    public long getExpiresMillis() {
+        return expiresMillis;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= expiresMillis;
+    }
+
+    @Override
+    public boolean equals(@Nullable Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StoredResource that = (StoredResource) o;
+        return statusCode == that.statusCode
+                && maxAgeMillis == that.maxAgeMillis
+                && fetchedMillis == that.fetchedMillis
+                && expiresMillis == that.expiresMillis
+                && Objects.equal(outcome, that.outcome)
+                && Objects.equal(content, that.content)
+                && Objects.equal(validators, that.validators);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(outcome, content, validators, statusCode, maxAgeMillis, fetchedMillis, expiresMillis);
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("outcome", outcome)
+                .add("contentLength", content.length())
+                .add("validators", validators)
+                .add("statusCode", statusCode)
+                .add("maxAgeMillis", maxAgeMillis)
+                .add("fetchedMillis", fetchedMillis)
+                .add("expiresMillis", expiresMillis)
+                .toString();
+    }
+}
@@ -0,0 +1,116 @@
+package com.brandwatch.robots.net;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.io.CharSource;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A retrieved resource, together with what is needed to cache it: the {@link Validators} with which
+ * it can later be revalidated, the HTTP status it was retrieved with, and the freshness lifetime the
+ * server gave it, if any.
+ */
+@Immutable
+public final class ValidatedCharSource extends CharBufferSource {
+
+    /**
+     * Status code for resources that were not retrieved over HTTP, or whose status is not known.
+     */
+    public static final int UNKNOWN_STATUS = 0;
+
+    /**
+     * Max age for resources that the server did not specify a freshness lifetime for.
+     */
+    public static final long NO_MAX_AGE = -1;
+
+    @Nonnull
+    private final CharSource source;
+    @Nonnull
+    private final Validators validators;
+    @Nonnegative
+    private final int statusCode;
+    private final long maxAgeMillis;
+
+    public ValidatedCharSource(@Nonnull CharSource source, @Nonnull Validators validators) {
+        this(source, validators, UNKNOWN_STATUS, NO_MAX_AGE);
+    }
+
+    public ValidatedCharSource(@Nonnull CharSource source, @Nonnull Validators validators,
+                               @Nonnegative int statusCode, long maxAgeMillis) {
+        checkArgument(statusCode >= 0, "statusCode is negative");
+        checkArgument(maxAgeMillis >= NO_MAX_AGE, "maxAgeMillis is invalid");
+        this.source = checkNotNull(source, "source is null");
+        this.validators = checkNotNull(validators, "validators is null");
+        this.statusCode = statusCode;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    @Nonnull
+    public Validators getValidators() {
+        return validators;
+    }
+
+    @Nonnegative
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * The freshness lifetime given by the server's {@code Cache-Control} or {@code Expires} headers, in
+     * milliseconds, or {@link #NO_MAX_AGE} if it gave none.
+     */
+    public long getMaxAgeMillis() {
+        return maxAgeMillis;
+    }
+
+    @Override
+    public Reader openStream() throws IOException {
+        return source.openStream();
+    }
+
+    @Nonnull
+    @Override
+    public CharBuffer readBuffer() throws IOException {
+        return CharBufferSource.readBuffer(source);
+    }
+}
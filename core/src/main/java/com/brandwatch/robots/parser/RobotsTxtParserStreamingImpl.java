@@ -0,0 +1,378 @@
+package com.brandwatch.robots.parser;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.text.MessageFormat.format;
+
+/**
+ * Hand-written equivalent of the JavaCC generated {@link RobotsParser}, which remains the reference
+ * for what is accepted.
+ *
+ * The content is read into a single character array, which is then scanned in one pass. Tokens are
+ * represented by a kind and a pair of offsets rather than as objects, and strings are only created
+ * for the values passed to the handler. The scanner follows the grammar's lexical rules exactly,
+ * including its quirks: the longest match wins, ties go to the rule declared first, and field
+ * names may contain embedded or surrounding whitespace.
+ */
+@Immutable
+public final class RobotsTxtParserStreamingImpl implements RobotsTxtParser {
+
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+    @Override
+    public void parse(@Nonnull Reader reader, @Nonnull RobotsParseHandler handler)
+            throws IOException, ParseException {
+        checkNotNull(reader, "reader is null");
+        checkNotNull(handler, "handler is null");
+
+        char[] chars = new char[INITIAL_BUFFER_SIZE];
+        int length = 0;
+        int count;
+        while ((count = reader.read(chars, length, chars.length - length)) != -1) {
+            length += count;
+            if (length == chars.length) {
+                chars = Arrays.copyOf(chars, chars.length * 2);
+            }
+        }
+        new Scanner(chars, 0, length, handler).parse();
+    }
+
+    /**
+     * Parse the remaining characters of the given buffer, without copying them if it is backed by
+     * an accessible array. The buffer's position is not changed.
+     */
+    @Override
+    public void parse(@Nonnull CharBuffer buffer, @Nonnull RobotsParseHandler handler) throws ParseException {
+        checkNotNull(buffer, "buffer is null");
+        checkNotNull(handler, "handler is null");
+
+        if (buffer.hasArray()) {
+            final int offset = buffer.arrayOffset() + buffer.position();
+            new Scanner(buffer.array(), offset, offset + buffer.remaining(), handler).parse();
+        } else {
+            final char[] chars = new char[buffer.remaining()];
+            buffer.duplicate().get(chars);
+            new Scanner(chars, 0, chars.length, handler).parse();
+        }
+    }
+
+    private static final class Scanner {
+
+        private static final int EOF = 0;
+        private static final int EOL = 1;
+        private static final int NUL = 2;
+        private static final int USER_AGENT = 3;
+        private static final int ALLOW = 4;
+        private static final int DISALLOW = 5;
+        private static final int SITE_MAP = 6;
+        private static final int OTHER_FIELD = 7;
+        private static final int DELIMITER = 8;
+        private static final int TEXT_VALUE = 9;
+
+        private static final String[] KIND_NAMES = {
+                "<EOF>", "<EOL>", "\"\\u0000\"", "\"user-agent\"", "\"allow\"", "\"disallow\"",
+                "\"sitemap\"", "<OTHER_FIELD>", "<DELIMITER>", "<TEXT_VALUE>"
+        };
+
+        @Nonnull
+        private final char[] chars;
+        private final int start;
+        private final int limit;
+        @Nonnull
+        private final RobotsParseHandler handler;
+
+        /** Whether the next token is to be scanned in the grammar's IN_TEXT_VALUE lexical state. */
+        private boolean inTextValue = false;
+        private int position;
+
+        private int kind;
+        private int tokenStart;
+        private int tokenEnd;
+
+        Scanner(@Nonnull char[] chars, int start, int limit, @Nonnull RobotsParseHandler handler) {
+            this.chars = chars;
+            this.start = start;
+            this.limit = limit;
+            this.handler = handler;
+            this.position = start;
+        }
+
+        void parse() throws ParseException {
+            advance();
+            while (kind == EOL) {
+                advance();
+            }
+            while (true) {
+                if (kind == SITE_MAP) {
+                    nonGroupLine();
+                } else if (kind == OTHER_FIELD) {
+                    otherLine();
+                } else {
+                    break;
+                }
+            }
+            while (kind == USER_AGENT) {
+                entry();
+            }
+            consume(EOF);
+        }
+
+        private void entry() throws ParseException {
+            handler.startEntry();
+            do {
+                startGroupLine();
+            } while (kind == USER_AGENT);
+            while (true) {
+                if (kind == ALLOW || kind == DISALLOW) {
+                    groupMemberLine();
+                } else if (kind == SITE_MAP) {
+                    nonGroupLine();
+                } else if (kind == OTHER_FIELD) {
+                    otherLine();
+                } else {
+                    break;
+                }
+            }
+            handler.endEntry();
+        }
+
+        private void startGroupLine() throws ParseException {
+            consume(USER_AGENT);
+            consume(DELIMITER);
+            handler.userAgent(textValue());
+            eol();
+        }
+
+        private void groupMemberLine() throws ParseException {
+            if (kind == ALLOW) {
+                consume(ALLOW);
+                consume(DELIMITER);
+                handler.allow(textValue());
+            } else {
+                consume(DISALLOW);
+                consume(DELIMITER);
+                handler.disallow(textValue());
+            }
+            eol();
+        }
+
+        private void nonGroupLine() throws ParseException {
+            consume(SITE_MAP);
+            consume(DELIMITER);
+            handler.siteMap(textValue());
+            eol();
+        }
+
+        private void otherLine() throws ParseException {
+            final String field = new String(chars, tokenStart, tokenEnd - tokenStart);
+            consume(OTHER_FIELD);
+            consume(DELIMITER);
+            final String value = textValue();
+            eol();
+            handler.otherDirective(field, value);
+        }
+
+        @Nonnull
+        private String textValue() throws ParseException {
+            if (kind == TEXT_VALUE) {
+                int from = tokenStart;
+                int to = tokenEnd;
+                while (from < to && chars[from] <= ' ') {
+                    from++;
+                }
+                while (to > from && chars[to - 1] <= ' ') {
+                    to--;
+                }
+                advance();
+                return new String(chars, from, to - from);
+            } else if (kind == EOF) {
+                return "";
+            }
+            throw unexpected(TEXT_VALUE);
+        }
+
+        private void eol() throws ParseException {
+            if (kind == EOL) {
+                do {
+                    advance();
+                } while (kind == EOL);
+            } else if (kind != EOF) {
+                throw unexpected(EOL);
+            }
+        }
+
+        private void consume(int expected) throws ParseException {
+            if (kind != expected) {
+                throw unexpected(expected);
+            }
+            if (kind != EOF) {
+                advance();
+            }
+        }
+
+        /**
+         * Scan the next token, skipping whitespace and comments where the grammar does.
+         */
+        private void advance() {
+            if (inTextValue) {
+                inTextValue = false;
+                if (position < limit) {
+                    int end = position;
+                    while (end < limit && !isTextValueTerminator(chars[end])) {
+                        end++;
+                    }
+                    token(TEXT_VALUE, end);
+                    return;
+                }
+            }
+
+            while (position < limit) {
+                final char c = chars[position];
+                switch (c) {
+                    case '\n':
+                        token(EOL, position + 1);
+                        return;
+                    case '\r':
+                        token(EOL, (position + 1 < limit && chars[position + 1] == '\n') ? position + 2 : position + 1);
+                        return;
+                    case '\0':
+                        token(NUL, position + 1);
+                        return;
+                    case '#':
+                        position++;
+                        while (position < limit && chars[position] != '\n' && chars[position] != '\r') {
+                            position++;
+                        }
+                        continue;
+                    case ':': {
+                        int end = position + 1;
+                        while (end < limit && isDelimiterSpace(chars[end])) {
+                            end++;
+                        }
+                        token(DELIMITER, end);
+                        inTextValue = true;
+                        return;
+                    }
+                    default: {
+                        int end = position;
+                        while (end < limit && !isFieldTerminator(chars[end])) {
+                            end++;
+                        }
+                        final int length = end - position;
+                        if (length == 1 && isDelimiterSpace(c)) {
+                            position++;
+                            continue;
+                        }
+                        token(fieldKind(position, length), end);
+                        return;
+                    }
+                }
+            }
+            token(EOF, position);
+        }
+
+        private void token(int kind, int end) {
+            this.kind = kind;
+            this.tokenStart = position;
+            this.tokenEnd = end;
+            this.position = end;
+        }
+
+        private int fieldKind(int from, int length) {
+            switch (length) {
+                case 10:
+                    return matchesIgnoreCase(from, "user-agent") ? USER_AGENT : OTHER_FIELD;
+                case 5:
+                    return matchesIgnoreCase(from, "allow") ? ALLOW : OTHER_FIELD;
+                case 8:
+                    return matchesIgnoreCase(from, "disallow") ? DISALLOW : OTHER_FIELD;
+                case 7:
+                    return matchesIgnoreCase(from, "sitemap") ? SITE_MAP : OTHER_FIELD;
+                default:
+                    return OTHER_FIELD;
+            }
+        }
+
+        /**
+         * Compare against a lower case ASCII keyword, accepting either case of each letter as the
+         * generated token manager does.
+         */
+        private boolean matchesIgnoreCase(int from, @Nonnull String keyword) {
+            for (int i = 0; i < keyword.length(); i++) {
+                final char c = chars[from + i];
+                final char k = keyword.charAt(i);
+                if (c != k && c != Character.toUpperCase(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isDelimiterSpace(char c) {
+            return c == ' ' || c == '\t' || c == '\f';
+        }
+
+        private static boolean isFieldTerminator(char c) {
+            return c == ':' || c == '\n' || c == '\r' || c == '#' || c == '\0';
+        }
+
+        private static boolean isTextValueTerminator(char c) {
+            return c == '\n' || c == '\r' || c == '#' || c == '\0';
+        }
+
+        @Nonnull
+        private ParseException unexpected(int expected) {
+            int line = 1;
+            int column = 1;
+            for (int i = start; i < tokenStart; i++) {
+                if (chars[i] == '\n' || (chars[i] == '\r' && (i + 1 >= limit || chars[i + 1] != '\n'))) {
+                    line++;
+                    column = 1;
+                } else {
+                    column++;
+                }
+            }
+            return new ParseException(format("Encountered {0} at line {1}, column {2}; was expecting {3}",
+                    KIND_NAMES[kind], line, column, KIND_NAMES[expected]));
+        }
+    }
+}
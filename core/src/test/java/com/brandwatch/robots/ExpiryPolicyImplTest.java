@@ -0,0 +1,140 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.RobotsEntry.Outcome;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.brandwatch.robots.net.ValidatedCharSource.NO_MAX_AGE;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ExpiryPolicyImplTest {
+
+    private RobotsConfig config;
+    private ExpiryPolicyImpl policy;
+
+    @Before
+    public void setup() {
+        config = new RobotsConfig();
+        config.setCacheExpiresHours(24);
+        config.setCacheClientErrorExpiresHours(12);
+        config.setCacheServerErrorExpiresMinutes(5);
+        config.setCacheUnreachableExpiresMinutes(15);
+        config.setCacheParseFailureExpiresHours(6);
+        config.setCacheMinMaxAgeMinutes(30);
+        config.setCacheMaxMaxAgeHours(48);
+        policy = new ExpiryPolicyImpl(config);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void givenNullConfig_whenNewInstance_thenThrowsNPE() {
+        new ExpiryPolicyImpl(null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void givenNullOutcome_whenGetExpiresAfterMillis_thenThrowsNPE() {
+        policy.getExpiresAfterMillis(null, NO_MAX_AGE);
+    }
+
+    @Test
+    public void givenSuccessWithoutMaxAge_whenGetExpiresAfterMillis_thenDefaultExpiry() {
+        assertThat(policy.getExpiresAfterMillis(Outcome.SUCCESS, NO_MAX_AGE),
+                equalTo(TimeUnit.HOURS.toMillis(24)));
+    }
+
+    @Test
+    public void givenClientErrorWithoutMaxAge_whenGetExpiresAfterMillis_thenClientErrorExpiry() {
+        assertThat(policy.getExpiresAfterMillis(Outcome.CLIENT_ERROR, NO_MAX_AGE),
+                equalTo(TimeUnit.HOURS.toMillis(12)));
+    }
+
+    @Test
+    public void givenServerError_whenGetExpiresAfterMillis_thenServerErrorExpiry() {
+        assertThat(policy.getExpiresAfterMillis(Outcome.SERVER_ERROR, NO_MAX_AGE),
+                equalTo(TimeUnit.MINUTES.toMillis(5)));
+    }
+
+    @Test
+    public void givenServerErrorWithMaxAge_whenGetExpiresAfterMillis_thenMaxAgeIgnored() {
+        assertThat(policy.getExpiresAfterMillis(Outcome.SERVER_ERROR, TimeUnit.HOURS.toMillis(10)),
+                equalTo(TimeUnit.MINUTES.toMillis(5)));
+    }
+
+    @Test
+    public void givenUnreachable_whenGetExpiresAfterMillis_thenUnreachableExpiry() {
+        assertThat(policy.getExpiresAfterMillis(Outcome.UNREACHABLE, NO_MAX_AGE),
+                equalTo(TimeUnit.MINUTES.toMillis(15)));
+    }
+
+    @Test
+    public void givenParseFailure_whenGetExpiresAfterMillis_thenParseFailureExpiry() {
+        assertThat(policy.getExpiresAfterMillis(Outcome.PARSE_FAILURE, NO_MAX_AGE),
+                equalTo(TimeUnit.HOURS.toMillis(6)));
+    }
+
+    @Test
+    public void givenSuccessWithMaxAgeInBounds_whenGetExpiresAfterMillis_thenMaxAge() {
+        assertThat(policy.getExpiresAfterMillis(Outcome.SUCCESS, TimeUnit.HOURS.toMillis(3)),
+                equalTo(TimeUnit.HOURS.toMillis(3)));
+    }
+
+    @Test
+    public void givenSuccessWithMaxAgeBelowBounds_whenGetExpiresAfterMillis_thenMinMaxAge() {
+        assertThat(policy.getExpiresAfterMillis(Outcome.SUCCESS, 0),
+                equalTo(TimeUnit.MINUTES.toMillis(30)));
+    }
+
+    @Test
+    public void givenSuccessWithMaxAgeAboveBounds_whenGetExpiresAfterMillis_thenMaxMaxAge() {
+        assertThat(policy.getExpiresAfterMillis(Outcome.SUCCESS, TimeUnit.DAYS.toMillis(365)),
+                equalTo(TimeUnit.HOURS.toMillis(48)));
+    }
+
+    @Test
+    public void givenClientErrorWithMaxAge_whenGetExpiresAfterMillis_thenMaxAge() {
+        assertThat(policy.getExpiresAfterMillis(Outcome.CLIENT_ERROR, TimeUnit.HOURS.toMillis(2)),
+                equalTo(TimeUnit.HOURS.toMillis(2)));
+    }
+
+    @Test
+    public void givenConfigChanged_whenGetExpiresAfterMillis_thenChangeApplies() {
+        config.setCacheServerErrorExpiresMinutes(1);
+        assertThat(policy.getExpiresAfterMillis(Outcome.SERVER_ERROR, NO_MAX_AGE),
+                equalTo(TimeUnit.MINUTES.toMillis(1)));
+    }
+}
@@ -0,0 +1,100 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.domain.Group;
+import com.brandwatch.robots.domain.PathDirective;
+import com.brandwatch.robots.domain.Robots;
+import com.brandwatch.robots.matching.MatcherUtils;
+import com.brandwatch.robots.matching.MatcherUtilsImpl;
+import com.brandwatch.robots.parser.ParseException;
+import com.google.common.base.Optional;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Parameterized.class)
+public class ExpressionTrieDataTest extends AbstractDataTest {
+
+    private final RobotsFactory factory = new RobotsFactory(new RobotsConfig());
+    private final MatcherUtils matcherUtils = new MatcherUtilsImpl();
+
+    public ExpressionTrieDataTest(String resourceName) {
+        super(resourceName);
+    }
+
+    @Test
+    public void givenDirectivePaths_whenGetMostSpecificMatch_thenResultEqualsLinearScan() throws ParseException {
+        final RobotsBuildingParseHandler handler = factory.createRobotsBuildingHandler();
+        robotsTxtParser.parse(handler);
+        final Robots robots = handler.get();
+
+        for (Group group : robots.getGroups()) {
+            final List<PathDirective> directives = group.getDirectives(PathDirective.class);
+            for (String path : probePaths(robots)) {
+                Optional<PathDirective> expected = matcherUtils.getMostSpecificMatch(directives, path);
+                Optional<PathDirective> result = group.getPathDirectiveTrie().getMostSpecificMatch(path);
+                assertThat(path, result, equalTo(expected));
+            }
+        }
+    }
+
+    private static Set<String> probePaths(Robots robots) {
+        final Set<String> paths = new LinkedHashSet<String>();
+        paths.add("");
+        paths.add("/");
+        paths.add("/index.html");
+        for (Group group : robots.getGroups()) {
+            for (PathDirective directive : group.getDirectives(PathDirective.class)) {
+                final String value = directive.getValue();
+                final String literal = value.replace("*", "").replace("$", "");
+                final String expanded = value.replace("*", "/x/").replace("$", "");
+                paths.add(literal);
+                paths.add(expanded);
+                paths.add(expanded + "?q=1");
+                paths.add(literal.substring(0, literal.length() / 2));
+                paths.add(literal + "/more.php");
+            }
+        }
+        return paths;
+    }
+
+}
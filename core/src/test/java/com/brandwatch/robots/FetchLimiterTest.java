@@ -0,0 +1,117 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class FetchLimiterTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenNegativeLimit_whenConstruct_thenThrowsIAE() {
+        new FetchLimiter(-1);
+    }
+
+    @Test
+    public void givenNoLimit_whenSubmit_thenAllRun() {
+        FetchLimiter limiter = new FetchLimiter(0);
+        AtomicInteger started = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            limiter.submit(counting(started));
+        }
+        assertThat(started.get(), is(10));
+        assertThat(limiter.getRunningCount(), is(10));
+        assertThat(limiter.getQueuedCount(), is(0));
+    }
+
+    @Test
+    public void givenLimit_whenSubmit_thenExcessIsQueued() {
+        FetchLimiter limiter = new FetchLimiter(2);
+        AtomicInteger started = new AtomicInteger();
+        for (int i = 0; i < 5; i++) {
+            limiter.submit(counting(started));
+        }
+        assertThat(started.get(), is(2));
+        assertThat(limiter.getQueuedCount(), is(3));
+    }
+
+    @Test
+    public void givenQueuedTasks_whenRelease_thenNextTaskStarts() {
+        FetchLimiter limiter = new FetchLimiter(1);
+        AtomicInteger started = new AtomicInteger();
+        limiter.submit(counting(started));
+        limiter.submit(counting(started));
+        limiter.release();
+        assertThat(started.get(), is(2));
+        assertThat(limiter.getRunningCount(), is(1));
+        assertThat(limiter.getQueuedCount(), is(0));
+    }
+
+    @Test
+    public void givenTasksReleasingImmediately_whenSubmitMany_thenDoesNotOverflowStack() {
+        final FetchLimiter limiter = new FetchLimiter(1);
+        final AtomicInteger started = new AtomicInteger();
+        limiter.submit(counting(started));
+        for (int i = 0; i < 100000; i++) {
+            limiter.submit(new Runnable() {
+                @Override
+                public void run() {
+                    started.incrementAndGet();
+                    limiter.release();
+                }
+            });
+        }
+        limiter.release();
+        assertThat(started.get(), is(100001));
+        assertThat(limiter.getRunningCount(), is(0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void givenNothingRunning_whenRelease_thenThrowsISE() {
+        new FetchLimiter(1).release();
+    }
+
+    private static Runnable counting(final AtomicInteger counter) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                counter.incrementAndGet();
+            }
+        };
+    }
+}
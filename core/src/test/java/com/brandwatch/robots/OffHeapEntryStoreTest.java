@@ -0,0 +1,214 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.domain.Robots;
+import com.brandwatch.robots.net.Origin;
+import com.brandwatch.robots.net.Validators;
+import com.brandwatch.robots.parser.RobotsTxtParser;
+import com.google.common.base.Strings;
+import com.google.common.collect.Maps;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.net.URI;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class OffHeapEntryStoreTest {
+
+    private static final Origin EXAMPLE_ORIGIN = origin(0);
+    private static final Origin OTHER_ORIGIN = origin(1);
+
+    private RobotsFactory factory;
+    private RobotsCodec codec;
+    private RobotsEntry entry;
+    private OffHeapEntryStore store;
+
+    @Before
+    public void setup() throws Exception {
+        factory = new RobotsFactory(new RobotsConfig());
+        codec = factory.createRobotsCodec();
+        entry = new RobotsEntry(parse("User-agent: *\nDisallow: /private\nCrawl-delay: 2\n"),
+                RobotsEntry.Outcome.SUCCESS, new Validators("\"abc\"", "Wed, 21 Oct 2015 07:28:00 GMT"),
+                1000L, 2000L);
+        store = new OffHeapEntryStore(codec, 1 << 20);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenSegmentCountNotPowerOfTwo_whenConstruct_thenThrowsIAE() {
+        new OffHeapEntryStore(codec, 1 << 20, 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenCapacityTooSmall_whenConstruct_thenThrowsIAE() {
+        new OffHeapEntryStore(codec, 100, 1);
+    }
+
+    @Test
+    public void givenEmptyStore_whenGet_thenReturnsNull() {
+        assertThat(store.get(EXAMPLE_ORIGIN), nullValue());
+        assertThat(store.size(), equalTo(0L));
+    }
+
+    @Test
+    public void givenPut_whenGet_thenReturnsEqualEntry() {
+        assertThat(store.put(EXAMPLE_ORIGIN, entry), is(true));
+        assertThat(store.get(EXAMPLE_ORIGIN), equalTo(entry));
+        assertThat(store.get(OTHER_ORIGIN), nullValue());
+        assertThat(store.size(), equalTo(1L));
+    }
+
+    @Test
+    public void givenPut_whenGet_thenCrawlDelayIsPreserved() {
+        store.put(EXAMPLE_ORIGIN, entry);
+        assertThat(store.get(EXAMPLE_ORIGIN).getRobots().getGroups().get(0).getCrawlDelayMillis(), equalTo(2000L));
+    }
+
+    @Test
+    public void givenEntryWithoutValidators_whenGet_thenReturnsEqualEntry() {
+        final RobotsEntry unreachable = new RobotsEntry(new Robots.Builder().build(),
+                RobotsEntry.Outcome.UNREACHABLE, Validators.NONE, 1000L, 2000L);
+        store.put(EXAMPLE_ORIGIN, unreachable);
+        assertThat(store.get(EXAMPLE_ORIGIN), equalTo(unreachable));
+    }
+
+    @Test
+    public void givenPutTwice_whenGet_thenReturnsLatest() {
+        store.put(EXAMPLE_ORIGIN, entry);
+        final RobotsEntry renewed = entry.renew(3000L, 4000L);
+        store.put(EXAMPLE_ORIGIN, renewed);
+        assertThat(store.get(EXAMPLE_ORIGIN), equalTo(renewed));
+        assertThat(store.size(), equalTo(1L));
+    }
+
+    @Test
+    public void givenPut_whenRemove_thenReturnsEntryAndRemovesIt() {
+        store.put(EXAMPLE_ORIGIN, entry);
+        assertThat(store.remove(EXAMPLE_ORIGIN), equalTo(entry));
+        assertThat(store.get(EXAMPLE_ORIGIN), nullValue());
+        assertThat(store.size(), equalTo(0L));
+    }
+
+    @Test
+    public void givenPut_whenInvalidate_thenRemoved() {
+        store.put(EXAMPLE_ORIGIN, entry);
+        store.invalidate(EXAMPLE_ORIGIN);
+        assertThat(store.get(EXAMPLE_ORIGIN), nullValue());
+    }
+
+    @Test
+    public void givenPut_whenClear_thenEmpty() {
+        store.put(EXAMPLE_ORIGIN, entry);
+        store.put(OTHER_ORIGIN, entry);
+        store.clear();
+        assertThat(store.size(), equalTo(0L));
+        assertThat(store.get(EXAMPLE_ORIGIN), nullValue());
+    }
+
+    @Test
+    public void givenEntryTooLargeForSegment_whenPut_thenNotStored() throws Exception {
+        final OffHeapEntryStore small = new OffHeapEntryStore(codec, 4096, 1);
+        final RobotsEntry large = new RobotsEntry(
+                parse("User-agent: *\nDisallow: /" + Strings.repeat("x", 4096) + "\n"),
+                RobotsEntry.Outcome.SUCCESS, Validators.NONE, 1000L, 2000L);
+        assertThat(small.put(EXAMPLE_ORIGIN, large), is(false));
+        assertThat(small.get(EXAMPLE_ORIGIN), nullValue());
+    }
+
+    @Test
+    public void givenMoreEntriesThanFit_whenPut_thenOldestAreEvicted() {
+        final OffHeapEntryStore small = new OffHeapEntryStore(codec, 4096, 1);
+        for (int i = 0; i < 1000; i++) {
+            small.put(origin(i), entry);
+        }
+        assertThat(small.size(), lessThan(1000L));
+        assertThat(small.get(origin(0)), nullValue());
+        assertThat(small.get(origin(999)), equalTo(entry));
+    }
+
+    @Test
+    public void givenRandomOperations_whenGet_thenNeverReturnsStaleEntry() {
+        final OffHeapEntryStore small = new OffHeapEntryStore(codec, 8192, 2);
+        final Map<Origin, RobotsEntry> latest = Maps.newHashMap();
+        final Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            final Origin origin = origin(random.nextInt(200));
+            final int operation = random.nextInt(10);
+            if (operation < 6) {
+                final RobotsEntry value = entry.renew(i, i + 1000L);
+                small.put(origin, value);
+                latest.put(origin, value);
+            } else if (operation < 8) {
+                final RobotsEntry found = small.get(origin);
+                if (found != null) {
+                    assertThat(found, equalTo(latest.get(origin)));
+                }
+            } else {
+                final RobotsEntry found = small.remove(origin);
+                if (found != null) {
+                    assertThat(found, equalTo(latest.get(origin)));
+                }
+                latest.remove(origin);
+            }
+        }
+        long present = 0;
+        for (int i = 0; i < 200; i++) {
+            final RobotsEntry found = small.get(origin(i));
+            if (found != null) {
+                assertThat(found, equalTo(latest.get(origin(i))));
+                present++;
+            }
+        }
+        assertThat(small.size(), equalTo(present));
+    }
+
+    private Robots parse(String content) throws Exception {
+        final RobotsTxtParser parser = factory.createRobotsTxtParser();
+        final RobotsBuildingParseHandler handler = factory.createRobotsBuildingHandler();
+        parser.parse(new StringReader(content), handler);
+        return handler.get();
+    }
+
+    private static Origin origin(int i) {
+        return Origin.of(URI.create("http://host" + i + ".example.com/"));
+    }
+}
@@ -0,0 +1,176 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.net.Origin;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class PolitenessSchedulerTest {
+
+    private static final Origin EXAMPLE_ORIGIN = Origin.of(URI.create("http://example.com/"));
+    private static final Origin OTHER_ORIGIN = Origin.of(URI.create("http://other.example.com/"));
+    private static final long NOW = 1000000L;
+
+    private PolitenessScheduler scheduler;
+
+    @Before
+    public void setup() {
+        scheduler = new PolitenessScheduler(1000, 60000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenZeroMaxOrigins_whenConstruct_thenThrowsIAE() {
+        new PolitenessScheduler(0, 60000);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void givenNullOrigin_whenAcquire_thenThrowsNPE() {
+        scheduler.acquire(null, 1000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenNegativeDelay_whenAcquire_thenThrowsIAE() {
+        scheduler.acquire(EXAMPLE_ORIGIN, -1);
+    }
+
+    @Test
+    public void givenUnknownOrigin_whenGetNextFetchTimeMillis_thenNow() {
+        assertThat(scheduler.getNextFetchTimeMillis(EXAMPLE_ORIGIN, NOW), equalTo(NOW));
+        assertThat(scheduler.size(), equalTo(0L));
+    }
+
+    @Test
+    public void givenAcquired_whenGetNextFetchTimeMillis_thenNowPlusDelay() {
+        scheduler.acquire(EXAMPLE_ORIGIN, 1000, NOW);
+        assertThat(scheduler.getNextFetchTimeMillis(EXAMPLE_ORIGIN, NOW), equalTo(NOW + 1000));
+        assertThat(scheduler.getNextFetchTimeMillis(OTHER_ORIGIN, NOW), equalTo(NOW));
+    }
+
+    @Test
+    public void givenUnknownOrigin_whenAcquire_thenStartsNow() {
+        assertThat(scheduler.acquire(EXAMPLE_ORIGIN, 1000, NOW), equalTo(NOW));
+    }
+
+    @Test
+    public void givenAcquired_whenAcquireAgain_thenStartsAfterDelay() {
+        scheduler.acquire(EXAMPLE_ORIGIN, 1000, NOW);
+        assertThat(scheduler.acquire(EXAMPLE_ORIGIN, 1000, NOW), equalTo(NOW + 1000));
+        assertThat(scheduler.acquire(EXAMPLE_ORIGIN, 1000, NOW + 10), equalTo(NOW + 2000));
+    }
+
+    @Test
+    public void givenDelayPassed_whenAcquire_thenStartsNow() {
+        scheduler.acquire(EXAMPLE_ORIGIN, 1000, NOW);
+        assertThat(scheduler.acquire(EXAMPLE_ORIGIN, 1000, NOW + 5000), equalTo(NOW + 5000));
+    }
+
+    @Test
+    public void givenDelayAboveMaximum_whenAcquire_thenDelayIsCapped() {
+        scheduler.acquire(EXAMPLE_ORIGIN, 3600000, NOW);
+        assertThat(scheduler.getNextFetchTimeMillis(EXAMPLE_ORIGIN, NOW), equalTo(NOW + 60000));
+    }
+
+    @Test
+    public void givenUnknownOrigin_whenTryAcquire_thenTrue() {
+        assertThat(scheduler.tryAcquire(EXAMPLE_ORIGIN, 1000, NOW), is(true));
+    }
+
+    @Test
+    public void givenAcquired_whenTryAcquireBeforeDelay_thenFalseAndNothingReserved() {
+        scheduler.tryAcquire(EXAMPLE_ORIGIN, 1000, NOW);
+        assertThat(scheduler.tryAcquire(EXAMPLE_ORIGIN, 1000, NOW + 999), is(false));
+        assertThat(scheduler.getNextFetchTimeMillis(EXAMPLE_ORIGIN, NOW), equalTo(NOW + 1000));
+    }
+
+    @Test
+    public void givenAcquired_whenTryAcquireAfterDelay_thenTrue() {
+        scheduler.tryAcquire(EXAMPLE_ORIGIN, 1000, NOW);
+        assertThat(scheduler.tryAcquire(EXAMPLE_ORIGIN, 1000, NOW + 1000), is(true));
+    }
+
+    @Test
+    public void givenMoreOriginsThanMaximum_whenAcquire_thenSizeIsBounded() {
+        final PolitenessScheduler bounded = new PolitenessScheduler(10, 60000);
+        for (int i = 0; i < 1000; i++) {
+            bounded.acquire(Origin.of(URI.create("http://host" + i + ".example.com/")), 1000, NOW);
+        }
+        assertThat(bounded.size() <= 10, is(true));
+    }
+
+    @Test
+    public void givenConcurrentAcquires_whenAcquire_thenEverySlotIsDistinct() throws Exception {
+        final int threads = 8;
+        final int acquiresPerThread = 1000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<List<Long>>> futures = new ArrayList<Future<List<Long>>>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(new Callable<List<Long>>() {
+                    @Override
+                    public List<Long> call() {
+                        final List<Long> starts = new ArrayList<Long>(acquiresPerThread);
+                        for (int j = 0; j < acquiresPerThread; j++) {
+                            starts.add(scheduler.acquire(EXAMPLE_ORIGIN, 10, NOW));
+                        }
+                        return starts;
+                    }
+                }));
+            }
+            final List<Long> starts = new ArrayList<Long>();
+            for (Future<List<Long>> future : futures) {
+                starts.addAll(future.get());
+            }
+            Collections.sort(starts);
+            for (int i = 0; i < starts.size(); i++) {
+                assertThat(starts.get(i), equalTo(NOW + i * 10L));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
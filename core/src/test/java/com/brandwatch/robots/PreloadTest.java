@@ -0,0 +1,154 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.domain.Robots;
+import com.brandwatch.robots.net.Origin;
+import com.brandwatch.robots.net.Validators;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PreloadTest {
+
+    private static final URI EXAMPLE_URI = URI.create("http://example.com/index.html");
+
+    @Mock
+    private RobotsLoader loader;
+
+    private final RobotsUtilities utilities = new RobotsUtilities();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenNegativeMaxConcurrent_whenNewInstance_thenThrowsIAE() {
+        new Preload(loader, utilities, Collections.<URI>emptyList(), -1);
+    }
+
+    @Test
+    public void givenNoResources_whenStart_thenDone() throws Exception {
+        Preload preload = start(Collections.<URI>emptyList(), 1);
+        assertThat(preload.getFuture().isDone(), is(true));
+        assertThat(preload.getFuture().get().isDone(), is(true));
+        assertThat(preload.getStats().getCompletedCount(), equalTo(0L));
+    }
+
+    @Test
+    public void givenLoadedResources_whenStart_thenCountedByOutcome() throws Exception {
+        URI other = URI.create("http://example.org/index.html");
+        when(loader.preloadAsync(Origin.of(EXAMPLE_URI))).thenReturn(
+                Futures.immediateFuture(entry(RobotsEntry.Outcome.SUCCESS)));
+        when(loader.preloadAsync(Origin.of(other))).thenReturn(
+                Futures.immediateFuture(entry(RobotsEntry.Outcome.SERVER_ERROR)));
+
+        PreloadStats stats = start(ImmutableList.of(EXAMPLE_URI, other), 1).getFuture().get();
+
+        assertThat(stats.getStartedCount(), equalTo(2L));
+        assertThat(stats.getCompletedCount(), equalTo(2L));
+        assertThat(stats.getOutcomeCount(RobotsEntry.Outcome.SUCCESS), equalTo(1L));
+        assertThat(stats.getOutcomeCount(RobotsEntry.Outcome.SERVER_ERROR), equalTo(1L));
+        assertThat(stats.getOutcomeCount(RobotsEntry.Outcome.UNREACHABLE), equalTo(0L));
+    }
+
+    @Test
+    public void givenMalformedResourceOrLoadFailure_whenStart_thenCountedAsFailed() throws Exception {
+        when(loader.preloadAsync(any(Origin.class))).thenReturn(
+                Futures.<RobotsEntry>immediateFailedFuture(new ExpectedRuntimeException()));
+
+        PreloadStats stats = start(ImmutableList.of(
+                URI.create("http://mobil..bloggplatsen.se/rss/"), EXAMPLE_URI), 0).getFuture().get();
+
+        assertThat(stats.getFailedCount(), equalTo(2L));
+        assertThat(stats.getCompletedCount(), equalTo(2L));
+        assertThat(stats.isDone(), is(true));
+    }
+
+    @Test
+    public void givenMaxConcurrent_whenStart_thenOnlyThatManyInProgress() {
+        SettableFuture<RobotsEntry> first = SettableFuture.create();
+        when(loader.preloadAsync(any(Origin.class)))
+                .thenReturn(first)
+                .thenReturn(SettableFuture.<RobotsEntry>create());
+        List<URI> resources = ImmutableList.of(
+                URI.create("http://a.example.com/"),
+                URI.create("http://b.example.com/"),
+                URI.create("http://c.example.com/"));
+
+        Preload preload = start(resources, 2);
+        assertThat(preload.getStats().getStartedCount(), equalTo(2L));
+        verify(loader, times(2)).preloadAsync(any(Origin.class));
+
+        first.set(entry(RobotsEntry.Outcome.SUCCESS));
+        assertThat(preload.getStats().getStartedCount(), equalTo(3L));
+        assertThat(preload.getStats().getCompletedCount(), equalTo(1L));
+        assertThat(preload.getFuture().isDone(), is(false));
+    }
+
+    @Test
+    public void givenManyCachedResources_whenStart_thenCompletesWithoutRecursion() throws Exception {
+        when(loader.preloadAsync(any(Origin.class))).thenReturn(
+                Futures.immediateFuture(entry(RobotsEntry.Outcome.SUCCESS)));
+
+        PreloadStats stats = start(Iterables.limit(Iterables.cycle(EXAMPLE_URI), 100000), 1).getFuture().get();
+
+        assertThat(stats.getOutcomeCount(RobotsEntry.Outcome.SUCCESS), equalTo(100000L));
+    }
+
+    private Preload start(Iterable<URI> resources, int maxConcurrent) {
+        Preload preload = new Preload(loader, utilities, resources, maxConcurrent);
+        preload.start();
+        return preload;
+    }
+
+    private static RobotsEntry entry(RobotsEntry.Outcome outcome) {
+        long now = System.currentTimeMillis();
+        return new RobotsEntry(new Robots.Builder().build(), outcome, Validators.NONE, now, now + 60000);
+    }
+}
@@ -44,6 +44,7 @@ import org.mockito.runners.MockitoJUnitRunner;
 
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
 
 import static com.brandwatch.robots.AbstractDataTest.resourceReader;
 import static org.hamcrest.Matchers.equalTo;
@@ -110,5 +111,32 @@ public class RobotsBuildingParseHandlerFunctionalTest {
         assertThat(actual, equalTo(expected));
     }
 
+    @Test
+    public void givenRateLinesInGroup_whenParse_thenGroupHasRateDirectives() throws ParseException {
+        RobotsParser robotsTxtParser = new RobotsParser(new StringReader(
+                "Crawl-delay: 5\n"
+                        + "User-agent: *\n"
+                        + "Crawl-delay: 2.5\n"
+                        + "Request-rate: 1/10s\n"
+                        + "Crawl-delay: soon\n"
+                        + "Disallow: /private\n"));
+        RobotsBuildingParseHandler handler = new RobotsBuildingParseHandler(pathExpressionCompiler, agentExpressionCompiler);
+        robotsTxtParser.parse(handler);
 
+        Robots expected = new Robots.Builder()
+                .withGroup(new Group.Builder()
+                        .withDirective(new AgentDirective("*", agentExpressionCompiler.compile("*")))
+                        .withDirective(new RateDirective(RateDirective.Field.crawl_delay, "2.5", 2500))
+                        .withDirective(new RateDirective(RateDirective.Field.request_rate, "1/10s", 10000))
+                        .withDirective(new PathDirective(PathDirective.Field.disallow, "/private", ALL))
+                        .build())
+                .withNonGroupDirective(new OtherDirective("Crawl-delay", "5"))
+                .withNonGroupDirective(new OtherDirective("Crawl-delay", "soon"))
+                .build();
+
+        Robots actual = handler.get();
+
+        assertThat(actual, equalTo(expected));
+        assertThat(actual.getGroups().get(0).getCrawlDelayMillis(), equalTo(10000L));
+    }
 }
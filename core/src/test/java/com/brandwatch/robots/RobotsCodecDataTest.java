@@ -0,0 +1,84 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.domain.Group;
+import com.brandwatch.robots.domain.PathDirective;
+import com.brandwatch.robots.domain.Robots;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+@RunWith(Parameterized.class)
+public class RobotsCodecDataTest extends AbstractDataTest {
+
+    private final RobotsFactory factory = new RobotsFactory(new RobotsConfig());
+    private final RobotsCodec codec = factory.createRobotsCodec();
+
+    public RobotsCodecDataTest(String resourceName) {
+        super(resourceName);
+    }
+
+    @Test
+    public void givenParsedRobots_whenWriteThenRead_thenResultEqualsOriginal() throws Exception {
+        final RobotsBuildingParseHandler handler = factory.createRobotsBuildingHandler();
+        robotsTxtParser.parse(handler);
+        final Robots robots = handler.get();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.writeTo(robots, out);
+        final ByteBuffer in = ByteBuffer.wrap(out.toByteArray());
+        final Robots result = codec.readFrom(in);
+
+        assertThat(result, equalTo(robots));
+        assertThat(in.remaining(), is(0));
+
+        for (int i = 0; i < robots.getGroups().size(); i++) {
+            final Group expectedGroup = robots.getGroups().get(i);
+            final Group resultGroup = result.getGroups().get(i);
+            for (PathDirective directive : expectedGroup.getDirectives(PathDirective.class)) {
+                final String path = directive.getValue().replace("*", "/x/").replace("$", "");
+                assertThat(path, resultGroup.getPathDirectiveTrie().getMostSpecificMatch(path),
+                        equalTo(expectedGroup.getPathDirectiveTrie().getMostSpecificMatch(path)));
+            }
+        }
+    }
+}
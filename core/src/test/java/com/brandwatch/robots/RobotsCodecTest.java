@@ -0,0 +1,174 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.domain.AgentDirective;
+import com.brandwatch.robots.domain.Group;
+import com.brandwatch.robots.domain.OtherDirective;
+import com.brandwatch.robots.domain.PathDirective;
+import com.brandwatch.robots.domain.RateDirective;
+import com.brandwatch.robots.domain.Robots;
+import com.brandwatch.robots.domain.SiteMapDirective;
+import com.brandwatch.robots.matching.EverythingMatcher;
+import com.brandwatch.robots.matching.ExpressionCompiler;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RobotsCodecTest {
+
+    @Mock
+    private ExpressionCompiler pathExpressionCompiler;
+
+    @Mock
+    private ExpressionCompiler agentExpressionCompiler;
+
+    private RobotsCodec codec;
+
+    private Robots robots;
+
+    @Before
+    public void setup() {
+        when(pathExpressionCompiler.compile(anyString())).thenReturn(new EverythingMatcher<String>());
+        when(agentExpressionCompiler.compile(anyString())).thenReturn(new EverythingMatcher<String>());
+        codec = new RobotsCodec(pathExpressionCompiler, agentExpressionCompiler);
+        robots = new Robots.Builder()
+                .withGroup(new Group.Builder()
+                        .withDirective(new AgentDirective("*", new EverythingMatcher<String>()))
+                        .withDirective(new PathDirective(PathDirective.Field.disallow, "/private", new EverythingMatcher<String>()))
+                        .withDirective(new PathDirective(PathDirective.Field.allow, "/public", new EverythingMatcher<String>()))
+                        .withDirective(new RateDirective(RateDirective.Field.crawl_delay, "2.5", 2500))
+                        .withDirective(new RateDirective(RateDirective.Field.request_rate, "1/10s", 10000))
+                        .build())
+                .withGroup(new Group.Builder()
+                        .withDirective(new AgentDirective("magpie", new EverythingMatcher<String>()))
+                        .withDirective(new PathDirective(PathDirective.Field.disallow, "/private", new EverythingMatcher<String>()))
+                        .build())
+                .withNonGroupDirective(new SiteMapDirective("http://example.com/sitemap.xml"))
+                .withNonGroupDirective(new OtherDirective("host", "example.com"))
+                .build();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void givenNullRobots_whenWriteTo_thenThrowsNPE() throws IOException {
+        codec.writeTo(null, new ByteArrayOutputStream());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void givenNullBuffer_whenReadFrom_thenThrowsNPE() throws IOException {
+        codec.readFrom(null);
+    }
+
+    @Test
+    public void givenRobots_whenWriteThenRead_thenResultEqualsOriginal() throws IOException {
+        assertThat(codec.readFrom(ByteBuffer.wrap(encode(robots))), equalTo(robots));
+    }
+
+    @Test
+    public void givenEmptyRobots_whenWriteThenRead_thenResultIsEmpty() throws IOException {
+        final Robots empty = new Robots.Builder().build();
+        assertThat(codec.readFrom(ByteBuffer.wrap(encode(empty))), equalTo(empty));
+    }
+
+    @Test
+    public void givenRepeatedValues_whenWriteTo_thenValuesAreWrittenOnce() throws IOException {
+        final String encoded = new String(encode(robots), "UTF-8");
+        assertThat(encoded.indexOf("/private"), is(encoded.lastIndexOf("/private")));
+    }
+
+    @Test
+    public void givenDirectBuffer_whenReadFrom_thenResultEqualsOriginal() throws IOException {
+        final byte[] bytes = encode(robots);
+        final ByteBuffer in = ByteBuffer.allocateDirect(bytes.length);
+        in.put(bytes).flip();
+        assertThat(codec.readFrom(in), equalTo(robots));
+    }
+
+    @Test
+    public void givenDecodedRobots_whenMatcherNotUsed_thenNothingIsCompiled() throws IOException {
+        codec.readFrom(ByteBuffer.wrap(encode(robots)));
+        verifyZeroInteractions(pathExpressionCompiler, agentExpressionCompiler);
+    }
+
+    @Test
+    public void givenDecodedRobots_whenMatcherUsedTwice_thenCompiledOnce() throws IOException {
+        final Robots result = codec.readFrom(ByteBuffer.wrap(encode(robots)));
+        final PathDirective directive = result.getGroups().get(0).getDirectives(PathDirective.class).get(0);
+        directive.getMatcher();
+        directive.getMatcher();
+        verify(pathExpressionCompiler, times(1)).compile("/private");
+    }
+
+    @Test
+    public void givenTruncatedEncoding_whenReadFrom_thenThrowsIOException() throws IOException {
+        final byte[] bytes = encode(robots);
+        for (int length = 0; length < bytes.length; length++) {
+            try {
+                codec.readFrom(ByteBuffer.wrap(Arrays.copyOf(bytes, length)));
+                throw new AssertionError("Expected IOException for length " + length);
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void givenUnknownVersion_whenReadFrom_thenThrowsIOException() throws IOException {
+        final byte[] bytes = encode(robots);
+        bytes[0] = 99;
+        codec.readFrom(ByteBuffer.wrap(bytes));
+    }
+
+    private byte[] encode(Robots robots) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.writeTo(robots, out);
+        return out.toByteArray();
+    }
+}
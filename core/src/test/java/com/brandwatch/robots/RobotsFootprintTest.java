@@ -0,0 +1,126 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.domain.AgentDirective;
+import com.brandwatch.robots.domain.Group;
+import com.brandwatch.robots.domain.PathDirective;
+import com.brandwatch.robots.domain.Robots;
+import com.brandwatch.robots.matching.EverythingMatcher;
+import com.brandwatch.robots.parser.RobotsParser;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import static com.brandwatch.robots.AbstractDataTest.resourceReader;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+public class RobotsFootprintTest {
+
+    private final RobotsFactory factory = new RobotsFactory(new RobotsConfig());
+
+    @Test(expected = NullPointerException.class)
+    public void givenNull_whenEstimate_thenThrowsNPE() {
+        RobotsFootprint.estimate(null);
+    }
+
+    @Test
+    public void givenEmptyRobots_whenEstimate_thenSmall() {
+        assertThat(RobotsFootprint.estimate(new Robots.Builder().build()), lessThan(100L));
+    }
+
+    @Test
+    public void givenAllowAll_whenEstimate_thenMuchSmallerThanParsedFile() throws Exception {
+        long allowAll = RobotsFootprint.estimate(factory.createAllowAllRobots());
+        long parsed = RobotsFootprint.estimate(parse("http_www.google.com_robots.txt"));
+        assertThat(allowAll, lessThan(1024L));
+        assertThat(parsed, greaterThan(allowAll * 50));
+    }
+
+    @Test
+    public void givenParsedFile_whenEstimate_thenExceedsCharactersOfDirectives() throws Exception {
+        Robots robots = parse("http_www.google.com_robots.txt");
+        long chars = 0;
+        for (Group group : robots.getGroups()) {
+            for (PathDirective directive : group.getPathDirectives()) {
+                chars += directive.getValue().length();
+            }
+        }
+        assertThat(RobotsFootprint.estimate(robots), greaterThan(chars * 2));
+    }
+
+    @Test
+    public void givenDecodedRobots_whenEstimate_thenSameAsParsed() throws Exception {
+        Robots robots = parse("http_www.dailymail.co.uk_robots.txt");
+        RobotsCodec codec = factory.createRobotsCodec();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.writeTo(robots, out);
+        Robots decoded = codec.readFrom(ByteBuffer.wrap(out.toByteArray()));
+        assertThat(RobotsFootprint.estimate(decoded), equalTo(RobotsFootprint.estimate(robots)));
+    }
+
+    @Test
+    public void givenMoreDirectives_whenEstimate_thenLarger() {
+        Robots one = robots("/private/");
+        Robots two = robots("/private/", "/secret/");
+        assertThat(RobotsFootprint.estimate(two), greaterThan(RobotsFootprint.estimate(one)));
+    }
+
+    @Test
+    public void givenSharedPrefixes_whenEstimate_thenSmallerThanDistinctPrefixes() {
+        Robots shared = robots("/account/settings/a", "/account/settings/b");
+        Robots distinct = robots("/account/settings/a", "/bccount/settings/b");
+        assertThat(RobotsFootprint.estimate(shared), lessThan(RobotsFootprint.estimate(distinct)));
+    }
+
+    private Robots parse(String resourceName) throws Exception {
+        RobotsBuildingParseHandler handler = factory.createRobotsBuildingHandler();
+        new RobotsParser(resourceReader(resourceName)).parse(handler);
+        return handler.get();
+    }
+
+    private static Robots robots(String... disallowed) {
+        Group.Builder group = new Group.Builder()
+                .withDirective(new AgentDirective("*", new EverythingMatcher<String>()));
+        for (String path : disallowed) {
+            group.withDirective(new PathDirective(PathDirective.Field.disallow, path,
+                    new EverythingMatcher<String>()));
+        }
+        return new Robots.Builder().withGroup(group.build()).build();
+    }
+}
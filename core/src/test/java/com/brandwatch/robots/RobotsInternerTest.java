@@ -0,0 +1,88 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.domain.Robots;
+import com.google.common.hash.HashCode;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class RobotsInternerTest {
+
+    private static final String CONTENT = "User-agent: *\nDisallow: /private\n";
+
+    private final RobotsInterner interner = new RobotsInterner();
+
+    @Test(expected = NullPointerException.class)
+    public void givenNullContent_whenHash_thenThrowsNPE() {
+        RobotsInterner.hash(null);
+    }
+
+    @Test
+    public void givenIdenticalContent_whenHash_thenEqual() {
+        assertThat(RobotsInterner.hash(CONTENT), equalTo(RobotsInterner.hash(new String(CONTENT))));
+    }
+
+    @Test
+    public void givenDifferentContent_whenHash_thenNotEqual() {
+        assertThat(RobotsInterner.hash(CONTENT), not(equalTo(RobotsInterner.hash(CONTENT + " "))));
+    }
+
+    @Test
+    public void givenNothingInterned_whenGet_thenNull() {
+        assertThat(interner.get(RobotsInterner.hash(CONTENT)), nullValue());
+    }
+
+    @Test
+    public void givenInterned_whenGet_thenSameInstance() {
+        Robots robots = new Robots.Builder().build();
+        HashCode hash = RobotsInterner.hash(CONTENT);
+        interner.intern(hash, robots);
+        assertThat(interner.get(hash), sameInstance(robots));
+    }
+
+    @Test
+    public void givenAlreadyInterned_whenIntern_thenExistingReturned() {
+        Robots first = new Robots.Builder().build();
+        Robots second = new Robots.Builder().build();
+        HashCode hash = RobotsInterner.hash(CONTENT);
+        interner.intern(hash, first);
+        assertThat(interner.intern(hash, second), sameInstance(first));
+    }
+}
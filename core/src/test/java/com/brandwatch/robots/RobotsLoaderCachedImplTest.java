@@ -34,74 +34,322 @@ package com.brandwatch.robots;
  */
 
 import com.brandwatch.robots.domain.Robots;
+import com.brandwatch.robots.metrics.MetricNames;
+import com.brandwatch.robots.metrics.RecordingMetricsRegistry;
+import com.brandwatch.robots.net.Origin;
+import com.brandwatch.robots.net.Validators;
 import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.invocation.InvocationOnMock;
 import org.mockito.runners.MockitoJUnitRunner;
-import org.mockito.stubbing.Answer;
 
 import java.net.URI;
-import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
 
+import static org.hamcrest.Matchers.both;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
-import static org.mockito.Matchers.any;
-import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
 public class RobotsLoaderCachedImplTest {
 
     private static final URI EXAMPLE_URI = URI.create("http://example.com/robots.txt");
+    private static final Origin EXAMPLE_ORIGIN = Origin.of(EXAMPLE_URI);
+    private static final URI EXAMPLE_ROBOTS_URI = EXAMPLE_ORIGIN.getRobotsUri();
+    private static final long REFRESH_AFTER_MILLIS = TimeUnit.MINUTES.toMillis(30);
+    private static final long EXPIRES_AFTER_MILLIS = TimeUnit.HOURS.toMillis(1);
 
-    @Mock
-    private Cache<URI, Robots> cache;
+    private Cache<Origin, RobotsEntry> cache;
 
     @Mock
     private RobotsLoader delegate;
 
-    @InjectMocks
     private RobotsLoaderCachedImpl loader;
 
+    @Before
+    public void setup() {
+        cache = CacheBuilder.newBuilder().build();
+        loader = new RobotsLoaderCachedImpl(delegate, cache, REFRESH_AFTER_MILLIS);
+    }
+
     @Test(expected = NullPointerException.class)
     public void givenNullUri_whenLoad_thenThrowsNPE() throws Exception {
-        loader.load(null);
+        loader.load((URI) null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenNegativeRefresh_whenNewInstance_thenThrowsIAE() {
+        new RobotsLoaderCachedImpl(delegate, cache, -1);
+    }
+
+    @Test
+    public void givenCacheMiss_whenLoad_resultIsLoadedAndCached() throws Exception {
+        RobotsEntry expected = freshEntry();
+        when(delegate.loadEntryAsync(EXAMPLE_ROBOTS_URI, null)).thenReturn(Futures.immediateFuture(expected));
+        Robots result = loader.load(EXAMPLE_URI);
+        assertThat(result, sameInstance(expected.getRobots()));
+        assertThat(cache.getIfPresent(EXAMPLE_ORIGIN), sameInstance(expected));
+    }
+
+    @Test
+    public void givenCacheHit_whenLoad_resultNotInvokesDelegate() throws Exception {
+        RobotsEntry expected = freshEntry();
+        cache.put(EXAMPLE_ORIGIN, expected);
+        Robots result = loader.load(EXAMPLE_URI);
+        assertThat(result, sameInstance(expected.getRobots()));
+        verifyZeroInteractions(delegate);
+    }
+
+    @Test
+    public void givenExpiredEntry_whenLoad_thenDelegateRevalidatesIt() throws Exception {
+        RobotsEntry expired = expiredEntry();
+        RobotsEntry renewed = renewed(expired);
+        cache.put(EXAMPLE_ORIGIN, expired);
+        when(delegate.loadEntryAsync(EXAMPLE_ROBOTS_URI, expired)).thenReturn(Futures.immediateFuture(renewed));
+        Robots result = loader.load(EXAMPLE_URI);
+        assertThat(result, sameInstance(expired.getRobots()));
+        assertThat(cache.getIfPresent(EXAMPLE_ORIGIN), sameInstance(renewed));
     }
 
     @Test
-    public void givenValidUri_whenLoad_resultEqualsExpected() throws Exception {
-        Robots expected = new Robots.Builder().build();
-        when(cache.get(eq(EXAMPLE_URI), any(Callable.class))).thenReturn(expected);
+    public void givenRecentEntryWithShortExpiry_whenLoad_thenDelegateRevalidatesIt() throws Exception {
+        long now = System.currentTimeMillis();
+        RobotsEntry expired = new RobotsEntry(new Robots.Builder().build(), RobotsEntry.Outcome.SERVER_ERROR,
+                Validators.NONE, now, now);
+        RobotsEntry reloaded = freshEntry();
+        cache.put(EXAMPLE_ORIGIN, expired);
+        when(delegate.loadEntryAsync(EXAMPLE_ROBOTS_URI, expired)).thenReturn(Futures.immediateFuture(reloaded));
         Robots result = loader.load(EXAMPLE_URI);
-        assertThat(result, equalTo(expected));
+        assertThat(result, sameInstance(reloaded.getRobots()));
+        assertThat(cache.getIfPresent(EXAMPLE_ORIGIN), sameInstance(reloaded));
     }
 
     @Test
-    public void givenCacheMiss_whenLoad_resultInvokesDelegateOnce() throws Exception {
-        when(cache.get(eq(EXAMPLE_URI), any(Callable.class))).thenAnswer(new Answer<Robots>() {
-            @Override
-            public Robots answer(InvocationOnMock invocation) throws Throwable {
-                return ((Callable<Robots>) invocation.getArguments()[1]).call();
-            }
-        });
+    public void givenOldEntryWithLongExpiry_whenLoad_thenServedFromCache() throws Exception {
+        long now = System.currentTimeMillis();
+        RobotsEntry old = new RobotsEntry(new Robots.Builder().build(), RobotsEntry.Outcome.SUCCESS,
+                Validators.NONE, now - TimeUnit.DAYS.toMillis(2), now + TimeUnit.DAYS.toMillis(1));
+        cache.put(EXAMPLE_ORIGIN, old);
+        loader = new RobotsLoaderCachedImpl(delegate, cache, Long.MAX_VALUE);
+        Robots result = loader.load(EXAMPLE_URI);
+        assertThat(result, sameInstance(old.getRobots()));
+        verifyZeroInteractions(delegate);
+    }
+
+    @Test(expected = ExpectedRuntimeException.class)
+    public void givenDelegateFails_whenLoad_thenThrowsCause() throws Exception {
+        when(delegate.loadEntryAsync(EXAMPLE_ROBOTS_URI, null))
+                .thenReturn(Futures.<RobotsEntry>immediateFailedFuture(new ExpectedRuntimeException()));
         loader.load(EXAMPLE_URI);
-        verify(delegate).load(EXAMPLE_URI);
-        verifyNoMoreInteractions(delegate);
     }
 
     @Test
-    public void givenCacheHit_whenLoad_resultNotInvokesDelegate() throws Exception {
-        when(cache.get(eq(EXAMPLE_URI), any(Callable.class))).thenAnswer(new Answer<Robots>() {
-            @Override
-            public Robots answer(InvocationOnMock invocation) throws Throwable {
-                return new Robots.Builder().build();
-            }
-        });
+    public void givenCacheHit_whenLoadAsync_resultNotInvokesDelegate() throws Exception {
+        RobotsEntry expected = freshEntry();
+        cache.put(EXAMPLE_ORIGIN, expected);
+        Robots result = loader.loadAsync(EXAMPLE_URI).get();
+        assertThat(result, equalTo(expected.getRobots()));
+        verifyZeroInteractions(delegate);
+    }
+
+    @Test
+    public void givenCacheMiss_whenLoadAsync_resultIsCached() throws Exception {
+        RobotsEntry expected = freshEntry();
+        when(delegate.loadEntryAsync(EXAMPLE_ROBOTS_URI, null)).thenReturn(Futures.immediateFuture(expected));
+        loader.loadAsync(EXAMPLE_URI).get();
+        assertThat(cache.getIfPresent(EXAMPLE_ORIGIN), sameInstance(expected));
+    }
+
+    @Test
+    public void givenExpiredEntry_whenLoadAsync_thenDelegateRevalidatesIt() throws Exception {
+        RobotsEntry expired = expiredEntry();
+        RobotsEntry renewed = renewed(expired);
+        cache.put(EXAMPLE_ORIGIN, expired);
+        when(delegate.loadEntryAsync(EXAMPLE_ROBOTS_URI, expired)).thenReturn(Futures.immediateFuture(renewed));
+        loader.loadAsync(EXAMPLE_URI).get();
+        verify(delegate).loadEntryAsync(EXAMPLE_ROBOTS_URI, expired);
+        assertThat(cache.getIfPresent(EXAMPLE_ORIGIN), sameInstance(renewed));
+    }
+
+    @Test
+    public void givenEntryDueRefresh_whenLoad_thenServedWhileRefreshedInBackground() throws Exception {
+        RobotsEntry stale = staleEntry();
+        SettableFuture<RobotsEntry> refresh = SettableFuture.create();
+        cache.put(EXAMPLE_ORIGIN, stale);
+        when(delegate.loadEntryAsync(EXAMPLE_ROBOTS_URI, stale)).thenReturn(refresh);
+
+        Robots result = loader.load(EXAMPLE_URI);
+
+        assertThat(result, sameInstance(stale.getRobots()));
+        verify(delegate).loadEntryAsync(EXAMPLE_ROBOTS_URI, stale);
+
+        RobotsEntry renewed = renewed(stale);
+        refresh.set(renewed);
+        assertThat(cache.getIfPresent(EXAMPLE_ORIGIN), sameInstance(renewed));
+    }
+
+    @Test
+    public void givenRefreshFails_whenLoad_thenCachedEntryKept() throws Exception {
+        RobotsEntry stale = staleEntry();
+        cache.put(EXAMPLE_ORIGIN, stale);
+        RobotsEntry failed = new RobotsEntry(new Robots.Builder().build(), RobotsEntry.Outcome.SERVER_ERROR,
+                Validators.NONE, System.currentTimeMillis(), System.currentTimeMillis() + EXPIRES_AFTER_MILLIS);
+        when(delegate.loadEntryAsync(EXAMPLE_ROBOTS_URI, stale)).thenReturn(Futures.immediateFuture(failed));
+
+        loader.load(EXAMPLE_URI);
+
+        verify(delegate).loadEntryAsync(EXAMPLE_ROBOTS_URI, stale);
+        assertThat(cache.getIfPresent(EXAMPLE_ORIGIN), sameInstance(stale));
+        assertThat(loader.load(EXAMPLE_URI), sameInstance(stale.getRobots()));
+    }
+
+    @Test
+    public void givenRefreshRunning_whenLoadAsync_thenNotRefreshedAgain() throws Exception {
+        RobotsEntry stale = staleEntry();
+        SettableFuture<RobotsEntry> refresh = SettableFuture.create();
+        cache.put(EXAMPLE_ORIGIN, stale);
+        when(delegate.loadEntryAsync(EXAMPLE_ROBOTS_URI, stale)).thenReturn(refresh);
+
+        assertThat(loader.loadAsync(EXAMPLE_URI).get(), sameInstance(stale.getRobots()));
+        assertThat(loader.loadAsync(EXAMPLE_URI).get(), sameInstance(stale.getRobots()));
+
+        verify(delegate, times(1)).loadEntryAsync(EXAMPLE_ROBOTS_URI, stale);
+    }
+
+    @Test
+    public void givenRefreshCompleted_whenEntryDueRefreshAgain_thenRefreshedAgain() throws Exception {
+        RobotsEntry stale = staleEntry();
+        cache.put(EXAMPLE_ORIGIN, stale);
+        when(delegate.loadEntryAsync(EXAMPLE_ROBOTS_URI, stale)).thenReturn(Futures.immediateFuture(stale));
+
         loader.load(EXAMPLE_URI);
+        loader.load(EXAMPLE_URI);
+
+        verify(delegate, times(2)).loadEntryAsync(EXAMPLE_ROBOTS_URI, stale);
+    }
+
+    @Test
+    public void givenEmptyCache_whenGetCacheUsage_thenEmpty() {
+        assertThat(loader.getCacheUsage(), equalTo(new CacheUsage(0, 0)));
+    }
+
+    @Test
+    public void givenFreshEntry_whenPreloadAsync_thenCachedEntryWithoutDelegate() throws Exception {
+        RobotsEntry expected = freshEntry();
+        cache.put(EXAMPLE_ORIGIN, expected);
+        assertThat(loader.preloadAsync(EXAMPLE_ORIGIN).get(), sameInstance(expected));
         verifyZeroInteractions(delegate);
     }
 
+    @Test
+    public void givenExpiredEntry_whenPreloadAsync_thenRevalidatedAndCached() throws Exception {
+        RobotsEntry expired = expiredEntry();
+        RobotsEntry renewed = renewed(expired);
+        cache.put(EXAMPLE_ORIGIN, expired);
+        when(delegate.loadEntryAsync(EXAMPLE_ROBOTS_URI, expired)).thenReturn(Futures.immediateFuture(renewed));
+        assertThat(loader.preloadAsync(EXAMPLE_ORIGIN).get(), sameInstance(renewed));
+        assertThat(cache.getIfPresent(EXAMPLE_ORIGIN), sameInstance(renewed));
+    }
+
+    @Test
+    public void givenEquivalentUris_whenLoad_thenSingleEntryShared() throws Exception {
+        RobotsEntry expected = freshEntry();
+        when(delegate.loadEntryAsync(EXAMPLE_ROBOTS_URI, null)).thenReturn(Futures.immediateFuture(expected));
+        loader.load(EXAMPLE_URI);
+        Robots result = loader.load(URI.create("HTTP://Example.COM:80/index.html"));
+        assertThat(result, sameInstance(expected.getRobots()));
+        assertThat(cache.size(), equalTo(1L));
+        verify(delegate, times(1)).loadEntryAsync(EXAMPLE_ROBOTS_URI, null);
+    }
+
+    @Test
+    public void givenCachedEntries_whenGetCacheUsage_thenSumOfEstimatedSizes() {
+        RobotsEntry first = freshEntry();
+        RobotsEntry second = freshEntry();
+        cache.put(EXAMPLE_ORIGIN, first);
+        cache.put(Origin.of(URI.create("http://example.org/robots.txt")), second);
+        assertThat(loader.getCacheUsage(), equalTo(new CacheUsage(2,
+                first.getEstimatedSizeBytes() + second.getEstimatedSizeBytes())));
+    }
+
+    @Test
+    public void givenCacheMaxSizeBytes_whenCacheFull_thenEvictedByEstimatedSize() {
+        RobotsConfig config = new RobotsConfig();
+        config.setCacheMaxSizeRecords(1);
+        config.setCacheMaxSizeBytes(Long.MAX_VALUE);
+        cache = new RobotsFactory(config).createCache();
+        for (int i = 0; i < 10; i++) {
+            cache.put(Origin.of(URI.create("http://example" + i + ".com/robots.txt")), freshEntry());
+        }
+        assertThat(cache.size(), equalTo(10L));
+
+        config.setCacheMaxSizeBytes(freshEntry().getEstimatedSizeBytes() * 100);
+        cache = new RobotsFactory(config).createCache();
+        for (int i = 0; i < 1000; i++) {
+            cache.put(Origin.of(URI.create("http://example" + i + ".com/robots.txt")), freshEntry());
+        }
+        assertThat(cache.size(), both(greaterThan(0L)).and(lessThanOrEqualTo(100L)));
+    }
+
+    @Test
+    public void givenEntryDueRefresh_whenLoad_thenRefreshCounted() throws Exception {
+        RecordingMetricsRegistry metrics = new RecordingMetricsRegistry();
+        loader = new RobotsLoaderCachedImpl(delegate, cache, REFRESH_AFTER_MILLIS, metrics);
+        RobotsEntry stale = staleEntry();
+        cache.put(EXAMPLE_ORIGIN, stale);
+        when(delegate.loadEntryAsync(EXAMPLE_ROBOTS_URI, stale)).thenReturn(SettableFuture.<RobotsEntry>create());
+
+        loader.load(EXAMPLE_URI);
+
+        assertThat(metrics.getCount(MetricNames.CACHE_REFRESHES), equalTo(1L));
+    }
+
+    @Test
+    public void givenCachedEntry_whenNewInstance_thenGaugesReportCache() {
+        RecordingMetricsRegistry metrics = new RecordingMetricsRegistry();
+        RobotsEntry entry = freshEntry();
+        cache.put(EXAMPLE_ORIGIN, entry);
+        loader = new RobotsLoaderCachedImpl(delegate, cache, REFRESH_AFTER_MILLIS, metrics);
+        assertThat(metrics.getGauge(MetricNames.CACHE_SIZE).getValue(), equalTo(1L));
+        assertThat(metrics.getGauge(MetricNames.CACHE_ESTIMATED_BYTES).getValue(),
+                equalTo(entry.getEstimatedSizeBytes()));
+    }
+
+    @Test
+    public void givenRenewedEntry_whenGetEstimatedSizeBytes_thenSameAsOriginal() {
+        RobotsEntry entry = freshEntry();
+        assertThat(renewed(entry).getEstimatedSizeBytes(), equalTo(entry.getEstimatedSizeBytes()));
+    }
+
+    private static RobotsEntry freshEntry() {
+        long now = System.currentTimeMillis();
+        return new RobotsEntry(new Robots.Builder().build(), RobotsEntry.Outcome.SUCCESS, Validators.NONE,
+                now, now + EXPIRES_AFTER_MILLIS);
+    }
+
+    private static RobotsEntry staleEntry() {
+        long fetched = System.currentTimeMillis() - REFRESH_AFTER_MILLIS;
+        return new RobotsEntry(new Robots.Builder().build(), RobotsEntry.Outcome.SUCCESS,
+                new Validators("\"v1\"", null), fetched, fetched + EXPIRES_AFTER_MILLIS);
+    }
+
+    private static RobotsEntry expiredEntry() {
+        long fetched = System.currentTimeMillis() - EXPIRES_AFTER_MILLIS;
+        return new RobotsEntry(new Robots.Builder().build(), RobotsEntry.Outcome.SUCCESS,
+                new Validators("\"v1\"", null), fetched, fetched + EXPIRES_AFTER_MILLIS);
+    }
+
+    private static RobotsEntry renewed(RobotsEntry entry) {
+        long now = System.currentTimeMillis();
+        return entry.renew(now, now + EXPIRES_AFTER_MILLIS);
+    }
 }
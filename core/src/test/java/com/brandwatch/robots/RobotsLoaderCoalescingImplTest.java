@@ -0,0 +1,168 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.domain.Robots;
+import com.brandwatch.robots.net.Validators;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.net.URI;
+import java.util.concurrent.ExecutionException;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RobotsLoaderCoalescingImplTest {
+
+    private static final URI EXAMPLE_URI = URI.create("http://example.com/robots.txt");
+    private static final URI OTHER_URI = URI.create("http://example.org/robots.txt");
+
+    @Mock
+    private RobotsLoader delegate;
+
+    private SettableFuture<RobotsEntry> exampleFetch;
+    private SettableFuture<RobotsEntry> otherFetch;
+
+    private RobotsLoaderCoalescingImpl loader;
+
+    @Before
+    public void setup() {
+        exampleFetch = SettableFuture.create();
+        otherFetch = SettableFuture.create();
+        when(delegate.loadEntryAsync(EXAMPLE_URI, null)).thenReturn(exampleFetch);
+        when(delegate.loadEntryAsync(OTHER_URI, null)).thenReturn(otherFetch);
+        loader = new RobotsLoaderCoalescingImpl(delegate, new FetchLimiter(1));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void givenNullUri_whenLoadAsync_thenThrowsNPE() {
+        loader.loadAsync((URI) null);
+    }
+
+    @Test
+    public void givenConcurrentCalls_whenLoadEntryAsync_thenDelegateInvokedOnce() {
+        ListenableFuture<RobotsEntry> first = loader.loadEntryAsync(EXAMPLE_URI, null);
+        ListenableFuture<RobotsEntry> second = loader.loadEntryAsync(EXAMPLE_URI, null);
+        assertThat(second, sameInstance(first));
+        verify(delegate, times(1)).loadEntryAsync(EXAMPLE_URI, null);
+    }
+
+    @Test
+    public void givenFetchFails_whenLoadAsync_thenAllWaitersSeeFailure() throws Exception {
+        ListenableFuture<Robots> first = loader.loadAsync(EXAMPLE_URI);
+        ListenableFuture<Robots> second = loader.loadAsync(EXAMPLE_URI);
+        exampleFetch.setException(new ExpectedRuntimeException());
+        for (ListenableFuture<Robots> future : ImmutableList.of(first, second)) {
+            try {
+                future.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause(), instanceOf(ExpectedRuntimeException.class));
+            }
+        }
+        verify(delegate, times(1)).loadEntryAsync(EXAMPLE_URI, null);
+    }
+
+    @Test
+    public void givenFetchCompleted_whenLoadAsync_thenDelegateInvokedAgain() {
+        loader.loadAsync(EXAMPLE_URI);
+        exampleFetch.set(entry(new Robots.Builder().build()));
+        loader.loadAsync(EXAMPLE_URI);
+        verify(delegate, times(2)).loadEntryAsync(EXAMPLE_URI, null);
+    }
+
+    @Test
+    public void givenLimitReached_whenLoadAsync_thenFetchIsQueued() {
+        loader.loadAsync(EXAMPLE_URI);
+        loader.loadAsync(OTHER_URI);
+        assertThat(loader.getFetchStats(), equalTo(new FetchStats(1, 1)));
+        verify(delegate).loadEntryAsync(EXAMPLE_URI, null);
+        verify(delegate, times(0)).loadEntryAsync(OTHER_URI, null);
+    }
+
+    @Test
+    public void givenQueuedFetch_whenRunningFetchCompletes_thenQueuedFetchStarts() throws Exception {
+        loader.loadAsync(EXAMPLE_URI);
+        ListenableFuture<Robots> queued = loader.loadAsync(OTHER_URI);
+        exampleFetch.set(entry(new Robots.Builder().build()));
+        verify(delegate).loadEntryAsync(OTHER_URI, null);
+
+        Robots expected = new Robots.Builder().build();
+        otherFetch.set(entry(expected));
+        assertThat(queued.get(), sameInstance(expected));
+        assertThat(loader.getFetchStats(), equalTo(new FetchStats(0, 0)));
+    }
+
+    @Test(expected = ExpectedRuntimeException.class)
+    public void givenFetchFails_whenLoad_thenThrowsCause() throws Exception {
+        exampleFetch.setException(new ExpectedRuntimeException());
+        loader.load(EXAMPLE_URI);
+    }
+
+    @Test
+    public void givenPreviousEntry_whenLoadEntryAsync_thenDelegateRevalidatesIt() throws Exception {
+        RobotsEntry previous = entry(new Robots.Builder().build());
+        when(delegate.loadEntryAsync(EXAMPLE_URI, previous)).thenReturn(exampleFetch);
+        ListenableFuture<RobotsEntry> result = loader.loadEntryAsync(EXAMPLE_URI, previous);
+        RobotsEntry renewed = previous.renew(2L, 3L);
+        exampleFetch.set(renewed);
+        assertThat(result.get(), sameInstance(renewed));
+    }
+
+    @Test
+    public void givenNoCalls_whenGetFetchStats_thenEmpty() {
+        assertThat(loader.getFetchStats().getInFlightCount(), is(0));
+        verifyZeroInteractions(delegate);
+    }
+
+    private static RobotsEntry entry(Robots robots) {
+        return new RobotsEntry(robots, RobotsEntry.Outcome.SUCCESS, Validators.NONE, 1L, 2L);
+    }
+}
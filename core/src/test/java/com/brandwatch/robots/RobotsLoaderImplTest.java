@@ -33,9 +33,21 @@ package com.brandwatch.robots;
  * #L%
  */
 
+import com.brandwatch.robots.RobotsEntry.Outcome;
 import com.brandwatch.robots.domain.Robots;
+import com.brandwatch.robots.metrics.MetricsRegistryNoopImpl;
 import com.brandwatch.robots.net.CharSourceSupplier;
+import com.brandwatch.robots.net.Origin;
+import com.brandwatch.robots.net.ValidatedCharSource;
+import com.brandwatch.robots.net.Validators;
+import com.brandwatch.robots.parser.ParseException;
+import com.brandwatch.robots.parser.RobotsParseHandler;
+import com.brandwatch.robots.parser.RobotsTxtParser;
+import com.brandwatch.robots.parser.RobotsTxtParserJavaccImpl;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.io.CharSource;
+import com.google.common.util.concurrent.Futures;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -44,13 +56,21 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
 import javax.annotation.Nonnull;
+import javax.ws.rs.ProcessingException;
 import java.io.IOException;
 import java.io.Reader;
 import java.net.URI;
+import java.nio.CharBuffer;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -60,6 +80,7 @@ public class RobotsLoaderImplTest {
     private static final URI EXAMPLE_URI = URI.create("http://example.com/robots.txt");
     private static final Robots ALLOW_ALL = new Robots.Builder().build();
     private static final Robots DISALLOW_ALL = new Robots.Builder().build();
+    private static final long EXPIRES_AFTER_MILLIS = 60000L;
     @Mock
     private RobotsUtilities utilities;
     @Mock
@@ -70,6 +91,8 @@ public class RobotsLoaderImplTest {
     private RobotsFactory factory;
     @Mock
     private CharSourceSupplier charSourceSupplier;
+    @Mock
+    private ExpiryPolicy expiryPolicy;
 
     private RobotsLoaderImpl instance;
 
@@ -77,17 +100,22 @@ public class RobotsLoaderImplTest {
     public void setup() {
         when(factory.getUtilities()).thenReturn(utilities);
         when(factory.createRobotsBuildingHandler()).thenReturn(handler);
+        when(handler.get()).thenReturn(new Robots.Builder().build());
 
         when(factory.createAllowAllRobots()).thenReturn(ALLOW_ALL);
         when(factory.createDisallowAllRobots()).thenReturn(DISALLOW_ALL);
         when(factory.createCharSourceSupplier()).thenReturn(charSourceSupplier);
+        when(factory.createRobotsTxtParser()).thenReturn(new RobotsTxtParserJavaccImpl());
+        when(factory.createExpiryPolicy()).thenReturn(expiryPolicy);
+        when(factory.getMetricsRegistry()).thenReturn(MetricsRegistryNoopImpl.INSTANCE);
+        when(expiryPolicy.getExpiresAfterMillis(any(Outcome.class), anyLong())).thenReturn(EXPIRES_AFTER_MILLIS);
 
         instance = new RobotsLoaderImpl(factory);
     }
 
     @Test(expected = NullPointerException.class)
     public void givenNullSource_whenLoad_thenThrowsNPE() throws IOException {
-        instance.load(null);
+        instance.load((URI) null);
     }
 
     @Test
@@ -139,4 +167,190 @@ public class RobotsLoaderImplTest {
         assertThat(result, equalTo(ALLOW_ALL));
     }
 
+    @Test
+    public void givenSourceFailsWithIOException_whenLoadAsync_thenAllowAll() throws Exception {
+        when(charSourceSupplier.getAsync(any(URI.class), any(Validators.class)))
+                .thenReturn(Futures.<ValidatedCharSource>immediateFailedFuture(new IOException()));
+        Robots result = instance.loadAsync(EXAMPLE_URI).get();
+        assertThat(result, equalTo(ALLOW_ALL));
+    }
+
+    @Test
+    public void givenEmptySource_whenLoadAsync_thenHandlerGetInvoked() throws Exception {
+        when(charSourceSupplier.getAsync(any(URI.class), any(Validators.class)))
+                .thenReturn(Futures.immediateFuture(new ValidatedCharSource(CharSource.empty(), Validators.NONE)));
+        instance.loadAsync(EXAMPLE_URI).get();
+        verify(handler).get();
+    }
+
+    @Test
+    public void givenParsedSource_whenLoadEntryAsync_thenValidatorsRetained() throws Exception {
+        Validators validators = new Validators("\"v1\"", "Wed, 21 Oct 2015 07:28:00 GMT");
+        when(charSourceSupplier.getAsync(EXAMPLE_URI, Validators.NONE))
+                .thenReturn(Futures.immediateFuture(new ValidatedCharSource(CharSource.empty(), validators)));
+        RobotsEntry result = instance.loadEntryAsync(EXAMPLE_URI, null).get();
+        assertThat(result.getValidators(), equalTo(validators));
+    }
+
+    @Test
+    public void givenSourceNotModified_whenLoadEntryAsync_thenPreviousEntryRenewed() throws Exception {
+        Validators validators = new Validators("\"v1\"", null);
+        RobotsEntry previous = new RobotsEntry(new Robots.Builder().build(), Outcome.CLIENT_ERROR,
+                validators, 1L, 2L);
+        when(charSourceSupplier.getAsync(EXAMPLE_URI, validators))
+                .thenReturn(Futures.immediateFuture(new ValidatedCharSource(notModified(), validators)));
+
+        RobotsEntry result = instance.loadEntryAsync(EXAMPLE_URI, previous).get();
+
+        assertThat(result.getRobots(), sameInstance(previous.getRobots()));
+        assertThat(result.getValidators(), equalTo(validators));
+        assertThat(result.getOutcome(), equalTo(Outcome.CLIENT_ERROR));
+        assertThat(result.getFetchedMillis(), greaterThan(previous.getFetchedMillis()));
+        assertThat(result.getExpiresMillis(), equalTo(result.getFetchedMillis() + EXPIRES_AFTER_MILLIS));
+        verify(expiryPolicy).getExpiresAfterMillis(Outcome.CLIENT_ERROR, ValidatedCharSource.NO_MAX_AGE);
+        verify(handler, never()).get();
+    }
+
+    @Test
+    public void givenParsedSource_whenLoadEntryAsync_thenExpiresPerPolicyWithServerMaxAge() throws Exception {
+        when(charSourceSupplier.getAsync(EXAMPLE_URI, Validators.NONE)).thenReturn(Futures.immediateFuture(
+                new ValidatedCharSource(CharSource.empty(), Validators.NONE, 200, 5000L)));
+        RobotsEntry result = instance.loadEntryAsync(EXAMPLE_URI, null).get();
+        assertThat(result.getOutcome(), equalTo(Outcome.SUCCESS));
+        assertThat(result.getExpiresMillis(), equalTo(result.getFetchedMillis() + EXPIRES_AFTER_MILLIS));
+        verify(expiryPolicy).getExpiresAfterMillis(Outcome.SUCCESS, 5000L);
+    }
+
+    @Test
+    public void givenServerError_whenLoadEntryAsync_thenDisallowAllWithServerErrorOutcome() throws Exception {
+        when(charSourceSupplier.getAsync(EXAMPLE_URI, Validators.NONE)).thenReturn(Futures.immediateFuture(
+                new ValidatedCharSource(throwing(new TemporaryDisallow("Server error")), Validators.NONE, 503,
+                        ValidatedCharSource.NO_MAX_AGE)));
+        RobotsEntry result = instance.loadEntryAsync(EXAMPLE_URI, null).get();
+        assertThat(result.getRobots(), sameInstance(DISALLOW_ALL));
+        assertThat(result.getOutcome(), equalTo(Outcome.SERVER_ERROR));
+    }
+
+    @Test
+    public void givenClientErrorDisallow_whenLoadEntryAsync_thenClientErrorOutcome() throws Exception {
+        when(charSourceSupplier.getAsync(EXAMPLE_URI, Validators.NONE)).thenReturn(Futures.immediateFuture(
+                new ValidatedCharSource(throwing(new TemporaryDisallow("Unauthorized")), Validators.NONE, 401,
+                        ValidatedCharSource.NO_MAX_AGE)));
+        RobotsEntry result = instance.loadEntryAsync(EXAMPLE_URI, null).get();
+        assertThat(result.getRobots(), sameInstance(DISALLOW_ALL));
+        assertThat(result.getOutcome(), equalTo(Outcome.CLIENT_ERROR));
+    }
+
+    @Test
+    public void givenNotFound_whenLoadEntryAsync_thenAllowAllWithClientErrorOutcome() throws Exception {
+        when(charSourceSupplier.getAsync(EXAMPLE_URI, Validators.NONE)).thenReturn(Futures.immediateFuture(
+                new ValidatedCharSource(throwing(new TemporaryAllow("Not found")), Validators.NONE, 404, 7000L)));
+        RobotsEntry result = instance.loadEntryAsync(EXAMPLE_URI, null).get();
+        assertThat(result.getRobots(), sameInstance(ALLOW_ALL));
+        assertThat(result.getOutcome(), equalTo(Outcome.CLIENT_ERROR));
+        verify(expiryPolicy).getExpiresAfterMillis(Outcome.CLIENT_ERROR, 7000L);
+    }
+
+    @Test
+    public void givenSourceFailsWithIOException_whenLoadEntryAsync_thenUnreachableOutcome() throws Exception {
+        when(charSourceSupplier.getAsync(EXAMPLE_URI, Validators.NONE))
+                .thenReturn(Futures.<ValidatedCharSource>immediateFailedFuture(new IOException()));
+        RobotsEntry result = instance.loadEntryAsync(EXAMPLE_URI, null).get();
+        assertThat(result.getRobots(), sameInstance(ALLOW_ALL));
+        assertThat(result.getOutcome(), equalTo(Outcome.UNREACHABLE));
+    }
+
+    @Test
+    public void givenSourceFailsWithProcessingException_whenLoadAsyncThroughCache_thenUnreachableCached()
+            throws Exception {
+        URI robotsUri = Origin.of(EXAMPLE_URI).getRobotsUri();
+        when(charSourceSupplier.getAsync(robotsUri, Validators.NONE)).thenReturn(
+                Futures.<ValidatedCharSource>immediateFailedFuture(new ProcessingException("Connection refused")));
+        Cache<Origin, RobotsEntry> cache = CacheBuilder.newBuilder().build();
+        RobotsLoader cached = new RobotsLoaderCachedImpl(instance, cache, Long.MAX_VALUE);
+
+        assertThat(cached.loadAsync(EXAMPLE_URI).get(), sameInstance(ALLOW_ALL));
+        cached.loadAsync(EXAMPLE_URI).get();
+
+        assertThat(cache.getIfPresent(Origin.of(EXAMPLE_URI)).getOutcome(), equalTo(Outcome.UNREACHABLE));
+        verify(charSourceSupplier, times(1)).getAsync(robotsUri, Validators.NONE);
+        verify(expiryPolicy).getExpiresAfterMillis(Outcome.UNREACHABLE, ValidatedCharSource.NO_MAX_AGE);
+    }
+
+    @Test
+    public void givenUnparsableSource_whenLoadEntryAsync_thenAllowAllWithParseFailureOutcome() throws Exception {
+        when(factory.createRobotsTxtParser()).thenReturn(new RobotsTxtParser() {
+            @Override
+            public void parse(@Nonnull Reader reader, @Nonnull RobotsParseHandler handler) throws ParseException {
+                throw new ParseException();
+            }
+
+            @Override
+            public void parse(@Nonnull CharBuffer buffer, @Nonnull RobotsParseHandler handler) throws ParseException {
+                throw new ParseException();
+            }
+        });
+        instance = new RobotsLoaderImpl(factory);
+        Validators validators = new Validators("\"v1\"", null);
+        when(charSourceSupplier.getAsync(EXAMPLE_URI, Validators.NONE))
+                .thenReturn(Futures.immediateFuture(new ValidatedCharSource(CharSource.empty(), validators)));
+        RobotsEntry result = instance.loadEntryAsync(EXAMPLE_URI, null).get();
+        assertThat(result.getRobots(), sameInstance(ALLOW_ALL));
+        assertThat(result.getOutcome(), equalTo(Outcome.PARSE_FAILURE));
+        assertThat(result.getValidators(), equalTo(Validators.NONE));
+    }
+
+    @Test
+    public void givenPolicyNeverExpires_whenLoadEntryAsync_thenExpiryDoesNotOverflow() throws Exception {
+        when(expiryPolicy.getExpiresAfterMillis(any(Outcome.class), anyLong())).thenReturn(Long.MAX_VALUE);
+        when(charSourceSupplier.getAsync(EXAMPLE_URI, Validators.NONE))
+                .thenReturn(Futures.immediateFuture(new ValidatedCharSource(CharSource.empty(), Validators.NONE)));
+        RobotsEntry result = instance.loadEntryAsync(EXAMPLE_URI, null).get();
+        assertThat(result.getExpiresMillis(), equalTo(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void givenSourceNotModifiedWithoutPrevious_whenLoadEntryAsync_thenAllowAll() throws Exception {
+        when(charSourceSupplier.getAsync(EXAMPLE_URI, Validators.NONE))
+                .thenReturn(Futures.immediateFuture(new ValidatedCharSource(notModified(), Validators.NONE)));
+        RobotsEntry result = instance.loadEntryAsync(EXAMPLE_URI, null).get();
+        assertThat(result.getRobots(), equalTo(ALLOW_ALL));
+    }
+
+    @Test
+    public void givenIdenticalContentFromTwoHosts_whenLoad_thenParsedOnceAndShared() throws Exception {
+        when(handler.get()).thenReturn(new Robots.Builder().build(), new Robots.Builder().build());
+        when(charSourceSupplier.get(any(URI.class))).thenReturn(CharSource.wrap("user-agent: *\ndisallow: /a\n"));
+        Robots first = instance.load(EXAMPLE_URI);
+        Robots second = instance.load(URI.create("http://example.org/robots.txt"));
+        assertThat(second, sameInstance(first));
+        verify(handler, times(1)).get();
+    }
+
+    @Test
+    public void givenDifferentContent_whenLoad_thenEachParsed() throws Exception {
+        when(handler.get()).thenReturn(new Robots.Builder().build(), new Robots.Builder().build());
+        when(charSourceSupplier.get(any(URI.class))).thenReturn(
+                CharSource.wrap("user-agent: *\ndisallow: /a\n"),
+                CharSource.wrap("user-agent: *\ndisallow: /b\n"));
+        Robots first = instance.load(EXAMPLE_URI);
+        Robots second = instance.load(URI.create("http://example.org/robots.txt"));
+        assertThat(second, not(sameInstance(first)));
+        verify(handler, times(2)).get();
+    }
+
+    private static CharSource notModified() {
+        return throwing(new NotModified());
+    }
+
+    private static CharSource throwing(final IOException e) {
+        return new CharSource() {
+            @Nonnull
+            @Override
+            public Reader openStream() throws IOException {
+                throw e;
+            }
+        };
+    }
+
 }
@@ -36,22 +36,35 @@ package com.brandwatch.robots;
 import com.brandwatch.robots.domain.AgentDirective;
 import com.brandwatch.robots.domain.Group;
 import com.brandwatch.robots.domain.PathDirective;
+import com.brandwatch.robots.domain.RateDirective;
 import com.brandwatch.robots.domain.Robots;
 import com.brandwatch.robots.matching.EverythingMatcher;
+import com.brandwatch.robots.matching.MatcherUtilsImpl;
+import com.brandwatch.robots.metrics.MetricNames;
+import com.brandwatch.robots.metrics.RecordingMetricsRegistry;
+import com.brandwatch.robots.net.Origin;
+import com.google.common.cache.CacheStats;
 import org.hamcrest.Matchers;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
 import java.net.URI;
+import java.util.Map;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -64,12 +77,16 @@ public class RobotsServiceImplTest {
     @Mock
     private RobotsUtilities utilities;
 
-    @InjectMocks
+    @Spy
+    private RecordingMetricsRegistry metrics = new RecordingMetricsRegistry();
+
     private RobotsServiceImpl instance;
 
     @Before
     public final void startUp() throws Exception {
-        when(loader.load(any(URI.class))).thenReturn(new Robots.Builder().build());
+        instance = new RobotsServiceImpl(loader, utilities, new MatcherUtilsImpl(), metrics, 1);
+        when(loader.load(any(Origin.class))).thenReturn(new Robots.Builder().build());
+        when(loader.loadAsync(any(Origin.class))).thenReturn(Futures.immediateFuture(new Robots.Builder().build()));
     }
 
     @Test(expected = NullPointerException.class)
@@ -94,19 +111,111 @@ public class RobotsServiceImplTest {
         assertThat(result, is(true));
     }
 
+    @Test
+    public void givenExampleUri_whenIsAllowed_thenAllowedCountedAndLatencyRecorded() {
+        instance.isAllowed("magpie", URI.create("http://example.org/index.html"));
+        assertThat(metrics.getCount(MetricNames.CHECK_ALLOWED), is(1L));
+        assertThat(metrics.getCount(MetricNames.CHECK_DISALLOWED), is(0L));
+        assertThat(metrics.getValues(MetricNames.CHECK_LATENCY_NANOS).size(), is(1));
+    }
+
+    @Test
+    public void givenCacheStats_whenGetCacheStats_thenLoaderStatsReturned() {
+        CacheStats stats = new CacheStats(1, 2, 3, 4, 5, 6);
+        when(loader.getCacheStats()).thenReturn(stats);
+        assertThat(instance.getCacheStats(), is(stats));
+    }
+
     @Test
     public void givenExampleUri_whenIsAllowed_thenSourceFactoryIsInvoked() {
         String crawlerAgent = "magpie";
         URI resourceUri = URI.create("http://example.org/index.html");
         instance.isAllowed(crawlerAgent, resourceUri);
-        verify(utilities).getRobotsURIForResource(resourceUri);
+        verify(utilities).getOrigin(resourceUri);
     }
 
     @Test(expected = IllegalArgumentException.class)
     public void givenMalformedResourceURI_whenIsAllowed_thenThrowsIAE() {
         String crawlerAgent = "magpie";
         URI resourceUri = URI.create("http://example.org/index.html");
-        when(utilities.getRobotsURIForResource(any(URI.class))).thenThrow(IllegalArgumentException.class);
+        when(utilities.getOrigin(any(URI.class))).thenThrow(IllegalArgumentException.class);
         instance.isAllowed(crawlerAgent, resourceUri);
     }
+
+    @Test(expected = NullPointerException.class)
+    public void givenNullUris_whenIsAllowedBatch_thenThrowsNPE() {
+        Iterable<URI> resourceUris = null;
+        instance.isAllowed("magpie", resourceUris);
+    }
+
+    @Test
+    public void givenUrisOnSameHost_whenIsAllowedBatch_thenLoaderInvokedOnce() throws Exception {
+        Origin origin = Origin.of(URI.create("http://example.org/"));
+        when(utilities.getOrigin(any(URI.class))).thenReturn(origin);
+        instance.isAllowed("magpie", ImmutableList.of(
+                URI.create("http://example.org/a.html"),
+                URI.create("http://example.org/b.html"),
+                URI.create("http://example.org/c.html")));
+        verify(loader, times(1)).load(origin);
+    }
+
+    @Test
+    public void givenUris_whenPreload_thenLoaderPreloadsEachOrigin() throws Exception {
+        Origin origin = Origin.of(URI.create("http://example.org/"));
+        when(utilities.getOrigin(any(URI.class))).thenReturn(origin);
+        when(loader.preloadAsync(origin)).thenReturn(Futures.<RobotsEntry>immediateFailedFuture(
+                new ExpectedRuntimeException()));
+        Preload preload = instance.preload(ImmutableList.of(
+                URI.create("http://example.org/a.html"),
+                URI.create("http://example.org/b.html")));
+        assertThat(preload.getFuture().get().getFailedCount(), is(2L));
+        verify(loader, times(2)).preloadAsync(origin);
+    }
+
+    @Test
+    public void givenUris_whenIsAllowedBatch_thenResultKeysInInputOrder() {
+        URI first = URI.create("http://example.org/z.html");
+        URI second = URI.create("http://example.com/a.html");
+        URI third = URI.create("http://example.org/a.html");
+        Map<URI, Boolean> result = instance.isAllowed("magpie", ImmutableList.of(first, second, third, first));
+        assertThat(result.keySet(), contains(first, second, third));
+    }
+
+    @Test
+    public void givenExampleUri_whenIsAllowedAsync_thenReturnsTrue() throws Exception {
+        URI resourceUri = URI.create("http://example.org/index.html");
+        ListenableFuture<Boolean> result = instance.isAllowedAsync("magpie", resourceUri);
+        assertThat(result.get(), is(true));
+    }
+
+    @Test
+    public void givenLoadFailure_whenIsAllowedAsync_thenReturnsTrue() throws Exception {
+        when(loader.loadAsync(any(Origin.class)))
+                .thenReturn(Futures.<Robots>immediateFailedFuture(new ExpectedRuntimeException()));
+        URI resourceUri = URI.create("http://example.org/index.html");
+        ListenableFuture<Boolean> result = instance.isAllowedAsync("magpie", resourceUri);
+        assertThat(result.get(), is(true));
+    }
+
+    @Test
+    public void givenGroupWithCrawlDelay_whenGetCrawlDelayMillis_thenReturnsDelay() throws Exception {
+        when(loader.load(any(Origin.class))).thenReturn(new Robots.Builder()
+                .withGroup(new Group.Builder()
+                        .withDirective(new AgentDirective("magpie", new EverythingMatcher<String>()))
+                        .withDirective(new RateDirective(RateDirective.Field.crawl_delay, "5", 5000))
+                        .build())
+                .build());
+        assertThat(instance.getCrawlDelayMillis("magpie", URI.create("http://example.org/index.html")), is(5000L));
+    }
+
+    @Test
+    public void givenNoGroups_whenGetCrawlDelayMillis_thenReturnsZero() throws Exception {
+        assertThat(instance.getCrawlDelayMillis("magpie", URI.create("http://example.org/index.html")), is(0L));
+    }
+
+    @Test
+    public void givenLoadFailure_whenGetCrawlDelayMillis_thenReturnsZero() throws Exception {
+        when(loader.load(any(Origin.class))).thenThrow(new ExpectedRuntimeException());
+        assertThat(instance.getCrawlDelayMillis("magpie", URI.create("http://example.org/index.html")), is(0L));
+    }
 }
@@ -98,6 +98,41 @@ public class RobotsUtilitiesTest {
         assertThat(result, equalTo("/path?query#fragment"));
     }
 
+    @Test(expected = NullPointerException.class)
+    public void givenNullResource_whenGetRawPathAndQuery_thenThrowsNPE() {
+        utilities.getRawPathAndQuery(null);
+    }
+
+    @Test
+    public void givenPathAndQueryAndFragment_whenGetRawPathAndQuery_thenFragmentOmitted() {
+        URI resource = URI.create("http://user@example.com:8080/path?query#fragment");
+        assertThat(utilities.getRawPathAndQuery(resource).toString(), equalTo("/path?query"));
+    }
+
+    @Test
+    public void givenNoPath_whenGetRawPathAndQuery_thenResultEqualsQuery() {
+        URI resource = URI.create("http://example.com?query");
+        assertThat(utilities.getRawPathAndQuery(resource).toString(), equalTo("?query"));
+    }
+
+    @Test
+    public void givenEncodedPath_whenGetRawPathAndQuery_thenNotDecoded() {
+        URI resource = URI.create("http://example.com/a%2Fb?q=%26");
+        assertThat(utilities.getRawPathAndQuery(resource).toString(), equalTo("/a%2Fb?q=%26"));
+    }
+
+    @Test
+    public void givenDenormalizedEncoding_whenGetRawPathAndQuery_thenNormalized() {
+        URI resource = URI.create("http://example.com/%7euser/a%2fb");
+        assertThat(utilities.getRawPathAndQuery(resource).toString(), equalTo("/~user/a%2Fb"));
+    }
+
+    @Test
+    public void givenNonAsciiPath_whenGetRawPathAndQuery_thenEncoded() {
+        URI resource = URI.create("http://example.com/caf\u00e9");
+        assertThat(utilities.getRawPathAndQuery(resource).toString(), equalTo("/caf%C3%A9"));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void givenMalformedResourceURI_whenGetRobotsURIForResource_thenThrowsIAE() {
         URI resourceUri = URI.create("http://mobil..bloggplatsen.se/rss/");
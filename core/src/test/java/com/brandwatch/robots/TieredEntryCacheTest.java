@@ -0,0 +1,173 @@
+package com.brandwatch.robots;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.domain.Robots;
+import com.brandwatch.robots.net.Origin;
+import com.brandwatch.robots.net.Validators;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TieredEntryCacheTest {
+
+    private static final Origin FIRST_ORIGIN = Origin.of(URI.create("http://first.example.com/"));
+    private static final Origin SECOND_ORIGIN = Origin.of(URI.create("http://second.example.com/"));
+    private static final Origin THIRD_ORIGIN = Origin.of(URI.create("http://third.example.com/"));
+    private static final RobotsEntry ENTRY = new RobotsEntry(new Robots.Builder().build(),
+            RobotsEntry.Outcome.CLIENT_ERROR, Validators.NONE, 1000L, 2000L);
+
+    private OffHeapEntryStore cold;
+    private Cache<Origin, RobotsEntry> hot;
+    private TieredEntryCache cache;
+
+    @Before
+    public void setup() {
+        cold = new OffHeapEntryStore(new RobotsFactory(new RobotsConfig()).createRobotsCodec(), 1 << 16, 1);
+        hot = CacheBuilder.newBuilder()
+                .maximumSize(1)
+                .removalListener(TieredEntryCache.demotingTo(cold))
+                .build();
+        cache = new TieredEntryCache(hot, cold);
+    }
+
+    @Test
+    public void givenEvictedFromHeap_whenPut_thenDemoted() {
+        cache.put(FIRST_ORIGIN, ENTRY);
+        cache.put(SECOND_ORIGIN, ENTRY);
+        assertThat(hot.getIfPresent(FIRST_ORIGIN), nullValue());
+        assertThat(cold.get(FIRST_ORIGIN), equalTo(ENTRY));
+        assertThat(cache.size(), equalTo(2L));
+    }
+
+    @Test
+    public void givenDemoted_whenGetIfPresent_thenPromoted() {
+        cache.put(FIRST_ORIGIN, ENTRY);
+        cache.put(SECOND_ORIGIN, ENTRY);
+        assertThat(cache.getIfPresent(FIRST_ORIGIN), equalTo(ENTRY));
+        assertThat(hot.getIfPresent(FIRST_ORIGIN), equalTo(ENTRY));
+        assertThat(cold.get(FIRST_ORIGIN), nullValue());
+        assertThat(cold.get(SECOND_ORIGIN), equalTo(ENTRY));
+    }
+
+    @Test
+    public void givenNeitherTier_whenGetIfPresent_thenNull() {
+        cache.put(FIRST_ORIGIN, ENTRY);
+        assertThat(cache.getIfPresent(THIRD_ORIGIN), nullValue());
+    }
+
+    @Test
+    public void givenDemoted_whenPut_thenDemotedCopyDiscarded() {
+        cache.put(FIRST_ORIGIN, ENTRY);
+        cache.put(SECOND_ORIGIN, ENTRY);
+        final RobotsEntry renewed = ENTRY.renew(3000L, 4000L);
+        cache.put(FIRST_ORIGIN, renewed);
+        assertThat(cache.getIfPresent(FIRST_ORIGIN), equalTo(renewed));
+        assertThat(cold.get(FIRST_ORIGIN), nullValue());
+    }
+
+    @Test
+    public void givenDemoted_whenGetIfPresentRacesPut_thenPutEntryKept() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 2000; i++) {
+                cache.put(FIRST_ORIGIN, ENTRY);
+                cache.put(SECOND_ORIGIN, ENTRY);
+                final RobotsEntry renewed = ENTRY.renew(3000L + i, 4000L + i);
+                final CountDownLatch start = new CountDownLatch(1);
+                final Future<?> promote = executor.submit(new Callable<RobotsEntry>() {
+                    @Override
+                    public RobotsEntry call() throws InterruptedException {
+                        start.await();
+                        return cache.getIfPresent(FIRST_ORIGIN);
+                    }
+                });
+                final Future<?> load = executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws InterruptedException {
+                        start.await();
+                        cache.put(FIRST_ORIGIN, renewed);
+                        return null;
+                    }
+                });
+                start.countDown();
+                promote.get();
+                load.get();
+                assertThat(cache.getIfPresent(FIRST_ORIGIN), equalTo(renewed));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void givenDemoted_whenInvalidate_thenRemovedFromBothTiers() {
+        cache.put(FIRST_ORIGIN, ENTRY);
+        cache.put(SECOND_ORIGIN, ENTRY);
+        cache.invalidate(FIRST_ORIGIN);
+        cache.invalidate(SECOND_ORIGIN);
+        assertThat(cache.getIfPresent(FIRST_ORIGIN), nullValue());
+        assertThat(cache.getIfPresent(SECOND_ORIGIN), nullValue());
+        assertThat(cache.size(), equalTo(0L));
+    }
+
+    @Test
+    public void givenInvalidateAll_thenBothTiersEmpty() {
+        cache.put(FIRST_ORIGIN, ENTRY);
+        cache.put(SECOND_ORIGIN, ENTRY);
+        cache.invalidateAll();
+        assertThat(cache.size(), equalTo(0L));
+        assertThat(cold.get(FIRST_ORIGIN), nullValue());
+    }
+
+    @Test
+    public void givenOffHeapSizeConfigured_whenCreateCache_thenTiered() {
+        final RobotsConfig config = new RobotsConfig();
+        config.setCacheOffHeapSizeBytes(1 << 20);
+        assertThat(new RobotsFactory(config).createCache(), instanceOf(TieredEntryCache.class));
+    }
+}
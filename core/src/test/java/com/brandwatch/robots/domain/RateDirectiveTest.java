@@ -0,0 +1,122 @@
+package com.brandwatch.robots.domain;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.base.Optional;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class RateDirectiveTest {
+
+    @Test
+    public void givenCrawlDelaySeconds_whenParse_thenIntervalInMillis() {
+        assertThat(intervalMillis("Crawl-delay", "10"), equalTo(Optional.of(10000L)));
+    }
+
+    @Test
+    public void givenFractionalCrawlDelay_whenParse_thenIntervalInMillis() {
+        assertThat(intervalMillis("crawl-delay", "0.5"), equalTo(Optional.of(500L)));
+        assertThat(intervalMillis("crawl-delay", ".25"), equalTo(Optional.of(250L)));
+    }
+
+    @Test
+    public void givenMalformedCrawlDelay_whenParse_thenAbsent() {
+        assertThat(intervalMillis("crawl-delay", "soon"), equalTo(Optional.<Long>absent()));
+        assertThat(intervalMillis("crawl-delay", "-1"), equalTo(Optional.<Long>absent()));
+        assertThat(intervalMillis("crawl-delay", "1e3"), equalTo(Optional.<Long>absent()));
+        assertThat(intervalMillis("crawl-delay", ""), equalTo(Optional.<Long>absent()));
+    }
+
+    @Test
+    public void givenRequestRate_whenParse_thenPeriodDividedByRequests() {
+        assertThat(intervalMillis("Request-rate", "1/10s"), equalTo(Optional.of(10000L)));
+        assertThat(intervalMillis("request-rate", "3/1"), equalTo(Optional.of(334L)));
+    }
+
+    @Test
+    public void givenRequestRateWithUnit_whenParse_thenPeriodInUnit() {
+        assertThat(intervalMillis("request-rate", "1/1m"), equalTo(Optional.of(60000L)));
+        assertThat(intervalMillis("request-rate", "60/1H"), equalTo(Optional.of(60000L)));
+        assertThat(intervalMillis("request-rate", "24 / 1d"), equalTo(Optional.of(3600000L)));
+    }
+
+    @Test
+    public void givenRequestRateWithTimeOfDay_whenParse_thenTimeOfDayIgnored() {
+        assertThat(intervalMillis("request-rate", "1/5s 0600-0845"), equalTo(Optional.of(5000L)));
+    }
+
+    @Test
+    public void givenMalformedRequestRate_whenParse_thenAbsent() {
+        assertThat(intervalMillis("request-rate", "0/10s"), equalTo(Optional.<Long>absent()));
+        assertThat(intervalMillis("request-rate", "1/10y"), equalTo(Optional.<Long>absent()));
+        assertThat(intervalMillis("request-rate", "fast"), equalTo(Optional.<Long>absent()));
+    }
+
+    @Test
+    public void givenOtherField_whenParse_thenAbsent() {
+        assertThat(RateDirective.parse("host", "10").isPresent(), is(false));
+    }
+
+    @Test
+    public void givenCrawlDelay_whenParse_thenFieldAndValuePreserved() {
+        final RateDirective directive = RateDirective.parse("Crawl-Delay", "2").get();
+        assertThat(directive.getField(), equalTo("crawl-delay"));
+        assertThat(directive.getValue(), equalTo("2"));
+        assertThat(directive.getRateField(), equalTo(RateDirective.Field.crawl_delay));
+    }
+
+    @Test
+    public void givenSeveralRates_whenGroupBuilt_thenCrawlDelayIsLongest() {
+        final Group group = new Group.Builder()
+                .withDirective(RateDirective.parse("crawl-delay", "2").get())
+                .withDirective(RateDirective.parse("request-rate", "1/5s").get())
+                .build();
+        assertThat(group.getCrawlDelayMillis(), equalTo(5000L));
+    }
+
+    @Test
+    public void givenNoRates_whenGroupBuilt_thenCrawlDelayIsZero() {
+        assertThat(new Group.Builder().build().getCrawlDelayMillis(), equalTo(0L));
+    }
+
+    private static Optional<Long> intervalMillis(String field, String value) {
+        final Optional<RateDirective> directive = RateDirective.parse(field, value);
+        return directive.isPresent()
+                ? Optional.of(directive.get().getIntervalMillis())
+                : Optional.<Long>absent();
+    }
+}
@@ -0,0 +1,157 @@
+package com.brandwatch.robots.domain;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.matching.ExpressionCompiler;
+import com.brandwatch.robots.matching.ExpressionCompilerBuilder;
+import com.brandwatch.robots.matching.Matchable;
+import com.brandwatch.robots.matching.Matcher;
+import com.brandwatch.robots.matching.MatcherUtils;
+import com.brandwatch.robots.matching.MatcherUtilsImpl;
+import com.google.common.base.Optional;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class RobotsTest {
+
+    private static final ExpressionCompiler agentExpressionCompiler = new ExpressionCompilerBuilder()
+            .withCaseSensitivity(false)
+            .build();
+
+    private MatcherUtilsImpl matcherUtils;
+    private Group googleGroup;
+    private Group bingGroup;
+    private Robots robots;
+
+    @Before
+    public void setup() {
+        matcherUtils = spy(new MatcherUtilsImpl());
+        googleGroup = group("googlebot");
+        bingGroup = group("bingbot");
+        robots = new Robots.Builder()
+                .withGroup(googleGroup)
+                .withGroup(bingGroup)
+                .build();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void givenNullAgent_whenGetMostSpecificMatchingGroup_thenThrowsNPE() {
+        robots.getMostSpecificMatchingGroup(null, matcherUtils);
+    }
+
+    @Test
+    public void givenMatchingAgent_whenGetMostSpecificMatchingGroup_thenReturnsGroup() {
+        assertThat(robots.getMostSpecificMatchingGroup("Googlebot/2.1", matcherUtils), sameInstance(googleGroup));
+        assertThat(robots.getMostSpecificMatchingGroup("bingbot/2.0", matcherUtils), sameInstance(bingGroup));
+    }
+
+    @Test
+    public void givenNoMatchingGroup_whenGetMostSpecificMatchingGroup_thenReturnsNull() {
+        assertThat(robots.getMostSpecificMatchingGroup("magpie-crawler", matcherUtils), nullValue());
+    }
+
+    @Test
+    public void givenRepeatedAgent_whenGetMostSpecificMatchingGroup_thenResolvedOnce() {
+        for (int i = 0; i < 10; i++) {
+            robots.getMostSpecificMatchingGroup("Googlebot/2.1", matcherUtils);
+            robots.getMostSpecificMatchingGroup("magpie-crawler", matcherUtils);
+        }
+        verify(matcherUtils, times(1)).getMostSpecificMatchingGroupIndex(anyListOf(Group.class), eq("Googlebot/2.1"));
+        verify(matcherUtils, times(1)).getMostSpecificMatchingGroupIndex(anyListOf(Group.class), eq("magpie-crawler"));
+    }
+
+    @Test
+    public void givenManyAgents_whenGetMostSpecificMatchingGroup_thenResultsRemainCorrect() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(robots.getMostSpecificMatchingGroup("googlebot-" + i, matcherUtils), sameInstance(googleGroup));
+            assertThat(robots.getMostSpecificMatchingGroup("other-" + i, matcherUtils), nullValue());
+        }
+        assertThat(robots.getMostSpecificMatchingGroup("bingbot", matcherUtils), sameInstance(bingGroup));
+        verify(matcherUtils, times(201)).getMostSpecificMatchingGroupIndex(anyListOf(Group.class), anyString());
+    }
+
+    @Test
+    public void givenOtherMatcherUtils_whenGetMostSpecificMatchingGroup_thenReturnsGroup() {
+        MatcherUtils other = new MatcherUtils() {
+            private final MatcherUtils delegate = new MatcherUtilsImpl();
+
+            @Nonnull
+            @Override
+            public <T, M extends Matchable<T>, G extends Iterable<M>>
+            Optional<G> getMostSpecificMatchingGroup(@Nonnull Iterable<G> groups, @Nonnull T target) {
+                return delegate.getMostSpecificMatchingGroup(groups, target);
+            }
+
+            @Nonnull
+            @Override
+            public <T, M extends Matchable<T>>
+            Optional<Double> getMostSpecificMatchSpecificity(@Nonnull Iterable<M> matchables, @Nonnull T target) {
+                return delegate.getMostSpecificMatchSpecificity(matchables, target);
+            }
+
+            @Nonnull
+            @Override
+            public <T, M extends Matchable<T>>
+            Optional<M> getMostSpecificMatch(@Nonnull Iterable<M> matchables, @Nonnull T target) {
+                return delegate.getMostSpecificMatch(matchables, target);
+            }
+
+            @Nonnull
+            @Override
+            public <T> Optional<Double> getMatchSpecificity(@Nonnull Matcher<T> matcher, @Nonnull T target) {
+                return delegate.getMatchSpecificity(matcher, target);
+            }
+        };
+        assertThat(robots.getMostSpecificMatchingGroup("Googlebot/2.1", other), sameInstance(googleGroup));
+        assertThat(robots.getMostSpecificMatchingGroup("magpie-crawler", other), nullValue());
+    }
+
+    private static Group group(String agent) {
+        return new Group.Builder()
+                .withDirective(new AgentDirective(agent, agentExpressionCompiler.compile(agent)))
+                .build();
+    }
+}
@@ -0,0 +1,136 @@
+package com.brandwatch.robots.matching;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ExpressionTrieTest {
+
+    private static final ExpressionCompiler pathExpressionCompiler = new ExpressionCompilerBuilder()
+            .withLeftBoundaryMatching(true)
+            .build();
+
+    private static Rule rule(String expression) {
+        return new Rule(expression, pathExpressionCompiler.compile(expression));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void givenNullMatchables_whenConstruct_thenThrowsNPE() {
+        new ExpressionTrie<Rule>(null);
+    }
+
+    @Test
+    public void givenNoMatchables_whenGetMostSpecificMatch_thenReturnsAbsent() {
+        ExpressionTrie<Rule> trie = new ExpressionTrie<Rule>(Collections.<Rule>emptyList());
+        assertThat(trie.getMostSpecificMatch("/index.html").isPresent(), is(false));
+    }
+
+    @Test
+    public void givenNestedPrefixes_whenGetMostSpecificMatch_thenReturnsLongest() {
+        Rule shortRule = rule("/a");
+        Rule longRule = rule("/a/b");
+        ExpressionTrie<Rule> trie = new ExpressionTrie<Rule>(ImmutableList.of(shortRule, longRule));
+        assertThat(trie.getMostSpecificMatch("/a/b/c").get(), equalTo(longRule));
+        assertThat(trie.getMostSpecificMatch("/a/c").get(), equalTo(shortRule));
+    }
+
+    @Test
+    public void givenEqualSpecificity_whenGetMostSpecificMatch_thenReturnsFirst() {
+        Rule first = rule("/page");
+        Rule second = rule("/*page");
+        ExpressionTrie<Rule> trie = new ExpressionTrie<Rule>(ImmutableList.of(second, first));
+        assertThat(trie.getMostSpecificMatch("/page").get(), equalTo(second));
+    }
+
+    @Test
+    public void givenEndAnchor_whenGetMostSpecificMatch_thenOnlyMatchesExactly() {
+        Rule exact = rule("/index.htm$");
+        ExpressionTrie<Rule> trie = new ExpressionTrie<Rule>(ImmutableList.of(exact));
+        assertThat(trie.getMostSpecificMatch("/index.htm"), equalTo(Optional.of(exact)));
+        assertThat(trie.getMostSpecificMatch("/index.html").isPresent(), is(false));
+    }
+
+    @Test
+    public void givenWildcard_whenGetMostSpecificMatch_thenMatchesAcrossSegments() {
+        Rule wildcard = rule("/*/docs/*.html");
+        Rule prefix = rule("/a");
+        ExpressionTrie<Rule> trie = new ExpressionTrie<Rule>(ImmutableList.of(prefix, wildcard));
+        assertThat(trie.getMostSpecificMatch("/a/b/c/docs/1.html").get(), equalTo(wildcard));
+        assertThat(trie.getMostSpecificMatch("/a/docs/1.php").get(), equalTo(prefix));
+    }
+
+    @Test
+    public void givenEverythingMatcher_whenGetMostSpecificMatch_thenMatchesEmptyTarget() {
+        Rule everything = new Rule("/*", new EverythingMatcher<String>());
+        ExpressionTrie<Rule> trie = new ExpressionTrie<Rule>(ImmutableList.of(everything));
+        assertThat(trie.getMostSpecificMatch("").get(), equalTo(everything));
+    }
+
+    @Test
+    public void givenCaseInsensitiveMatcher_whenGetMostSpecificMatch_thenFallsBackToMatcher() {
+        Rule agent = new Rule("googlebot", new ExpressionCompilerBuilder()
+                .withCaseSensitivity(false).build().compile("googlebot"));
+        ExpressionTrie<Rule> trie = new ExpressionTrie<Rule>(ImmutableList.of(agent));
+        assertThat(trie.getMostSpecificMatch("Mozilla/5.0 (compatible; GoogleBot/2.1)").get(), equalTo(agent));
+    }
+
+    private static final class Rule implements Matchable<String> {
+
+        private final String expression;
+        private final Matcher<String> matcher;
+
+        private Rule(String expression, Matcher<String> matcher) {
+            this.expression = expression;
+            this.matcher = matcher;
+        }
+
+        @Override
+        public Matcher<String> getMatcher() {
+            return matcher;
+        }
+
+        @Override
+        public String toString() {
+            return expression;
+        }
+    }
+}
@@ -192,4 +192,63 @@ public class MatcherUtilsImplTest {
         assertThat(result, equalTo(Optional.<List<Matchable<String>>>absent()));
     }
 
+    @Test
+    public void givenPatternNotMatches_whenGetMatchSpecificityValue_thenReturnsNoMatch() {
+        Matcher<String> matcher = newPatternMatcher("yahoo");
+        assertThat(utilities.getMatchSpecificityValue(matcher, "googlebot"), equalTo(MatcherUtilsImpl.NO_MATCH));
+    }
+
+    @Test
+    public void givenPatternMatches_whenGetMatchSpecificityValue_thenReturnsMatcherSpecificity() {
+        Matcher<String> matcher = newPatternMatcher("google");
+        assertThat(utilities.getMatchSpecificityValue(matcher, "googlebot"), equalTo(matcher.getSpecificity()));
+    }
+
+    @Test
+    public void givenGroupIsEmpty_whenGetMostSpecificMatchSpecificityValue_thenReturnsNoMatch() {
+        List<Matchable<String>> group = ImmutableList.of();
+        assertThat(utilities.getMostSpecificMatchSpecificityValue(group, "googlebot"), equalTo(MatcherUtilsImpl.NO_MATCH));
+    }
+
+    @Test
+    public void givenSeveralMatches_whenGetMostSpecificMatchIndex_thenReturnsFirstMostSpecific() {
+        List<Matchable<String>> group = ImmutableList.of(
+                matchable("*"), matchable("yahoo"), matchable("google"), matchable("goo"), matchable("GOOGLE"));
+        assertThat(utilities.getMostSpecificMatchIndex(group, "googlebot"), equalTo(2));
+    }
+
+    @Test
+    public void givenNoMatches_whenGetMostSpecificMatchIndex_thenReturnsNoMatchIndex() {
+        List<Matchable<String>> group = ImmutableList.of(matchable("yahoo"), matchable("bing"));
+        assertThat(utilities.getMostSpecificMatchIndex(group, "googlebot"), equalTo(MatcherUtilsImpl.NO_MATCH_INDEX));
+    }
+
+    @Test
+    public void givenGroups_whenGetMostSpecificMatchingGroupIndex_thenAgreesWithGetMostSpecificMatchingGroup() {
+        List<List<Matchable<String>>> groups = ImmutableList.<List<Matchable<String>>>of(
+                ImmutableList.of(matchable("*")),
+                ImmutableList.of(matchable("yahoo"), matchable("google")),
+                ImmutableList.of(matchable("googlebot")),
+                ImmutableList.of(matchable("googlebot")));
+        int index = utilities.getMostSpecificMatchingGroupIndex(groups, "googlebot");
+        assertThat(index, equalTo(2));
+        assertThat(utilities.getMostSpecificMatchingGroup(groups, "googlebot").get(), equalTo(groups.get(index)));
+    }
+
+    @Test
+    public void givenGroupsAreEmpty_whenGetMostSpecificMatchingGroupIndex_thenReturnsNoMatchIndex() {
+        List<List<Matchable<String>>> groups = Collections.emptyList();
+        assertThat(utilities.getMostSpecificMatchingGroupIndex(groups, "googlebot"), equalTo(MatcherUtilsImpl.NO_MATCH_INDEX));
+    }
+
+    private static Matchable<String> matchable(final String pattern) {
+        final Matcher<String> matcher = newPatternMatcher(pattern);
+        return new Matchable<String>() {
+            @Override
+            public Matcher<String> getMatcher() {
+                return matcher;
+            }
+        };
+    }
+
 }
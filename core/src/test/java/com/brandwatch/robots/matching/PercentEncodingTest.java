@@ -0,0 +1,101 @@
+package com.brandwatch.robots.matching;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.RobotsConfig;
+import com.brandwatch.robots.RobotsFactory;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class PercentEncodingTest {
+
+    @Test(expected = NullPointerException.class)
+    public void givenNull_whenNormalize_thenThrowsNPE() {
+        PercentEncoding.normalize((CharSequence) null);
+    }
+
+    @Test
+    public void givenNormalValue_whenNormalize_thenSameInstance() {
+        CharSequence value = "/path/to/file%20name.html?q=%2F";
+        assertThat(PercentEncoding.normalize(value), sameInstance(value));
+    }
+
+    @Test
+    public void givenLowerCaseEscape_whenNormalize_thenUpperCased() {
+        assertThat(PercentEncoding.normalize("/a%2fb"), equalTo("/a%2Fb"));
+    }
+
+    @Test
+    public void givenEscapedUnreserved_whenNormalize_thenDecoded() {
+        assertThat(PercentEncoding.normalize("/%7euser/%41%2D%5f"), equalTo("/~user/A-_"));
+    }
+
+    @Test
+    public void givenNonAscii_whenNormalize_thenEncodedAsUtf8() {
+        assertThat(PercentEncoding.normalize("/café"), equalTo("/caf%C3%A9"));
+    }
+
+    @Test
+    public void givenSupplementaryCharacter_whenNormalize_thenEncodedAsUtf8() {
+        assertThat(PercentEncoding.normalize("/😀"), equalTo("/%F0%9F%98%80"));
+    }
+
+    @Test
+    public void givenSpace_whenNormalize_thenEncoded() {
+        assertThat(PercentEncoding.normalize("/a b"), equalTo("/a%20b"));
+    }
+
+    @Test
+    public void givenStrayPercent_whenNormalize_thenEncoded() {
+        assertThat(PercentEncoding.normalize("/100%"), equalTo("/100%25"));
+        assertThat(PercentEncoding.normalize("/%zz"), equalTo("/%25zz"));
+    }
+
+    @Test
+    public void givenWildcards_whenNormalize_thenUnchanged() {
+        assertThat(PercentEncoding.normalize("^/*.php$"), equalTo("^/*.php$"));
+    }
+
+    @Test
+    public void givenPathCompiler_whenCompileEncodedExpression_thenMatchesEquivalentPaths() {
+        ExpressionCompiler compiler = new RobotsFactory(new RobotsConfig()).createPathExpressionCompiler();
+        Matcher<String> matcher = compiler.compile("/café/%7euser");
+        assertThat(matcher.matches("/caf%C3%A9/~user/index.html"), is(true));
+        assertThat(matcher.matches("/caf%C3%A9/%7Euser/index.html"), is(false));
+    }
+}
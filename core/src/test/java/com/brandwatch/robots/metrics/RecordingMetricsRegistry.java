@@ -0,0 +1,114 @@
+package com.brandwatch.robots.metrics;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registry that keeps everything reported to it, for tests to inspect.
+ */
+public class RecordingMetricsRegistry implements MetricsRegistry {
+
+    private final ConcurrentMap<String, RecordingCounter> counters = new ConcurrentHashMap<String, RecordingCounter>();
+    private final ConcurrentMap<String, RecordingHistogram> histograms = new ConcurrentHashMap<String, RecordingHistogram>();
+    private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+
+    @Nonnull
+    @Override
+    public Counter counter(@Nonnull String name) {
+        counters.putIfAbsent(name, new RecordingCounter());
+        return counters.get(name);
+    }
+
+    @Nonnull
+    @Override
+    public Histogram histogram(@Nonnull String name) {
+        histograms.putIfAbsent(name, new RecordingHistogram());
+        return histograms.get(name);
+    }
+
+    @Override
+    public void gauge(@Nonnull String name, @Nonnull Gauge gauge) {
+        gauges.put(name, gauge);
+    }
+
+    public long getCount(@Nonnull String name) {
+        final RecordingCounter counter = counters.get(name);
+        return counter == null ? 0 : counter.count.get();
+    }
+
+    @Nonnull
+    public List<Long> getValues(@Nonnull String name) {
+        final RecordingHistogram histogram = histograms.get(name);
+        return histogram == null ? ImmutableList.<Long>of() : ImmutableList.copyOf(histogram.values);
+    }
+
+    @Nullable
+    public Gauge getGauge(@Nonnull String name) {
+        return gauges.get(name);
+    }
+
+    private static final class RecordingCounter implements Counter {
+
+        private final AtomicLong count = new AtomicLong();
+
+        @Override
+        public void increment() {
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void increment(long n) {
+            count.addAndGet(n);
+        }
+    }
+
+    private static final class RecordingHistogram implements Histogram {
+
+        private final List<Long> values = new CopyOnWriteArrayList<Long>();
+
+        @Override
+        public void update(long value) {
+            values.add(value);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.brandwatch.robots.net;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ByteBufferPoolTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void givenNegativeMaxPooled_whenNewInstance_thenThrowsIAE() {
+        new ByteBufferPool(-1);
+    }
+
+    @Test
+    public void givenEmptyPool_whenAcquire_thenBufferLimitedToSize() {
+        final ByteBuffer buffer = new ByteBufferPool(1).acquire(100);
+        assertThat(buffer.position(), equalTo(0));
+        assertThat(buffer.limit(), equalTo(100));
+    }
+
+    @Test
+    public void givenReleasedBuffer_whenAcquire_thenReusedAndCleared() {
+        final ByteBufferPool pool = new ByteBufferPool(1);
+        final ByteBuffer buffer = pool.acquire(100);
+        buffer.put((byte) 1).flip();
+        pool.release(buffer);
+
+        final ByteBuffer reused = pool.acquire(50);
+
+        assertThat(reused, sameInstance(buffer));
+        assertThat(reused.position(), equalTo(0));
+        assertThat(reused.limit(), equalTo(50));
+    }
+
+    @Test
+    public void givenReleasedBufferTooSmall_whenAcquire_thenNewBufferAllocated() {
+        final ByteBufferPool pool = new ByteBufferPool(1);
+        final ByteBuffer buffer = pool.acquire(10);
+        pool.release(buffer);
+        assertThat(pool.acquire(100), not(sameInstance(buffer)));
+    }
+
+    @Test
+    public void givenPoolFull_whenRelease_thenBufferNotRetained() {
+        final ByteBufferPool pool = new ByteBufferPool(1);
+        final ByteBuffer first = pool.acquire(10);
+        final ByteBuffer second = pool.acquire(10);
+        pool.release(first);
+        pool.release(second);
+
+        assertThat(pool.acquire(10), sameInstance(first));
+        assertThat(pool.acquire(10), not(sameInstance(second)));
+    }
+}
@@ -0,0 +1,117 @@
+package com.brandwatch.robots.net;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.brandwatch.robots.net.ValidatedCharSource.NO_MAX_AGE;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class CacheHeadersTest {
+
+    private static final String DATE = "Wed, 21 Oct 2015 07:28:00 GMT";
+    private static final long DATE_MILLIS = 1445412480000L;
+
+    @Test
+    public void givenNoHeaders_whenGetMaxAgeMillis_thenNoMaxAge() {
+        assertThat(CacheHeaders.getMaxAgeMillis(null, null, null, DATE_MILLIS), equalTo(NO_MAX_AGE));
+    }
+
+    @Test
+    public void givenMaxAge_whenGetMaxAgeMillis_thenMaxAge() {
+        assertThat(CacheHeaders.getMaxAgeMillis("public, max-age=3600", null, null, DATE_MILLIS),
+                equalTo(TimeUnit.HOURS.toMillis(1)));
+    }
+
+    @Test
+    public void givenQuotedMaxAge_whenGetMaxAgeMillis_thenMaxAge() {
+        assertThat(CacheHeaders.getMaxAgeMillis("max-age=\"60\"", null, null, DATE_MILLIS),
+                equalTo(TimeUnit.MINUTES.toMillis(1)));
+    }
+
+    @Test
+    public void givenUppercaseMaxAge_whenGetMaxAgeMillis_thenMaxAge() {
+        assertThat(CacheHeaders.getMaxAgeMillis("Max-Age=60", null, null, DATE_MILLIS),
+                equalTo(TimeUnit.MINUTES.toMillis(1)));
+    }
+
+    @Test
+    public void givenNoCache_whenGetMaxAgeMillis_thenZero() {
+        assertThat(CacheHeaders.getMaxAgeMillis("no-cache, max-age=3600", null, null, DATE_MILLIS),
+                equalTo(0L));
+    }
+
+    @Test
+    public void givenNoStore_whenGetMaxAgeMillis_thenZero() {
+        assertThat(CacheHeaders.getMaxAgeMillis("no-store", null, null, DATE_MILLIS), equalTo(0L));
+    }
+
+    @Test
+    public void givenInvalidMaxAge_whenGetMaxAgeMillis_thenNoMaxAge() {
+        assertThat(CacheHeaders.getMaxAgeMillis("max-age=soon", null, null, DATE_MILLIS),
+                equalTo(NO_MAX_AGE));
+    }
+
+    @Test
+    public void givenMaxAgeAndExpires_whenGetMaxAgeMillis_thenMaxAgeTakesPrecedence() {
+        assertThat(CacheHeaders.getMaxAgeMillis("max-age=60", "Wed, 21 Oct 2015 09:28:00 GMT", DATE, 0),
+                equalTo(TimeUnit.MINUTES.toMillis(1)));
+    }
+
+    @Test
+    public void givenExpiresAndDate_whenGetMaxAgeMillis_thenDifference() {
+        assertThat(CacheHeaders.getMaxAgeMillis(null, "Wed, 21 Oct 2015 09:28:00 GMT", DATE, 0),
+                equalTo(TimeUnit.HOURS.toMillis(2)));
+    }
+
+    @Test
+    public void givenExpiresWithoutDate_whenGetMaxAgeMillis_thenRelativeToNow() {
+        assertThat(CacheHeaders.getMaxAgeMillis(null, "Wed, 21 Oct 2015 08:28:00 GMT", null, DATE_MILLIS),
+                equalTo(TimeUnit.HOURS.toMillis(1)));
+    }
+
+    @Test
+    public void givenExpiresInPast_whenGetMaxAgeMillis_thenZero() {
+        assertThat(CacheHeaders.getMaxAgeMillis(null, "Wed, 21 Oct 2015 06:28:00 GMT", DATE, 0),
+                equalTo(0L));
+    }
+
+    @Test
+    public void givenInvalidExpires_whenGetMaxAgeMillis_thenZero() {
+        assertThat(CacheHeaders.getMaxAgeMillis(null, "0", DATE, 0), equalTo(0L));
+    }
+}
@@ -33,9 +33,12 @@ package com.brandwatch.robots.net;
  * #L%
  */
 
+import com.brandwatch.robots.NotModified;
 import com.brandwatch.robots.RobotsConfig;
 import com.brandwatch.robots.TemporaryAllow;
 import com.brandwatch.robots.TemporaryDisallow;
+import com.brandwatch.robots.metrics.MetricNames;
+import com.brandwatch.robots.metrics.RecordingMetricsRegistry;
 import com.google.common.base.Charsets;
 import com.google.common.io.ByteSource;
 import com.google.common.io.CharSource;
@@ -44,28 +47,46 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Answers;
 import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.InvocationCallback;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status.Family;
 import javax.ws.rs.core.Response.StatusType;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.net.ConnectException;
 import java.net.URI;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.anyObject;
 import static org.mockito.Mockito.anyString;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -81,6 +102,8 @@ public class CharSourceSupplierHttpClientImplTest {
     private StatusType statusInfo = mock(StatusType.class);
     @Mock
     private RobotsConfig config;
+    @Spy
+    private RecordingMetricsRegistry metrics = new RecordingMetricsRegistry();
 
     @InjectMocks
     private CharSourceSupplierHttpClientImpl instance;
@@ -102,6 +125,27 @@ public class CharSourceSupplierHttpClientImplTest {
                         .get(anyLong(), any(TimeUnit.class))
         ).thenReturn(response);
 
+        when(client.target(any(URI.class))
+                        .request()
+                        .accept(Matchers.<MediaType>anyVararg())
+                        .header(anyString(), anyObject())
+                        .buildGet()
+                        .submit(any(InvocationCallback.class))
+        ).thenAnswer(new Answer<Future<Response>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Future<Response> answer(InvocationOnMock invocation) {
+                ((InvocationCallback<Response>) invocation.getArguments()[0]).completed(response);
+                return mock(Future.class);
+            }
+        });
+
+        final Invocation.Builder builder = client.target(any(URI.class))
+                .request()
+                .accept(Matchers.<MediaType>anyVararg())
+                .header(anyString(), anyObject());
+        when(builder.header(anyString(), anyObject())).thenReturn(builder);
+
         when(response.getStatusInfo()).thenReturn(statusInfo);
         when(response.getEntity()).thenReturn(ByteSource.empty().openStream());
 
@@ -184,4 +228,185 @@ public class CharSourceSupplierHttpClientImplTest {
         source.openStream();
     }
 
+    @Test
+    public void givenServerError_whenOpenStream_thenResponseClosed() throws IOException {
+        when(statusInfo.getFamily()).thenReturn(Family.SERVER_ERROR);
+        when(statusInfo.getStatusCode()).thenReturn(500);
+        try {
+            instance.get(EXAMPLE_URI).openStream();
+        } catch (TemporaryDisallow expected) {
+            verify(response).close();
+            return;
+        }
+        fail();
+    }
+
+    @Test
+    public void givenNotFound_whenOpenStream_thenBodyDrainedAndResponseClosed() throws IOException {
+        final ByteArrayInputStream body = new ByteArrayInputStream(new byte[4096]);
+        when(response.getEntity()).thenReturn(body);
+        when(statusInfo.getFamily()).thenReturn(Family.CLIENT_ERROR);
+        when(statusInfo.getStatusCode()).thenReturn(404);
+        try {
+            instance.get(EXAMPLE_URI).openStream();
+        } catch (TemporaryAllow expected) {
+            assertThat(body.available(), equalTo(0));
+            verify(response).close();
+            return;
+        }
+        fail();
+    }
+
+    @Test
+    public void givenLargeErrorBody_whenOpenStream_thenNotDrainedCompletely() throws IOException {
+        final ByteArrayInputStream body = new ByteArrayInputStream(new byte[1024 * 1024]);
+        when(response.getEntity()).thenReturn(body);
+        when(statusInfo.getFamily()).thenReturn(Family.CLIENT_ERROR);
+        when(statusInfo.getStatusCode()).thenReturn(403);
+        try {
+            instance.get(EXAMPLE_URI).openStream();
+        } catch (TemporaryDisallow expected) {
+            assertThat(body.available(), greaterThan(0));
+            verify(response).close();
+            return;
+        }
+        fail();
+    }
+
+    @Test
+    public void givenExampleUri_whenGetAsync_thenReturnsCharSource() throws Exception {
+        CharSource result = instance.getAsync(EXAMPLE_URI).get();
+        assertThat(result, notNullValue());
+    }
+
+    @Test(expected = TemporaryDisallow.class)
+    public void givenServerError_whenGetAsyncAndOpenStream_thenDisallowAll() throws Exception {
+        when(statusInfo.getFamily()).thenReturn(Family.SERVER_ERROR);
+        when(statusInfo.getStatusCode()).thenReturn(503);
+        when(statusInfo.getReasonPhrase()).thenReturn("Service Unavailable");
+        instance.getAsync(EXAMPLE_URI).get().openStream();
+    }
+
+    @Test
+    public void givenValidators_whenGetAsync_thenRequestIsConditional() throws Exception {
+        instance.getAsync(EXAMPLE_URI, new Validators("\"v1\"", "Wed, 21 Oct 2015 07:28:00 GMT")).get();
+        final Invocation.Builder builder = client.target(EXAMPLE_URI)
+                .request()
+                .accept(Matchers.<MediaType>anyVararg())
+                .header(anyString(), anyObject());
+        verify(builder).header(HttpHeaders.IF_NONE_MATCH, "\"v1\"");
+        verify(builder).header(HttpHeaders.IF_MODIFIED_SINCE, "Wed, 21 Oct 2015 07:28:00 GMT");
+    }
+
+    @Test
+    public void givenResponseHeaders_whenGetAsync_thenValidatorsReturned() throws Exception {
+        when(response.getHeaderString(HttpHeaders.ETAG)).thenReturn("\"v2\"");
+        when(response.getHeaderString(HttpHeaders.LAST_MODIFIED)).thenReturn("Thu, 22 Oct 2015 07:28:00 GMT");
+        ValidatedCharSource result = instance.getAsync(EXAMPLE_URI, Validators.NONE).get();
+        assertThat(result.getValidators(), equalTo(new Validators("\"v2\"", "Thu, 22 Oct 2015 07:28:00 GMT")));
+    }
+
+    @Test
+    public void givenMaxAge_whenGetAsync_thenMaxAgeAndStatusReturned() throws Exception {
+        when(statusInfo.getStatusCode()).thenReturn(200);
+        when(response.getHeaderString(HttpHeaders.CACHE_CONTROL)).thenReturn("public, max-age=3600");
+        ValidatedCharSource result = instance.getAsync(EXAMPLE_URI, Validators.NONE).get();
+        assertThat(result.getStatusCode(), equalTo(200));
+        assertThat(result.getMaxAgeMillis(), equalTo(3600000L));
+    }
+
+    @Test
+    public void givenNoCachingHeaders_whenGetAsync_thenNoMaxAge() throws Exception {
+        ValidatedCharSource result = instance.getAsync(EXAMPLE_URI, Validators.NONE).get();
+        assertThat(result.getMaxAgeMillis(), equalTo(ValidatedCharSource.NO_MAX_AGE));
+    }
+
+    @Test
+    public void givenExampleUri_whenGetAsync_thenRequestStatusAndLatencyRecorded() throws Exception {
+        instance.getAsync(EXAMPLE_URI, Validators.NONE).get();
+        assertThat(metrics.getCount(MetricNames.FETCH_REQUESTS), equalTo(1L));
+        assertThat(metrics.getCount(MetricNames.FETCH_STATUS_PREFIX + "2xx"), equalTo(1L));
+        assertThat(metrics.getCount(MetricNames.FETCH_STATUS_PREFIX + "5xx"), equalTo(0L));
+        assertThat(metrics.getValues(MetricNames.FETCH_LATENCY_MILLIS).size(), equalTo(1));
+    }
+
+    @Test
+    public void givenBody_whenRead_thenBytesRecorded() throws Exception {
+        when(response.getEntity()).thenReturn(ByteSource.wrap("User-agent: *".getBytes(Charsets.UTF_8)).openStream());
+        instance.getAsync(EXAMPLE_URI, Validators.NONE).get().read();
+        assertThat(metrics.getValues(MetricNames.FETCH_BYTES), contains(13L));
+    }
+
+    @Test
+    public void givenBody_whenRead_thenResponseClosed() throws Exception {
+        when(response.getEntity()).thenReturn(ByteSource.wrap("User-agent: *".getBytes(Charsets.UTF_8)).openStream());
+        assertThat(instance.getAsync(EXAMPLE_URI, Validators.NONE).get().read(), equalTo("User-agent: *"));
+        verify(response).close();
+    }
+
+    @Test
+    public void givenBodyLargerThanMaxFileSize_whenRead_thenTruncated() throws Exception {
+        when(response.getEntity()).thenReturn(new ByteArrayInputStream(new byte[1500]));
+        assertThat(instance.getAsync(EXAMPLE_URI, Validators.NONE).get().read().length(), equalTo(1000));
+    }
+
+    @Test
+    public void givenDeclaredCharset_whenRead_thenDecodedWithIt() throws Exception {
+        when(response.getMediaType()).thenReturn(MediaType.TEXT_PLAIN_TYPE.withCharset("ISO-8859-1"));
+        when(response.getEntity()).thenReturn(new ByteArrayInputStream(new byte[]{'/', (byte) 0xE9}));
+        assertThat(instance.getAsync(EXAMPLE_URI, Validators.NONE).get().read(), equalTo("/\u00e9"));
+    }
+
+    @Test
+    public void givenByteOrderMark_whenRead_thenMarkSkipped() throws Exception {
+        when(response.getEntity()).thenReturn(new ByteArrayInputStream(
+                new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, 'U', 'A'}));
+        assertThat(instance.getAsync(EXAMPLE_URI, Validators.NONE).get().read(), equalTo("UA"));
+    }
+
+    @Test(expected = NotModified.class)
+    public void givenNotModified_whenGetAsyncAndOpenStream_thenThrowsNotModified() throws Exception {
+        when(statusInfo.getFamily()).thenReturn(Family.REDIRECTION);
+        when(statusInfo.getStatusCode()).thenReturn(304);
+        when(statusInfo.getReasonPhrase()).thenReturn("Not Modified");
+        try {
+            instance.getAsync(EXAMPLE_URI, new Validators("\"v1\"", null)).get().openStream();
+        } finally {
+            verify(response).close();
+        }
+    }
+
+    @Test(expected = TemporaryAllow.class)
+    public void givenUnsolicitedNotModified_whenGetAsyncAndOpenStream_thenAllowAll() throws Exception {
+        when(statusInfo.getFamily()).thenReturn(Family.REDIRECTION);
+        when(statusInfo.getStatusCode()).thenReturn(304);
+        when(statusInfo.getReasonPhrase()).thenReturn("Not Modified");
+        instance.getAsync(EXAMPLE_URI, Validators.NONE).get().openStream();
+    }
+
+    @Test
+    public void givenConnectionRefused_whenGetAsync_thenFailsWithIOExceptionAndFailureRecorded() throws Exception {
+        final Invocation request = client.target(any(URI.class))
+                .request()
+                .accept(Matchers.<MediaType>anyVararg())
+                .header(anyString(), anyObject())
+                .buildGet();
+        doAnswer(new Answer<Future<Response>>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Future<Response> answer(InvocationOnMock invocation) {
+                ((InvocationCallback<Response>) invocation.getArguments()[0])
+                        .failed(new ProcessingException(new ConnectException("Connection refused")));
+                return mock(Future.class);
+            }
+        }).when(request).submit(any(InvocationCallback.class));
+        try {
+            instance.getAsync(EXAMPLE_URI, Validators.NONE).get();
+            fail();
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IOException.class));
+        }
+        assertThat(metrics.getCount(MetricNames.FETCH_FAILURES), equalTo(1L));
+    }
+
 }
@@ -0,0 +1,134 @@
+package com.brandwatch.robots.net;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.RobotsConfig;
+import com.brandwatch.robots.TemporaryAllow;
+import com.google.common.base.Charsets;
+import com.google.common.io.CharSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutionException;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CharSourceSupplierMirrorImplTest {
+
+    private static final URI EXAMPLE_URI = URI.create("http://example.com/robots.txt");
+    private static final Origin EXAMPLE_ORIGIN = Origin.of(EXAMPLE_URI);
+    private static final String CONTENT = "User-agent: *\nDisallow: /private\n";
+
+    @Mock
+    private RobotsMirror mirror;
+
+    private RobotsConfig config;
+
+    private CharSourceSupplierMirrorImpl instance;
+
+    @Before
+    public void setup() {
+        config = new RobotsConfig();
+        instance = new CharSourceSupplierMirrorImpl(config, mirror);
+    }
+
+    @Test
+    public void givenMirrored_whenGet_thenReturnsContent() throws IOException {
+        when(mirror.get(EXAMPLE_ORIGIN)).thenReturn(body(CONTENT));
+        assertThat(instance.get(EXAMPLE_URI).read(), equalTo(CONTENT));
+    }
+
+    @Test
+    public void givenMirrored_whenGetAsyncWithValidators_thenStatusUnknown()
+            throws IOException, ExecutionException, InterruptedException {
+        when(mirror.get(EXAMPLE_ORIGIN)).thenReturn(body(CONTENT));
+        final ValidatedCharSource source = instance.getAsync(EXAMPLE_URI, Validators.NONE).get();
+        assertThat(source.getStatusCode(), equalTo(ValidatedCharSource.UNKNOWN_STATUS));
+        assertThat(source.read(), equalTo(CONTENT));
+    }
+
+    @Test
+    public void givenMirroredBodyTooLarge_whenGet_thenTruncated() throws IOException {
+        config.setMaxFileSizeBytes(13);
+        when(mirror.get(EXAMPLE_ORIGIN)).thenReturn(body(CONTENT));
+        assertThat(instance.get(EXAMPLE_URI).read(), equalTo("User-agent: *"));
+    }
+
+    @Test
+    public void givenMirrored_whenGetTwice_thenReturnsContentTwice() throws IOException {
+        when(mirror.get(EXAMPLE_ORIGIN)).thenReturn(body(CONTENT));
+        final CharSource source = instance.get(EXAMPLE_URI);
+        assertThat(source.read(), equalTo(CONTENT));
+        assertThat(source.read(), equalTo(CONTENT));
+    }
+
+    @Test(expected = TemporaryAllow.class)
+    public void givenNotMirrored_whenGet_thenThrowsTemporaryAllow() throws IOException {
+        instance.get(EXAMPLE_URI).read();
+    }
+
+    @Test
+    public void givenNotMirrored_whenGetAsyncWithValidators_thenStatusNotFound()
+            throws ExecutionException, InterruptedException {
+        final ValidatedCharSource source = instance.getAsync(EXAMPLE_URI, Validators.NONE).get();
+        assertThat(source.getStatusCode(), equalTo(404));
+    }
+
+    @Test(expected = IOException.class)
+    public void givenMirrorFails_whenGet_thenThrowsIOException() throws IOException {
+        when(mirror.get(any(Origin.class))).thenThrow(new IOException());
+        instance.get(EXAMPLE_URI).read();
+    }
+
+    @Test
+    public void givenClose_thenClosesMirror() throws IOException {
+        instance.close();
+        verify(mirror).close();
+    }
+
+    private static ByteBuffer body(String content) {
+        return ByteBuffer.wrap(content.getBytes(Charsets.UTF_8)).asReadOnlyBuffer();
+    }
+}
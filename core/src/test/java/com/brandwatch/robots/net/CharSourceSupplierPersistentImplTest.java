@@ -0,0 +1,277 @@
+package com.brandwatch.robots.net;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.ExpiryPolicy;
+import com.brandwatch.robots.RobotsEntry;
+import com.brandwatch.robots.TemporaryAllow;
+import com.brandwatch.robots.TemporaryDisallow;
+import com.google.common.io.CharSource;
+import com.google.common.util.concurrent.Futures;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CharSourceSupplierPersistentImplTest {
+
+    private static final URI EXAMPLE_URI = URI.create("http://example.com/robots.txt");
+    private static final String CONTENT = "User-agent: *\nDisallow: /private\n";
+    private static final Validators VALIDATORS = new Validators("\"abc\"", "Wed, 21 Oct 2015 07:28:00 GMT");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private ExpiryPolicy expiryPolicy;
+
+    @Mock
+    private CharSourceSupplier delegate;
+
+    private ResourceStore store;
+
+    private CharSourceSupplierPersistentImpl instance;
+
+    @Before
+    public void setup() throws IOException {
+        when(expiryPolicy.getExpiresAfterMillis(any(RobotsEntry.Outcome.class), anyLong()))
+                .thenReturn(TimeUnit.HOURS.toMillis(24));
+        when(delegate.get(EXAMPLE_URI)).thenReturn(CharSource.wrap(CONTENT));
+        store = ResourceStore.open(folder.newFolder());
+        instance = new CharSourceSupplierPersistentImpl(expiryPolicy, delegate, store);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        instance.close();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void givenNullUri_whenGet_thenThrowsNPE() {
+        instance.get(null);
+    }
+
+    @Test
+    public void givenNotStored_whenRead_thenContentIsStored() throws IOException {
+        assertThat(instance.get(EXAMPLE_URI).read(), equalTo(CONTENT));
+        assertThat(store.get(EXAMPLE_URI.toString()).getOutcome(), is(StoredResource.Outcome.CONTENT));
+        assertThat(store.get(EXAMPLE_URI.toString()).getContent(), equalTo(CONTENT));
+    }
+
+    @Test
+    public void givenStored_whenRead_thenDelegateIsNotCalled() throws IOException {
+        instance.get(EXAMPLE_URI).read();
+        assertThat(instance.get(EXAMPLE_URI).read(), equalTo(CONTENT));
+        verify(delegate, times(1)).get(EXAMPLE_URI);
+    }
+
+    @Test
+    public void givenStored_whenGetAsync_thenDelegateIsNotCalled() throws Exception {
+        instance.get(EXAMPLE_URI).read();
+        assertThat(instance.getAsync(EXAMPLE_URI).get().read(), equalTo(CONTENT));
+        verify(delegate, times(0)).getAsync(EXAMPLE_URI);
+    }
+
+    @Test
+    public void givenNotStored_whenGetAsync_thenContentIsStored() throws Exception {
+        when(delegate.getAsync(EXAMPLE_URI)).thenReturn(Futures.immediateFuture(CharSource.wrap(CONTENT)));
+        assertThat(instance.getAsync(EXAMPLE_URI).get().read(), equalTo(CONTENT));
+        assertThat(store.get(EXAMPLE_URI.toString()).getContent(), equalTo(CONTENT));
+    }
+
+    @Test(expected = TemporaryAllow.class)
+    public void givenStoredAllow_whenRead_thenThrowsTemporaryAllow() throws IOException {
+        when(delegate.get(EXAMPLE_URI)).thenReturn(failing(new TemporaryAllow("404 Not Found")));
+        try {
+            instance.get(EXAMPLE_URI).read();
+        } catch (TemporaryAllow e) {
+            assertThat(store.get(EXAMPLE_URI.toString()).getOutcome(), is(StoredResource.Outcome.ALLOW));
+        }
+        instance.get(EXAMPLE_URI).read();
+    }
+
+    @Test
+    public void givenIOException_whenRead_thenNothingIsStored() throws IOException {
+        when(delegate.get(EXAMPLE_URI)).thenReturn(failing(new IOException("Connection refused")));
+        try {
+            instance.get(EXAMPLE_URI).read();
+        } catch (IOException expected) {
+        }
+        assertThat(store.get(EXAMPLE_URI.toString()), nullValue());
+    }
+
+    @Test
+    public void givenDisallow_whenRead_thenNothingIsStored() throws IOException {
+        when(delegate.get(EXAMPLE_URI)).thenReturn(failing(new TemporaryDisallow("503 Service Unavailable")));
+        try {
+            instance.get(EXAMPLE_URI).read();
+        } catch (TemporaryDisallow expected) {
+        }
+        assertThat(store.get(EXAMPLE_URI.toString()), nullValue());
+    }
+
+    @Test
+    public void givenDisallow_whenGetAsyncWithoutValidatorsAndRead_thenNothingIsStored() throws Exception {
+        when(delegate.getAsync(EXAMPLE_URI)).thenReturn(Futures.immediateFuture(
+                failing(new TemporaryDisallow("503 Service Unavailable"))));
+        try {
+            instance.getAsync(EXAMPLE_URI).get().read();
+        } catch (TemporaryDisallow expected) {
+        }
+        assertThat(store.get(EXAMPLE_URI.toString()), nullValue());
+    }
+
+    @Test
+    public void givenServerError_whenGetAsyncAndRead_thenNothingIsStored() throws Exception {
+        when(delegate.getAsync(EXAMPLE_URI, Validators.NONE)).thenReturn(Futures.immediateFuture(
+                new ValidatedCharSource(failing(new TemporaryDisallow("503 Service Unavailable")),
+                        Validators.NONE, 503, ValidatedCharSource.NO_MAX_AGE)));
+        try {
+            instance.getAsync(EXAMPLE_URI, Validators.NONE).get().read();
+        } catch (TemporaryDisallow expected) {
+        }
+        assertThat(store.get(EXAMPLE_URI.toString()), nullValue());
+    }
+
+    @Test
+    public void givenClientErrorDisallow_whenGetAsyncAndRead_thenDisallowIsStored() throws Exception {
+        when(delegate.getAsync(EXAMPLE_URI, Validators.NONE)).thenReturn(Futures.immediateFuture(
+                new ValidatedCharSource(failing(new TemporaryDisallow("403 Forbidden")),
+                        Validators.NONE, 403, ValidatedCharSource.NO_MAX_AGE)));
+        try {
+            instance.getAsync(EXAMPLE_URI, Validators.NONE).get().read();
+        } catch (TemporaryDisallow expected) {
+        }
+        assertThat(store.get(EXAMPLE_URI.toString()).getOutcome(), is(StoredResource.Outcome.DISALLOW));
+    }
+
+    @Test
+    public void givenMaxAge_whenGetAsync_thenStatusAndMaxAgePreserved() throws Exception {
+        when(delegate.getAsync(EXAMPLE_URI, Validators.NONE)).thenReturn(Futures.immediateFuture(
+                new ValidatedCharSource(CharSource.wrap(CONTENT), Validators.NONE, 200, 60000L)));
+        ValidatedCharSource result = instance.getAsync(EXAMPLE_URI, Validators.NONE).get();
+        assertThat(result.getStatusCode(), equalTo(200));
+        assertThat(result.getMaxAgeMillis(), equalTo(60000L));
+    }
+
+    @Test
+    public void givenStoredWithValidators_whenGetAsync_thenValidatorsAreReplayed() throws Exception {
+        when(delegate.getAsync(EXAMPLE_URI, Validators.NONE)).thenReturn(Futures.immediateFuture(
+                new ValidatedCharSource(CharSource.wrap(CONTENT), VALIDATORS, 200, ValidatedCharSource.NO_MAX_AGE)));
+        instance.getAsync(EXAMPLE_URI, Validators.NONE).get().read();
+        ValidatedCharSource result = instance.getAsync(EXAMPLE_URI, Validators.NONE).get();
+        assertThat(result.read(), equalTo(CONTENT));
+        assertThat(result.getValidators(), equalTo(VALIDATORS));
+        verify(delegate, times(1)).getAsync(EXAMPLE_URI, Validators.NONE);
+    }
+
+    @Test
+    public void givenStored_whenGetAsyncWithValidators_thenDelegateIsCalled() throws Exception {
+        when(delegate.getAsync(EXAMPLE_URI, VALIDATORS)).thenReturn(Futures.immediateFuture(
+                new ValidatedCharSource(CharSource.wrap(CONTENT), VALIDATORS, 200, ValidatedCharSource.NO_MAX_AGE)));
+        instance.get(EXAMPLE_URI).read();
+        instance.getAsync(EXAMPLE_URI, VALIDATORS).get().read();
+        verify(delegate, times(1)).getAsync(EXAMPLE_URI, VALIDATORS);
+    }
+
+    @Test
+    public void givenShortMaxAge_whenGetAsync_thenStoredWithPolicyExpiry() throws Exception {
+        when(expiryPolicy.getExpiresAfterMillis(RobotsEntry.Outcome.SUCCESS, 60000L)).thenReturn(60000L);
+        when(delegate.getAsync(EXAMPLE_URI, Validators.NONE)).thenReturn(Futures.immediateFuture(
+                new ValidatedCharSource(CharSource.wrap(CONTENT), Validators.NONE, 200, 60000L)));
+        instance.getAsync(EXAMPLE_URI, Validators.NONE).get().read();
+
+        StoredResource stored = store.get(EXAMPLE_URI.toString());
+        assertThat(stored.getStatusCode(), equalTo(200));
+        assertThat(stored.getMaxAgeMillis(), equalTo(60000L));
+        assertThat(stored.getExpiresMillis() - stored.getFetchedMillis(), equalTo(60000L));
+
+        ValidatedCharSource replayed = instance.getAsync(EXAMPLE_URI, Validators.NONE).get();
+        assertThat(replayed.getStatusCode(), equalTo(200));
+        assertThat(replayed.getMaxAgeMillis(), allOf(greaterThan(0L), lessThanOrEqualTo(60000L)));
+        verify(delegate, times(1)).getAsync(EXAMPLE_URI, Validators.NONE);
+    }
+
+    @Test
+    public void givenClientError_whenGetAsync_thenPolicyAskedForClientErrorExpiry() throws Exception {
+        when(delegate.getAsync(EXAMPLE_URI, Validators.NONE)).thenReturn(Futures.immediateFuture(
+                new ValidatedCharSource(failing(new TemporaryAllow("404 Not Found")),
+                        Validators.NONE, 404, ValidatedCharSource.NO_MAX_AGE)));
+        try {
+            instance.getAsync(EXAMPLE_URI, Validators.NONE).get().read();
+        } catch (TemporaryAllow expected) {
+        }
+        verify(expiryPolicy).getExpiresAfterMillis(RobotsEntry.Outcome.CLIENT_ERROR, ValidatedCharSource.NO_MAX_AGE);
+    }
+
+    @Test
+    public void givenExpired_whenRead_thenDelegateIsCalledAgain() throws IOException {
+        when(expiryPolicy.getExpiresAfterMillis(any(RobotsEntry.Outcome.class), anyLong())).thenReturn(0L);
+        instance.get(EXAMPLE_URI).read();
+        instance.get(EXAMPLE_URI).read();
+        verify(delegate, times(2)).get(EXAMPLE_URI);
+    }
+
+    private static CharSource failing(final IOException e) {
+        return new CharSource() {
+            @Override
+            public Reader openStream() throws IOException {
+                throw e;
+            }
+        };
+    }
+}
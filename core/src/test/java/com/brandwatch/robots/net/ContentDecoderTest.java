@@ -0,0 +1,108 @@
+package com.brandwatch.robots.net;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.base.Charsets;
+import com.google.common.primitives.Bytes;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ContentDecoderTest {
+
+    private static final String CONTENT = "User-agent: *\nDisallow: /b\u00fccher\n";
+
+    @Test
+    public void givenNoDeclaredCharset_whenDecode_thenDefaultCharsetUsed() {
+        assertThat(decode(CONTENT.getBytes(Charsets.UTF_8), null), equalTo(CONTENT));
+    }
+
+    @Test
+    public void givenDeclaredCharset_whenDecode_thenDeclaredCharsetUsed() {
+        assertThat(decode(CONTENT.getBytes(Charsets.ISO_8859_1), "ISO-8859-1"), equalTo(CONTENT));
+    }
+
+    @Test
+    public void givenQuotedDeclaredCharset_whenDecode_thenDeclaredCharsetUsed() {
+        assertThat(decode(CONTENT.getBytes(Charsets.ISO_8859_1), "\"iso-8859-1\""), equalTo(CONTENT));
+    }
+
+    @Test
+    public void givenUnsupportedDeclaredCharset_whenDecode_thenDefaultCharsetUsed() {
+        assertThat(decode(CONTENT.getBytes(Charsets.UTF_8), "x-unheard-of"), equalTo(CONTENT));
+    }
+
+    @Test
+    public void givenIllegalDeclaredCharset_whenDecode_thenDefaultCharsetUsed() {
+        assertThat(decode(CONTENT.getBytes(Charsets.UTF_8), "utf 8?"), equalTo(CONTENT));
+    }
+
+    @Test
+    public void givenUtf8ByteOrderMark_whenDecode_thenMarkSkipped() {
+        final byte[] bytes = Bytes.concat(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF},
+                CONTENT.getBytes(Charsets.UTF_8));
+        assertThat(decode(bytes, "ISO-8859-1"), equalTo(CONTENT));
+    }
+
+    @Test
+    public void givenUtf16LittleEndianByteOrderMark_whenDecode_thenMarkSkippedAndCharsetUsed() {
+        final byte[] bytes = Bytes.concat(new byte[]{(byte) 0xFF, (byte) 0xFE},
+                CONTENT.getBytes(Charsets.UTF_16LE));
+        assertThat(decode(bytes, null), equalTo(CONTENT));
+    }
+
+    @Test
+    public void givenUtf16BigEndianByteOrderMark_whenDecode_thenMarkSkippedAndCharsetUsed() {
+        final byte[] bytes = Bytes.concat(new byte[]{(byte) 0xFE, (byte) 0xFF},
+                CONTENT.getBytes(Charsets.UTF_16BE));
+        assertThat(decode(bytes, null), equalTo(CONTENT));
+    }
+
+    @Test
+    public void givenMalformedInput_whenDecode_thenReplaced() {
+        assertThat(decode(new byte[]{'a', (byte) 0xFF, 'b'}, null), equalTo("a\uFFFDb"));
+    }
+
+    @Test
+    public void givenEmptyInput_whenDecode_thenEmpty() {
+        assertThat(decode(new byte[0], null), equalTo(""));
+    }
+
+    private static String decode(byte[] bytes, String declaredCharset) {
+        return ContentDecoder.decode(ByteBuffer.wrap(bytes), declaredCharset, Charsets.UTF_8).toString();
+    }
+}
@@ -0,0 +1,192 @@
+package com.brandwatch.robots.net;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ResourceStoreTest {
+
+    private static final String KEY = "http://example.com/robots.txt";
+    private static final StoredResource CONTENT = new StoredResource(
+            StoredResource.Outcome.CONTENT, "User-agent: *\nDisallow: /private\n", 1000L, Long.MAX_VALUE);
+    private static final StoredResource DISALLOW = new StoredResource(
+            StoredResource.Outcome.DISALLOW, "503 Service Unavailable", 2000L, Long.MAX_VALUE);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+    private ResourceStore store;
+
+    @Before
+    public void setup() throws IOException {
+        directory = folder.newFolder();
+        store = ResourceStore.open(directory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void givenNullDirectory_whenOpen_thenThrowsNPE() throws IOException {
+        ResourceStore.open(null);
+    }
+
+    @Test
+    public void givenEmptyStore_whenGet_thenReturnsNull() throws IOException {
+        assertThat(store.get(KEY), nullValue());
+    }
+
+    @Test
+    public void givenPut_whenGet_thenReturnsStoredResource() throws IOException {
+        store.put(KEY, CONTENT);
+        assertThat(store.get(KEY), equalTo(CONTENT));
+    }
+
+    @Test
+    public void givenRepeatedPut_whenGet_thenReturnsLatest() throws IOException {
+        store.put(KEY, CONTENT);
+        store.put(KEY, DISALLOW);
+        assertThat(store.get(KEY), equalTo(DISALLOW));
+        assertThat(store.size(), is(1));
+    }
+
+    @Test
+    public void givenReopenedStore_whenGet_thenReturnsStoredResource() throws IOException {
+        store.put(KEY, CONTENT);
+        store.put("http://example.org/robots.txt", DISALLOW);
+        store.close();
+
+        store = ResourceStore.open(directory);
+        assertThat(store.size(), is(2));
+        assertThat(store.get(KEY), equalTo(CONTENT));
+        assertThat(store.get("http://example.org/robots.txt"), equalTo(DISALLOW));
+    }
+
+    @Test
+    public void givenValidatorsAndMaxAge_whenReopen_thenRestored() throws IOException {
+        final StoredResource validated = new StoredResource(StoredResource.Outcome.CONTENT, "User-agent: *\n",
+                new Validators("\"abc\"", null), 200, 60000L, 1000L, Long.MAX_VALUE);
+        store.put(KEY, validated);
+        store.close();
+
+        store = ResourceStore.open(directory);
+        assertThat(store.get(KEY), equalTo(validated));
+    }
+
+    @Test
+    public void givenTornRecord_whenReopen_thenRecordIsDiscarded() throws IOException {
+        store.put(KEY, CONTENT);
+        store.put("http://example.org/robots.txt", DISALLOW);
+        store.close();
+
+        final File log = new File(directory, ResourceStore.LOG_FILE_NAME);
+        final RandomAccessFile file = new RandomAccessFile(log, "rw");
+        try {
+            file.setLength(file.length() - 3);
+        } finally {
+            file.close();
+        }
+
+        store = ResourceStore.open(directory);
+        assertThat(store.get(KEY), equalTo(CONTENT));
+        assertThat(store.get("http://example.org/robots.txt"), nullValue());
+
+        store.put("http://example.org/robots.txt", DISALLOW);
+        assertThat(store.get("http://example.org/robots.txt"), equalTo(DISALLOW));
+    }
+
+    @Test
+    public void givenUnrecognisedFile_whenOpen_thenStartsEmpty() throws IOException {
+        store.close();
+        final RandomAccessFile file = new RandomAccessFile(new File(directory, ResourceStore.LOG_FILE_NAME), "rw");
+        try {
+            file.seek(0);
+            file.writeInt(0xdeadbeef);
+        } finally {
+            file.close();
+        }
+
+        store = ResourceStore.open(directory);
+        assertThat(store.size(), is(0));
+    }
+
+    @Test
+    public void givenManySupersededRecords_whenPut_thenLogIsCompacted() throws IOException {
+        final File log = new File(directory, ResourceStore.LOG_FILE_NAME);
+        final long emptyLength = log.length();
+        store.put(KEY, CONTENT);
+        final long recordLength = log.length() - emptyLength;
+        for (int i = 1; i < 2000; i++) {
+            store.put(KEY, CONTENT);
+        }
+        assertThat(log.length() < emptyLength + 1100 * recordLength, is(true));
+        assertThat(store.get(KEY), equalTo(CONTENT));
+    }
+
+    @Test
+    public void givenCompactionFails_whenPut_thenStoreRemainsUsable() throws IOException {
+        assertThat(new File(directory, ResourceStore.LOG_FILE_NAME + ".tmp").mkdir(), is(true));
+        store.put(KEY, CONTENT);
+        for (int i = 1; i < 2000; i++) {
+            putIgnoringCompactionFailure(KEY, CONTENT);
+        }
+        assertThat(store.get(KEY), equalTo(CONTENT));
+        putIgnoringCompactionFailure(KEY, DISALLOW);
+        assertThat(store.get(KEY), equalTo(DISALLOW));
+    }
+
+    private void putIgnoringCompactionFailure(String key, StoredResource resource) {
+        try {
+            store.put(key, resource);
+        } catch (IOException e) {
+            // the record is written before compaction is attempted
+        }
+    }
+}
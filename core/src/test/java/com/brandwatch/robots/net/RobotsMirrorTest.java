@@ -0,0 +1,185 @@
+package com.brandwatch.robots.net;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class RobotsMirrorTest {
+
+    private static final String EXAMPLE_ROBOTS = "User-agent: *\nDisallow: /private\n";
+    private static final String OTHER_ROBOTS = "User-agent: *\nDisallow: /\n";
+    private static final String PORT_ROBOTS = "User-agent: *\nAllow: /\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = folder.newFolder();
+        mirror("example.com", EXAMPLE_ROBOTS);
+        mirror("other.example.com", OTHER_ROBOTS);
+        mirror("example.com_8080", PORT_ROBOTS);
+    }
+
+    @Test
+    public void givenDefaultPort_whenKey_thenHost() {
+        assertThat(RobotsMirror.key(origin("https://Example.com/path")), equalTo("example.com"));
+    }
+
+    @Test
+    public void givenOtherPort_whenKey_thenHostAndPort() {
+        assertThat(RobotsMirror.key(origin("http://example.com:8080/path")), equalTo("example.com_8080"));
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void givenMissingLocation_whenOpen_thenThrowsFileNotFoundException() throws IOException {
+        RobotsMirror.open(new File(directory, "missing"));
+    }
+
+    @Test
+    public void givenDirectory_whenOpen_thenDirectoryMirror() throws IOException {
+        assertThat(RobotsMirror.open(directory), instanceOf(RobotsMirrorDirectory.class));
+    }
+
+    @Test
+    public void givenDirectory_whenGet_thenReturnsBody() throws IOException {
+        final RobotsMirror mirror = RobotsMirror.open(directory);
+        assertThat(read(mirror.get(origin("http://example.com/"))), equalTo(EXAMPLE_ROBOTS));
+        assertThat(read(mirror.get(origin("http://example.com:8080/"))), equalTo(PORT_ROBOTS));
+    }
+
+    @Test
+    public void givenDirectory_whenGetMissingHost_thenReturnsNull() throws IOException {
+        assertThat(RobotsMirror.open(directory).get(origin("http://missing.example.com/")), nullValue());
+    }
+
+    @Test
+    public void givenArchive_whenOpen_thenArchiveMirror() throws IOException {
+        assertThat(RobotsMirror.open(archive(RobotsMirrorArchive.DEFAULT_SEGMENT_SIZE)),
+                instanceOf(RobotsMirrorArchive.class));
+    }
+
+    @Test
+    public void givenArchive_whenGet_thenReturnsBody() throws IOException {
+        final RobotsMirror mirror = RobotsMirror.open(archive(RobotsMirrorArchive.DEFAULT_SEGMENT_SIZE));
+        assertThat(mirror.size(), equalTo(3));
+        assertThat(read(mirror.get(origin("http://example.com/"))), equalTo(EXAMPLE_ROBOTS));
+        assertThat(read(mirror.get(origin("https://other.example.com/"))), equalTo(OTHER_ROBOTS));
+        assertThat(read(mirror.get(origin("http://example.com:8080/"))), equalTo(PORT_ROBOTS));
+    }
+
+    @Test
+    public void givenArchiveWithSmallSegments_whenGet_thenReturnsBody() throws IOException {
+        final RobotsMirror mirror = RobotsMirror.open(archive(128));
+        assertThat(read(mirror.get(origin("http://example.com/"))), equalTo(EXAMPLE_ROBOTS));
+        assertThat(read(mirror.get(origin("https://other.example.com/"))), equalTo(OTHER_ROBOTS));
+        assertThat(read(mirror.get(origin("http://example.com:8080/"))), equalTo(PORT_ROBOTS));
+    }
+
+    @Test
+    public void givenArchive_whenGetMissingHost_thenReturnsNull() throws IOException {
+        final RobotsMirror mirror = RobotsMirror.open(archive(RobotsMirrorArchive.DEFAULT_SEGMENT_SIZE));
+        assertThat(mirror.get(origin("http://missing.example.com/")), nullValue());
+    }
+
+    @Test
+    public void givenArchive_whenGet_thenReadOnly() throws IOException {
+        final RobotsMirror mirror = RobotsMirror.open(archive(RobotsMirrorArchive.DEFAULT_SEGMENT_SIZE));
+        assertThat(mirror.get(origin("http://example.com/")).isReadOnly(), is(true));
+    }
+
+    @Test(expected = IOException.class)
+    public void givenBadMagicNumber_whenOpen_thenThrowsIOException() throws IOException {
+        final File archive = archive(RobotsMirrorArchive.DEFAULT_SEGMENT_SIZE);
+        final RandomAccessFile raf = new RandomAccessFile(archive, "rw");
+        try {
+            raf.writeInt(0);
+        } finally {
+            raf.close();
+        }
+        RobotsMirrorArchive.open(archive);
+    }
+
+    @Test(expected = IOException.class)
+    public void givenTruncatedArchive_whenOpen_thenThrowsIOException() throws IOException {
+        final File archive = archive(RobotsMirrorArchive.DEFAULT_SEGMENT_SIZE);
+        final RandomAccessFile raf = new RandomAccessFile(archive, "rw");
+        try {
+            raf.setLength(20);
+        } finally {
+            raf.close();
+        }
+        RobotsMirrorArchive.open(archive);
+    }
+
+    private void mirror(String key, String robots) throws IOException {
+        final File host = new File(directory, key);
+        host.mkdir();
+        Files.write(robots, new File(host, RobotsMirror.ROBOTS_FILE_NAME), Charsets.UTF_8);
+    }
+
+    private File archive(int segmentSize) throws IOException {
+        final File archive = folder.newFile();
+        RobotsMirrorArchive.write(directory, archive, segmentSize);
+        return archive;
+    }
+
+    private static Origin origin(String uri) {
+        return Origin.of(URI.create(uri));
+    }
+
+    private static String read(ByteBuffer body) {
+        return Charsets.UTF_8.decode(body).toString();
+    }
+}
@@ -0,0 +1,235 @@
+package com.brandwatch.robots.parser;
+
+/*
+ * #%L
+ * Robots (core)
+ * %%
+ * Copyright (C) 2015 Brandwatch
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Brandwatch nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import com.brandwatch.robots.AbstractDataTest;
+import com.google.common.base.Joiner;
+import com.google.common.io.CharStreams;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Checks that the streaming parser makes exactly the same handler calls, and fails on exactly the
+ * same inputs, as the JavaCC generated reference parser.
+ */
+public class RobotsTxtParserStreamingImplTest {
+
+    private static final String[] FRAGMENTS = {
+            "User-agent", "user-AGENT", "Allow", "ALLOW", "Disallow", "disallow", "Sitemap", "SiteMap",
+            "Crawl-delay", "x", "/path", "*", "$", "é",
+            ":", ":", ":", " ", " ", "\t", "\f", "\n", "\n", "\r", "\r\n", "#", "# comment", "\0", "\u0001",
+            "\u000b", " "
+    };
+
+    private final RobotsTxtParser reference = new RobotsTxtParserJavaccImpl();
+    private final RobotsTxtParser instance = new RobotsTxtParserStreamingImpl();
+
+    @Test
+    public void givenDataFiles_whenParse_thenSameAsReference() throws IOException {
+        for (Object[] parameters : AbstractDataTest.data()) {
+            final Reader reader = AbstractDataTest.resourceReader((String) parameters[0]);
+            try {
+                assertConforms(CharStreams.toString(reader));
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    @Test
+    public void givenEdgeCases_whenParse_thenSameAsReference() {
+        final String[] inputs = {
+                "", "#", "#\n#\r#\r\n#\n\r#", "\n\n\r\n", "x", "\0", "User-agent: *\0",
+                "User-agent: *\nAllow: /", "User-agent: *\rAllow: /", "User-agent: *\n\rAllow: /",
+                "User-agent: *\nAllow: \n", "User-agent: *\nAllow:#\n", "User-agent: *\nAllow:",
+                "User-agent:\nAllow:", "Things:\nStuff:", "Allow: /\n", "Sitemap: http://a/\nUser-agent: *",
+                " User-agent: *\n", "  User-agent: *\n", "User-agent : *\n", "User-agent:*\nDisallow:/a b \n",
+                " \n", "  \n", "\t\n", "User-agent: *\n \nDisallow: /\n", "User-agent: *\n  \nDisallow: /\n",
+                "User-agent: a\nUser-agent: b\nDisallow: /\n\nUser-agent: c\nAllow: /\nSitemap: x\nFoo: bar\n",
+                "Foo: bar \n", "User-agent: *\nAllow: /a:b#c\n", "User-AGENT: *\nDISALLOW: /\n",
+                "Disallow: /\nUser-agent: *", "User-agent: *\nNoindex\n", "User-agent: *\nUser-agent: *"
+        };
+        for (String input : inputs) {
+            assertConforms(input);
+        }
+    }
+
+    @Test
+    public void givenRandomInputs_whenParse_thenSameAsReference() {
+        final Random random = new Random(20150605L);
+        for (int i = 0; i < 20000; i++) {
+            final StringBuilder input = new StringBuilder();
+            final int length = random.nextInt(24);
+            for (int j = 0; j < length; j++) {
+                input.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            assertConforms(input.toString());
+        }
+    }
+
+    @Test
+    public void givenCharBuffer_whenParse_thenSameAsReader() throws ParseException {
+        final String input = "ignored User-agent: a\nDisallow: /x\nFoo: bar\n";
+        final CharBuffer buffer = CharBuffer.wrap(input.toCharArray(), 8, input.length() - 8).slice();
+        final RecordingHandler handler = new RecordingHandler();
+
+        new RobotsTxtParserStreamingImpl().parse(buffer, handler);
+
+        assertThat(handler.toString(), equalTo(record(reference, input.substring(8))));
+        assertThat(buffer.remaining(), equalTo(input.length() - 8));
+    }
+
+    @Test
+    public void givenReadOnlyCharBuffer_whenParse_thenSameAsReader() throws ParseException {
+        final String input = "User-agent: a\nDisallow: /x\n";
+        final RecordingHandler handler = new RecordingHandler();
+
+        new RobotsTxtParserStreamingImpl().parse(CharBuffer.wrap(input), handler);
+
+        assertThat(handler.toString(), equalTo(record(reference, input)));
+    }
+
+    @Test
+    public void givenCharBuffer_whenReferenceParse_thenSameAsReader() throws ParseException {
+        final String input = "ignored User-agent: a\nDisallow: /x\nFoo: bar\n";
+        final CharBuffer buffer = CharBuffer.wrap(input.toCharArray(), 8, input.length() - 8).slice();
+        final RecordingHandler handler = new RecordingHandler();
+
+        reference.parse(buffer, handler);
+
+        assertThat(handler.toString(), equalTo(record(reference, input.substring(8))));
+        assertThat(buffer.remaining(), equalTo(input.length() - 8));
+    }
+
+    @Test
+    public void givenInputLargerThanBuffer_whenParse_thenSameAsReference() {
+        final StringBuilder input = new StringBuilder("User-agent: *\n");
+        for (int i = 0; i < 2000; i++) {
+            input.append("Disallow: /").append(i).append('\n');
+        }
+        assertConforms(input.toString());
+    }
+
+    @Test
+    public void givenUnparsableInput_whenParse_thenFailureReportsPosition() {
+        final String result = record(instance, "User-agent: *\nDisallow: /\nfoo\n");
+        assertThat(result, not(equalTo(record(instance, ""))));
+        assertThat(result.contains("line 3, column 4"), equalTo(true));
+    }
+
+    private void assertConforms(@Nonnull String input) {
+        final String expected = record(reference, input).replaceAll("(?s)ParseException.*", "ParseException");
+        final String actual = record(instance, input).replaceAll("(?s)ParseException.*", "ParseException");
+        assertThat(escape(input), actual, equalTo(expected));
+    }
+
+    @Nonnull
+    private static String record(@Nonnull RobotsTxtParser parser, @Nonnull String input) {
+        final RecordingHandler handler = new RecordingHandler();
+        try {
+            parser.parse(new StringReader(input), handler);
+        } catch (ParseException e) {
+            handler.events.add("ParseException: " + e.getMessage());
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        return handler.toString();
+    }
+
+    @Nonnull
+    private static String escape(@Nonnull String input) {
+        final StringBuilder builder = new StringBuilder();
+        for (char c : input.toCharArray()) {
+            builder.append(c >= ' ' && c < 0x7f ? String.valueOf(c) : String.format("\\u%04x", (int) c));
+        }
+        return builder.toString();
+    }
+
+    private static final class RecordingHandler implements RobotsParseHandler {
+
+        private final List<String> events = new ArrayList<String>();
+
+        @Override
+        public void startEntry() {
+            events.add("startEntry");
+        }
+
+        @Override
+        public void userAgent(@Nonnull String pattern) {
+            events.add("userAgent[" + pattern + "]");
+        }
+
+        @Override
+        public void allow(@Nonnull String pattern) {
+            events.add("allow[" + pattern + "]");
+        }
+
+        @Override
+        public void disallow(@Nonnull String pattern) {
+            events.add("disallow[" + pattern + "]");
+        }
+
+        @Override
+        public void endEntry() {
+            events.add("endEntry");
+        }
+
+        @Override
+        public void siteMap(@Nonnull String url) {
+            events.add("siteMap[" + url + "]");
+        }
+
+        @Override
+        public void otherDirective(@Nonnull String field, @Nonnull String value) {
+            events.add("otherDirective[" + field + "][" + value + "]");
+        }
+
+        @Override
+        public String toString() {
+            return Joiner.on(", ").join(events);
+        }
+    }
+}